@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import org.joda.time.DateTime;
+import org.n52.shetland.ogc.swe.SweConstants;
+import org.n52.sos.ds.TestDataSqlScriptGenerator;
+import org.n52.sos.util.GeometryHandler;
+import org.n52.svalbard.util.SweHelper;
+
+/**
+ * Deterministic test data for the benchmarks. The values are derived from
+ * the generators of {@link TestDataSqlScriptGenerator} with a fixed seed, so
+ * that every benchmark run operates on the same data set.
+ *
+ * @since 5.5.0
+ */
+public final class BenchmarkData {
+
+    public static final long SEED = 52L;
+
+    public static final String PROCEDURE_PREFIX = "http://www.example.org/sensors/";
+
+    public static final String OFFERING_PREFIX = "test_offering_";
+
+    public static final String FEATURE_PREFIX = "test_feature_";
+
+    public static final String OBSERVABLE_PROPERTY_PREFIX = "test_observable_property_";
+
+    public static final String UNIT = "test_unit_1";
+
+    public static final String TOKEN_SEPARATOR = ",";
+
+    public static final String BLOCK_SEPARATOR = "#";
+
+    public static final String DECIMAL_SEPARATOR = ".";
+
+    public static final int EPSG_4326 = 4326;
+
+    public static final int EPSG_31467 = 31467;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return a {@link GeometryHandler} with EPSG:4326 as storage CRS, set up
+     *         like in the unit tests
+     */
+    public static GeometryHandler geometryHandler() {
+        GeometryHandler geometryHandler = new GeometryHandler();
+        geometryHandler.setAuthority("EPSG");
+        geometryHandler.setStorageEpsg(EPSG_4326);
+        geometryHandler.setSupportedCRS(EPSG_4326 + "," + EPSG_31467);
+        geometryHandler.setEpsgCodesWithNorthingFirstAxisOrder(EPSG_4326 + ";" + EPSG_31467);
+        geometryHandler.setDatasourceNorthingFirst(false);
+        geometryHandler.setSpatialDatasource(true);
+        geometryHandler.init();
+        return geometryHandler;
+    }
+
+    public static SweHelper sweHelper() {
+        SweHelper helper = new SweHelper();
+        helper.setDecimalSeparator(DECIMAL_SEPARATOR);
+        helper.setTokenSeparator(TOKEN_SEPARATOR);
+        helper.setTupleSeparator(BLOCK_SEPARATOR);
+        helper.setNorthingNames(SweConstants.SweCoordinateNames.LATITUDE);
+        helper.setEastingNames(SweConstants.SweCoordinateNames.LONGITUDE);
+        return helper;
+    }
+
+    public static Random random() {
+        return new Random(SEED);
+    }
+
+    public static String procedure(int index) {
+        return PROCEDURE_PREFIX + index;
+    }
+
+    public static String offering(int index) {
+        return OFFERING_PREFIX + index;
+    }
+
+    public static String feature(int index) {
+        return FEATURE_PREFIX + index;
+    }
+
+    public static String observableProperty(int index) {
+        return OBSERVABLE_PROPERTY_PREFIX + index;
+    }
+
+    public static List<String> procedures(int count) {
+        return identifiers(BenchmarkData::procedure, count);
+    }
+
+    public static List<String> offerings(int count) {
+        return identifiers(BenchmarkData::offering, count);
+    }
+
+    public static List<String> features(int count) {
+        return identifiers(BenchmarkData::feature, count);
+    }
+
+    public static List<String> observableProperties(int count) {
+        return identifiers(BenchmarkData::observableProperty, count);
+    }
+
+    private static List<String> identifiers(IntFunction<String> identifier, int count) {
+        List<String> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(identifier.apply(i));
+        }
+        return list;
+    }
+
+    /**
+     * @return a longitude/latitude tuple in WGS84
+     */
+    public static Double[] coordinate(Random random) {
+        return TestDataSqlScriptGenerator.generateCoordinateTuple(random, -90.0, 90.0, -180.0, 180.0);
+    }
+
+    public static double value(Random random) {
+        return TestDataSqlScriptGenerator.generateResult(random);
+    }
+
+    public static DateTime timestamp(int index) {
+        return TestDataSqlScriptGenerator.generateTimestamp(index);
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.util.JTSHelper;
+import org.n52.sos.util.GeometryHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Coordinate transformations of the {@link GeometryHandler} between the
+ * storage CRS (EPSG:4326) and a projected CRS (EPSG:31467), as done for
+ * sampling geometries and spatial filters.
+ *
+ * @since 5.5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeometryTransformBenchmark {
+
+    /**
+     * The number of vertices of the transformed geometry.
+     */
+    @Param({ "1", "100", "10000" })
+    private int vertices;
+
+    private GeometryHandler geometryHandler;
+
+    private Geometry geometry4326;
+
+    private Geometry geometry31467;
+
+    @Setup
+    public void setUp() throws OwsExceptionReport {
+        geometryHandler = BenchmarkData.geometryHandler();
+        geometry4326 = createGeometry(JTSHelper.getGeometryFactoryForSRID(BenchmarkData.EPSG_4326));
+        geometry31467 = geometryHandler.transform(geometry4326, BenchmarkData.EPSG_31467);
+    }
+
+    private Geometry createGeometry(GeometryFactory factory) {
+        Random random = BenchmarkData.random();
+        Coordinate[] coordinates = new Coordinate[vertices];
+        for (int i = 0; i < vertices; i++) {
+            // within the valid area of EPSG:31467, latitude first
+            coordinates[i] = new Coordinate(47.5 + random.nextDouble() * 7.0, 7.5 + random.nextDouble() * 3.0);
+        }
+        if (vertices == 1) {
+            return factory.createPoint(coordinates[0]);
+        }
+        return factory.createLineString(coordinates);
+    }
+
+    @Benchmark
+    public Geometry transformFromStorage() throws OwsExceptionReport {
+        return geometryHandler.transform(geometry4326, BenchmarkData.EPSG_31467);
+    }
+
+    @Benchmark
+    public Geometry transformToStorage() throws OwsExceptionReport {
+        return geometryHandler.transformToStorageEpsg(geometry31467);
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.sos.cache.InMemoryCacheImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Relation lookups of the {@link InMemoryCacheImpl} as done by the request
+ * parameter checks and the capabilities creation. Runs with several threads
+ * as the cache is shared between all requests.
+ *
+ * @since 5.5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class InMemoryCacheBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    private int procedures;
+
+    @Param({ "10" })
+    private int featuresPerProcedure;
+
+    private InMemoryCacheImpl cache;
+
+    @Setup
+    public void setUp() {
+        cache = new InMemoryCacheImpl();
+        for (int i = 0; i < procedures; i++) {
+            String procedure = BenchmarkData.procedure(i);
+            String offering = BenchmarkData.offering(i);
+            String observableProperty = BenchmarkData.observableProperty(i % 10);
+            cache.addProcedure(procedure);
+            cache.addOffering(offering);
+            cache.addProcedureForOffering(offering, procedure);
+            cache.addOfferingForProcedure(procedure, offering);
+            cache.addObservablePropertyForOffering(offering, observableProperty);
+            cache.addObservablePropertyForProcedure(procedure, observableProperty);
+            cache.addProcedureForObservableProperty(observableProperty, procedure);
+            for (int j = 0; j < featuresPerProcedure; j++) {
+                String feature = BenchmarkData.feature(i * featuresPerProcedure + j);
+                cache.addFeatureOfInterest(feature);
+                cache.addFeatureOfInterestForOffering(offering, feature);
+                cache.addProcedureForFeatureOfInterest(feature, procedure);
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<String> getOfferingsForProcedure(Cursor cursor) {
+        return cache.getOfferingsForProcedure(BenchmarkData.procedure(cursor.next(procedures)));
+    }
+
+    @Benchmark
+    public Set<String> getProceduresForFeatureOfInterest(Cursor cursor) {
+        return cache.getProceduresForFeatureOfInterest(
+                BenchmarkData.feature(cursor.next(procedures * featuresPerProcedure)));
+    }
+
+    @Benchmark
+    public Set<String> getFeaturesOfInterestForOffering(Cursor cursor) {
+        return cache.getFeaturesOfInterestForOffering(BenchmarkData.offering(cursor.next(procedures)));
+    }
+
+    @Benchmark
+    public Set<String> getObservablePropertiesForOffering(Cursor cursor) {
+        return cache.getObservablePropertiesForOffering(BenchmarkData.offering(cursor.next(procedures)));
+    }
+
+    @Benchmark
+    public boolean hasProcedure(Cursor cursor) {
+        return cache.hasProcedure(BenchmarkData.procedure(cursor.next(procedures)));
+    }
+
+    /**
+     * Walks the identifiers per thread, so that lookups are not served from a
+     * single hot entry.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int position;
+
+        int next(int bound) {
+            position = (position + 1) % bound;
+            return position;
+        }
+
+    }
+
+}
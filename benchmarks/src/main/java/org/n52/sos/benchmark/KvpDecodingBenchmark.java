@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.sos.decode.kvp.v2.GetObservationKvpDecoderv20;
+import org.n52.svalbard.decode.exception.DecodingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Joiner;
+
+/**
+ * Decoding of GetObservation KVP requests by the
+ * {@code AbstractSosKvpDecoder} based {@link GetObservationKvpDecoderv20}.
+ *
+ * @since 5.5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KvpDecodingBenchmark {
+
+    private static final Joiner COMMA = Joiner.on(',');
+
+    /**
+     * The number of identifiers per list parameter.
+     */
+    @Param({ "1", "10", "100" })
+    private int identifiers;
+
+    private GetObservationKvpDecoderv20 decoder;
+
+    private Map<String, String> parameters;
+
+    @Setup
+    public void setUp() {
+        decoder = new GetObservationKvpDecoderv20();
+        parameters = new HashMap<>();
+        parameters.put("service", "SOS");
+        parameters.put("version", "2.0.0");
+        parameters.put("request", "GetObservation");
+        parameters.put("procedure", COMMA.join(BenchmarkData.procedures(identifiers)));
+        parameters.put("offering", COMMA.join(BenchmarkData.offerings(identifiers)));
+        parameters.put("observedProperty", COMMA.join(BenchmarkData.observableProperties(identifiers)));
+        parameters.put("featureOfInterest", COMMA.join(BenchmarkData.features(identifiers)));
+        parameters.put("temporalFilter", "om:phenomenonTime,1970-01-01T00:00:00Z/1970-01-31T00:00:00Z");
+        parameters.put("spatialFilter",
+                "om:featureOfInterest/*/sams:shape,-10.0,-10.0,60.0,60.0,http://www.opengis.net/def/crs/EPSG/0/4326");
+        parameters.put("responseFormat", "http://www.opengis.net/om/2.0");
+    }
+
+    @Benchmark
+    public GetObservationRequest decode() throws DecodingException {
+        return decoder.decode(new HashMap<>(parameters));
+    }
+
+}
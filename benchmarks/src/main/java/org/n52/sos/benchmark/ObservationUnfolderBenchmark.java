@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.om.MultiObservationValues;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.SweDataArrayValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sensorML.SensorML;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.shetland.ogc.swe.SweDataArray;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+import org.n52.sos.ds.hibernate.util.observation.ObservationUnfolder;
+import org.n52.sos.util.GeometryHandler;
+import org.n52.svalbard.util.SweHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Unfolding of SWE array observations into single observations, as done for
+ * InsertObservation and InsertResult requests.
+ *
+ * @since 5.5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObservationUnfolderBenchmark {
+
+    private static final String PHENOMENON_TIME_DEFINITION =
+            "http://www.opengis.net/def/property/OGC/0/PhenomenonTime";
+
+    private static final String ISO_8601_UOM = "http://www.opengis.net/def/uom/ISO-8601/0/Gregorian";
+
+    /**
+     * The number of blocks of the data array.
+     */
+    @Param({ "100", "10000" })
+    private int rows;
+
+    /**
+     * The number of observed properties per block.
+     */
+    @Param({ "1", "5" })
+    private int properties;
+
+    private OmObservation observation;
+
+    private SweHelper sweHelper;
+
+    private GeometryHandler geometryHandler;
+
+    @Setup
+    public void setUp() {
+        sweHelper = BenchmarkData.sweHelper();
+        geometryHandler = BenchmarkData.geometryHandler();
+
+        SweDataRecord elementType = new SweDataRecord();
+        SweTime phenomenonTime = new SweTime();
+        phenomenonTime.setDefinition(PHENOMENON_TIME_DEFINITION);
+        phenomenonTime.setUom(ISO_8601_UOM);
+        elementType.addField(new SweField("phenomenonTime", phenomenonTime));
+        for (int i = 0; i < properties; i++) {
+            SweQuantity quantity = new SweQuantity();
+            quantity.setDefinition(BenchmarkData.observableProperty(i));
+            quantity.setUom(BenchmarkData.UNIT);
+            elementType.addField(new SweField("property_" + i, quantity));
+        }
+
+        SweTextEncoding encoding = new SweTextEncoding();
+        encoding.setTokenSeparator(BenchmarkData.TOKEN_SEPARATOR);
+        encoding.setBlockSeparator(BenchmarkData.BLOCK_SEPARATOR);
+        encoding.setDecimalSeparator(BenchmarkData.DECIMAL_SEPARATOR);
+
+        SweDataArray dataArray = new SweDataArray();
+        dataArray.setElementType(elementType);
+        dataArray.setEncoding(encoding);
+        Random random = BenchmarkData.random();
+        for (int row = 0; row < rows; row++) {
+            List<String> block = new ArrayList<>(properties + 1);
+            block.add(BenchmarkData.timestamp(row).toString());
+            for (int i = 0; i < properties; i++) {
+                block.add(Double.toString(BenchmarkData.value(random)));
+            }
+            dataArray.add(block);
+        }
+
+        SweDataArrayValue value = new SweDataArrayValue();
+        value.setValue(dataArray);
+        MultiObservationValues<SweDataArray> observationValue = new MultiObservationValues<>();
+        observationValue.setValue(value);
+
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setObservationType(OmConstants.OBS_TYPE_SWE_ARRAY_OBSERVATION);
+        constellation.setProcedure(
+                new SosProcedureDescription<AbstractFeature>(new SensorML().setIdentifier(BenchmarkData.procedure(0))));
+        constellation.setObservableProperty(new OmObservableProperty(BenchmarkData.observableProperty(0)));
+        constellation.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority(BenchmarkData.feature(0))));
+        constellation.addOffering(BenchmarkData.offering(0));
+
+        observation = new OmObservation();
+        observation.setObservationConstellation(constellation);
+        observation.setValue(observationValue);
+    }
+
+    @Benchmark
+    public List<OmObservation> unfold() throws OwsExceptionReport {
+        return new ObservationUnfolder(observation, sweHelper, geometryHandler).unfold();
+    }
+
+}
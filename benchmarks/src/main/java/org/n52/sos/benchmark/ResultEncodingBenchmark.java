@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.FeatureEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosResultEncoding;
+import org.n52.shetland.ogc.sos.SosResultStructure;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+import org.n52.sos.ds.hibernate.util.ResultHandlingHelper;
+import org.n52.svalbard.decode.DecoderRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding of GetResult values by the {@link ResultHandlingHelper}. The
+ * observations are detached entities, so the benchmark measures the string
+ * creation only and not the database access.
+ *
+ * @since 5.5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultEncodingBenchmark {
+
+    /**
+     * The number of encoded observations.
+     */
+    @Param({ "100", "10000", "100000" })
+    private int observations;
+
+    private ResultHandlingHelper helper;
+
+    private SosResultEncoding encoding;
+
+    private SosResultStructure structure;
+
+    private Collection<DataEntity<?>> entities;
+
+    @Setup
+    public void setUp() {
+        helper = new ResultHandlingHelper(BenchmarkData.geometryHandler(), BenchmarkData.sweHelper(),
+                new DecoderRepository());
+
+        String observableProperty = BenchmarkData.observableProperty(0);
+        SweTime phenomenonTime = new SweTime();
+        phenomenonTime.setDefinition(OmConstants.PHENOMENON_TIME);
+        SweTime resultTime = new SweTime();
+        resultTime.setDefinition(OmConstants.RESULT_TIME);
+        SweQuantity quantity = new SweQuantity();
+        quantity.setDefinition(observableProperty);
+        quantity.setUom(BenchmarkData.UNIT);
+        SweDataRecord record = new SweDataRecord();
+        record.addField(new SweField("phenomenonTime", phenomenonTime));
+        record.addField(new SweField("resultTime", resultTime));
+        record.addField(new SweField("value", quantity));
+        structure = new SosResultStructure(record, null);
+
+        SweTextEncoding textEncoding = new SweTextEncoding();
+        textEncoding.setTokenSeparator(BenchmarkData.TOKEN_SEPARATOR);
+        textEncoding.setBlockSeparator(BenchmarkData.BLOCK_SEPARATOR);
+        textEncoding.setDecimalSeparator(BenchmarkData.DECIMAL_SEPARATOR);
+        encoding = new SosResultEncoding(textEncoding, null);
+
+        PhenomenonEntity phenomenon = new PhenomenonEntity();
+        phenomenon.setIdentifier(observableProperty);
+        ProcedureEntity procedure = new ProcedureEntity();
+        procedure.setIdentifier(BenchmarkData.procedure(0));
+        FeatureEntity feature = new FeatureEntity();
+        feature.setIdentifier(BenchmarkData.feature(0));
+        DatasetEntity dataset = new DatasetEntity();
+        dataset.setObservableProperty(phenomenon);
+        dataset.setProcedure(procedure);
+        dataset.setFeature(feature);
+
+        Random random = BenchmarkData.random();
+        List<DataEntity<?>> list = new ArrayList<>(observations);
+        for (int i = 0; i < observations; i++) {
+            Date time = BenchmarkData.timestamp(i).toDate();
+            QuantityDataEntity entity = new QuantityDataEntity();
+            entity.setId((long) i);
+            entity.setValue(BigDecimal.valueOf(BenchmarkData.value(random)));
+            entity.setSamplingTimeStart(time);
+            entity.setSamplingTimeEnd(time);
+            entity.setResultTime(time);
+            entity.setDataset(dataset);
+            list.add(entity);
+        }
+        entities = list;
+    }
+
+    @Benchmark
+    public String createResultValues() throws OwsExceptionReport {
+        return helper.createResultValuesFromObservations(entities, encoding, structure, "noData", null);
+    }
+
+}
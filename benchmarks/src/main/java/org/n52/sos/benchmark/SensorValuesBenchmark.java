@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.sos.netcdf.data.ColumnarSensorValues;
+import org.n52.sos.netcdf.data.subsensor.PointProfileSubSensor;
+import org.n52.sos.netcdf.data.subsensor.SubSensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Collection of the values of a NetCDF sensor dataset, comparing the nested
+ * maps used before with the {@link ColumnarSensorValues}. Besides the time,
+ * the memory footprint is of interest: run with the GC profiler, e.g.
+ *
+ * <pre>
+ * java -jar benchmarks.jar SensorValuesBenchmark -prof gc
+ * </pre>
+ *
+ * and compare {@code gc.alloc.rate.norm}, the bytes allocated per operation,
+ * which is independent of the garbage collector.
+ *
+ * @since 5.5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorValuesBenchmark {
+
+    private static final int PHENOMENA = 3;
+
+    private static final double[] HEIGHTS = { -10.0, -5.0, -2.5, 0.0 };
+
+    /**
+     * The number of time steps of the dataset.
+     */
+    @Param({ "1000", "20000" })
+    private int times;
+
+    private final List<OmObservableProperty> phenomena = new ArrayList<>(PHENOMENA);
+
+    private final List<SubSensor> subSensors = new ArrayList<>(HEIGHTS.length);
+
+    private Time[] timeInstants;
+
+    private BigDecimal[] values;
+
+    @Setup
+    public void setUp() {
+        for (int p = 0; p < PHENOMENA; p++) {
+            phenomena.add(new OmObservableProperty(BenchmarkData.observableProperty(p)));
+        }
+        for (double height : HEIGHTS) {
+            subSensors.add(new PointProfileSubSensor(height));
+        }
+        timeInstants = new Time[times];
+        values = new BigDecimal[times * PHENOMENA * HEIGHTS.length];
+        Random random = BenchmarkData.random();
+        for (int i = 0; i < times; i++) {
+            timeInstants[i] = new TimeInstant(BenchmarkData.timestamp(i));
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] = BigDecimal.valueOf(BenchmarkData.value(random));
+        }
+    }
+
+    @Benchmark
+    public Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> nestedMaps() {
+        Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> map = new HashMap<>();
+        int v = 0;
+        for (int i = 0; i < times; i++) {
+            Map<OmObservableProperty, Map<SubSensor, Value<?>>> phenomenonMap = new HashMap<>();
+            for (OmObservableProperty phenomenon : phenomena) {
+                Map<SubSensor, Value<?>> subSensorMap = new HashMap<>();
+                for (SubSensor subSensor : subSensors) {
+                    subSensorMap.put(subSensor, new QuantityValue(values[v++]));
+                }
+                phenomenonMap.put(phenomenon, subSensorMap);
+            }
+            map.put(timeInstants[i], phenomenonMap);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public ColumnarSensorValues columnarValues() {
+        ColumnarSensorValues columnar = new ColumnarSensorValues(false);
+        int v = 0;
+        for (int i = 0; i < times; i++) {
+            for (OmObservableProperty phenomenon : phenomena) {
+                for (SubSensor subSensor : subSensors) {
+                    columnar.add(timeInstants[i], phenomenon, subSensor, values[v++]);
+                }
+            }
+        }
+        return columnar;
+    }
+
+}
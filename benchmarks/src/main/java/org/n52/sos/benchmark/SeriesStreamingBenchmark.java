@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.n52.iceland.binding.BindingRepository;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.iceland.ds.ConnectionProviderException;
+import org.n52.iceland.i18n.I18NDAORepository;
+import org.n52.series.db.beans.CategoryEntity;
+import org.n52.series.db.beans.CodespaceEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.FeatureEntity;
+import org.n52.series.db.beans.FormatEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.beans.PlatformEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.UnitEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.sos.ds.hibernate.H2Configuration;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.values.series.HibernateChunkSeriesStreamingValue;
+import org.n52.sos.ds.hibernate.values.series.SeriesValuePrefetcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Chunked iteration of the values of a single series with the
+ * {@link HibernateChunkSeriesStreamingValue} against the embedded H2
+ * database of {@link H2Configuration}.
+ *
+ * @since 5.5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SeriesStreamingBenchmark implements ConnectionProvider {
+
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * The number of observations of the streamed series.
+     */
+    @Param({ "10000", "100000" })
+    private int observations;
+
+    /**
+     * The chunk size of the streaming value, see
+     * {@code service.streaming.datasource.chunkSize}.
+     */
+    @Param({ "100", "1000", "10000" })
+    private int chunkSize;
+
+    /**
+     * The number of chunks that are queried ahead, see
+     * {@code service.streaming.datasource.prefetchChunks}.
+     */
+    @Param({ "0", "2" })
+    private int prefetchChunks;
+
+    /**
+     * Whether the values are queried as value rows, see
+     * {@code service.streaming.datasource.valueRows}.
+     */
+    @Param({ "false", "true" })
+    private boolean valueRows;
+
+    private final SeriesValuePrefetcher prefetcher = new SeriesValuePrefetcher();
+
+    private final DaoFactory daoFactory = new DaoFactory();
+
+    private final BindingRepository bindingRepository = new BindingRepository();
+
+    private GetObservationRequest request;
+
+    private long series;
+
+    private Class<?> valueRowClass;
+
+    @Setup(Level.Trial)
+    public void setUp() throws OwsExceptionReport {
+        H2Configuration.assertInitialized();
+        daoFactory.setI18NDAORepository(new I18NDAORepository());
+        daoFactory.setGeometryHandler(BenchmarkData.geometryHandler());
+        daoFactory.setSweHelper(BenchmarkData.sweHelper());
+        bindingRepository.setComponentFactories(Optional.empty());
+        bindingRepository.setComponents(Optional.empty());
+        bindingRepository.init();
+        prefetcher.setChunks(prefetchChunks);
+        prefetcher.init();
+
+        request = new GetObservationRequest();
+        request.setService(SosConstants.SOS);
+        request.setVersion(Sos2Constants.SERVICEVERSION);
+
+        Session session = H2Configuration.getSession();
+        Transaction transaction = null;
+        try {
+            HibernateMetadataCache.init(session);
+            transaction = session.beginTransaction();
+            series = insertSeries(session);
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            H2Configuration.returnSession(session);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        prefetcher.destroy();
+        H2Configuration.truncate();
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) throws OwsExceptionReport {
+        HibernateChunkSeriesStreamingValue value = new HibernateChunkSeriesStreamingValue(this, daoFactory, request,
+                series, bindingRepository, chunkSize);
+        if (valueRows) {
+            value.setValueRows(valueRowClass, BenchmarkData.UNIT);
+        }
+        SeriesValuePrefetcher.ReadAhead readAhead = prefetcher.newReadAhead();
+        if (readAhead != null) {
+            readAhead.add(value);
+        }
+        while (value.hasNext()) {
+            blackhole.consume(value.nextValue());
+        }
+    }
+
+    private long insertSeries(Session session) throws OwsExceptionReport {
+        CodespaceEntity codespace = new CodespaceEntity();
+        codespace.setName("codespace");
+        session.save(codespace);
+
+        FeatureEntity feature = new FeatureEntity();
+        feature.setIdentifier(BenchmarkData.feature(0));
+        feature.setName(BenchmarkData.feature(0));
+        feature.setIdentifierCodespace(codespace);
+        feature.setFeatureType(insertFormat(session, "http://www.opengis.net/def/nil/OGC/0/unknown"));
+        session.save(feature);
+
+        ProcedureEntity procedure = new ProcedureEntity();
+        procedure.setIdentifier(BenchmarkData.procedure(0));
+        procedure.setDeleted(false);
+        procedure.setFormat(insertFormat(session, "http://www.opengis.net/sensorml/2.0"));
+        session.save(procedure);
+
+        PhenomenonEntity phenomenon = new PhenomenonEntity();
+        phenomenon.setIdentifier(BenchmarkData.observableProperty(0));
+        session.save(phenomenon);
+
+        OfferingEntity offering = new OfferingEntity();
+        offering.setIdentifier(BenchmarkData.offering(0));
+        offering.setName(BenchmarkData.offering(0));
+        session.save(offering);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setIdentifier(BenchmarkData.observableProperty(0));
+        session.save(category);
+
+        PlatformEntity platform = new PlatformEntity();
+        platform.setIdentifier(BenchmarkData.procedure(0));
+        platform.setName(BenchmarkData.procedure(0));
+        session.save(platform);
+
+        UnitEntity unit = new UnitEntity();
+        unit.setUnit(BenchmarkData.UNIT);
+        session.save(unit);
+
+        DatasetEntity dataset = daoFactory.getSeriesDAO().getDatasetFactory().numeric();
+        dataset.setFeature(feature);
+        dataset.setProcedure(procedure);
+        dataset.setObservableProperty(phenomenon);
+        dataset.setOffering(offering);
+        dataset.setCategory(category);
+        dataset.setPlatform(platform);
+        dataset.setUnit(unit);
+        dataset.setDeleted(false);
+        dataset.setPublished(true);
+        session.save(dataset);
+        session.flush();
+        valueRowClass = daoFactory.getValueDAO().getValueRowClass(dataset);
+
+        Random random = BenchmarkData.random();
+        for (int i = 0; i < observations; i++) {
+            Date time = BenchmarkData.timestamp(i).toDate();
+            QuantityDataEntity observation = daoFactory.getObservationDAO().getObservationFactory().numeric();
+            observation.setDataset(dataset);
+            observation.setIdentifier(BenchmarkData.offering(0) + "/" + i);
+            observation.setValue(BigDecimal.valueOf(BenchmarkData.value(random)));
+            observation.setSamplingTimeStart(time);
+            observation.setSamplingTimeEnd(time);
+            observation.setResultTime(time);
+            observation.setDeleted(false);
+            session.save(observation);
+            if (i % BATCH_SIZE == 0) {
+                session.flush();
+                session.clear();
+            }
+        }
+        session.flush();
+        return dataset.getId();
+    }
+
+    private FormatEntity insertFormat(Session session, String format) {
+        FormatEntity entity = new FormatEntity();
+        entity.setFormat(format);
+        session.save(entity);
+        return entity;
+    }
+
+    @Override
+    public Object getConnection() throws ConnectionProviderException {
+        return H2Configuration.getSession();
+    }
+
+    @Override
+    public void returnConnection(Object connection) {
+        H2Configuration.returnSession((Session) connection);
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return 0;
+    }
+
+}
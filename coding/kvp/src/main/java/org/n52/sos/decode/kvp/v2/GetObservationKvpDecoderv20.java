@@ -42,6 +42,7 @@ import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
 import org.n52.shetland.ogc.swe.simpleType.SweText;
 import org.n52.shetland.ogc.swes.SwesExtension;
+import org.n52.sos.request.TemporalAggregation;
 import org.n52.svalbard.decode.Decoder;
 import org.n52.svalbard.decode.DecoderKey;
 import org.n52.svalbard.decode.DecoderRepository;
@@ -137,6 +138,8 @@ public class GetObservationKvpDecoderv20 extends AbstractObservationKvpDecoder<G
                 decodeNamespaces(GetObservationRequest::setNamespaces));
         builder.add(SosConstants.GetObservationParams.responseFormat, GetObservationRequest::setResponseFormat);
         builder.add(Sos2Constants.Extensions.MergeObservationsIntoDataArray, this::parseMergeObservationIntoDataArray);
+        builder.add(TemporalAggregation.INTERVAL, GetObservationRequest::addSweTextExtension);
+        builder.add(TemporalAggregation.FUNCTION, GetObservationRequest::addSweTextExtension);
         builder.add("extension", decodeList(this::parseExtensionParameter));
         builder.add("$filter", this::parseODataFes);
 
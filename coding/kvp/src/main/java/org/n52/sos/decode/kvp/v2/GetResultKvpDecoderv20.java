@@ -31,6 +31,7 @@ import org.n52.shetland.ogc.sos.Sos2Constants;
 import org.n52.shetland.ogc.sos.SosConstants;
 import org.n52.sos.decode.kvp.AbstractSosKvpDecoder;
 import org.n52.shetland.ogc.sos.request.GetResultRequest;
+import org.n52.sos.request.TemporalAggregation;
 
 /**
  * @since 4.0.0
@@ -58,6 +59,10 @@ public class GetResultKvpDecoderv20 extends AbstractSosKvpDecoder<GetResultReque
                     decodeList(decodeSpatialFilter(GetResultRequest::setSpatialFilter)));
         builder.add(Sos2Constants.GetObservationParams.namespaces,
                     decodeNamespaces(GetResultRequest::setNamespaces));
+        builder.add(TemporalAggregation.INTERVAL,
+                    GetResultRequest::addSweTextExtension);
+        builder.add(TemporalAggregation.FUNCTION,
+                    GetResultRequest::addSweTextExtension);
     }
 
 }
@@ -28,6 +28,7 @@
 package org.n52.sos.decode.kvp.v2;
 
 import java.util.Map;
+import java.util.Optional;
 
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
@@ -41,10 +42,12 @@ import org.locationtech.jts.io.WKTWriter;
 import org.n52.shetland.ogc.filter.ComparisonFilter;
 import org.n52.shetland.ogc.filter.FilterConstants;
 import org.n52.shetland.ogc.ows.OWSConstants;
+import org.n52.shetland.ogc.ows.exception.CodedException;
 import org.n52.shetland.ogc.sos.Sos2Constants;
 import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.shetland.ogc.swe.simpleType.SweText;
 import org.n52.sos.decode.kvp.KvpTest;
+import org.n52.sos.request.TemporalAggregation;
 import org.n52.svalbard.decode.exception.DecodingException;
 
 import com.google.common.collect.Maps;
@@ -113,6 +116,19 @@ public class GetObservationKvpDecoderv20Test implements KvpTest {
                 Matchers.is(GER));
     }
 
+    @Test
+    public void should_decode_temporal_aggregation_parameters() throws DecodingException, CodedException {
+        final Map<String, String> map = getDefaultMap();
+        map.put(TemporalAggregation.INTERVAL, "PT1H");
+        map.put(TemporalAggregation.FUNCTION, "max");
+        final GetObservationRequest request = decoder.decode(map);
+
+        Optional<TemporalAggregation> aggregation = TemporalAggregation.fromRequest(request);
+        MatcherAssert.assertThat(aggregation.isPresent(), Matchers.is(Boolean.TRUE));
+        MatcherAssert.assertThat(aggregation.get().getInterval(), Matchers.is(3600L));
+        MatcherAssert.assertThat(aggregation.get().getFunction(), Matchers.is(TemporalAggregation.Function.MAX));
+    }
+
     @Test
     public void should_decode_extension_parameter_crs() throws DecodingException {
         final Map<String, String> map = getDefaultMap();
@@ -59,6 +59,7 @@ import org.n52.shetland.ogc.om.values.GeometryValue;
 import org.n52.shetland.ogc.om.values.QuantityValue;
 import org.n52.shetland.ogc.om.values.Value;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.netcdf.data.ColumnarSensorValues;
 import org.n52.sos.netcdf.data.dataset.IdentifierDatasetSensor;
 import org.n52.sos.netcdf.data.dataset.TimeSeriesProfileSensorDataset;
 import org.n52.sos.netcdf.data.dataset.TimeSeriesSensorDataset;
@@ -104,9 +105,9 @@ public interface NetCDFUtil {
      */
     default List<NetCDFObservation> createNetCDFSosObservations(ObservationStream omObservations)
             throws EncodingException, OwsExceptionReport {
-        // the main map of observation value strings by asset, time, phenomenon,
-        // and subsensor (height, profile bin, etc)
-        Map<String, Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>>> obsValuesMap = new HashMap<>();
+        // the main map of observation values by asset, stored column wise by
+        // time, phenomenon and subsensor (height, profile bin, etc)
+        Map<String, ColumnarSensorValues> obsValuesMap = new HashMap<>();
 
         SetMultimap<String, OmObservableProperty> sensorPhens = HashMultimap.create();
         Map<String, AbstractFeature> sensorProcedure = Maps.newHashMap();
@@ -172,12 +173,10 @@ public interface NetCDFUtil {
         Envelope trajectoryEnvelope = new Envelope();
         Envelope trajectoryProfileEnvelope = new Envelope();
 
-        for (Map.Entry<String, Map<Time, Map<OmObservableProperty,
-                Map<SubSensor, Value<?>>>>> obsValuesEntry : obsValuesMap
-                .entrySet()) {
+        for (Map.Entry<String, ColumnarSensorValues> obsValuesEntry : obsValuesMap.entrySet()) {
             IdentifierDatasetSensor datasetSensor = new IdentifierDatasetSensor(obsValuesEntry.getKey());
             String sensor = datasetSensor.getSensorIdentifier();
-            Set<Time> sensorTimes = obsValuesEntry.getValue().keySet();
+            List<Time> sensorTimes = obsValuesEntry.getValue().getTimes();
 
             int lngCount = sensorLngs.get(sensor).size();
             int latCount = sensorLats.get(sensor).size();
@@ -300,8 +299,7 @@ public interface NetCDFUtil {
     default void processObservation(OmObservation sosObs, SetMultimap<String, OmObservableProperty> sensorPhens,
             Map<String, AbstractFeature> sensorProcedure, SetMultimap<String, Double> sensorLngs,
             SetMultimap<String, Double> sensorLats, SetMultimap<String, Double> sensorHeights,
-            Map<String, Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>>> obsValuesMap)
-            throws EncodingException {
+            Map<String, ColumnarSensorValues> obsValuesMap) throws EncodingException {
 
         OmObservationConstellation obsConst = sosObs.getObservationConstellation();
 
@@ -369,6 +367,9 @@ public interface NetCDFUtil {
             throw new EncodingException("Only QuantityValues are supported.");
         }
         QuantityValue quantityValue = (QuantityValue) obsValue;
+        if (quantityValue.getValue() == null) {
+            throw new EncodingException("QuantityValues without value are not supported.");
+        }
 
         // axes shouldn't be composite phenomena
         if (phenomena.size() == 1) {
@@ -414,33 +415,23 @@ public interface NetCDFUtil {
             }
         }
 
-        // get the sensor's data map
-        Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> sensorObsMap = obsValuesMap.get(sensor);
-        if (sensorObsMap == null) {
-            sensorObsMap = new HashMap<>();
-            obsValuesMap.put(sensor, sensorObsMap);
-        }
-
-        // get the map of the asset's phenomena by time
-        Map<OmObservableProperty, Map<SubSensor, Value<?>>> obsPropMap = sensorObsMap.get(obsTime);
-        if (obsPropMap == null) {
-            obsPropMap = new HashMap<>();
-            sensorObsMap.put(obsTime, obsPropMap);
+        // get the sensor's values
+        ColumnarSensorValues sensorValues = obsValuesMap.get(sensor);
+        if (sensorValues == null) {
+            sensorValues = new ColumnarSensorValues(
+                    Float.class.getSimpleName().equals(getNetcdfHelper().getVariableType()));
+            obsValuesMap.put(sensor, sensorValues);
         }
 
+        // add obs value (null subsensors are ok)
         OmObservableProperty phen = phenomenaMap.get(phenId);
-        Map<SubSensor, Value<?>> subSensorMap = obsPropMap.get(phen);
-        if (subSensorMap == null) {
-            subSensorMap = new HashMap<>();
-            obsPropMap.put(phen, subSensorMap);
-        }
-
-        // add obs value to subsensor map (null subsensors are ok)
+        SubSensor subSensor;
         if (sosObs.isSetParameter() && hasSamplingGeometry(sosObs)) {
-            subSensorMap.put(createSubSensor(sensor, getSamplingGeometryGeometry(sosObs)), obsValue);
+            subSensor = createSubSensor(sensor, getSamplingGeometryGeometry(sosObs));
         } else {
-            subSensorMap.put(createSubSensor(sensor, foi), obsValue);
+            subSensor = createSubSensor(sensor, foi);
         }
+        sensorValues.add(obsTime, phen, subSensor, quantityValue.getValue());
     }
 
     default void expandEnvelopeToInclude(Envelope env, Set<Double> lngs, Set<Double> lats) {
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.netcdf.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.sos.netcdf.data.subsensor.SubSensor;
+
+import ucar.ma2.Array;
+import ucar.ma2.ArrayFloat;
+import ucar.ma2.Index;
+
+/**
+ * Columnar store of the values of a single sensor. Every value is appended as
+ * a row of primitive time, phenomenon and sub sensor indices and a
+ * {@code double} or {@code float} value, instead of a boxed value in nested
+ * maps. The distinct times, phenomena and sub sensors are kept once each and
+ * sorted on demand, the values are written directly into the netCDF
+ * {@link Array}s.
+ *
+ * If a time, phenomenon and sub sensor combination is added more than once,
+ * the last value wins.
+ *
+ * @since 5.5.0
+ */
+public class ColumnarSensorValues {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final boolean floatValues;
+
+    private final Map<Time, Integer> timeIds = new HashMap<>();
+
+    private final List<Time> timeAxis = new ArrayList<>();
+
+    private final Map<OmObservableProperty, Integer> phenomenonIds = new HashMap<>();
+
+    private final List<OmObservableProperty> phenomena = new ArrayList<>();
+
+    private final Map<SubSensor, Integer> subSensorIds = new HashMap<>();
+
+    private final List<SubSensor> subSensorAxis = new ArrayList<>();
+
+    private int[] timeColumn = new int[INITIAL_CAPACITY];
+
+    private int[] phenomenonColumn = new int[INITIAL_CAPACITY];
+
+    private int[] subSensorColumn = new int[INITIAL_CAPACITY];
+
+    private double[] doubleColumn;
+
+    private float[] floatColumn;
+
+    private int size;
+
+    private List<Time> sortedTimes;
+
+    private int[] timeRanks;
+
+    /**
+     * @param floatValues
+     *            {@code true} if the values should be stored as
+     *            {@code float}, otherwise {@code double}
+     */
+    public ColumnarSensorValues(boolean floatValues) {
+        this.floatValues = floatValues;
+        if (floatValues) {
+            this.floatColumn = new float[INITIAL_CAPACITY];
+        } else {
+            this.doubleColumn = new double[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * Append a value.
+     *
+     * @param time
+     *            the time of the value
+     * @param phenomenon
+     *            the phenomenon
+     * @param subSensor
+     *            the sub sensor, may be {@code null}
+     * @param value
+     *            the value
+     */
+    public void add(Time time, OmObservableProperty phenomenon, SubSensor subSensor, Number value) {
+        ensureCapacity(size + 1);
+        Integer timeId = timeIds.get(time);
+        if (timeId == null) {
+            timeId = timeAxis.size();
+            timeIds.put(time, timeId);
+            timeAxis.add(time);
+            sortedTimes = null;
+            timeRanks = null;
+        }
+        timeColumn[size] = timeId;
+        phenomenonColumn[size] = getId(phenomenon, phenomenonIds, phenomena);
+        subSensorColumn[size] = subSensor == null ? -1 : getId(subSensor, subSensorIds, subSensorAxis);
+        if (floatValues) {
+            floatColumn[size] = value.floatValue();
+        } else {
+            doubleColumn[size] = value.doubleValue();
+        }
+        size++;
+    }
+
+    public boolean isFloatValues() {
+        return floatValues;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the sorted distinct times
+     */
+    public List<Time> getTimes() {
+        if (sortedTimes == null) {
+            List<Time> times = new ArrayList<>(timeAxis);
+            Collections.sort(times);
+            int[] ranks = new int[timeAxis.size()];
+            for (int i = 0; i < ranks.length; i++) {
+                ranks[timeIds.get(times.get(i))] = i;
+            }
+            timeRanks = ranks;
+            sortedTimes = Collections.unmodifiableList(times);
+        }
+        return sortedTimes;
+    }
+
+    /**
+     * @return the sorted distinct phenomena
+     */
+    public List<OmObservableProperty> getPhenomena() {
+        List<OmObservableProperty> list = new ArrayList<>(phenomena);
+        Collections.sort(list);
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @return the sorted distinct sub sensors, excluding {@code null}
+     */
+    public List<SubSensor> getSubSensors() {
+        List<SubSensor> list = new ArrayList<>(subSensorAxis);
+        Collections.sort(list);
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Write the values into the arrays of the phenomena. The first dimension
+     * of the arrays is the index of the time in {@link #getTimes()}, the second
+     * dimension is the index of the sub sensor in {@link #getSubSensors()} if
+     * {@code indexSubSensors} is set.
+     *
+     * @param arrays
+     *            the arrays by phenomenon
+     * @param indexSubSensors
+     *            if the sub sensor dimension should be indexed
+     */
+    public void fill(Map<OmObservableProperty, Array> arrays, boolean indexSubSensors) {
+        getTimes();
+        List<SubSensor> sortedSubSensors = getSubSensors();
+        int[] subSensorIndices = new int[subSensorAxis.size()];
+        for (int i = 0; i < subSensorIndices.length; i++) {
+            subSensorIndices[i] = sortedSubSensors.indexOf(subSensorAxis.get(i));
+        }
+        Array[] phenomenonArrays = new Array[phenomena.size()];
+        Index[] indices = new Index[phenomena.size()];
+        for (int i = 0; i < phenomenonArrays.length; i++) {
+            phenomenonArrays[i] = arrays.get(phenomena.get(i));
+            indices[i] = phenomenonArrays[i].getIndex();
+        }
+        for (int row = 0; row < size; row++) {
+            int phenomenon = phenomenonColumn[row];
+            Array array = phenomenonArrays[phenomenon];
+            Index index = indices[phenomenon];
+            index.setDim(0, timeRanks[timeColumn[row]]);
+            if (indexSubSensors) {
+                int subSensor = subSensorColumn[row];
+                index.setDim(1, subSensor < 0 ? -1 : subSensorIndices[subSensor]);
+            }
+            if (array instanceof ArrayFloat) {
+                array.setFloat(index, floatValues ? floatColumn[row] : (float) doubleColumn[row]);
+            } else {
+                array.setDouble(index, floatValues ? floatColumn[row] : doubleColumn[row]);
+            }
+        }
+    }
+
+    /**
+     * Create the nested map representation of the values, used by code that
+     * still works on
+     * {@link org.n52.sos.netcdf.data.dataset.AbstractSensorDataset#getDataValues()}.
+     *
+     * @return the values by time, phenomenon and sub sensor
+     */
+    public Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> toMap() {
+        Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> map = new HashMap<>(timeAxis.size());
+        for (int row = 0; row < size; row++) {
+            OmObservableProperty phenomenon = phenomena.get(phenomenonColumn[row]);
+            SubSensor subSensor = subSensorColumn[row] < 0 ? null : subSensorAxis.get(subSensorColumn[row]);
+            double value = floatValues ? floatColumn[row] : doubleColumn[row];
+            map.computeIfAbsent(timeAxis.get(timeColumn[row]), t -> new HashMap<>())
+                    .computeIfAbsent(phenomenon, p -> new HashMap<>())
+                    .put(subSensor, new QuantityValue(value, phenomenon.getUnit()));
+        }
+        return map;
+    }
+
+    private <T> int getId(T key, Map<T, Integer> ids, List<T> values) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = values.size();
+            ids.put(key, id);
+            values.add(key);
+        }
+        return id;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > timeColumn.length) {
+            int newCapacity = Math.max(capacity, timeColumn.length + (timeColumn.length >> 1));
+            timeColumn = Arrays.copyOf(timeColumn, newCapacity);
+            phenomenonColumn = Arrays.copyOf(phenomenonColumn, newCapacity);
+            subSensorColumn = Arrays.copyOf(subSensorColumn, newCapacity);
+            if (floatValues) {
+                floatColumn = Arrays.copyOf(floatColumn, newCapacity);
+            } else {
+                doubleColumn = Arrays.copyOf(doubleColumn, newCapacity);
+            }
+        }
+    }
+}
@@ -39,11 +39,16 @@ import org.n52.shetland.ogc.gml.time.Time;
 import org.n52.shetland.ogc.om.OmObservableProperty;
 import org.n52.shetland.ogc.om.values.Value;
 import org.n52.shetland.util.CollectionHelper;
+import org.n52.sos.netcdf.data.ColumnarSensorValues;
 import org.n52.sos.netcdf.data.subsensor.SubSensor;
+import org.n52.svalbard.encode.exception.EncodingException;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
+import ucar.ma2.Array;
+import ucar.ma2.ArrayFloat;
+import ucar.ma2.Index;
 import ucar.nc2.constants.CF;
 
 /**
@@ -70,6 +75,8 @@ public abstract class AbstractSensorDataset implements Comparable<AbstractSensor
 
     private Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> dataValues;
 
+    private ColumnarSensorValues columnarValues;
+
     public AbstractSensorDataset(CF.FeatureType featureType, DatasetSensor sensor,
             Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> dataValues, AbstractFeature procedure) {
         this.featureType = featureType;
@@ -113,6 +120,17 @@ public abstract class AbstractSensorDataset implements Comparable<AbstractSensor
         subSensors = Collections.unmodifiableList(subSensorList);
     }
 
+    public AbstractSensorDataset(CF.FeatureType featureType, DatasetSensor sensor, ColumnarSensorValues values,
+            AbstractFeature procedure) {
+        this.featureType = featureType;
+        this.sensor = sensor;
+        this.procedure = procedure;
+        this.columnarValues = values;
+        this.times = values.getTimes();
+        this.obsProps = values.getPhenomena();
+        this.subSensors = values.getSubSensors();
+    }
+
     public DatasetSensor getSensor() {
         return sensor;
     }
@@ -141,10 +159,74 @@ public abstract class AbstractSensorDataset implements Comparable<AbstractSensor
         return times;
     }
 
+    /**
+     * Get the values as nested maps. For datasets created from
+     * {@link ColumnarSensorValues} the maps are created on the first call,
+     * prefer {@link #getColumnarValues()} in this case.
+     *
+     * @return the values by time, phenomenon and sub sensor
+     */
     public Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> getDataValues() {
+        if (dataValues == null && columnarValues != null) {
+            dataValues = Collections.unmodifiableMap(columnarValues.toMap());
+        }
         return dataValues;
     }
 
+    public ColumnarSensorValues getColumnarValues() {
+        return columnarValues;
+    }
+
+    public boolean isSetColumnarValues() {
+        return columnarValues != null;
+    }
+
+    /**
+     * Write the values into the arrays of the phenomena. The arrays are
+     * indexed by time and, if <code>indexSubSensors</code> is set, by sub
+     * sensor.
+     *
+     * @param arrays
+     *            the arrays by phenomenon
+     * @param indexSubSensors
+     *            if the height/depth dimension has more than one value
+     * @throws EncodingException
+     *             if a value is not a number
+     */
+    public void fillDataArrays(Map<OmObservableProperty, Array> arrays, boolean indexSubSensors)
+            throws EncodingException {
+        if (isSetColumnarValues()) {
+            columnarValues.fill(arrays, indexSubSensors);
+            return;
+        }
+        int timeCounter = 0;
+        for (Time time : times) {
+            for (Entry<OmObservableProperty, Map<SubSensor, Value<?>>> entry : dataValues.get(time).entrySet()) {
+                Array array = arrays.get(entry.getKey());
+                for (Entry<SubSensor, Value<?>> subSensorEntry : entry.getValue().entrySet()) {
+                    Object valObj = subSensorEntry.getValue().getValue();
+                    if (!(valObj instanceof Number)) {
+                        throw new EncodingException("Value class %s not supported",
+                                valObj.getClass().getCanonicalName());
+                    }
+                    Index index = array.getIndex();
+                    // time index dim
+                    index.setDim(0, timeCounter);
+                    if (indexSubSensors) {
+                        // height/depth index dim
+                        index.setDim(1, subSensors.indexOf(subSensorEntry.getKey()));
+                    }
+                    if (array instanceof ArrayFloat) {
+                        array.setFloat(index, ((Number) valObj).floatValue());
+                    } else {
+                        array.setDouble(index, ((Number) valObj).doubleValue());
+                    }
+                }
+            }
+            timeCounter++;
+        }
+    }
+
     public static Set<AbstractSensorDataset> getAbstractAssetDatasets(
             Set<? extends AbstractSensorDataset> stationDatasets) {
         Set<AbstractSensorDataset> abstractStationDatasets = new HashSet<AbstractSensorDataset>();
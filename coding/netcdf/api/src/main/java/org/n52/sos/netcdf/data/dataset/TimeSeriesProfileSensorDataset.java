@@ -33,6 +33,7 @@ import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.gml.time.Time;
 import org.n52.shetland.ogc.om.OmObservableProperty;
 import org.n52.shetland.ogc.om.values.Value;
+import org.n52.sos.netcdf.data.ColumnarSensorValues;
 import org.n52.sos.netcdf.data.subsensor.SubSensor;
 
 import ucar.nc2.constants.CF;
@@ -58,6 +59,13 @@ public class TimeSeriesProfileSensorDataset extends AbstractSensorDataset implem
         this.lat = lat;
     }
 
+    public TimeSeriesProfileSensorDataset(DatasetSensor sensor, Double lng, Double lat, ColumnarSensorValues values,
+            AbstractFeature procedure) {
+        super(CF.FeatureType.timeSeriesProfile, sensor, values, procedure);
+        this.lng = lng;
+        this.lat = lat;
+    }
+
     @Override
     public Double getLng() {
         return lng;
@@ -33,6 +33,7 @@ import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.gml.time.Time;
 import org.n52.shetland.ogc.om.OmObservableProperty;
 import org.n52.shetland.ogc.om.values.Value;
+import org.n52.sos.netcdf.data.ColumnarSensorValues;
 import org.n52.sos.netcdf.data.subsensor.SubSensor;
 
 import ucar.nc2.constants.CF;
@@ -61,6 +62,14 @@ public class TimeSeriesSensorDataset extends AbstractSensorDataset
         this.alt = alt;
     }
 
+    public TimeSeriesSensorDataset(DatasetSensor sensor, Double lng, Double lat, Double alt,
+            ColumnarSensorValues values, AbstractFeature procedure) {
+        super(CF.FeatureType.timeSeries, sensor, values, procedure);
+        this.lng = lng;
+        this.lat = lat;
+        this.alt = alt;
+    }
+
     @Override
     public Double getLng() {
         return lng;
@@ -33,6 +33,7 @@ import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.gml.time.Time;
 import org.n52.shetland.ogc.om.OmObservableProperty;
 import org.n52.shetland.ogc.om.values.Value;
+import org.n52.sos.netcdf.data.ColumnarSensorValues;
 import org.n52.sos.netcdf.data.subsensor.SubSensor;
 
 import ucar.nc2.constants.CF;
@@ -51,4 +52,9 @@ public class TrajectoryProfileSensorDataset extends AbstractSensorDataset {
             Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> dataValues, AbstractFeature procedure) {
         super(CF.FeatureType.trajectoryProfile, sensor, dataValues, procedure);
     }
+
+    public TrajectoryProfileSensorDataset(DatasetSensor sensor, ColumnarSensorValues values,
+            AbstractFeature procedure) {
+        super(CF.FeatureType.trajectoryProfile, sensor, values, procedure);
+    }
 }
@@ -33,6 +33,7 @@ import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.gml.time.Time;
 import org.n52.shetland.ogc.om.OmObservableProperty;
 import org.n52.shetland.ogc.om.values.Value;
+import org.n52.sos.netcdf.data.ColumnarSensorValues;
 import org.n52.sos.netcdf.data.subsensor.SubSensor;
 
 import ucar.nc2.constants.CF;
@@ -55,6 +56,12 @@ public class TrajectorySensorDataset extends AbstractSensorDataset implements St
         this.alt = alt;
     }
 
+    public TrajectorySensorDataset(DatasetSensor sensor, Double alt, ColumnarSensorValues values,
+            AbstractFeature procedure) {
+        super(CF.FeatureType.trajectory, sensor, values, procedure);
+        this.alt = alt;
+    }
+
     @Override
     public Double getAlt() {
         return alt;
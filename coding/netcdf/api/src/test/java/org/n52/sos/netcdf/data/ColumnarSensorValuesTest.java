@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.netcdf.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
+import org.n52.sos.netcdf.data.dataset.IdentifierDatasetSensor;
+import org.n52.sos.netcdf.data.dataset.TimeSeriesProfileSensorDataset;
+import org.n52.sos.netcdf.data.subsensor.PointProfileSubSensor;
+import org.n52.sos.netcdf.data.subsensor.SubSensor;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+import ucar.ma2.Array;
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.ArrayFloat;
+import ucar.ma2.DataType;
+import ucar.ma2.IndexIterator;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+/**
+ * Compares the columnar values with the nested map values used before.
+ *
+ * @since 5.5.0
+ */
+public class ColumnarSensorValuesTest {
+
+    private static final double FILL_VALUE = -9999.9;
+
+    private static final long START = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC).getMillis();
+
+    private static final long TEN_MINUTES = 10 * 60 * 1000L;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<OmObservableProperty> phenomena = new ArrayList<>();
+
+    private final List<SubSensor> subSensors = new ArrayList<>();
+
+    public ColumnarSensorValuesTest() {
+        for (String phenomenon : new String[] { "temperature", "salinity", "pressure" }) {
+            phenomena.add(new OmObservableProperty(phenomenon));
+        }
+        for (double height : new double[] { -10.0, -5.0, -2.5, 0.0 }) {
+            subSensors.add(new PointProfileSubSensor(height));
+        }
+    }
+
+    @Test
+    public void shouldWriteIdenticalDoubleFile() throws Exception {
+        compareFiles(DataType.DOUBLE);
+    }
+
+    @Test
+    public void shouldWriteIdenticalFloatFile() throws Exception {
+        compareFiles(DataType.FLOAT);
+    }
+
+    @Test
+    public void shouldUseLastValueOfDuplicates() {
+        ColumnarSensorValues values = new ColumnarSensorValues(false);
+        Time time = time(0);
+        values.add(time, phenomena.get(0), null, 1.0);
+        values.add(time, phenomena.get(0), null, 2.0);
+        Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> map = values.toMap();
+        Assert.assertEquals(2, values.size());
+        Assert.assertEquals(1, values.getTimes().size());
+        Assert.assertEquals(2.0, ((Number) map.get(time).get(phenomena.get(0)).get(null).getValue()).doubleValue(),
+                0.0);
+    }
+
+    private void compareFiles(DataType dataType) throws IOException, EncodingException, InvalidRangeException {
+        int times = 500;
+        AbstractSensorDataset legacy = new TimeSeriesProfileSensorDataset(new IdentifierDatasetSensor("sensor"), 7.5,
+                52.0, createMap(times), null);
+        AbstractSensorDataset columnar = new TimeSeriesProfileSensorDataset(new IdentifierDatasetSensor("sensor"),
+                7.5, 52.0, createColumnarValues(times, DataType.FLOAT.equals(dataType)), null);
+
+        Assert.assertEquals(legacy.getTimes(), columnar.getTimes());
+        Assert.assertEquals(legacy.getPhenomena(), columnar.getPhenomena());
+        Assert.assertEquals(legacy.getSubSensors(), columnar.getSubSensors());
+
+        File legacyFile = write(legacy, dataType, folder.newFile("legacy.nc"));
+        File columnarFile = write(columnar, dataType, folder.newFile("columnar.nc"));
+        Assert.assertArrayEquals(Files.readAllBytes(legacyFile.toPath()), Files.readAllBytes(columnarFile.toPath()));
+    }
+
+    private File write(AbstractSensorDataset dataset, DataType dataType, File file)
+            throws IOException, EncodingException, InvalidRangeException {
+        NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getAbsolutePath());
+        Dimension time = writer.addDimension(null, "time", dataset.getTimes().size());
+        Dimension z = writer.addDimension(null, "z", dataset.getSubSensors().size());
+        List<Dimension> dims = new ArrayList<>();
+        dims.add(time);
+        dims.add(z);
+        int[] shape = new int[] { time.getLength(), z.getLength() };
+        Map<Variable, Array> variables = new HashMap<>();
+        Map<OmObservableProperty, Array> arrays = new HashMap<>();
+        for (OmObservableProperty phenomenon : dataset.getPhenomena()) {
+            Array array = DataType.FLOAT.equals(dataType) ? new ArrayFloat(shape) : new ArrayDouble(shape);
+            IndexIterator iterator = array.getIndexIterator();
+            while (iterator.hasNext()) {
+                iterator.setObjectNext(FILL_VALUE);
+            }
+            arrays.put(phenomenon, array);
+            variables.put(writer.addVariable(null, phenomenon.getIdentifier(), dataType, dims), array);
+        }
+        dataset.fillDataArrays(arrays, z.getLength() > 1);
+        writer.create();
+        for (OmObservableProperty phenomenon : dataset.getPhenomena()) {
+            Variable variable = writer.findVariable(phenomenon.getIdentifier());
+            writer.write(variable, variables.get(variable));
+        }
+        writer.close();
+        return file;
+    }
+
+    private Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> createMap(int times) {
+        Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> map = new HashMap<>();
+        for (int i = 0; i < times; i++) {
+            Map<OmObservableProperty, Map<SubSensor, Value<?>>> phenomenonMap = new HashMap<>();
+            for (int p = 0; p < phenomena.size(); p++) {
+                Map<SubSensor, Value<?>> subSensorMap = new HashMap<>();
+                for (int s = 0; s < subSensors.size(); s++) {
+                    subSensorMap.put(subSensors.get(s), new QuantityValue(value(i, p, s)));
+                }
+                phenomenonMap.put(phenomena.get(p), subSensorMap);
+            }
+            map.put(time(i), phenomenonMap);
+        }
+        return map;
+    }
+
+    private ColumnarSensorValues createColumnarValues(int times, boolean floatValues) {
+        ColumnarSensorValues values = new ColumnarSensorValues(floatValues);
+        // add in reverse order to check the sorting of the time axis
+        for (int i = times - 1; i >= 0; i--) {
+            Time time = time(i);
+            for (int p = 0; p < phenomena.size(); p++) {
+                for (int s = 0; s < subSensors.size(); s++) {
+                    values.add(time, phenomena.get(p), subSensors.get(s), value(i, p, s));
+                }
+            }
+        }
+        return values;
+    }
+
+    private static Time time(int i) {
+        return new TimeInstant(new DateTime(START + i * TEN_MINUTES, DateTimeZone.UTC));
+    }
+
+    private static BigDecimal value(int i, int p, int s) {
+        return new BigDecimal(String.format(Locale.ROOT, "%d.%03d", i * (p + 1) - s, (i * 7 + p * 13 + s) % 1000));
+    }
+}
@@ -58,7 +58,6 @@ import org.n52.shetland.ogc.gml.time.TimeInstant;
 import org.n52.shetland.ogc.om.ObservationStream;
 import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.om.OmObservableProperty;
-import org.n52.shetland.ogc.om.values.Value;
 import org.n52.shetland.ogc.ows.OwsAddress;
 import org.n52.shetland.ogc.ows.OwsContact;
 import org.n52.shetland.ogc.ows.OwsOnlineResource;
@@ -476,10 +475,9 @@ public abstract class AbstractNetcdfEncoder
 
         }
 
-        // iterate through sensorDataset, set values
+        // iterate through sensorDataset, set time values
         int timeCounter = 0;
         for (Time time : sensorDataset.getTimes()) {
-            // set time value
             Index timeIndex = timeArray.getIndex();
             int timeIndexCounter = 0;
             // if (hasDimension(timeDims, dFeatureTypeInstance)) {
@@ -489,44 +487,14 @@ public abstract class AbstractNetcdfEncoder
                 timeIndex.setDim(timeIndexCounter++, timeCounter++);
             }
             timeArray.set(timeIndex, getTimeValue(time));
+        }
 
-            // data values
-            Map<OmObservableProperty, Map<SubSensor, Value<?>>> obsPropMap = sensorDataset.getDataValues().get(time);
-            for (Entry<OmObservableProperty, Map<SubSensor, Value<?>>> entry : obsPropMap.entrySet()) {
-                OmObservableProperty obsProp = entry.getKey();
-                Variable variable = obsPropVarMap.get(obsProp);
-                Array array = varDataArrayMap.get(variable);
-                for (Entry<SubSensor, Value<?>> subSensorEntry : obsPropMap.get(obsProp).entrySet()) {
-                    SubSensor subSensor = subSensorEntry.getKey();
-                    Value<?> value = subSensorEntry.getValue();
-                    Object valObj = value.getValue();
-                    if (!(valObj instanceof Number)) {
-                        throw new EncodingException("Value class %s not supported",
-                                valObj.getClass().getCanonicalName());
-                    }
-                    Index index = array.getIndex();
-                    int obsPropDimCounter = 0;
-                    for (Dimension dim : obsPropDims) {
-                        // if (dim.equals(dFeatureTypeInstance)){
-                        // feature type instance index
-                        // index.setDim(obsPropDimCounter++, 0);
-                        // } else if (dim.equals(dTime)){
-                        if (dim.equals(dTime)) {
-                            // time index dim
-                            index.setDim(obsPropDimCounter++, timeCounter - 1);
-                        } else if (dim.equals(dZ) && dim.getLength() > 1) {
-                            // height/depth index dim
-                            index.setDim(obsPropDimCounter++, sensorDataset.getSubSensors().indexOf(subSensor));
-                        }
-                    }
-                    if (array instanceof ArrayFloat) {
-                        ((ArrayFloat) array).set(index, ((Number) valObj).floatValue());
-                    } else {
-                        ((ArrayDouble) array).set(index, ((Number) valObj).doubleValue());
-                    }
-                }
-            }
+        // data values
+        Map<OmObservableProperty, Array> obsPropArrayMap = Maps.newHashMap();
+        for (Entry<OmObservableProperty, Variable> entry : obsPropVarMap.entrySet()) {
+            obsPropArrayMap.put(entry.getKey(), varDataArrayMap.get(entry.getValue()));
         }
+        sensorDataset.fillDataArrays(obsPropArrayMap, dZ.getLength() > 1);
 
         // create the empty netCDF with dims/vars/attributes defined
         variableArrayMap.put(vTime, timeArray);
@@ -29,7 +29,11 @@ package org.n52.sos.convert;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
@@ -97,6 +101,7 @@ import org.n52.shetland.ogc.swe.SweField;
 import org.n52.shetland.ogc.swe.simpleType.SweText;
 import org.n52.shetland.ogc.swe.simpleType.SweTime;
 import org.n52.sos.cache.SosContentCache;
+import org.n52.sos.convert.IdentifierMapping.Type;
 import org.n52.sos.service.profile.Profile;
 import org.n52.sos.service.profile.ProfileHandler;
 
@@ -107,6 +112,7 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
 
     private ContentCacheController contentCacheController;
     private ProfileHandler profileHandler;
+    private volatile IdentifierMapping identifierMapping;
 
     protected ContentCacheController getCacheController() {
         return this.contentCacheController;
@@ -139,6 +145,70 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
         return new RequestResponseModifierFacilitator().setAdderRemover(true);
     }
 
+    /**
+     * Get the configuration the identifier mapping depends on, e.g. the
+     * prefixes. The mapping tables are rebuilt if it changes.
+     *
+     * @return the configuration, must implement {@code equals}
+     */
+    protected abstract Object getMappingConfiguration();
+
+    /**
+     * Get the identifier mapping tables for the current content cache and
+     * configuration.
+     *
+     * @return the identifier mapping
+     */
+    protected IdentifierMapping getIdentifierMapping() {
+        SosContentCache cache = getCache();
+        Object configuration = getMappingConfiguration();
+        IdentifierMapping mapping = this.identifierMapping;
+        if (mapping == null || !mapping.isValidFor(cache, configuration)) {
+            Map<Type, Function<String, String>> mappers = new EnumMap<>(Type.class);
+            mappers.put(Type.OFFERING, this::checkOfferingIdentifier);
+            mappers.put(Type.FEATURE_OF_INTEREST, this::checkFeatureOfInterestIdentifier);
+            mappers.put(Type.OBSERVABLE_PROPERTY, this::checkObservablePropertyIdentifier);
+            mappers.put(Type.PROCEDURE, this::checkProcedureIdentifier);
+            mapping = new IdentifierMapping(cache, configuration, mappers);
+            this.identifierMapping = mapping;
+        }
+        return mapping;
+    }
+
+    protected String mapOfferingIdentifier(String identifier) {
+        return getIdentifierMapping().forward(Type.OFFERING, identifier);
+    }
+
+    protected String mapFeatureOfInterestIdentifier(String identifier) {
+        return getIdentifierMapping().forward(Type.FEATURE_OF_INTEREST, identifier);
+    }
+
+    protected String mapObservablePropertyIdentifier(String identifier) {
+        return getIdentifierMapping().forward(Type.OBSERVABLE_PROPERTY, identifier);
+    }
+
+    protected String mapProcedureIdentifier(String identifier) {
+        return getIdentifierMapping().forward(Type.PROCEDURE, identifier);
+    }
+
+    private String unmapOfferingParameterValue(String parameterValue) {
+        return getIdentifierMapping().reverse(Type.OFFERING, parameterValue, this::checkOfferingParameterValue);
+    }
+
+    private String unmapFeatureOfInterestParameterValue(String parameterValue) {
+        return getIdentifierMapping().reverse(Type.FEATURE_OF_INTEREST, parameterValue,
+                this::checkFeatureOfInterestParameterValue);
+    }
+
+    private String unmapObservablePropertyParameterValue(String parameterValue) {
+        return getIdentifierMapping().reverse(Type.OBSERVABLE_PROPERTY, parameterValue,
+                this::checkObservablePropertyParameterValue);
+    }
+
+    private String unmapProcedureParameterValue(String parameterValue) {
+        return getIdentifierMapping().reverse(Type.PROCEDURE, parameterValue, this::checkProcedureParameterValue);
+    }
+
     protected abstract boolean checkForFlag(OwsServiceRequest request, OwsServiceResponse response) throws
             InvalidParameterValueException;
 
@@ -153,19 +223,19 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
     protected abstract String checkFeatureOfInterestIdentifier(String identifier);
 
     private Collection<String> checkFeatureOfInterestIdentifier(Collection<String> identifiers) {
-        return identifiers.stream().map(this::checkFeatureOfInterestIdentifier).collect(Collectors.toList());
+        return identifiers.stream().map(this::mapFeatureOfInterestIdentifier).collect(Collectors.toList());
     }
 
     protected abstract String checkObservablePropertyIdentifier(String identifier);
 
     private Collection<String> checkObservablePropertyIdentifier(SortedSet<String> identifiers) {
-        return identifiers.stream().map(this::checkObservablePropertyIdentifier).collect(Collectors.toList());
+        return identifiers.stream().map(this::mapObservablePropertyIdentifier).collect(Collectors.toList());
     }
 
     protected abstract String checkProcedureIdentifier(String identifier);
 
     private Collection<String> checkProcedureIdentifier(Set<String> identifiers) {
-        return identifiers.stream().map(this::checkProcedureIdentifier).collect(Collectors.toList());
+        return identifiers.stream().map(this::mapProcedureIdentifier).collect(Collectors.toList());
     }
 
     protected abstract ReferenceType checkProcedureIdentifier(ReferenceType procedure);
@@ -229,7 +299,7 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
     }
 
     protected OwsServiceRequest changeDescribeSensorRequestParameterValues(DescribeSensorRequest request) {
-        request.setProcedure(checkProcedureParameterValue(request.getProcedure()));
+        request.setProcedure(unmapProcedureParameterValue(request.getProcedure()));
         return request;
     }
 
@@ -252,20 +322,20 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
 
     protected OwsServiceRequest changeGetResultTemplateRequestParameterValues(GetResultTemplateRequest request) {
         if (request.isSetOffering()) {
-            request.setOffering(checkOfferingParameterValue(request.getOffering()));
+            request.setOffering(unmapOfferingParameterValue(request.getOffering()));
         }
         if (request.isSetObservedProperty()) {
-            request.setObservedProperty(checkObservablePropertyParameterValue(request.getObservedProperty()));
+            request.setObservedProperty(unmapObservablePropertyParameterValue(request.getObservedProperty()));
         }
         return request;
     }
 
     protected OwsServiceRequest changeGetResultRequestParameterValues(GetResultRequest request) {
         if (request.isSetOffering()) {
-            request.setOffering(checkOfferingParameterValue(request.getOffering()));
+            request.setOffering(unmapOfferingParameterValue(request.getOffering()));
         }
         if (request.isSetObservedProperty()) {
-            request.setObservedProperty(checkObservablePropertyParameterValue(request.getObservedProperty()));
+            request.setObservedProperty(unmapObservablePropertyParameterValue(request.getObservedProperty()));
         }
         if (request.isSetFeatureOfInterest()) {
             request.setFeatureIdentifiers(checkFeatureOfInterestParameterValues(request.getFeatureIdentifiers()));
@@ -351,12 +421,18 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
     }
 
     protected OwsServiceResponse changeAbstractObservationResponseIdentifier(AbstractObservationResponse response) {
+        // the observations of a response share their features, procedures and
+        // observable properties, which must be changed exactly once
+        Set<Object> changed = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
         response.setObservationCollection(response.getObservationCollection().modify(omObservation -> {
             OmObservationConstellation observationConstellation = omObservation.getObservationConstellation();
-            checkAndChangeFeatureOfInterestIdentifier(observationConstellation.getFeatureOfInterest());
-            checkAndChangeObservablePropertyIdentifier(observationConstellation.getObservableProperty());
-            checkAndChangeProcedure(observationConstellation.getProcedure());
-            if (getActiveProfile().isEncodeProcedureInObservation()) {
+            if (changed.add(observationConstellation.getFeatureOfInterest())) {
+                checkAndChangeFeatureOfInterestIdentifier(observationConstellation.getFeatureOfInterest());
+            }
+            if (changed.add(observationConstellation.getObservableProperty())) {
+                checkAndChangeObservablePropertyIdentifier(observationConstellation.getObservableProperty());
+            }
+            if (changed.add(observationConstellation.getProcedure())) {
                 checkAndChangeProcedure(observationConstellation.getProcedure());
             }
         }));
@@ -447,10 +523,10 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
 
     private List<String> checkKeywords(List<String> keywords) {
         return keywords.stream()
-                .map(this::checkOfferingIdentifier)
-                .map(this::checkObservablePropertyIdentifier)
-                .map(this::checkFeatureOfInterestIdentifier)
-                .map(this::checkProcedureIdentifier)
+                .map(this::mapOfferingIdentifier)
+                .map(this::mapObservablePropertyIdentifier)
+                .map(this::mapFeatureOfInterestIdentifier)
+                .map(this::mapProcedureIdentifier)
                 .collect(Collectors.toList());
     }
 
@@ -479,7 +555,7 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
                 if (split.length == 5) {
                     StringBuilder builder = new StringBuilder();
                     builder.append(split[0]).append('\'');
-                    builder.append(checkProcedureIdentifier(split[1])).append('\'');
+                    builder.append(mapProcedureIdentifier(split[1])).append('\'');
                     builder.append(split[2]).append('\'');
                     Collection<String> obsProps = checkObservablePropertyIdentifier(new TreeSet<>(Arrays
                             .asList(split[3].split(","))));
@@ -494,10 +570,10 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
 
     private void checkAbstractDataComponentForObservableProperty(SweAbstractDataComponent value) {
         if (value.isSetDefinition()) {
-            value.setDefinition(checkObservablePropertyIdentifier(value.getDefinition()));
+            value.setDefinition(mapObservablePropertyIdentifier(value.getDefinition()));
         }
         if (value.isSetIdentifier()) {
-            value.setIdentifier(checkObservablePropertyIdentifier(value.getIdentifier()));
+            value.setIdentifier(mapObservablePropertyIdentifier(value.getIdentifier()));
         }
     }
 
@@ -505,7 +581,7 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
         if (procedure.isSetIdentifications()) {
             procedure.getIdentifications().stream()
                     .filter(this::isIdentificationProcedureIdentifier)
-                    .forEach(id -> id.setValue(checkProcedureIdentifier(id.getValue())));
+                    .forEach(id -> id.setValue(mapProcedureIdentifier(id.getValue())));
         }
         if (procedure.isSetCapabilities()) {
             for (SmlCapabilities capabilities : procedure.getCapabilities()) {
@@ -516,21 +592,21 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
                                     .map(SweField::getElement)
                                     .filter(Predicates.instanceOf(SweText.class))
                                     .map(Functions.cast(SweText.class))
-                                    .forEach(elem -> elem.setValue(checkOfferingIdentifier(elem.getValue())));
+                                    .forEach(elem -> elem.setValue(mapOfferingIdentifier(elem.getValue())));
                             break;
                         case SensorMLConstants.ELEMENT_NAME_PARENT_PROCEDURES:
                             capabilities.getDataRecord().getFields().stream()
                                     .map(SweField::getElement)
                                     .filter(Predicates.instanceOf(SweText.class))
                                     .map(Functions.cast(SweText.class))
-                                    .forEach(elem -> elem.setValue(checkProcedureIdentifier(elem.getValue())));
+                                    .forEach(elem -> elem.setValue(mapProcedureIdentifier(elem.getValue())));
                             break;
                         case SensorMLConstants.ELEMENT_NAME_FEATURES_OF_INTEREST:
                             capabilities.getDataRecord().getFields().stream()
                                     .map(SweField::getElement)
                                     .filter(Predicates.instanceOf(SweText.class))
                                     .map(Functions.cast(SweText.class))
-                                    .forEach(elem -> elem.setValue(checkFeatureOfInterestIdentifier(elem.getValue())));
+                                    .forEach(elem -> elem.setValue(mapFeatureOfInterestIdentifier(elem.getValue())));
                             break;
                         default:
                             break;
@@ -562,38 +638,38 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
     }
 
     private List<String> checkOfferingParameterValues(Collection<String> values) {
-        return values.stream().map(this::checkOfferingParameterValue).collect(Collectors.toList());
+        return values.stream().map(this::unmapOfferingParameterValue).collect(Collectors.toList());
     }
 
     private List<String> checkFeatureOfInterestParameterValues(Collection<String> values) {
-        return values.stream().map(this::checkFeatureOfInterestParameterValue).collect(Collectors.toList());
+        return values.stream().map(this::unmapFeatureOfInterestParameterValue).collect(Collectors.toList());
     }
 
     private List<String> checkObservablePropertyParameterValues(Collection<String> values) {
-        return values.stream().map(this::checkObservablePropertyParameterValue).collect(Collectors.toList());
+        return values.stream().map(this::unmapObservablePropertyParameterValue).collect(Collectors.toList());
     }
 
     private List<String> checkProcedureParameterValues(Collection<String> values) {
-        return values.stream().map(this::checkProcedureParameterValue).collect(Collectors.toList());
+        return values.stream().map(this::unmapProcedureParameterValue).collect(Collectors.toList());
     }
 
     private Optional<Function<String, String>> getIdentifierCheckerForName(String name) {
         if (SosConstants.GetObservationParams.offering.name().equals(name)) {
-            return Optional.of(this::checkOfferingIdentifier);
+            return Optional.of(this::mapOfferingIdentifier);
         } else if (SosConstants.GetObservationParams.featureOfInterest.name().equals(name)) {
-            return Optional.of(this::checkFeatureOfInterestIdentifier);
+            return Optional.of(this::mapFeatureOfInterestIdentifier);
         } else if (SosConstants.GetObservationParams.observedProperty.name().equals(name)) {
-            return Optional.of(this::checkObservablePropertyIdentifier);
+            return Optional.of(this::mapObservablePropertyIdentifier);
         } else if (SosConstants.GetObservationParams.procedure.name().equals(name)) {
-            return Optional.of(this::checkProcedureIdentifier);
+            return Optional.of(this::mapProcedureIdentifier);
         }
         return Optional.empty();
     }
 
     private void checkDataAvailability(DataAvailability da) {
-        da.getFeatureOfInterest().setHref(checkFeatureOfInterestIdentifier(da.getFeatureOfInterest().getHref()));
-        da.getProcedure().setHref(checkProcedureIdentifier(da.getProcedure().getHref()));
-        da.getObservedProperty().setHref(checkObservablePropertyIdentifier(da.getObservedProperty().getHref()));
+        da.getFeatureOfInterest().setHref(mapFeatureOfInterestIdentifier(da.getFeatureOfInterest().getHref()));
+        da.getProcedure().setHref(mapProcedureIdentifier(da.getProcedure().getHref()));
+        da.getObservedProperty().setHref(mapObservablePropertyIdentifier(da.getObservedProperty().getHref()));
     }
 
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.convert;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.n52.sos.cache.SosContentCache;
+
+/**
+ * Forward (identifier to modified identifier) and reverse (modified identifier
+ * to identifier) mapping tables of an identifier modifier. The tables are
+ * built lazily per identifier type from the identifiers in the content cache
+ * and are only valid for the content cache state and modifier configuration
+ * they were built for.
+ *
+ * @since 5.5.0
+ */
+public class IdentifierMapping {
+
+    private final SosContentCache cache;
+
+    private final Object lastUpdateTime;
+
+    private final Object configuration;
+
+    private final Map<Type, Function<String, String>> mappers;
+
+    private final Map<Type, Table> tables = new ConcurrentHashMap<>();
+
+    public IdentifierMapping(SosContentCache cache, Object configuration,
+            Map<Type, Function<String, String>> mappers) {
+        this.cache = cache;
+        this.lastUpdateTime = cache.getLastUpdateTime();
+        this.configuration = configuration;
+        this.mappers = new EnumMap<>(mappers);
+    }
+
+    /**
+     * Check if the tables are valid for the current content cache state and
+     * modifier configuration.
+     *
+     * @param currentCache
+     *            the current content cache
+     * @param currentConfiguration
+     *            the current modifier configuration
+     * @return {@code true} if the tables can be used
+     */
+    public boolean isValidFor(SosContentCache currentCache, Object currentConfiguration) {
+        return this.cache == currentCache && Objects.equals(this.lastUpdateTime, currentCache.getLastUpdateTime())
+                && Objects.equals(this.configuration, currentConfiguration);
+    }
+
+    /**
+     * Map the identifier to the modified identifier. Identifiers that are not
+     * contained in the content cache are mapped with the modifier function.
+     *
+     * @param type
+     *            the identifier type
+     * @param identifier
+     *            the identifier
+     * @return the modified identifier
+     */
+    public String forward(Type type, String identifier) {
+        if (identifier == null) {
+            return mappers.get(type).apply(identifier);
+        }
+        String mapped = getTable(type).forward.get(identifier);
+        return mapped != null ? mapped : mappers.get(type).apply(identifier);
+    }
+
+    /**
+     * Map the modified identifier back to the identifier.
+     *
+     * @param type
+     *            the identifier type
+     * @param value
+     *            the modified identifier, e.g. a request parameter value
+     * @param fallback
+     *            the function to apply if the value is not a modified
+     *            identifier of the content cache
+     * @return the identifier
+     */
+    public String reverse(Type type, String value, Function<String, String> fallback) {
+        if (value == null) {
+            return fallback.apply(value);
+        }
+        String identifier = getTable(type).reverse.get(value);
+        return identifier != null ? identifier : fallback.apply(value);
+    }
+
+    private Table getTable(Type type) {
+        return tables.computeIfAbsent(type, t -> new Table(t.getIdentifiers(cache), mappers.get(t)));
+    }
+
+    /**
+     * The identifier types.
+     */
+    public enum Type {
+        OFFERING {
+            @Override
+            Set<String> getIdentifiers(SosContentCache cache) {
+                return cache.getOfferings();
+            }
+        },
+        FEATURE_OF_INTEREST {
+            @Override
+            Set<String> getIdentifiers(SosContentCache cache) {
+                return cache.getFeaturesOfInterest();
+            }
+        },
+        OBSERVABLE_PROPERTY {
+            @Override
+            Set<String> getIdentifiers(SosContentCache cache) {
+                return cache.getObservableProperties();
+            }
+        },
+        PROCEDURE {
+            @Override
+            Set<String> getIdentifiers(SosContentCache cache) {
+                return cache.getProcedures();
+            }
+        };
+
+        abstract Set<String> getIdentifiers(SosContentCache cache);
+    }
+
+    private static final class Table {
+        private final Map<String, String> forward;
+        private final Map<String, String> reverse;
+
+        Table(Set<String> identifiers, Function<String, String> mapper) {
+            Map<String, String> f = new HashMap<>(identifiers.size());
+            Map<String, String> r = new HashMap<>(identifiers.size());
+            for (String identifier : identifiers) {
+                String mapped = mapper.apply(identifier);
+                if (mapped != null) {
+                    f.put(identifier, mapped);
+                    r.putIfAbsent(mapped, identifier);
+                }
+            }
+            this.forward = Collections.unmodifiableMap(f);
+            this.reverse = Collections.unmodifiableMap(r);
+        }
+    }
+
+}
@@ -27,6 +27,7 @@
  */
 package org.n52.sos.converter;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Locale;
@@ -198,6 +199,13 @@ public class EReportingPrefixedIdentifierModifier extends AbstractIdentifierModi
         return getEReportingPrefixedIdentifierHelper().isSetAnyPrefix();
     }
 
+    @Override
+    protected Object getMappingConfiguration() {
+        EReportingPrefixedIdentifierHelper helper = getEReportingPrefixedIdentifierHelper();
+        return Arrays.asList(helper.getNamespacePrefix(), helper.getOfferingPrefix(), helper.getProcedurePrefix(),
+                helper.getFeatureOfInterestPrefix());
+    }
+
     private String checkNamespacePrefixForParameterValue(String parameterValue) {
         if (getEReportingPrefixedIdentifierHelper().isSetNamespacePrefix()) {
             return parameterValue.replace(getPrefix(), "");
@@ -321,7 +329,7 @@ public class EReportingPrefixedIdentifierModifier extends AbstractIdentifierModi
     }
 
     private void checkAndChangeIdentifierOfAbstractFeature(AbstractFeature abstractFeature) {
-        abstractFeature.setIdentifier(checkFeatureOfInterestIdentifier(abstractFeature.getIdentifier()));
+        abstractFeature.setIdentifier(mapFeatureOfInterestIdentifier(abstractFeature.getIdentifier()));
         if (abstractFeature instanceof AbstractSamplingFeature
                 && ((AbstractSamplingFeature) abstractFeature).isSetXml()) {
             abstractFeature.setXml(null);
@@ -330,18 +338,18 @@ public class EReportingPrefixedIdentifierModifier extends AbstractIdentifierModi
 
     @Override
     protected void checkAndChangeProcedureIdentifier(AbstractFeature abstractFeature) {
-        abstractFeature.setIdentifier(checkProcedureIdentifier(abstractFeature.getIdentifier()));
+        abstractFeature.setIdentifier(mapProcedureIdentifier(abstractFeature.getIdentifier()));
     }
 
     @Override
     protected void checkAndChangeObservablePropertyIdentifier(AbstractFeature abstractFeature) {
-        abstractFeature.setIdentifier(checkObservablePropertyIdentifier(abstractFeature.getIdentifier()));
+        abstractFeature.setIdentifier(mapObservablePropertyIdentifier(abstractFeature.getIdentifier()));
     }
 
     @Override
     protected void checkAndChangOfferingIdentifier(SosOffering offering) {
         if (offering != null) {
-            offering.setIdentifier(checkOfferingIdentifier(offering.getIdentifier()));
+            offering.setIdentifier(mapOfferingIdentifier(offering.getIdentifier()));
         }
     }
 
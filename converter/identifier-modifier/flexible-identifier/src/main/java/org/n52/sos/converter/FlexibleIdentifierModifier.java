@@ -27,6 +27,7 @@
  */
 package org.n52.sos.converter;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -138,6 +139,13 @@ public class FlexibleIdentifierModifier extends AbstractIdentifierModifier {
 
 
 
+    @Override
+    protected Object getMappingConfiguration() {
+        FlexibleIdentifierHelper helper = getFlexibleIdentifierHelper();
+        return Arrays.asList(helper.isSetIncludeOffering(), helper.isSetIncludeProcedure(),
+                helper.isSetIncludeObservableProperty(), helper.isSetIncludeFeatureOfInterest());
+    }
+
     private boolean checkResponseForReturnHumanReadableIdentifierFlag(OwsServiceResponse response)
             throws InvalidParameterValueException {
         return getFlexibleIdentifierHelper().checkForReturnHumanReadableIdentifierFlagExtension(
@@ -219,7 +227,7 @@ public class FlexibleIdentifierModifier extends AbstractIdentifierModifier {
     protected void checkAndChangeProcedureIdentifier(AbstractFeature abstractFeature) {
         if (getFlexibleIdentifierHelper().isSetIncludeProcedure()) {
             if (!abstractFeature.isSetHumanReadableIdentifier()) {
-                abstractFeature.setHumanReadableIdentifier(checkProcedureIdentifier(abstractFeature.getIdentifier()));
+                abstractFeature.setHumanReadableIdentifier(mapProcedureIdentifier(abstractFeature.getIdentifier()));
             }
             abstractFeature.setHumanReadableIdentifierAsIdentifier();
         }
@@ -229,7 +237,7 @@ public class FlexibleIdentifierModifier extends AbstractIdentifierModifier {
     protected void checkAndChangeObservablePropertyIdentifier(AbstractFeature abstractFeature) {
         if (getFlexibleIdentifierHelper().isSetIncludeObservableProperty()) {
             if (!abstractFeature.isSetHumanReadableIdentifier()) {
-                abstractFeature.setHumanReadableIdentifier(checkObservablePropertyIdentifier(abstractFeature
+                abstractFeature.setHumanReadableIdentifier(mapObservablePropertyIdentifier(abstractFeature
                         .getIdentifier()));
             }
             abstractFeature.setHumanReadableIdentifierAsIdentifier();
@@ -240,7 +248,7 @@ public class FlexibleIdentifierModifier extends AbstractIdentifierModifier {
     protected void checkAndChangOfferingIdentifier(SosOffering offering) {
         if (offering != null && getFlexibleIdentifierHelper().isSetIncludeOffering()) {
             if (!offering.isSetHumanReadableIdentifier()) {
-                offering.setHumanReadableIdentifier(checkOfferingIdentifier(offering.getIdentifier()));
+                offering.setHumanReadableIdentifier(mapOfferingIdentifier(offering.getIdentifier()));
             }
             offering.setHumanReadableIdentifierAsIdentifier();
         }
@@ -248,7 +256,7 @@ public class FlexibleIdentifierModifier extends AbstractIdentifierModifier {
 
     private void checkAndChangeIdentifierOfAbstractFeature(AbstractFeature abstractFeature) {
         if (!abstractFeature.isSetHumanReadableIdentifier()) {
-            abstractFeature.setHumanReadableIdentifier(checkFeatureOfInterestIdentifier(abstractFeature
+            abstractFeature.setHumanReadableIdentifier(mapFeatureOfInterestIdentifier(abstractFeature
                     .getIdentifier()));
         }
         abstractFeature.setHumanReadableIdentifierAsIdentifier();
@@ -27,6 +27,7 @@
  */
 package org.n52.sos.converter;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Locale;
 import java.util.Map;
@@ -129,6 +130,12 @@ public class PrefixedIdentifierModifier extends AbstractIdentifierModifier {
         return this.helper.isSetAnyPrefix();
     }
 
+    @Override
+    protected Object getMappingConfiguration() {
+        return Arrays.asList(helper.getGlobalPrefix(), helper.getOfferingPrefix(), helper.getProcedurePrefix(),
+                helper.getObservablePropertyPrefix(), helper.getFeatureOfInterestPrefix());
+    }
+
     private String checkGlobalPrefixForParameterValue(String parameterValue) {
         if (this.helper.isSetGlobalPrefix()) {
             return parameterValue.replace(getGlobalPrefix(), "");
@@ -235,7 +242,7 @@ public class PrefixedIdentifierModifier extends AbstractIdentifierModifier {
 
     private void checkAndChangeIdentifierOfAbstractFeature(AbstractFeature abstractFeature) {
         if (helper.isSetFeatureOfInterestPrefix()) {
-            abstractFeature.setIdentifier(checkFeatureOfInterestIdentifier(abstractFeature
+            abstractFeature.setIdentifier(mapFeatureOfInterestIdentifier(abstractFeature
                     .getIdentifier()));
         }
         if (abstractFeature.isSetXml()) {
@@ -247,7 +254,7 @@ public class PrefixedIdentifierModifier extends AbstractIdentifierModifier {
     protected void checkAndChangeProcedureIdentifier(AbstractFeature abstractFeature) {
         if (helper.isSetProcedurePrefix()) {
             if (!abstractFeature.isSetHumanReadableIdentifier()) {
-                abstractFeature.setIdentifier(checkProcedureIdentifier(abstractFeature.getIdentifier()));
+                abstractFeature.setIdentifier(mapProcedureIdentifier(abstractFeature.getIdentifier()));
             }
         }
     }
@@ -256,7 +263,7 @@ public class PrefixedIdentifierModifier extends AbstractIdentifierModifier {
     protected void checkAndChangeObservablePropertyIdentifier(AbstractFeature abstractFeature) {
         if (helper.isSetObservablePropertyPrefix()) {
             if (!abstractFeature.isSetHumanReadableIdentifier()) {
-                abstractFeature.setIdentifier(checkObservablePropertyIdentifier(abstractFeature
+                abstractFeature.setIdentifier(mapObservablePropertyIdentifier(abstractFeature
                         .getIdentifier()));
             }
         }
@@ -265,7 +272,7 @@ public class PrefixedIdentifierModifier extends AbstractIdentifierModifier {
     @Override
     protected void checkAndChangOfferingIdentifier(SosOffering offering) {
         if (offering != null && helper.isSetOfferingPrefix()) {
-            offering.setIdentifier(checkOfferingIdentifier(offering.getIdentifier()));
+            offering.setIdentifier(mapOfferingIdentifier(offering.getIdentifier()));
         }
     }
 
@@ -28,12 +28,11 @@
 package org.n52.sos.convert;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.NoSuchElementException;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -44,6 +43,7 @@ import org.n52.iceland.cache.ContentCacheController;
 import org.n52.iceland.convert.RequestResponseModifier;
 import org.n52.iceland.convert.RequestResponseModifierFacilitator;
 import org.n52.iceland.convert.RequestResponseModifierKey;
+import org.n52.janmayen.AbstractThrowingIterator;
 import org.n52.shetland.inspire.omso.InspireOMSOConstants;
 import org.n52.shetland.inspire.omso.MultiPointObservation;
 import org.n52.shetland.inspire.omso.PointObservation;
@@ -68,7 +68,6 @@ import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.shetland.ogc.sos.response.AbstractObservationResponse;
 import org.n52.shetland.ogc.sos.response.GetObservationByIdResponse;
 import org.n52.shetland.ogc.sos.response.GetObservationResponse;
-import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.service.SosSettings;
 
@@ -164,81 +163,17 @@ public class InspireObservationResponseConverter extends AbstractRequestResponse
 
     /**
      * Check the {@link AbstractObservationResponse} with {@link StreamingValue}
+     * and replace the observations with a stream that converts and merges
+     * them while the encoder pulls.
      *
      * @param request
      *            The request
      * @param response
      *            The response
-     * @throws OwsExceptionReport
-     *             If an error occurs
-     */
-    private void checkData(OwsServiceRequest request, AbstractObservationResponse response) throws OwsExceptionReport {
-        Map<String, List<OmObservation>> map = Maps.newHashMap();
-        while (response.getObservationCollection().hasNext()) {
-            OmObservation omObservation = response.getObservationCollection().next();
-            if (omObservation.getValue() instanceof StreamingValue<?>) {
-                if (checkRequestedObservationTypeForOffering(omObservation, request)) {
-                    String observationType = checkForObservationTypeForStreaming(omObservation, request);
-                    while (((StreamingValue<?>) omObservation.getValue()).hasNext()) {
-                        OmObservation observation = ((StreamingValue<?>) omObservation.getValue()).next();
-                        if (InspireOMSOConstants.OBS_TYPE_PROFILE_OBSERVATION.equals(observationType)) {
-                            putOrAdd(map, InspireOMSOConstants.OBS_TYPE_PROFILE_OBSERVATION,
-                                    convertToProfileObservations(observation));
-                        } else if (InspireOMSOConstants.OBS_TYPE_TRAJECTORY_OBSERVATION.equals(observationType)) {
-                            putOrAdd(map, InspireOMSOConstants.OBS_TYPE_TRAJECTORY_OBSERVATION,
-                                    convertToTrajectoryObservations(observation));
-                        } else if (InspireOMSOConstants.OBS_TYPE_MULTI_POINT_OBSERVATION.equals(observationType)) {
-                            putOrAdd(map, InspireOMSOConstants.OBS_TYPE_MULTI_POINT_OBSERVATION,
-                                    convertToMultiPointObservations(observation));
-                        } else if (InspireOMSOConstants.OBS_TYPE_POINT_TIME_SERIES_OBSERVATION
-                                .equals(observationType)) {
-                            putOrAdd(map, InspireOMSOConstants.OBS_TYPE_POINT_TIME_SERIES_OBSERVATION,
-                                    convertToPointTimeSeriesObservations(observation));
-                        } else if (InspireOMSOConstants.OBS_TYPE_POINT_OBSERVATION.equals(observationType)) {
-                            putOrAdd(map, InspireOMSOConstants.OBS_TYPE_POINT_OBSERVATION,
-                                    convertToPointObservations(observation));
-                        }
-                    }
-                }
-            }
-        }
-        response.setObservationCollection(mergeObservations(map));
-    }
-
-    /**
-     * Merge the observations depending on their observationType
-     *
-     * @param map
-     *            {@link Map} with observationType key
-     * @return Merged observations
-     * @throws OwsExceptionReport
-     *             If an error occurs
      */
-    private ObservationStream mergeObservations(Map<String, List<OmObservation>> map) throws OwsExceptionReport {
-        List<OmObservation> mergedObservations = Lists.newArrayList();
-        for (Entry<String, List<OmObservation>> entry : map.entrySet()) {
-            switch (entry.getKey()) {
-                case InspireOMSOConstants.OBS_TYPE_PROFILE_OBSERVATION:
-                    mergedObservations.addAll(mergeProfileObservation(ObservationStream.of(map.get(entry.getKey()))));
-                    break;
-                case InspireOMSOConstants.OBS_TYPE_TRAJECTORY_OBSERVATION:
-                    mergedObservations.addAll(mergeTrajectoryObservation(
-                            ObservationStream.of(map.get(entry.getKey()))));
-                    break;
-                case InspireOMSOConstants.OBS_TYPE_MULTI_POINT_OBSERVATION:
-                    mergedObservations.addAll(mergeMultiPointObservation(
-                            ObservationStream.of(map.get(entry.getKey()))));
-                    break;
-                case InspireOMSOConstants.OBS_TYPE_POINT_TIME_SERIES_OBSERVATION:
-                    mergedObservations
-                            .addAll(mergePointTimeSeriesObservation(ObservationStream.of(map.get(entry.getKey()))));
-                    break;
-                default:
-                    mergedObservations.addAll(map.get(entry.getKey()));
-                    break;
-            }
-        }
-        return ObservationStream.of(mergedObservations);
+    private void checkData(OwsServiceRequest request, AbstractObservationResponse response) {
+        response.setObservationCollection(
+                new InspireObservationStream(request, response.getObservationCollection()));
     }
 
     /**
@@ -251,10 +186,10 @@ public class InspireObservationResponseConverter extends AbstractRequestResponse
      * @throws OwsExceptionReport
      *             If an error occurs
      */
-    private Collection<? extends OmObservation> mergePointTimeSeriesObservation(ObservationStream observations)
+    private ObservationStream mergePointTimeSeriesObservation(ObservationStream observations)
             throws OwsExceptionReport {
-        return toList(observations.merge(
-                ObservationMergeIndicator.sameObservationConstellation().setResultTime(includeResultTimeForMerging)));
+        return observations.merge(
+                ObservationMergeIndicator.sameObservationConstellation().setResultTime(includeResultTimeForMerging));
     }
 
     /**
@@ -267,11 +202,11 @@ public class InspireObservationResponseConverter extends AbstractRequestResponse
      * @throws OwsExceptionReport
      *             If an error occurs
      */
-    private Collection<? extends OmObservation> mergeMultiPointObservation(ObservationStream observations)
+    private ObservationStream mergeMultiPointObservation(ObservationStream observations)
             throws OwsExceptionReport {
         ObservationMergeIndicator observationMergeIndicator = new ObservationMergeIndicator();
         observationMergeIndicator.setObservableProperty(true).setProcedure(true).setPhenomenonTime(true);
-        return toList(observations.merge(observationMergeIndicator));
+        return observations.merge(observationMergeIndicator);
     }
 
     /**
@@ -284,12 +219,12 @@ public class InspireObservationResponseConverter extends AbstractRequestResponse
      * @throws OwsExceptionReport
      *             If an error occurs
      */
-    private Collection<? extends OmObservation> mergeProfileObservation(ObservationStream observations)
+    private ObservationStream mergeProfileObservation(ObservationStream observations)
             throws OwsExceptionReport {
         ObservationMergeIndicator observationMergeIndicator = new ObservationMergeIndicator();
         observationMergeIndicator.setObservableProperty(true).setProcedure(true).setFeatureOfInterest(true)
                 .setPhenomenonTime(true).setOfferings(true);
-        return toList(observations.merge(observationMergeIndicator));
+        return observations.merge(observationMergeIndicator);
     }
 
     /**
@@ -302,32 +237,12 @@ public class InspireObservationResponseConverter extends AbstractRequestResponse
      * @throws OwsExceptionReport
      *             If an error occurs
      */
-    private Collection<? extends OmObservation> mergeTrajectoryObservation(ObservationStream observations)
+    private ObservationStream mergeTrajectoryObservation(ObservationStream observations)
             throws OwsExceptionReport {
         ObservationMergeIndicator observationMergeIndicator = new ObservationMergeIndicator();
         observationMergeIndicator.setObservableProperty(true).setProcedure(true).setFeatureOfInterest(true)
                 .setOfferings(true);
-        return toList(observations.merge(observationMergeIndicator));
-    }
-
-    private Collection<? extends OmObservation> toList(ObservationStream stream)
-            throws NoSuchElementException, OwsExceptionReport {
-        List<OmObservation> observations = new ArrayList<>();
-        while (stream.hasNext()) {
-            observations.add(stream.next());
-        }
-        return observations;
-    }
-
-    /**
-     * Convert observation to {@link PointObservation}
-     *
-     * @param observation
-     *            {@link OmObservation} to convert
-     * @return Converted observation
-     */
-    private List<OmObservation> convertToPointObservations(OmObservation observation) {
-        return Lists.<OmObservation> newArrayList(new PointObservation(observation));
+        return observations.merge(observationMergeIndicator);
     }
 
     /**
@@ -509,23 +424,93 @@ public class InspireObservationResponseConverter extends AbstractRequestResponse
     }
 
     /**
-     * Put/add {@link OmObservation}s to the map
-     *
-     * @param map
-     *            The map to put/add
-     * @param type
-     *            The key to put/add values for
-     * @param observations
-     *            The values to add
+     * {@link ObservationStream} that converts the observations of the wrapped
+     * stream series by series into INSPIRE OM Specialised Observations.
+     * Point observations are passed through one by one, point time series,
+     * profile and trajectory observations are merged per series. Only multi
+     * point observations, which are merged across features, are held back
+     * until the wrapped stream is exhausted.
      */
-    private void putOrAdd(Map<String, List<OmObservation>> map, String type, List<OmObservation> observations) {
-        if (CollectionHelper.isNotEmpty(observations)) {
-            if (map.containsKey(type)) {
-                map.get(type).addAll(observations);
+    private final class InspireObservationStream extends AbstractThrowingIterator<OmObservation, OwsExceptionReport>
+            implements ObservationStream {
+
+        private final OwsServiceRequest request;
+
+        private final ObservationStream source;
+
+        private ObservationStream merged = ObservationStream.empty();
+
+        private StreamingValue<?> pointObservations;
+
+        private List<OmObservation> multiPointObservations = new LinkedList<>();
+
+        InspireObservationStream(OwsServiceRequest request, ObservationStream source) {
+            this.request = request;
+            this.source = source;
+        }
+
+        @Override
+        protected OmObservation computeNext() throws OwsExceptionReport {
+            while (true) {
+                if (merged.hasNext()) {
+                    return merged.next();
+                } else if (pointObservations != null) {
+                    if (pointObservations.hasNext()) {
+                        return new PointObservation(pointObservations.next());
+                    }
+                    pointObservations = null;
+                } else if (source.hasNext()) {
+                    convert(source.next());
+                } else if (!multiPointObservations.isEmpty()) {
+                    merged = mergeMultiPointObservation(ObservationStream.of(multiPointObservations));
+                    multiPointObservations = Collections.emptyList();
+                } else {
+                    return endOfData();
+                }
+            }
+        }
+
+        private void convert(OmObservation omObservation) throws OwsExceptionReport {
+            if (!(omObservation.getValue() instanceof StreamingValue<?>)
+                    || !checkRequestedObservationTypeForOffering(omObservation, request)) {
+                return;
+            }
+            StreamingValue<?> value = (StreamingValue<?>) omObservation.getValue();
+            String observationType = checkForObservationTypeForStreaming(omObservation, request);
+            if (InspireOMSOConstants.OBS_TYPE_POINT_OBSERVATION.equals(observationType)) {
+                pointObservations = value;
+            } else if (InspireOMSOConstants.OBS_TYPE_MULTI_POINT_OBSERVATION.equals(observationType)) {
+                while (value.hasNext()) {
+                    multiPointObservations.addAll(convertToMultiPointObservations(value.next()));
+                }
             } else {
-                map.put(type, observations);
+                List<OmObservation> observations = new ArrayList<>();
+                while (value.hasNext()) {
+                    OmObservation observation = value.next();
+                    if (InspireOMSOConstants.OBS_TYPE_PROFILE_OBSERVATION.equals(observationType)) {
+                        observations.addAll(convertToProfileObservations(observation));
+                    } else if (InspireOMSOConstants.OBS_TYPE_TRAJECTORY_OBSERVATION.equals(observationType)) {
+                        observations.addAll(convertToTrajectoryObservations(observation));
+                    } else {
+                        observations.addAll(convertToPointTimeSeriesObservations(observation));
+                    }
+                }
+                merged = merge(observationType, ObservationStream.of(observations));
             }
         }
+
+        private ObservationStream merge(String observationType, ObservationStream observations)
+                throws OwsExceptionReport {
+            switch (observationType) {
+                case InspireOMSOConstants.OBS_TYPE_PROFILE_OBSERVATION:
+                    return mergeProfileObservation(observations);
+                case InspireOMSOConstants.OBS_TYPE_TRAJECTORY_OBSERVATION:
+                    return mergeTrajectoryObservation(observations);
+                default:
+                    return mergePointTimeSeriesObservation(observations);
+            }
+        }
+
     }
 
     @Override
@@ -41,6 +41,8 @@ import org.n52.janmayen.http.MediaType;
 import org.n52.shetland.ogc.ows.service.OwsOperationKey;
 import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
 import org.n52.shetland.ogc.ows.service.ResponseFormat;
+import org.n52.sos.metrics.RequestMetricsContext;
+import org.n52.sos.metrics.RequestPhase;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.EncoderRepository;
 import org.n52.svalbard.encode.OperationResponseEncoderKey;
@@ -75,6 +77,19 @@ public class AbstractServiceResponseWriter extends AbstractResponseWriter<OwsSer
     @Override
     public void write(OwsServiceResponse asr, OutputStream out, ResponseProxy responseProxy)
             throws IOException, EncodingException {
+        RequestMetricsContext context = RequestMetricsContext.current();
+        long start = System.nanoTime();
+        try {
+            encodeAndWrite(asr, out, responseProxy);
+        } finally {
+            if (context != null && context.getMetrics() != null) {
+                context.getMetrics().record(RequestPhase.ENCODE, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void encodeAndWrite(OwsServiceResponse asr, OutputStream out, ResponseProxy responseProxy)
+            throws IOException, EncodingException {
         Encoder<Object, OwsServiceResponse> encoder = getEncoder(asr);
         if (encoder != null) {
             if (encoder instanceof StreamingEncoder) {
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+/**
+ * Handler to physically delete procedures together with their datasets,
+ * observations, result templates and the offerings that are not used by other
+ * procedures. Features and observable properties are kept.
+ *
+ * @since 5.5.0
+ */
+public interface DeleteProceduresHandler {
+
+    /**
+     * @param prefix
+     *            the identifier prefix
+     *
+     * @return the identifiers of the procedures that start with the prefix
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    Set<String> getProcedures(String prefix) throws OwsExceptionReport;
+
+    /**
+     * Physically delete the procedures. Each procedure is deleted in its own
+     * transaction.
+     *
+     * @param procedures
+     *            the procedure identifiers
+     *
+     * @return the number of deleted procedures
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    int deleteProcedures(Collection<String> procedures) throws OwsExceptionReport;
+
+}
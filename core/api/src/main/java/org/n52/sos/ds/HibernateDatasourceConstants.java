@@ -109,6 +109,8 @@ public interface HibernateDatasourceConstants {
 
     String HIBERNATE_DATASOURCE_TIME_STRING_Z = "hibernate.datasource.timeStringZ";
 
+    String HIBERNATE_DATASOURCE_REFERENCE_CACHE = "hibernate.datasource.referenceCache";
+
     String DATABASE_CONCEPT_KEY = "sos.database.concept";
 
     enum DatabaseConcept {
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+/**
+ * Handler to physically remove observations flagged as deleted in chunks in
+ * the background. The purge is restartable: an interrupted or cancelled run
+ * continues with the remaining deleted observations.
+ *
+ * @since 5.5.0
+ */
+public interface PurgeDeletedObservationsHandler {
+
+    /**
+     * Start the purge in the background. Does nothing if a purge is already
+     * running.
+     *
+     * @return <code>true</code> if a new purge was started
+     */
+    boolean startPurge();
+
+    /**
+     * Request the cancellation of a running purge. The chunk currently in
+     * progress is committed before the purge stops.
+     */
+    void cancelPurge();
+
+    /**
+     * @return a snapshot of the current purge progress
+     */
+    PurgeDeletedObservationsProgress getProgress();
+
+}
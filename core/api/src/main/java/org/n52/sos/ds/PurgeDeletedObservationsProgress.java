@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import org.joda.time.DateTime;
+
+/**
+ * Immutable snapshot of the progress of a {@link PurgeDeletedObservationsHandler}.
+ *
+ * @since 5.5.0
+ */
+public class PurgeDeletedObservationsProgress {
+
+    public enum State {
+        IDLE, RUNNING, CANCELLING, CANCELLED, FINISHED, FAILED
+    }
+
+    private final State state;
+
+    private final long deleted;
+
+    private final long chunks;
+
+    private final Long currentId;
+
+    private final Long maxId;
+
+    private final DateTime started;
+
+    private final DateTime finished;
+
+    private final String message;
+
+    public PurgeDeletedObservationsProgress(State state, long deleted, long chunks, Long currentId, Long maxId,
+            DateTime started, DateTime finished, String message) {
+        this.state = state;
+        this.deleted = deleted;
+        this.chunks = chunks;
+        this.currentId = currentId;
+        this.maxId = maxId;
+        this.started = started;
+        this.finished = finished;
+        this.message = message;
+    }
+
+    public static PurgeDeletedObservationsProgress idle() {
+        return new PurgeDeletedObservationsProgress(State.IDLE, 0, 0, null, null, null, null, null);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isRunning() {
+        return state == State.RUNNING || state == State.CANCELLING;
+    }
+
+    /**
+     * @return the number of observations physically deleted in the current
+     *         or last run
+     */
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return the number of committed chunks in the current or last run
+     */
+    public long getChunks() {
+        return chunks;
+    }
+
+    /**
+     * @return the lower id bound of the next chunk
+     */
+    public Long getCurrentId() {
+        return currentId;
+    }
+
+    /**
+     * @return the highest id of the deleted observations when the run was
+     *         started
+     */
+    public Long getMaxId() {
+        return maxId;
+    }
+
+    public DateTime getStarted() {
+        return started;
+    }
+
+    public DateTime getFinished() {
+        return finished;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+}
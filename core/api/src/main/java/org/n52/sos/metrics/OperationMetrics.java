@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The timers and counters of a single operation.
+ *
+ * @since 5.5.0
+ */
+public class OperationMetrics {
+
+    private final String operation;
+
+    private final Map<RequestPhase, PhaseTimer> phases;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder rows = new LongAdder();
+
+    public OperationMetrics(String operation) {
+        this.operation = operation;
+        Map<RequestPhase, PhaseTimer> timers = new EnumMap<>(RequestPhase.class);
+        for (RequestPhase phase : RequestPhase.values()) {
+            timers.put(phase, new PhaseTimer());
+        }
+        this.phases = Collections.unmodifiableMap(timers);
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public PhaseTimer getTimer(RequestPhase phase) {
+        return phases.get(phase);
+    }
+
+    public Map<RequestPhase, PhaseTimer> getTimers() {
+        return phases;
+    }
+
+    public void record(RequestPhase phase, long nanos) {
+        phases.get(phase).record(nanos);
+    }
+
+    public void countRequest(boolean successful) {
+        requests.increment();
+        if (!successful) {
+            failures.increment();
+        }
+    }
+
+    public void addRows(long count) {
+        rows.add(count);
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+/**
+ * Times the phases of a single request operator invocation. Each call of
+ * {@link #lap(RequestPhase)} records the time since the previous lap.
+ * <p>
+ * If no {@link RequestMetricsContext} is open, e.g. for requests that do not
+ * arrive via HTTP, the timer opens one and closes it in {@link #stop(boolean)}.
+ * Nested operator invocations do not take over the context of the outer
+ * request.
+ *
+ * @since 5.5.0
+ */
+public class OperationTimer {
+
+    private final OperationMetrics metrics;
+
+    private final boolean ownsContext;
+
+    private long last;
+
+    OperationTimer(OperationMetrics metrics) {
+        this.metrics = metrics;
+        this.last = System.nanoTime();
+        RequestMetricsContext context = RequestMetricsContext.current();
+        if (context == null) {
+            RequestMetricsContext.begin().setMetrics(metrics);
+            this.ownsContext = true;
+        } else {
+            if (context.getMetrics() == null) {
+                context.setMetrics(metrics);
+                metrics.record(RequestPhase.DECODE, last - context.getStart());
+            }
+            this.ownsContext = false;
+        }
+    }
+
+    public void lap(RequestPhase phase) {
+        long now = System.nanoTime();
+        metrics.record(phase, now - last);
+        this.last = now;
+    }
+
+    public void stop(boolean successful) {
+        metrics.countRequest(successful);
+        if (ownsContext) {
+            RequestMetricsContext.end();
+        }
+    }
+}
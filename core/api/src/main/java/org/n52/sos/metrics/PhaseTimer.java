@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free timer with a fixed bucket histogram for a single
+ * {@link RequestPhase} of an operation.
+ *
+ * @since 5.5.0
+ */
+public class PhaseTimer {
+
+    private static final long[] BUCKET_BOUNDS = new long[] { TimeUnit.MICROSECONDS.toNanos(500),
+        TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MICROSECONDS.toNanos(2500), TimeUnit.MILLISECONDS.toNanos(5),
+        TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(25), TimeUnit.MILLISECONDS.toNanos(50),
+        TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(250), TimeUnit.MILLISECONDS.toNanos(500),
+        TimeUnit.SECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(2500), TimeUnit.SECONDS.toNanos(5),
+        TimeUnit.SECONDS.toNanos(10), TimeUnit.SECONDS.toNanos(30) };
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Non cumulative bucket counts, the last bucket counts values above the
+     * largest bound.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        count.increment();
+        sum.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+        buckets.incrementAndGet(getBucket(nanos));
+    }
+
+    private static int getBucket(long nanos) {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (nanos <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sum.sum();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public double getMeanNanos() {
+        long c = getCount();
+        return c == 0 ? 0.0 : getSumNanos() / (double) c;
+    }
+
+    /**
+     * @return the upper bounds of the histogram buckets in nanoseconds,
+     *         excluding the implicit {@code +Inf} bucket
+     */
+    public static long[] getBucketBounds() {
+        return BUCKET_BOUNDS.clone();
+    }
+
+    /**
+     * @return the cumulative bucket counts matching
+     *         {@link #getBucketBounds()}, the last element is the
+     *         {@code +Inf} bucket
+     */
+    public long[] getCumulativeBucketCounts() {
+        long[] counts = new long[buckets.length()];
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += buckets.get(i);
+            counts[i] = cumulative;
+        }
+        return counts;
+    }
+
+    /**
+     * Estimates the percentile from the histogram as the upper bound of the
+     * bucket containing the percentile, capped by the maximum.
+     *
+     * @param percentile
+     *            the percentile in {@code (0, 100]}
+     *
+     * @return the estimated percentile in nanoseconds
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = getCumulativeBucketCounts();
+        long total = counts[counts.length - 1];
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(percentile * total / 100.0);
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (counts[i] >= rank) {
+                return Math.min(BUCKET_BOUNDS[i], getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import org.n52.sos.request.operator.OperationLimiter;
+
+/**
+ * Writes the {@link RequestMetrics} in the Prometheus text exposition format.
+ *
+ * @since 5.5.0
+ */
+public final class PrometheusMetricsWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String PHASE_SECONDS = "sos_request_phase_seconds";
+
+    private static final String REQUESTS = "sos_requests_total";
+
+    private static final String FAILURES = "sos_request_failures_total";
+
+    private static final String ROWS = "sos_request_rows_total";
+
+    private static final String ADMISSION_ACTIVE = "sos_admission_active_requests";
+
+    private static final String ADMISSION_QUEUE_DEPTH = "sos_admission_queue_depth";
+
+    private static final String ADMISSION_ADMITTED = "sos_admission_admitted_total";
+
+    private static final String ADMISSION_REJECTED = "sos_admission_rejected_total";
+
+    private static final String ADMISSION_TIMEOUTS = "sos_admission_timeouts_total";
+
+    private static final String GAUGE = "gauge";
+
+    private static final String COUNTER = "counter";
+
+    private static final int NANOS_SCALE = 9;
+
+    private PrometheusMetricsWriter() {
+    }
+
+    public static String write(RequestMetrics metrics) {
+        return write(metrics, Collections.emptyList());
+    }
+
+    /**
+     * Writes the request metrics and the state of the admission control.
+     *
+     * @param metrics
+     *            the request metrics
+     * @param limiters
+     *            the limiters of the admission control
+     *
+     * @return the metrics in the text exposition format
+     */
+    public static String write(RequestMetrics metrics, Collection<OperationLimiter> limiters) {
+        List<OperationMetrics> operations = metrics.getOperations();
+        StringBuilder builder = new StringBuilder();
+        writeHeader(builder, PHASE_SECONDS, "histogram", "Duration of the request phases per operation.");
+        long[] bounds = PhaseTimer.getBucketBounds();
+        for (OperationMetrics operation : operations) {
+            for (Map.Entry<RequestPhase, PhaseTimer> entry : operation.getTimers().entrySet()) {
+                String labels = String.format("operation=\"%s\",phase=\"%s\"", escape(operation.getOperation()),
+                        entry.getKey().getLabel());
+                PhaseTimer timer = entry.getValue();
+                long[] counts = timer.getCumulativeBucketCounts();
+                for (int i = 0; i < bounds.length; i++) {
+                    writeSample(builder, PHASE_SECONDS + "_bucket",
+                            labels + ",le=\"" + toSeconds(bounds[i]) + "\"", Long.toString(counts[i]));
+                }
+                writeSample(builder, PHASE_SECONDS + "_bucket", labels + ",le=\"+Inf\"",
+                        Long.toString(counts[bounds.length]));
+                writeSample(builder, PHASE_SECONDS + "_sum", labels, toSeconds(timer.getSumNanos()));
+                writeSample(builder, PHASE_SECONDS + "_count", labels, Long.toString(timer.getCount()));
+            }
+        }
+        writeHeader(builder, REQUESTS, COUNTER, "Number of requests per operation.");
+        for (OperationMetrics operation : operations) {
+            writeSample(builder, REQUESTS, operationLabel(operation), Long.toString(operation.getRequests()));
+        }
+        writeHeader(builder, FAILURES, COUNTER, "Number of failed requests per operation.");
+        for (OperationMetrics operation : operations) {
+            writeSample(builder, FAILURES, operationLabel(operation), Long.toString(operation.getFailures()));
+        }
+        writeHeader(builder, ROWS, COUNTER, "Number of entities loaded from the database per operation.");
+        for (OperationMetrics operation : operations) {
+            writeSample(builder, ROWS, operationLabel(operation), Long.toString(operation.getRows()));
+        }
+        if (!limiters.isEmpty()) {
+            writeLimiters(builder, limiters, ADMISSION_ACTIVE, GAUGE,
+                    "Number of requests that are processed per operation.", OperationLimiter::getActive);
+            writeLimiters(builder, limiters, ADMISSION_QUEUE_DEPTH, GAUGE,
+                    "Number of requests that wait for admission per operation.", OperationLimiter::getQueueDepth);
+            writeLimiters(builder, limiters, ADMISSION_ADMITTED, COUNTER,
+                    "Number of admitted requests per operation.", OperationLimiter::getAdmitted);
+            writeLimiters(builder, limiters, ADMISSION_REJECTED, COUNTER,
+                    "Number of rejected requests per operation.", OperationLimiter::getRejected);
+            writeLimiters(builder, limiters, ADMISSION_TIMEOUTS, COUNTER,
+                    "Number of requests rejected after waiting in the queue per operation.",
+                    OperationLimiter::getTimedOut);
+        }
+        return builder.toString();
+    }
+
+    private static void writeLimiters(StringBuilder builder, Collection<OperationLimiter> limiters, String name,
+            String type, String help, ToLongFunction<OperationLimiter> value) {
+        writeHeader(builder, name, type, help);
+        for (OperationLimiter limiter : limiters) {
+            writeSample(builder, name, "operation=\"" + escape(limiter.getOperation()) + "\"",
+                    Long.toString(value.applyAsLong(limiter)));
+        }
+    }
+
+    private static void writeHeader(StringBuilder builder, String name, String type, String help) {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void writeSample(StringBuilder builder, String name, String labels, String value) {
+        builder.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String operationLabel(OperationMetrics operation) {
+        return "operation=\"" + escape(operation.getOperation()) + "\"";
+    }
+
+    private static String toSeconds(long nanos) {
+        return BigDecimal.valueOf(nanos, NANOS_SCALE).stripTrailingZeros().toPlainString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
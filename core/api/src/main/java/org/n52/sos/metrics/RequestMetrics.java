@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.joda.time.DateTime;
+
+/**
+ * Registry of the built-in per operation metrics. The request operators time
+ * their phases, the response writer times the encoding and the datasource
+ * reports the JDBC time and the loaded rows through the
+ * {@link RequestMetricsContext}.
+ *
+ * @since 5.5.0
+ */
+public class RequestMetrics {
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    private volatile DateTime since = DateTime.now();
+
+    public OperationMetrics getOperation(String operation) {
+        return operations.computeIfAbsent(operation, OperationMetrics::new);
+    }
+
+    /**
+     * @return the metrics of all operations that were requested since the
+     *         last reset, ordered by operation name
+     */
+    public List<OperationMetrics> getOperations() {
+        List<OperationMetrics> list = new ArrayList<>(operations.values());
+        list.sort(Comparator.comparing(OperationMetrics::getOperation));
+        return list;
+    }
+
+    /**
+     * @return the time of the start or the last reset
+     */
+    public DateTime getSince() {
+        return since;
+    }
+
+    public void reset() {
+        operations.clear();
+        since = DateTime.now();
+    }
+
+    /**
+     * Starts the timing of an operator invocation.
+     *
+     * @param operation
+     *            the operation name
+     *
+     * @return the timer
+     */
+    public OperationTimer start(String operation) {
+        return new OperationTimer(getOperation(operation));
+    }
+}
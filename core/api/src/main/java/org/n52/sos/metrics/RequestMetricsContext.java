@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+/**
+ * Thread bound state of the request that is currently processed. The context
+ * connects the phases that are executed in different layers: the web layer
+ * opens and closes it, the request operator attaches the
+ * {@link OperationMetrics} and the datasource adds the database time and rows.
+ *
+ * @since 5.5.0
+ */
+public final class RequestMetricsContext {
+
+    private static final ThreadLocal<RequestMetricsContext> CURRENT = new ThreadLocal<>();
+
+    private final long start;
+
+    private OperationMetrics metrics;
+
+    private long databaseNanos;
+
+    private long rows;
+
+    private RequestMetricsContext(long start) {
+        this.start = start;
+    }
+
+    /**
+     * Opens a new context for the current thread.
+     *
+     * @return the context
+     */
+    public static RequestMetricsContext begin() {
+        RequestMetricsContext context = new RequestMetricsContext(System.nanoTime());
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * @return the context of the current thread or {@code null}
+     */
+    public static RequestMetricsContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Closes the context of the current thread and records the database time
+     * and rows to the attached operation, if any.
+     */
+    public static void end() {
+        RequestMetricsContext context = CURRENT.get();
+        CURRENT.remove();
+        if (context != null && context.metrics != null) {
+            context.metrics.record(RequestPhase.DATABASE, context.databaseNanos);
+            context.metrics.addRows(context.rows);
+        }
+    }
+
+    public static void addDatabaseTime(long nanos) {
+        RequestMetricsContext context = CURRENT.get();
+        if (context != null) {
+            context.databaseNanos += nanos;
+        }
+    }
+
+    public static void addRows(long count) {
+        RequestMetricsContext context = CURRENT.get();
+        if (context != null) {
+            context.rows += count;
+        }
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public OperationMetrics getMetrics() {
+        return metrics;
+    }
+
+    void setMetrics(OperationMetrics metrics) {
+        this.metrics = metrics;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+/**
+ * The phases of a request that are timed by the {@link RequestMetrics}.
+ *
+ * @since 5.5.0
+ */
+public enum RequestPhase {
+    /**
+     * From the arrival of the HTTP request until the request operator is
+     * called, i.e. the binding including the request decoding.
+     */
+    DECODE("decode"),
+    /**
+     * The request modifiers and the request pre processing of the operator.
+     */
+    REQUEST_MODIFIERS("requestModifiers"),
+    /**
+     * The parameter checks of the operator.
+     */
+    CHECK_PARAMETERS("checkParameters"),
+    /**
+     * The operation handler, i.e. the datasource query.
+     */
+    RECEIVE("receive"),
+    /**
+     * The response post processing and the response modifiers.
+     */
+    RESPONSE_MODIFIERS("responseModifiers"),
+    /**
+     * The encoding and writing of the response.
+     */
+    ENCODE("encode"),
+    /**
+     * The accumulated JDBC statement execution time of all phases.
+     */
+    DATABASE("database");
+
+    private final String label;
+
+    RequestPhase(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
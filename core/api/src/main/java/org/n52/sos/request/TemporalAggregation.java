@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Optional;
+
+import org.n52.shetland.ogc.ows.exception.CodedException;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.ows.exception.MissingParameterValueException;
+import org.n52.shetland.ogc.ows.extension.Extension;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.swe.simpleType.SweAbstractSimpleType;
+
+/**
+ * Temporal aggregation of the values of a series into buckets of a fixed
+ * interval, requested with the {@value #INTERVAL} and {@value #FUNCTION}
+ * extensions of GetObservation and GetResult, e.g.
+ * {@code aggregationInterval=PT1H&aggregationFunction=mean}.
+ *
+ * The buckets are aligned to multiples of the interval since
+ * 1970-01-01T00:00:00Z, a bucket contains the values whose phenomenon time
+ * start is within {@code [start, start + interval)}.
+ *
+ * @since 5.5.0
+ */
+public class TemporalAggregation {
+
+    public static final String INTERVAL = "aggregationInterval";
+
+    public static final String FUNCTION = "aggregationFunction";
+
+    private static final String DUPLICATED = "duplicated";
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    /**
+     * The aggregation function that is applied to the values of a bucket.
+     */
+    public enum Function {
+        /**
+         * Minimum value.
+         */
+        MIN,
+        /**
+         * Maximum value.
+         */
+        MAX,
+        /**
+         * Arithmetic mean of the values.
+         */
+        MEAN,
+        /**
+         * Value with the earliest phenomenon time.
+         */
+        FIRST,
+        /**
+         * Value with the latest phenomenon time.
+         */
+        LAST,
+        /**
+         * Number of values.
+         */
+        COUNT,
+        /**
+         * Minimum and maximum value.
+         */
+        ENVELOPE;
+
+        /**
+         * @return {@code true} if the function can be evaluated with the
+         *         standard SQL aggregate functions
+         */
+        public boolean isSqlAggregate() {
+            return this != FIRST && this != LAST;
+        }
+    }
+
+    private final long interval;
+
+    private final Function function;
+
+    /**
+     * @param interval
+     *            the bucket interval in seconds
+     * @param function
+     *            the aggregation function
+     */
+    public TemporalAggregation(long interval, Function function) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval has to be positive");
+        }
+        this.interval = interval;
+        this.function = function;
+    }
+
+    /**
+     * @return the bucket interval in seconds
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    /**
+     * Get the bucket of the time.
+     *
+     * @param time
+     *            the time in milliseconds since the epoch
+     * @return the bucket
+     */
+    public long getBucket(long time) {
+        return Math.floorDiv(time, interval * MILLIS_PER_SECOND);
+    }
+
+    /**
+     * @param bucket
+     *            the bucket
+     * @return the inclusive start of the bucket in milliseconds since the
+     *         epoch
+     */
+    public long getBucketStart(long bucket) {
+        return bucket * interval * MILLIS_PER_SECOND;
+    }
+
+    /**
+     * @param bucket
+     *            the bucket
+     * @return the exclusive end of the bucket in milliseconds since the epoch
+     */
+    public long getBucketEnd(long bucket) {
+        return getBucketStart(bucket + 1);
+    }
+
+    /**
+     * Get the temporal aggregation from the extensions of the request.
+     *
+     * @param request
+     *            the request
+     * @return the temporal aggregation or {@link Optional#empty()} if none is
+     *         requested
+     * @throws CodedException
+     *             If the extensions are duplicated, incomplete or invalid
+     */
+    public static Optional<TemporalAggregation> fromRequest(OwsServiceRequest request) throws CodedException {
+        Optional<String> interval = getValue(request, INTERVAL);
+        Optional<String> function = getValue(request, FUNCTION);
+        if (!interval.isPresent() && !function.isPresent()) {
+            return Optional.empty();
+        } else if (!interval.isPresent()) {
+            throw new MissingParameterValueException(INTERVAL);
+        } else if (!function.isPresent()) {
+            throw new MissingParameterValueException(FUNCTION);
+        }
+        return Optional.of(new TemporalAggregation(parseInterval(interval.get()), parseFunction(function.get())));
+    }
+
+    private static long parseInterval(String value) throws CodedException {
+        try {
+            Duration duration = Duration.parse(value);
+            if (duration.isNegative() || duration.isZero() || duration.getNano() != 0) {
+                throw new InvalidParameterValueException(INTERVAL, value)
+                        .withMessage("The %s has to be a positive number of seconds, e.g. PT1H!", INTERVAL);
+            }
+            return duration.getSeconds();
+        } catch (DateTimeParseException e) {
+            throw new InvalidParameterValueException(INTERVAL, value).causedBy(e)
+                    .withMessage("The %s '%s' is not a valid ISO 8601 duration, e.g. PT1H!", INTERVAL, value);
+        }
+    }
+
+    private static Function parseFunction(String value) throws CodedException {
+        try {
+            return Function.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidParameterValueException(FUNCTION, value).causedBy(e)
+                    .withMessage("The %s '%s' is not supported, use one of min, max, mean, first, last, count or "
+                            + "envelope!", FUNCTION, value);
+        }
+    }
+
+    private static Optional<String> getValue(OwsServiceRequest request, String name) throws CodedException {
+        if (!request.hasExtension(name)) {
+            return Optional.empty();
+        }
+        if (request.getExtensionCount(name) > 1) {
+            throw new InvalidParameterValueException(name, DUPLICATED);
+        }
+        Optional<Extension<?>> extension = request.getExtension(name);
+        Object value = extension.map(Extension::getValue).orElse(null);
+        if (value instanceof SweAbstractSimpleType) {
+            value = ((SweAbstractSimpleType<?>) value).getValue();
+        }
+        if (value == null || value.toString().trim().isEmpty()) {
+            throw new MissingParameterValueException(name);
+        }
+        return Optional.of(value.toString().trim());
+    }
+
+}
@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -62,6 +63,8 @@ import org.n52.shetland.ogc.filter.FilterConstants.SpatialOperator;
 import org.n52.shetland.ogc.filter.SpatialFilter;
 import org.n52.shetland.ogc.filter.TemporalFilter;
 import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmObservation;
 import org.n52.shetland.ogc.ows.OWSConstants;
 import org.n52.shetland.ogc.ows.OwsOperation;
 import org.n52.shetland.ogc.ows.exception.CodedException;
@@ -98,6 +101,9 @@ import org.n52.sos.exception.ows.concrete.InvalidResponseFormatParameterExceptio
 import org.n52.sos.exception.ows.concrete.InvalidValueReferenceException;
 import org.n52.sos.exception.ows.concrete.MissingProcedureParameterException;
 import org.n52.sos.exception.ows.concrete.MissingResponseFormatParameterException;
+import org.n52.sos.metrics.OperationTimer;
+import org.n52.sos.metrics.RequestMetrics;
+import org.n52.sos.metrics.RequestPhase;
 import org.n52.sos.service.profile.Profile;
 import org.n52.sos.service.profile.ProfileHandler;
 import org.n52.svalbard.encode.EncoderRepository;
@@ -192,6 +198,12 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
 
     private boolean showOnlyAggregatedProcedures;
 
+    private RequestMetrics requestMetrics;
+
+    private AdmissionControl admissionControl;
+
+    private RequestCoalescer requestCoalescer;
+
     public AbstractRequestOperator(String service, String version, String operationName, Class<Q> requestType) {
         this(service, version, operationName, true, requestType);
     }
@@ -295,6 +307,33 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
         return encoderRepository;
     }
 
+    @Inject
+    public void setRequestMetrics(Optional<RequestMetrics> requestMetrics) {
+        this.requestMetrics = requestMetrics.orElse(null);
+    }
+
+    public RequestMetrics getRequestMetrics() {
+        return requestMetrics;
+    }
+
+    @Inject
+    public void setAdmissionControl(Optional<AdmissionControl> admissionControl) {
+        this.admissionControl = admissionControl.orElse(null);
+    }
+
+    public AdmissionControl getAdmissionControl() {
+        return admissionControl;
+    }
+
+    @Inject
+    public void setRequestCoalescer(Optional<RequestCoalescer> requestCoalescer) {
+        this.requestCoalescer = requestCoalescer.orElse(null);
+    }
+
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
     /**
      * @return the allowQueryingForInstancesOnly
      */
@@ -373,16 +412,129 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
         this.serviceEventBus.submit(new RequestEvent(abstractRequest));
         if (requestType.isAssignableFrom(abstractRequest.getClass()) && isSupported()) {
             Q request = requestType.cast(abstractRequest);
+            AdmissionControl.Permit permit = admit();
+            boolean deferred = false;
+            try {
+                OwsServiceResponse response = receiveAdmittedRequest(request);
+                // hold the permit until the (possibly streamed) response was written
+                deferred = AdmissionControl.Scope.defer(permit);
+                return response;
+            } finally {
+                if (!deferred) {
+                    permit.close();
+                }
+            }
+        } else {
+            throw new OperationNotSupportedException(abstractRequest.getOperationName());
+        }
+    }
+
+    private OwsServiceResponse receiveAdmittedRequest(Q request) throws OwsExceptionReport {
+        Optional<OperationTimer> timer = startTimer();
+        boolean successful = false;
+        try {
             preProcessRequest(request);
             checkForModifierAndProcess(request);
+            timer.ifPresent(t -> t.lap(RequestPhase.REQUEST_MODIFIERS));
             checkParameters(request);
-            A response = receive(request);
+            timer.ifPresent(t -> t.lap(RequestPhase.CHECK_PARAMETERS));
+            A response = receiveCoalesced(request);
+            timer.ifPresent(t -> t.lap(RequestPhase.RECEIVE));
             this.serviceEventBus.submit(new ResponseEvent(response));
             postProcessResponse(response);
-            return checkForModifierAndProcess(request, response);
-        } else {
-            throw new OperationNotSupportedException(abstractRequest.getOperationName());
+            OwsServiceResponse modified = checkForModifierAndProcess(request, response);
+            timer.ifPresent(t -> t.lap(RequestPhase.RESPONSE_MODIFIERS));
+            successful = true;
+            return modified;
+        } finally {
+            final boolean success = successful;
+            timer.ifPresent(t -> t.stop(success));
+        }
+    }
+
+    private A receiveCoalesced(Q request) throws OwsExceptionReport {
+        if (this.requestCoalescer == null || !this.requestCoalescer.isActive()
+                || this.requestResponseModifierRepository.hasRequestResponseModifier(request)) {
+            return receive(request);
         }
+        Object key = getCoalescingKey(request);
+        if (key == null) {
+            return receive(request);
+        }
+        return this.requestCoalescer.execute(
+                Arrays.asList(getOperationName(), request.getService(), request.getVersion(), key),
+                () -> receive(request), this::shareResponse);
+    }
+
+    /**
+     * Returns the normalized form of the request that is used to coalesce
+     * identical concurrent requests. Requests with equal keys have to produce
+     * equal responses. Operators that support coalescing override this method
+     * and {@link #shareResponse(OwsServiceResponse)}.
+     *
+     * @param request
+     *            the checked request
+     *
+     * @return the key or {@code null} if the request should not be coalesced
+     */
+    protected Object getCoalescingKey(Q request) {
+        return null;
+    }
+
+    /**
+     * Prepares the response to be shared by coalesced requests.
+     *
+     * @param response
+     *            the response of the handler
+     *
+     * @return the supplier of independent copies of the response or
+     *         {@code null} if the response can not be shared
+     *
+     * @throws OwsExceptionReport
+     *             if the response could not be read
+     */
+    protected Supplier<A> shareResponse(A response) throws OwsExceptionReport {
+        return null;
+    }
+
+    /**
+     * Reads the observations of the response to share them. Reading stops at
+     * the first observation that can not be {@link SharedObservations copied},
+     * e.g. one with streamed values, so that such responses are not read
+     * completely into memory.
+     *
+     * @param response
+     *            the response of the handler, stays usable if the observations
+     *            can not be shared
+     *
+     * @return the observations or {@code null} if they can not be shared
+     *
+     * @throws OwsExceptionReport
+     *             if the observations could not be read
+     */
+    protected List<OmObservation> getShareableObservations(AbstractObservationResponse response)
+            throws OwsExceptionReport {
+        return SharedObservations.collect(response);
+    }
+
+    /**
+     * @param observations
+     *            the shared observations
+     *
+     * @return a stream of independent copies of the observations, created
+     *         while the stream is read
+     */
+    protected static ObservationStream copyObservations(List<OmObservation> observations) {
+        return SharedObservations.copy(observations);
+    }
+
+    private AdmissionControl.Permit admit() throws OwsExceptionReport {
+        return this.admissionControl == null ? AdmissionControl.Permit.UNLIMITED
+                : this.admissionControl.admit(getOperationName());
+    }
+
+    private Optional<OperationTimer> startTimer() {
+        return Optional.ofNullable(this.requestMetrics).map(m -> m.start(getOperationName()));
     }
 
     protected void preProcessRequest(Q request) {
@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.faroe.ConfigurationError;
+import org.n52.faroe.Validation;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.http.HTTPStatus;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+
+/**
+ * Per operation admission control of the request operators. Each configured
+ * operation may be processed by a limited number of requests at the same
+ * time, further requests wait in a bounded queue. If the queue is full or the
+ * wait times out, the request fails fast with a {@code 503} exception report
+ * containing a retry hint, so that heavy operations can not exhaust the
+ * threads and connections needed by cheap ones.
+ * <p>
+ * The limits are defined as {@code operation=limit:queue} separated by
+ * semicolons, e.g. {@code GetObservation=8:32;GetResult=4:16}. The operation
+ * {@code *} defines the limit of each operation that is not listed.
+ * <p>
+ * Streamed responses read from the database while they are encoded, so a
+ * permit has to be held until the response was written. The servlet opens a
+ * {@link Scope} around the handling of each request and the operators
+ * {@link Scope#defer(Permit) defer} the release of their permit to it. Without
+ * an open scope the permit is released when the operator returns.
+ *
+ * @since 5.5.0
+ */
+@Configurable
+public class AdmissionControl {
+
+    public static final String ANY_OPERATION = "*";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdmissionControl.class);
+
+    private static final String LIMIT_SEPARATOR = ";";
+
+    private static final char OPERATION_SEPARATOR = '=';
+
+    private static final char QUEUE_SEPARATOR = ':';
+
+    private volatile Limits limits = new Limits(Collections.emptyMap(), null);
+
+    private long queueTimeout = TimeUnit.SECONDS.toMillis(10);
+
+    @Setting(AdmissionControlSettings.LIMITS)
+    public void setLimits(String value) throws ConfigurationError {
+        this.limits = parse(value);
+        LOGGER.info("Admission control limits: {}", limits);
+    }
+
+    @Setting(AdmissionControlSettings.QUEUE_TIMEOUT)
+    public void setQueueTimeout(int queueTimeout) throws ConfigurationError {
+        Validation.greaterZero("Admission queue timeout", queueTimeout);
+        this.queueTimeout = queueTimeout;
+    }
+
+    public long getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    /**
+     * Admits a request of the operation, waiting in the queue of the
+     * operation if required.
+     *
+     * @param operation
+     *            the operation name
+     *
+     * @return the permit that has to be closed after the request was
+     *         processed
+     *
+     * @throws OwsExceptionReport
+     *             if the queue of the operation is full or the wait timed out
+     */
+    public Permit admit(String operation) throws OwsExceptionReport {
+        OperationLimiter limiter = limits.get(operation);
+        if (limiter == null || Scope.holds(limiter)) {
+            // e.g. the requests of a batch request are counted once
+            return Permit.UNLIMITED;
+        }
+        boolean acquired;
+        try {
+            acquired = limiter.tryAcquire(queueTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NoApplicableCodeException().causedBy(e)
+                    .withMessage("Interrupted while waiting for the admission of the %s request!", operation);
+        }
+        if (!acquired) {
+            LOGGER.debug("Rejected {} request, {} active and {} waiting", operation, limiter.getActive(),
+                    limiter.getQueueDepth());
+            throw new NoApplicableCodeException()
+                    .withMessage("The service is busy processing %s requests, please retry after %d seconds!",
+                            operation, getRetryAfterSeconds())
+                    .setStatus(HTTPStatus.SERVICE_UNAVAILABLE);
+        }
+        return new LimiterPermit(limiter);
+    }
+
+    /**
+     * @return the hint after how many seconds a rejected request should be
+     *         retried
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1L, TimeUnit.MILLISECONDS.toSeconds(queueTimeout));
+    }
+
+    /**
+     * @return the limiters of the operations that were configured or
+     *         requested, ordered by operation name
+     */
+    public List<OperationLimiter> getLimiters() {
+        List<OperationLimiter> list = new ArrayList<>(limits.limiters.values());
+        list.sort(Comparator.comparing(OperationLimiter::getOperation));
+        return list;
+    }
+
+    static Limits parse(String value) throws ConfigurationError {
+        ConcurrentMap<String, OperationLimiter> limiters = new ConcurrentHashMap<>();
+        OperationLimiter fallback = null;
+        if (!Strings.isNullOrEmpty(value)) {
+            for (String limit : Splitter.on(LIMIT_SEPARATOR).trimResults().omitEmptyStrings().split(value)) {
+                int operationIndex = limit.indexOf(OPERATION_SEPARATOR);
+                int queueIndex = limit.lastIndexOf(QUEUE_SEPARATOR);
+                if (operationIndex <= 0 || queueIndex <= operationIndex + 1 || queueIndex == limit.length() - 1) {
+                    throw new ConfigurationError(String.format(
+                            "Invalid admission limit '%s', expected 'operation=limit:queue'!", limit));
+                }
+                String operation = limit.substring(0, operationIndex).trim();
+                try {
+                    OperationLimiter limiter = new OperationLimiter(operation,
+                            Integer.parseInt(limit.substring(operationIndex + 1, queueIndex).trim()),
+                            Integer.parseInt(limit.substring(queueIndex + 1).trim()));
+                    if (ANY_OPERATION.equals(operation)) {
+                        fallback = limiter;
+                    } else {
+                        limiters.put(operation, limiter);
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new ConfigurationError(String.format("Invalid admission limit '%s'!", limit), e);
+                }
+            }
+        }
+        return new Limits(limiters, fallback);
+    }
+
+    /**
+     * Permit of an admitted request.
+     */
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        Permit UNLIMITED = () -> {
+        };
+
+        @Override
+        void close();
+    }
+
+    private static final class LimiterPermit implements Permit {
+        private final OperationLimiter limiter;
+
+        LimiterPermit(OperationLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        @Override
+        public void close() {
+            limiter.release();
+        }
+    }
+
+    /**
+     * Scope of the handling of one request on the current thread, including
+     * the writing of the response. Permits deferred to the scope are released
+     * when it is closed. Further requests of an operation handled in the same
+     * scope, e.g. the requests of a batch request, do not need another permit.
+     */
+    public static final class Scope implements AutoCloseable {
+        private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+        private final Deque<Permit> permits = new ArrayDeque<>();
+
+        private final Set<OperationLimiter> limiters = new HashSet<>();
+
+        private final boolean owner;
+
+        private Scope(boolean owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * Open a scope on the current thread. If a scope is already open, e.g.
+         * for an included request, the returned scope does nothing and the
+         * permits are released by the outer scope.
+         *
+         * @return the scope
+         */
+        public static Scope open() {
+            if (CURRENT.get() != null) {
+                return new Scope(false);
+            }
+            Scope scope = new Scope(true);
+            CURRENT.set(scope);
+            return scope;
+        }
+
+        /**
+         * Defer the release of the permit to the scope of the current thread.
+         *
+         * @param permit
+         *            the permit
+         * @return if a scope is open and took the permit, otherwise the caller
+         *         has to release it
+         */
+        public static boolean defer(Permit permit) {
+            Scope scope = CURRENT.get();
+            if (scope == null) {
+                return false;
+            }
+            scope.permits.push(permit);
+            if (permit instanceof LimiterPermit) {
+                scope.limiters.add(((LimiterPermit) permit).limiter);
+            }
+            return true;
+        }
+
+        static boolean holds(OperationLimiter limiter) {
+            Scope scope = CURRENT.get();
+            return scope != null && scope.limiters.contains(limiter);
+        }
+
+        @Override
+        public void close() {
+            if (owner) {
+                CURRENT.remove();
+                limiters.clear();
+                while (!permits.isEmpty()) {
+                    permits.pop().close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Immutable configuration, requests release their permit to the limiter
+     * they acquired it from even if the limits are changed in the meantime.
+     */
+    static final class Limits {
+        private final ConcurrentMap<String, OperationLimiter> limiters;
+
+        private final OperationLimiter fallback;
+
+        Limits(Map<String, OperationLimiter> limiters, OperationLimiter fallback) {
+            this.limiters = new ConcurrentHashMap<>(limiters);
+            this.fallback = fallback;
+        }
+
+        OperationLimiter get(String operation) {
+            OperationLimiter limiter = limiters.get(operation);
+            if (limiter == null && fallback != null) {
+                return limiters.computeIfAbsent(operation,
+                        o -> new OperationLimiter(o, fallback.getLimit(), fallback.getQueueSize()));
+            }
+            return limiter;
+        }
+
+        @Override
+        public String toString() {
+            List<Object> list = new ArrayList<>(limiters.values());
+            if (fallback != null) {
+                list.add(fallback);
+            }
+            return list.isEmpty() ? "unlimited" : list.toString();
+        }
+    }
+}
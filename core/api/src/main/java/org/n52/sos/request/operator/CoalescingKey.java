@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.n52.shetland.ogc.ows.extension.Extension;
+import org.n52.shetland.ogc.ows.extension.Extensions;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+
+/**
+ * Builds the normalized form of a request that is used to coalesce identical
+ * requests. Collections and maps are compared regardless of their order.
+ * Values are compared by their string representation, a value without its own
+ * {@link Object#toString()} makes the key invalid so that requests are never
+ * coalesced by accident.
+ *
+ * @since 5.5.0
+ */
+public class CoalescingKey {
+
+    private final List<Object> parts = new ArrayList<>();
+
+    private boolean valid = true;
+
+    public CoalescingKey add(String name, Object value) {
+        if (value != null && valid) {
+            Object normalized = normalize(value);
+            if (normalized == null) {
+                valid = false;
+            } else {
+                parts.add(name);
+                parts.add(normalized);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Adds the parts of the request context that influence the response, i.e.
+     * the accepted media types in the order of their preference.
+     *
+     * @param request
+     *            the request
+     *
+     * @return this
+     */
+    public CoalescingKey addRequestContext(OwsServiceRequest request) {
+        if (request.isSetRequestContext() && request.getRequestContext().getAcceptType().isPresent()) {
+            add("acceptType", request.getRequestContext().getAcceptType().get().toString());
+        }
+        return this;
+    }
+
+    /**
+     * @return the key or {@code null} if a value could not be normalized
+     */
+    public Object build() {
+        return valid ? Collections.unmodifiableList(new ArrayList<>(parts)) : null;
+    }
+
+    private Object normalize(Object value) {
+        if (value instanceof Extensions) {
+            return normalize(((Extensions) value).getExtensions());
+        } else if (value instanceof Extension) {
+            Extension<?> extension = (Extension<?>) value;
+            List<Object> list = new ArrayList<>(4);
+            list.add(String.valueOf(extension.getNamespace()));
+            list.add(String.valueOf(extension.getIdentifier()));
+            list.add(String.valueOf(extension.getDefinition()));
+            Object extensionValue = extension.getValue() == null ? "" : normalize(extension.getValue());
+            if (extensionValue == null) {
+                return null;
+            }
+            list.add(extensionValue);
+            return list.toString();
+        } else if (value instanceof Map) {
+            List<String> list = new ArrayList<>(((Map<?, ?>) value).size());
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                Object normalized = entry.getValue() == null ? "" : normalize(entry.getValue());
+                if (normalized == null) {
+                    return null;
+                }
+                list.add(entry.getKey() + "=" + normalized);
+            }
+            Collections.sort(list);
+            return list;
+        } else if (value instanceof Collection) {
+            List<String> list = new ArrayList<>(((Collection<?>) value).size());
+            for (Object element : (Collection<?>) value) {
+                Object normalized = element == null ? "" : normalize(element);
+                if (normalized == null) {
+                    return null;
+                }
+                list.add(normalized.toString());
+            }
+            Collections.sort(list);
+            return list;
+        }
+        String string = value.toString();
+        if (string.equals(value.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(value)))) {
+            return null;
+        }
+        return string;
+    }
+}
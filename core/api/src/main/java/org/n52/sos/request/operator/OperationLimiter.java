@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit and bounded wait queue of a single operation.
+ *
+ * @since 5.5.0
+ */
+public class OperationLimiter {
+
+    private final String operation;
+
+    private final int limit;
+
+    private final int queueSize;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final LongAdder admitted = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder timedOut = new LongAdder();
+
+    public OperationLimiter(String operation, int limit, int queueSize) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The concurrency limit has to be positive!");
+        }
+        if (queueSize < 0) {
+            throw new IllegalArgumentException("The queue size must not be negative!");
+        }
+        this.operation = operation;
+        this.limit = limit;
+        this.queueSize = queueSize;
+        this.permits = new Semaphore(limit, true);
+    }
+
+    /**
+     * Acquires a permit. The request waits in the queue if all permits are
+     * taken and is rejected immediately if the queue is full.
+     *
+     * @param timeout
+     *            the maximum time to wait in the queue
+     * @param unit
+     *            the unit of the timeout
+     *
+     * @return {@code true} if the permit was acquired
+     *
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        // a zero timeout honors the fairness, so queued requests are not overtaken
+        if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            admitted.increment();
+            return true;
+        }
+        if (waiting.incrementAndGet() > queueSize) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        try {
+            if (permits.tryAcquire(timeout, unit)) {
+                admitted.increment();
+                return true;
+            }
+            rejected.increment();
+            timedOut.increment();
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * @return the number of requests that are currently processed
+     */
+    public int getActive() {
+        return limit - permits.availablePermits();
+    }
+
+    /**
+     * @return the number of requests that are currently waiting for a permit
+     */
+    public int getQueueDepth() {
+        return waiting.get();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    /**
+     * @return the number of rejected requests, including the ones that timed
+     *         out in the queue
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    @Override
+    public String toString() {
+        return operation + "=" + limit + ":" + queueSize;
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.event.events.DeleteObservationEvent;
+import org.n52.sos.event.events.FeatureInsertion;
+import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.ObservationsExpired;
+import org.n52.sos.event.events.ResultInsertion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.SensorInsertion;
+import org.n52.sos.event.events.SensorModification;
+import org.n52.sos.event.events.UpdateCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Coalesces identical read requests that are processed at the same time.
+ * The first request of a key executes the handler, concurrent duplicates wait
+ * for it and receive their own copy of its response. Completed responses are
+ * reused for the configured freshness window. Responses that can not be
+ * shared, e.g. streamed observation values, and failed executions are not
+ * reused; the waiting requests execute the handler themselves in that case.
+ * Without a freshness window a response is only prepared for sharing if
+ * another request is actually waiting for it.
+ * <p>
+ * Each content modification discards the completed responses.
+ *
+ * @since 5.5.0
+ */
+@Configurable
+public class RequestCoalescer implements EventListener {
+
+    public static final String ACTIVE = "service.coalescing.active";
+
+    public static final String FRESHNESS = "service.coalescing.freshness";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestCoalescer.class);
+
+    @SuppressWarnings("unchecked")
+    private static final Set<Class<? extends Event>> TYPES = Sets.<Class<? extends Event>> newHashSet(
+            SensorInsertion.class,
+            SensorModification.class,
+            SensorDeletion.class,
+            ObservationInsertion.class,
+            ResultInsertion.class,
+            FeatureInsertion.class,
+            DeleteObservationEvent.class,
+            ObservationsExpired.class,
+            UpdateCache.class);
+
+    private final ConcurrentMap<Object, Flight<?>> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private volatile boolean active;
+
+    private volatile long freshness = TimeUnit.SECONDS.toNanos(1);
+
+    private volatile long lastPurge = System.nanoTime();
+
+    @Setting(ACTIVE)
+    public void setActive(boolean active) {
+        this.active = active;
+        if (!active) {
+            flights.clear();
+        }
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Set the time in milliseconds a completed response is reused, a
+     * freshness &lt;= 0 only coalesces requests with an execution in progress.
+     *
+     * @param freshness
+     *            the freshness window in milliseconds
+     */
+    @Setting(FRESHNESS)
+    public void setFreshness(int freshness) {
+        this.freshness = TimeUnit.MILLISECONDS.toNanos(Math.max(0, freshness));
+    }
+
+    /**
+     * Executes the call or joins an execution with the same key.
+     *
+     * @param <T>
+     *            the result type
+     * @param key
+     *            the normalized request
+     * @param call
+     *            the execution
+     * @param sharing
+     *            creates the supplier of result copies or returns
+     *            {@code null} if the result can not be shared
+     *
+     * @return the result
+     *
+     * @throws OwsExceptionReport
+     *             if the execution fails
+     */
+    public <T> T execute(Object key, Call<T> call, Sharing<T> sharing) throws OwsExceptionReport {
+        if (!active || key == null) {
+            return call.call();
+        }
+        purgeExpired();
+        Flight<T> flight = new Flight<>();
+        while (true) {
+            @SuppressWarnings("unchecked")
+            Flight<T> existing = (Flight<T>) flights.putIfAbsent(key, flight);
+            if (existing == null) {
+                return lead(key, flight, call, sharing);
+            } else if (existing.isExpired(freshness)) {
+                flights.remove(key, existing);
+            } else {
+                existing.join();
+                Supplier<T> shared = existing.await();
+                if (shared == null) {
+                    return call.call();
+                }
+                coalesced.increment();
+                return shared.get();
+            }
+        }
+    }
+
+    private <T> T lead(Object key, Flight<T> flight, Call<T> call, Sharing<T> sharing) throws OwsExceptionReport {
+        executions.increment();
+        Supplier<T> shared = null;
+        try {
+            T result = call.call();
+            if (freshness <= 0 && !flight.hasWaiters()) {
+                // nobody can reuse the result, so it is not read for sharing
+                return result;
+            }
+            shared = sharing.share(result);
+            if (shared == null) {
+                return result;
+            }
+            return shared.get();
+        } finally {
+            flight.complete(shared);
+            if (shared == null || freshness <= 0) {
+                flights.remove(key, flight);
+            }
+        }
+    }
+
+    private void purgeExpired() {
+        long now = System.nanoTime();
+        long window = Math.max(freshness, TimeUnit.SECONDS.toNanos(1));
+        if (now - lastPurge > window) {
+            lastPurge = now;
+            flights.entrySet().removeIf(e -> e.getValue().isExpired(freshness));
+        }
+    }
+
+    /**
+     * @return the number of executed calls
+     */
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    /**
+     * @return the number of requests that received a shared response
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public void clear() {
+        flights.clear();
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.unmodifiableSet(TYPES);
+    }
+
+    @Override
+    public void handle(Event event) {
+        if (active) {
+            LOGGER.debug("Discarding coalesced responses after {}", event.getClass().getSimpleName());
+            clear();
+        }
+    }
+
+    /**
+     * Execution of a request.
+     *
+     * @param <T>
+     *            the result type
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws OwsExceptionReport;
+    }
+
+    /**
+     * Makes a result shareable.
+     *
+     * @param <T>
+     *            the result type
+     */
+    @FunctionalInterface
+    public interface Sharing<T> {
+        /**
+         * @param result
+         *            the result of the execution, has to stay usable if it
+         *            can not be shared
+         *
+         * @return the supplier of independent copies of the result or
+         *         {@code null} if the result can not be shared
+         *
+         * @throws OwsExceptionReport
+         *             if the result could not be read
+         */
+        Supplier<T> share(T result) throws OwsExceptionReport;
+    }
+
+    private static final class Flight<T> {
+        private final CompletableFuture<Supplier<T>> result = new CompletableFuture<>();
+
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        private volatile long completed;
+
+        void join() {
+            waiters.incrementAndGet();
+        }
+
+        boolean hasWaiters() {
+            return waiters.get() > 0;
+        }
+
+        void complete(Supplier<T> shared) {
+            this.completed = System.nanoTime();
+            result.complete(shared);
+        }
+
+        boolean isExpired(long freshness) {
+            return result.isDone() && (result.getNow(null) == null || System.nanoTime() - completed >= freshness);
+        }
+
+        Supplier<T> await() throws OwsExceptionReport {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NoApplicableCodeException().causedBy(e)
+                        .withMessage("Interrupted while waiting for an identical request!");
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+    }
+}
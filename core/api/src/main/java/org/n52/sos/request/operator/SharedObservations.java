@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import org.n52.shetland.ogc.om.AbstractObservationValue;
+import org.n52.shetland.ogc.om.MultiObservationValues;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.ObservationValue;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.ProfileValue;
+import org.n52.shetland.ogc.om.values.SweDataArrayValue;
+import org.n52.shetland.ogc.om.values.TVPValue;
+import org.n52.shetland.ogc.om.values.TrajectoryValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.response.AbstractObservationResponse;
+
+/**
+ * Copies of the observations shared by coalesced requests. Encoders and
+ * converters change observations in place, e.g. they merge the values of
+ * several observations into one, sort the time value pairs or assign ids. So
+ * every request receives its own copy of the observation, its constellation,
+ * its parameters and its value containers. Only the single values, times,
+ * features and procedures are shared, they are not changed by merging.
+ * Observations with other values, e.g. streamed or data array values, can
+ * not be copied and are not shared.
+ *
+ * @since 5.5.0
+ */
+public final class SharedObservations {
+
+    private SharedObservations() {
+    }
+
+    /**
+     * Reads the observations of the response. Reading stops at the first
+     * observation that can not be copied, the response then continues with
+     * the observations read so far and the rest of the stream.
+     *
+     * @param response
+     *            the response
+     *
+     * @return the observations or {@code null} if they can not be shared
+     *
+     * @throws OwsExceptionReport
+     *             if the observations could not be read
+     */
+    public static List<OmObservation> collect(AbstractObservationResponse response) throws OwsExceptionReport {
+        List<OmObservation> observations = new ArrayList<>();
+        ObservationStream stream = response.getObservationCollection();
+        while (stream != null && stream.hasNext()) {
+            OmObservation observation = stream.next();
+            observations.add(observation);
+            if (!isCopyable(observation)) {
+                response.setObservationCollection(concat(observations.iterator(), stream));
+                return null;
+            }
+        }
+        response.setObservationCollection(ObservationStream.of(observations));
+        return observations;
+    }
+
+    /**
+     * @param observations
+     *            the shared observations
+     *
+     * @return a stream of independent copies of the observations, created
+     *         while the stream is read
+     */
+    public static ObservationStream copy(List<OmObservation> observations) {
+        return ObservationStream.of(observations.stream().map(SharedObservations::copy).iterator());
+    }
+
+    /**
+     * @param observation
+     *            the observation
+     *
+     * @return if the observation can be copied by {@link #copy(OmObservation)}
+     */
+    public static boolean isCopyable(OmObservation observation) {
+        if (observation == null || observation.getClass() != OmObservation.class
+                || observation.getObservationConstellation() == null) {
+            return false;
+        }
+        ObservationValue<?> value = observation.getValue();
+        if (value instanceof SingleObservationValue) {
+            Value<?> single = ((SingleObservationValue<?>) value).getValue();
+            return !(single instanceof ProfileValue || single instanceof TrajectoryValue
+                    || single instanceof SweDataArrayValue);
+        }
+        return value instanceof MultiObservationValues
+                && ((MultiObservationValues<?>) value).getValue() instanceof TVPValue;
+    }
+
+    /**
+     * Copy an observation that {@link #isCopyable(OmObservation) is copyable}.
+     *
+     * @param observation
+     *            the observation
+     *
+     * @return the independent copy
+     */
+    public static OmObservation copy(OmObservation observation) {
+        // reading the original is not free of side effects, e.g. the gml id is assigned lazily
+        synchronized (observation) {
+            OmObservation copy = observation.copyTo(new OmObservation());
+            copy.setObservationConstellation(observation.getObservationConstellation().copy());
+            copy.setValue(copy(observation.getValue()));
+            if (observation.isSetResultQuality()) {
+                copy.setResultQuality(new HashSet<>(observation.getResultQuality()));
+            }
+            return copy;
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static ObservationValue<?> copy(ObservationValue<?> value) {
+        // the time value pairs are sorted in place while they are read
+        synchronized (value) {
+            AbstractObservationValue<?> copy;
+            if (value instanceof SingleObservationValue) {
+                SingleObservationValue<?> single = (SingleObservationValue<?>) value;
+                SingleObservationValue singleCopy = new SingleObservationValue(single.getPhenomenonTime(),
+                        single.getValue());
+                if (single.getQualityList() != null) {
+                    singleCopy.setQualityList(new HashSet<>(single.getQualityList()));
+                }
+                copy = singleCopy;
+            } else {
+                MultiObservationValues<?> multi = (MultiObservationValues<?>) value;
+                TVPValue tvp = (TVPValue) multi.getValue();
+                MultiObservationValues multiCopy = new MultiObservationValues();
+                multiCopy.setValue(new TVPValue().setValue(new ArrayList<>(tvp.getValue()))
+                        .setUnit(tvp.getUnitObject()));
+                multiCopy.setPhenomenonTime(multi.getPhenomenonTime());
+                copy = multiCopy;
+            }
+            AbstractObservationValue<?> original = (AbstractObservationValue<?>) value;
+            copy.setObservationID(original.getObservationID());
+            copy.setDecimalSeparator(original.getDecimalSeparator());
+            copy.setUnit(original.getUnit());
+            copy.setDefaultPointMetadata(original.getDefaultPointMetadata());
+            copy.setMetadata(original.getMetadata());
+            return copy;
+        }
+    }
+
+    private static ObservationStream concat(Iterator<OmObservation> read, ObservationStream remaining) {
+        return new ObservationStream() {
+            @Override
+            public boolean hasNext() throws OwsExceptionReport {
+                return read.hasNext() || remaining.hasNext();
+            }
+
+            @Override
+            public OmObservation next() throws OwsExceptionReport {
+                return read.hasNext() ? read.next() : remaining.next();
+            }
+
+            @Override
+            public void close() {
+                remaining.close();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RequestMetricsTest {
+
+    private static final String OPERATION = "GetObservation";
+
+    private final RequestMetrics metrics = new RequestMetrics();
+
+    @After
+    public void cleanup() {
+        RequestMetricsContext.end();
+    }
+
+    @Test
+    public void shouldEstimatePercentilesFromBuckets() {
+        PhaseTimer timer = new PhaseTimer();
+        for (int i = 0; i < 98; i++) {
+            timer.record(TimeUnit.MICROSECONDS.toNanos(800));
+        }
+        timer.record(TimeUnit.MILLISECONDS.toNanos(40));
+        timer.record(TimeUnit.MILLISECONDS.toNanos(3));
+        assertThat(timer.getCount(), is(100L));
+        assertThat(timer.getPercentileNanos(50), is(TimeUnit.MILLISECONDS.toNanos(1)));
+        assertThat(timer.getPercentileNanos(99), is(TimeUnit.MILLISECONDS.toNanos(5)));
+        assertThat(timer.getPercentileNanos(100), is(TimeUnit.MILLISECONDS.toNanos(40)));
+        assertThat(timer.getMaxNanos(), is(TimeUnit.MILLISECONDS.toNanos(40)));
+        long[] counts = timer.getCumulativeBucketCounts();
+        assertThat(counts[counts.length - 1], is(100L));
+    }
+
+    @Test
+    public void shouldOpenAndCloseContextWithoutHttpRequest() {
+        OperationTimer timer = metrics.start(OPERATION);
+        RequestMetricsContext.addDatabaseTime(TimeUnit.MILLISECONDS.toNanos(2));
+        RequestMetricsContext.addRows(42);
+        timer.lap(RequestPhase.RECEIVE);
+        timer.stop(true);
+        assertThat(RequestMetricsContext.current(), is(nullValue()));
+        OperationMetrics operation = metrics.getOperation(OPERATION);
+        assertThat(operation.getRequests(), is(1L));
+        assertThat(operation.getFailures(), is(0L));
+        assertThat(operation.getRows(), is(42L));
+        assertThat(operation.getTimer(RequestPhase.RECEIVE).getCount(), is(1L));
+        assertThat(operation.getTimer(RequestPhase.DECODE).getCount(), is(0L));
+        assertThat(operation.getTimer(RequestPhase.DATABASE).getSumNanos(), is(TimeUnit.MILLISECONDS.toNanos(2)));
+    }
+
+    @Test
+    public void shouldAttributeDecodeAndDatabaseToHttpRequest() {
+        RequestMetricsContext.begin();
+        OperationTimer timer = metrics.start(OPERATION);
+        timer.lap(RequestPhase.RECEIVE);
+        timer.stop(false);
+        // streamed values are loaded after the operator returned
+        RequestMetricsContext.addRows(10);
+        RequestMetricsContext.end();
+        OperationMetrics operation = metrics.getOperation(OPERATION);
+        assertThat(operation.getRequests(), is(1L));
+        assertThat(operation.getFailures(), is(1L));
+        assertThat(operation.getRows(), is(10L));
+        assertThat(operation.getTimer(RequestPhase.DECODE).getCount(), is(1L));
+        assertThat(operation.getTimer(RequestPhase.DATABASE).getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotTakeOverContextInNestedOperation() {
+        OperationTimer outer = metrics.start(OPERATION);
+        OperationTimer inner = metrics.start("DescribeSensor");
+        RequestMetricsContext.addRows(5);
+        inner.stop(true);
+        assertThat(RequestMetricsContext.current().getMetrics().getOperation(), is(OPERATION));
+        outer.stop(true);
+        assertThat(metrics.getOperation(OPERATION).getRows(), is(5L));
+        assertThat(metrics.getOperation("DescribeSensor").getRows(), is(0L));
+    }
+
+    @Test
+    public void shouldWritePrometheusFormat() {
+        OperationTimer timer = metrics.start(OPERATION);
+        timer.lap(RequestPhase.RECEIVE);
+        timer.stop(true);
+        String text = PrometheusMetricsWriter.write(metrics);
+        assertThat(text, containsString("# TYPE sos_request_phase_seconds histogram"));
+        assertThat(text, containsString(
+                "sos_request_phase_seconds_bucket{operation=\"GetObservation\",phase=\"receive\",le=\"+Inf\"} 1"));
+        assertThat(text, containsString(
+                "sos_request_phase_seconds_bucket{operation=\"GetObservation\",phase=\"decode\",le=\"0.0005\"} 0"));
+        assertThat(text, containsString("sos_requests_total{operation=\"GetObservation\"} 1"));
+    }
+
+    @Test
+    public void shouldResetOperations() {
+        metrics.start(OPERATION).stop(true);
+        metrics.reset();
+        assertThat(metrics.getOperations().isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Optional;
+
+import org.junit.Test;
+import org.n52.shetland.ogc.ows.exception.CodedException;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.ows.exception.MissingParameterValueException;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+
+public class TemporalAggregationTest {
+
+    @Test
+    public void shouldReturnEmptyWithoutExtensions() throws CodedException {
+        assertThat(TemporalAggregation.fromRequest(new GetObservationRequest()).isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldParseIntervalAndFunction() throws CodedException {
+        GetObservationRequest request = new GetObservationRequest();
+        request.addSweTextExtension(TemporalAggregation.INTERVAL, "PT15M");
+        request.addSweTextExtension(TemporalAggregation.FUNCTION, "Mean");
+        Optional<TemporalAggregation> aggregation = TemporalAggregation.fromRequest(request);
+        assertThat(aggregation.isPresent(), is(true));
+        assertThat(aggregation.get().getInterval(), is(900L));
+        assertThat(aggregation.get().getFunction(), is(TemporalAggregation.Function.MEAN));
+    }
+
+    @Test
+    public void shouldAlignBucketsToTheEpoch() {
+        TemporalAggregation aggregation = new TemporalAggregation(3600, TemporalAggregation.Function.MAX);
+        assertThat(aggregation.getBucket(0L), is(0L));
+        assertThat(aggregation.getBucket(3_599_999L), is(0L));
+        assertThat(aggregation.getBucket(3_600_000L), is(1L));
+        assertThat(aggregation.getBucket(-1L), is(-1L));
+        assertThat(aggregation.getBucketStart(2L), is(7_200_000L));
+        assertThat(aggregation.getBucketEnd(2L), is(10_800_000L));
+    }
+
+    @Test(expected = MissingParameterValueException.class)
+    public void shouldRequireFunction() throws CodedException {
+        GetObservationRequest request = new GetObservationRequest();
+        request.addSweTextExtension(TemporalAggregation.INTERVAL, "PT1H");
+        TemporalAggregation.fromRequest(request);
+    }
+
+    @Test(expected = InvalidParameterValueException.class)
+    public void shouldRejectUnknownFunction() throws CodedException {
+        GetObservationRequest request = new GetObservationRequest();
+        request.addSweTextExtension(TemporalAggregation.INTERVAL, "PT1H");
+        request.addSweTextExtension(TemporalAggregation.FUNCTION, "median");
+        TemporalAggregation.fromRequest(request);
+    }
+
+    @Test(expected = InvalidParameterValueException.class)
+    public void shouldRejectFractionalSeconds() throws CodedException {
+        GetObservationRequest request = new GetObservationRequest();
+        request.addSweTextExtension(TemporalAggregation.INTERVAL, "PT0.5S");
+        request.addSweTextExtension(TemporalAggregation.FUNCTION, "min");
+        TemporalAggregation.fromRequest(request);
+    }
+
+    @Test(expected = InvalidParameterValueException.class)
+    public void shouldRejectInvalidDuration() throws CodedException {
+        GetObservationRequest request = new GetObservationRequest();
+        request.addSweTextExtension(TemporalAggregation.INTERVAL, "1 hour");
+        request.addSweTextExtension(TemporalAggregation.FUNCTION, "min");
+        TemporalAggregation.fromRequest(request);
+    }
+
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.faroe.ConfigurationError;
+import org.n52.janmayen.http.HTTPStatus;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.metrics.PrometheusMetricsWriter;
+import org.n52.sos.metrics.RequestMetrics;
+
+public class AdmissionControlTest {
+
+    private static final String HEAVY = "GetObservation";
+
+    private static final String CHEAP = "GetCapabilities";
+
+    private static final long AWAIT_MILLIS = 5000;
+
+    private final AdmissionControl admissionControl = new AdmissionControl();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        release.countDown();
+        executor.shutdown();
+        executor.awaitTermination(AWAIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void shouldParseLimits() throws ConfigurationError {
+        AdmissionControl.Limits limits = AdmissionControl.parse(" GetObservation = 2:8 ; *=4:0");
+        OperationLimiter heavy = limits.get(HEAVY);
+        assertThat(heavy.getLimit(), is(2));
+        assertThat(heavy.getQueueSize(), is(8));
+        OperationLimiter cheap = limits.get(CHEAP);
+        assertThat(cheap.getLimit(), is(4));
+        assertThat(cheap.getQueueSize(), is(0));
+        assertThat(limits.get(CHEAP), is(sameInstance(cheap)));
+        assertThat(AdmissionControl.parse(null).get(HEAVY), is(nullValue()));
+    }
+
+    @Test(expected = ConfigurationError.class)
+    public void shouldRejectInvalidLimits() throws ConfigurationError {
+        admissionControl.setLimits("GetObservation=2");
+    }
+
+    @Test(expected = ConfigurationError.class)
+    public void shouldRejectZeroLimit() throws ConfigurationError {
+        admissionControl.setLimits("GetObservation=0:2");
+    }
+
+    @Test
+    public void shouldFailFastWhenQueueIsFull() throws Exception {
+        admissionControl.setLimits(HEAVY + "=1:1");
+        admissionControl.setQueueTimeout((int) AWAIT_MILLIS);
+        OperationLimiter limiter = admissionControl.getLimiters().get(0);
+        hold(HEAVY);
+        await(() -> limiter.getActive() == 1);
+        hold(HEAVY);
+        await(() -> limiter.getQueueDepth() == 1);
+
+        long start = System.nanoTime();
+        try {
+            admissionControl.admit(HEAVY);
+            throw new AssertionError("The request should be rejected");
+        } catch (OwsExceptionReport e) {
+            assertThat(e.getStatus(), is(HTTPStatus.SERVICE_UNAVAILABLE));
+            assertThat(e.getMessage(), containsString("retry after 5 seconds"));
+        }
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), is(lessThan(AWAIT_MILLIS / 2)));
+        assertThat(limiter.getRejected(), is(1L));
+        assertThat(limiter.getTimedOut(), is(0L));
+    }
+
+    @Test
+    public void shouldRejectAfterQueueTimeout() throws Exception {
+        admissionControl.setLimits(HEAVY + "=1:1");
+        admissionControl.setQueueTimeout(50);
+        OperationLimiter limiter = admissionControl.getLimiters().get(0);
+        hold(HEAVY);
+        await(() -> limiter.getActive() == 1);
+        try {
+            admissionControl.admit(HEAVY);
+            throw new AssertionError("The request should time out");
+        } catch (OwsExceptionReport e) {
+            assertThat(e.getStatus(), is(HTTPStatus.SERVICE_UNAVAILABLE));
+        }
+        assertThat(limiter.getTimedOut(), is(1L));
+        assertThat(limiter.getQueueDepth(), is(0));
+        release.countDown();
+        await(() -> limiter.getActive() == 0);
+        try (AdmissionControl.Permit permit = admissionControl.admit(HEAVY)) {
+            assertThat(limiter.getActive(), is(1));
+        }
+        assertThat(limiter.getAdmitted(), is(2L));
+    }
+
+    @Test
+    public void shouldAdmitCheapOperationWhileHeavyIsSaturated() throws Exception {
+        admissionControl.setLimits(HEAVY + "=2:2;" + CHEAP + "=4:4");
+        admissionControl.setQueueTimeout((int) AWAIT_MILLIS);
+        List<Future<?>> heavy = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            heavy.add(hold(HEAVY));
+        }
+        OperationLimiter heavyLimiter = admissionControl.getLimiters().get(1);
+        assertThat(heavyLimiter.getOperation(), is(HEAVY));
+        await(() -> heavyLimiter.getActive() == 2 && heavyLimiter.getQueueDepth() == 2);
+
+        // the cheap operation gets all its permits without queueing while the heavy requests are still held
+        OperationLimiter cheapLimiter = admissionControl.getLimiters().get(0);
+        assertThat(cheapLimiter.getOperation(), is(CHEAP));
+        List<AdmissionControl.Permit> cheap = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            cheap.add(admissionControl.admit(CHEAP));
+        }
+        assertThat(cheapLimiter.getActive(), is(4));
+        assertThat(cheapLimiter.getQueueDepth(), is(0));
+        assertThat(heavyLimiter.getActive(), is(2));
+        assertThat(heavyLimiter.getQueueDepth(), is(2));
+        assertThat(heavy.stream().anyMatch(Future::isDone), is(false));
+        for (AdmissionControl.Permit permit : cheap) {
+            permit.close();
+        }
+        assertThat(cheapLimiter.getActive(), is(0));
+        assertThat(cheapLimiter.getTimedOut(), is(0L));
+        assertThat(cheapLimiter.getRejected(), is(0L));
+
+        int rejected = 0;
+        for (int i = 0; i < 10; i++) {
+            try (AdmissionControl.Permit permit = admissionControl.admit(HEAVY)) {
+                throw new AssertionError("The heavy request should be rejected");
+            } catch (OwsExceptionReport e) {
+                rejected++;
+            }
+        }
+        assertThat(rejected, is(10));
+        assertThat(heavyLimiter.getRejected(), is(10L));
+
+        release.countDown();
+        for (Future<?> future : heavy) {
+            future.get(AWAIT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        assertThat(heavyLimiter.getAdmitted(), is(4L));
+        assertThat(heavyLimiter.getActive(), is(0));
+        assertThat(cheapLimiter.getAdmitted(), is(4L));
+    }
+
+    @Test
+    public void shouldWritePrometheusFormat() throws Exception {
+        admissionControl.setLimits(HEAVY + "=1:0");
+        try (AdmissionControl.Permit permit = admissionControl.admit(HEAVY);
+                AdmissionControl.Permit rejected = admissionControl.admit(HEAVY)) {
+            throw new AssertionError("The request should be rejected");
+        } catch (OwsExceptionReport e) {
+            assertThat(e.getStatus(), is(HTTPStatus.SERVICE_UNAVAILABLE));
+        }
+        String text = PrometheusMetricsWriter.write(new RequestMetrics(), admissionControl.getLimiters());
+        assertThat(text, containsString("# TYPE sos_admission_queue_depth gauge"));
+        assertThat(text, containsString("sos_admission_admitted_total{operation=\"GetObservation\"} 1"));
+        assertThat(text, containsString("sos_admission_rejected_total{operation=\"GetObservation\"} 1"));
+    }
+
+    @Test
+    public void shouldHoldDeferredPermitUntilScopeIsClosed() throws Exception {
+        admissionControl.setLimits(HEAVY + "=1:0");
+        OperationLimiter limiter = admissionControl.getLimiters().get(0);
+        AdmissionControl.Permit unscoped = admissionControl.admit(HEAVY);
+        assertThat(AdmissionControl.Scope.defer(unscoped), is(false));
+        unscoped.close();
+        try (AdmissionControl.Scope scope = AdmissionControl.Scope.open()) {
+            assertThat(AdmissionControl.Scope.defer(admissionControl.admit(HEAVY)), is(true));
+            // e.g. a streamed response is still written
+            assertThat(limiter.getActive(), is(1));
+            // further requests of the same scope, e.g. of a batch request, are not limited again
+            try (AdmissionControl.Permit batched = admissionControl.admit(HEAVY)) {
+                assertThat(limiter.getActive(), is(1));
+            }
+            try (AdmissionControl.Scope nested = AdmissionControl.Scope.open()) {
+                assertThat(limiter.getActive(), is(1));
+            }
+            assertThat(limiter.getActive(), is(1));
+            assertThat(executor.submit(() -> {
+                try (AdmissionControl.Permit other = admissionControl.admit(HEAVY)) {
+                    return false;
+                } catch (OwsExceptionReport e) {
+                    return true;
+                }
+            }).get(AWAIT_MILLIS, TimeUnit.MILLISECONDS), is(true));
+        }
+        assertThat(limiter.getActive(), is(0));
+        assertThat(AdmissionControl.Scope.defer(AdmissionControl.Permit.UNLIMITED), is(false));
+    }
+
+    private Future<?> hold(String operation) {
+        return executor.submit(() -> {
+            try (AdmissionControl.Permit permit = admissionControl.admit(operation)) {
+                release.await();
+            }
+            return null;
+        });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + AWAIT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not reached");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.n52.janmayen.http.MediaType;
+import org.n52.janmayen.http.MediaTypes;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequestContext;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.sos.event.events.ObservationInsertion;
+
+public class RequestCoalescerTest {
+
+    private static final int REQUESTS = 16;
+
+    private static final long AWAIT_MILLIS = 5000;
+
+    private static final List<String> KEY = Arrays.asList("GetObservation", "offering");
+
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+
+    private final AtomicInteger invocations = new AtomicInteger();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final RequestCoalescer.Call<List<String>> call = () -> {
+        invocations.incrementAndGet();
+        try {
+            release.await(AWAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw new NoApplicableCodeException().causedBy(e);
+        }
+        return Arrays.asList("a", "b");
+    };
+
+    private final RequestCoalescer.Sharing<List<String>> sharing = result -> () -> new ArrayList<>(result);
+
+    @Test
+    public void shouldExecuteConcurrentIdenticalRequestsOnce() throws Exception {
+        coalescer.setActive(true);
+        coalescer.setFreshness(0);
+        List<List<String>> results = runConcurrently(sharing);
+        assertThat(invocations.get(), is(1));
+        assertThat(results.size(), is(REQUESTS));
+        Set<List<String>> copies = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<String> result : results) {
+            assertThat(result, contains("a", "b"));
+            copies.add(result);
+        }
+        assertThat(copies.size(), is(REQUESTS));
+        assertThat(coalescer.getExecutions(), is(1L));
+        assertThat(coalescer.getCoalesced(), is((long) REQUESTS - 1));
+        // without freshness window the next request is executed again
+        coalescer.execute(KEY, call, sharing);
+        assertThat(invocations.get(), is(2));
+    }
+
+    @Test
+    public void shouldReuseResponseWithinFreshnessWindow() throws OwsExceptionReport {
+        coalescer.setActive(true);
+        coalescer.setFreshness((int) AWAIT_MILLIS);
+        release.countDown();
+        coalescer.execute(KEY, call, sharing);
+        coalescer.execute(KEY, call, sharing);
+        assertThat(invocations.get(), is(1));
+        coalescer.execute(Arrays.asList("GetObservation", "other"), call, sharing);
+        assertThat(invocations.get(), is(2));
+        coalescer.handle(new ObservationInsertion(null, null));
+        coalescer.execute(KEY, call, sharing);
+        assertThat(invocations.get(), is(3));
+    }
+
+    @Test
+    public void shouldNotPrepareSharingWithoutWaiters() throws OwsExceptionReport {
+        coalescer.setActive(true);
+        coalescer.setFreshness(0);
+        release.countDown();
+        AtomicInteger shares = new AtomicInteger();
+        coalescer.execute(KEY, call, result -> {
+            shares.incrementAndGet();
+            return sharing.share(result);
+        });
+        assertThat(shares.get(), is(0));
+        assertThat(invocations.get(), is(1));
+    }
+
+    @Test
+    public void shouldExecuteEachRequestIfResponseCanNotBeShared() throws Exception {
+        coalescer.setActive(true);
+        List<List<String>> results = runConcurrently(result -> null);
+        assertThat(invocations.get(), is(REQUESTS));
+        assertThat(results.size(), is(REQUESTS));
+    }
+
+    @Test
+    public void shouldExecuteWaitingRequestsIfFirstFails() throws Exception {
+        coalescer.setActive(true);
+        AtomicInteger failures = new AtomicInteger();
+        RequestCoalescer.Call<List<String>> failing = () -> {
+            if (invocations.get() == 0) {
+                call.call();
+                failures.incrementAndGet();
+                throw new NoApplicableCodeException();
+            }
+            return call.call();
+        };
+        List<List<String>> results = runConcurrently(failing, sharing);
+        assertThat(failures.get(), is(1));
+        assertThat(results.size(), is(REQUESTS - 1));
+        for (List<String> result : results) {
+            assertThat(result, contains("a", "b"));
+        }
+    }
+
+    @Test
+    public void shouldNotCoalesceIfInactive() throws Exception {
+        List<List<String>> results = runConcurrently(sharing);
+        assertThat(invocations.get(), is(REQUESTS));
+        assertThat(results.size(), is(REQUESTS));
+    }
+
+    @Test
+    public void shouldNormalizeKeys() {
+        Object key = new CoalescingKey().add("offering", Arrays.asList("b", "a")).add("responseFormat", "om")
+                .add("resultModel", null).build();
+        assertThat(key, is(new CoalescingKey().add("offering", Arrays.asList("a", "b")).add("responseFormat", "om")
+                .build()));
+        assertThat(key, is(not(new CoalescingKey().add("offering", Arrays.asList("a", "c")).build())));
+        assertThat(new CoalescingKey().add("spatialFilter", new Object()).build(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldNormalizeMapsAndRequestContext() {
+        Map<String, String> namespaces = new HashMap<>();
+        namespaces.put("om", "http://www.opengis.net/om/2.0");
+        namespaces.put("gml", "http://www.opengis.net/gml/3.2");
+        Map<String, String> reversed = new TreeMap<>(Collections.reverseOrder());
+        reversed.putAll(namespaces);
+        assertThat(new CoalescingKey().add("namespaces", namespaces).build(),
+                is(new CoalescingKey().add("namespaces", reversed).build()));
+        assertThat(createKey(request(MediaTypes.APPLICATION_XML, MediaTypes.APPLICATION_JSON)),
+                is(not(createKey(request(MediaTypes.APPLICATION_JSON, MediaTypes.APPLICATION_XML)))));
+        assertThat(createKey(request(MediaTypes.APPLICATION_XML)), is(createKey(request(MediaTypes.APPLICATION_XML))));
+    }
+
+    @Test
+    public void shouldNotCoalesceRequestsWithDifferentAcceptTypes() throws Exception {
+        coalescer.setActive(true);
+        List<Object> keys = Arrays.asList(createKey(request(MediaTypes.APPLICATION_XML)),
+                createKey(request(MediaTypes.APPLICATION_JSON)));
+        List<List<String>> results = runConcurrently(keys, call, sharing);
+        assertThat(invocations.get(), is(2));
+        assertThat(results.size(), is(2));
+    }
+
+    private List<Object> createKey(GetObservationRequest request) {
+        return Arrays.asList("GetObservation", new CoalescingKey().add("offering", request.getOfferings())
+                .add("srsName", request.getSrsName()).addRequestContext(request).build());
+    }
+
+    private GetObservationRequest request(MediaType... acceptTypes) {
+        GetObservationRequest request = new GetObservationRequest();
+        request.setOfferings(Arrays.asList("offering"));
+        OwsServiceRequestContext context = new OwsServiceRequestContext();
+        context.setAcceptType(Arrays.asList(acceptTypes));
+        request.setRequestContext(context);
+        return request;
+    }
+
+    private List<List<String>> runConcurrently(RequestCoalescer.Sharing<List<String>> share) throws Exception {
+        return runConcurrently(call, share);
+    }
+
+    private List<List<String>> runConcurrently(RequestCoalescer.Call<List<String>> execution,
+            RequestCoalescer.Sharing<List<String>> share) throws Exception {
+        return runConcurrently(Collections.nCopies(REQUESTS, KEY), execution, share);
+    }
+
+    private List<List<String>> runConcurrently(List<?> keys, RequestCoalescer.Call<List<String>> execution,
+            RequestCoalescer.Sharing<List<String>> share) throws Exception {
+        List<List<String>> results = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            Thread thread = new Thread(() -> {
+                try {
+                    results.add(coalescer.execute(key, execution, share));
+                } catch (OwsExceptionReport e) {
+                    // the failing request
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        long deadline = System.currentTimeMillis() + AWAIT_MILLIS;
+        while (!threads.stream().allMatch(t -> t.getState() == Thread.State.WAITING
+                || t.getState() == Thread.State.TIMED_WAITING)) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Requests did not block");
+            }
+            Thread.sleep(5);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(AWAIT_MILLIS);
+        }
+        return results;
+    }
+}
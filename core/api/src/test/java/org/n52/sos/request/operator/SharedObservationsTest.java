@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.MultiObservationValues;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.ObservationValue;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.values.ProfileValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.TVPValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.response.GetObservationResponse;
+
+public class SharedObservationsTest {
+
+    private static final String OFFERING = "offering";
+
+    @Test
+    public void shouldCopyTimeValuePairsIndependently() {
+        OmObservation original = observation(multiValue(1.0, 2.0));
+        OmObservation first = SharedObservations.copy(original);
+        OmObservation second = SharedObservations.copy(original);
+
+        first.mergeWithObservation(singleValue(3.0));
+        second.getObservationConstellation().addOffering("other");
+
+        assertThat(values(original), hasSize(2));
+        assertThat(values(first), hasSize(3));
+        assertThat(values(second), hasSize(2));
+        assertThat(original.getObservationConstellation().getOfferings(), contains(OFFERING));
+        assertThat(first.getObservationConstellation().getOfferings(), contains(OFFERING));
+    }
+
+    @Test
+    public void shouldCopySingleValuesIndependently() {
+        OmObservation original = observation(singleValue(1.0));
+        OmObservation copy = SharedObservations.copy(original);
+
+        copy.mergeWithObservation(singleValue(2.0));
+
+        assertThat(original.getValue(), is(instanceOf(SingleObservationValue.class)));
+        assertThat(copy.getValue(), is(instanceOf(MultiObservationValues.class)));
+        assertThat(copy.getValue(), is(not(sameInstance(original.getValue()))));
+    }
+
+    @Test
+    public void shouldCollectCopyableObservations() throws OwsExceptionReport {
+        List<OmObservation> observations = Arrays.asList(observation(singleValue(1.0)), observation(multiValue(2.0)));
+        GetObservationResponse response = new GetObservationResponse();
+        response.setObservationCollection(ObservationStream.of(observations));
+
+        List<OmObservation> shared = SharedObservations.collect(response);
+
+        assertSame(shared, observations);
+        assertSame(read(response.getObservationCollection()), observations);
+    }
+
+    @Test
+    public void shouldStopReadingAtObservationThatCanNotBeCopied() throws OwsExceptionReport {
+        OmObservation profile = observation(new SingleObservationValue<>(time(0), new ProfileValue("profile")));
+        List<OmObservation> observations = Arrays.asList(observation(singleValue(1.0)), profile,
+                observation(singleValue(2.0)));
+        CountingIterator iterator = new CountingIterator(observations.iterator());
+        GetObservationResponse response = new GetObservationResponse();
+        response.setObservationCollection(ObservationStream.of(iterator));
+
+        assertThat(SharedObservations.collect(response), is(nullValue()));
+        assertThat(iterator.read, is(2));
+        assertSame(read(response.getObservationCollection()), observations);
+    }
+
+    private static OmObservation observation(ObservationValue<?> value) {
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(constellation());
+        observation.setValue(value);
+        return observation;
+    }
+
+    private static OmObservationConstellation constellation() {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setObservableProperty(new OmObservableProperty("observableProperty"));
+        constellation.addOffering(OFFERING);
+        return constellation;
+    }
+
+    private static SingleObservationValue<?> singleValue(double value) {
+        return new SingleObservationValue<>(time((long) value), new QuantityValue(value));
+    }
+
+    private static MultiObservationValues<?> multiValue(double... values) {
+        TVPValue tvp = new TVPValue();
+        for (double value : values) {
+            tvp.addValue(new TimeValuePair(time((long) value), new QuantityValue(value)));
+        }
+        MultiObservationValues<List<TimeValuePair>> multi = new MultiObservationValues<>();
+        multi.setValue(tvp);
+        return multi;
+    }
+
+    private static TimeInstant time(long offset) {
+        return new TimeInstant(new Date(offset * 1000));
+    }
+
+    private static List<TimeValuePair> values(OmObservation observation) {
+        return ((TVPValue) observation.getValue().getValue()).getValue();
+    }
+
+    private static void assertSame(List<OmObservation> actual, List<OmObservation> expected) {
+        assertThat(actual, hasSize(expected.size()));
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i), is(sameInstance(expected.get(i))));
+        }
+    }
+
+    private static List<OmObservation> read(ObservationStream stream) throws OwsExceptionReport {
+        return stream.collect(ArrayList::new);
+    }
+
+    private static final class CountingIterator implements Iterator<OmObservation> {
+        private final Iterator<OmObservation> delegate;
+        private int read;
+
+        CountingIterator(Iterator<OmObservation> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public OmObservation next() {
+            read++;
+            return delegate.next();
+        }
+    }
+}
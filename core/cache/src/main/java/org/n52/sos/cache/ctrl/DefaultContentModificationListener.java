@@ -43,6 +43,7 @@ import org.n52.sos.cache.ctrl.action.CompleteCacheUpdate;
 import org.n52.sos.cache.ctrl.action.DeleteObservationUpdate;
 import org.n52.sos.cache.ctrl.action.FeatureInsertionUpdate;
 import org.n52.sos.cache.ctrl.action.ObservationInsertionUpdate;
+import org.n52.sos.cache.ctrl.action.ObservationsExpiredUpdate;
 import org.n52.sos.cache.ctrl.action.ResultInsertionUpdate;
 import org.n52.sos.cache.ctrl.action.ResultTemplateDeletionUpdate;
 import org.n52.sos.cache.ctrl.action.ResultTemplateInsertionUpdate;
@@ -51,6 +52,7 @@ import org.n52.sos.cache.ctrl.action.SensorInsertionUpdate;
 import org.n52.sos.ds.CacheFeederHandler;
 import org.n52.sos.event.events.FeatureInsertion;
 import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.ObservationsExpired;
 import org.n52.sos.event.events.ResultInsertion;
 import org.n52.sos.event.events.ResultTemplateInsertion;
 import org.n52.sos.event.events.ResultTemplatesDeletion;
@@ -82,7 +84,8 @@ public class DefaultContentModificationListener
                     UpdateCache.class,
                     ResultTemplatesDeletion.class,
                     FeatureInsertion.class,
-                    DeleteObservationEvent.class);
+                    DeleteObservationEvent.class,
+                    ObservationsExpired.class);
 
     private final CacheFeederHandler handler;
     private final ContentCacheController controller;
@@ -130,6 +133,8 @@ public class DefaultContentModificationListener
             return createUpdate((UpdateCache) event);
         } else if (event instanceof DeleteObservationEvent) {
             return createUpdate((DeleteObservationEvent) event);
+        } else if (event instanceof ObservationsExpired) {
+            return createUpdate((ObservationsExpired) event);
         } else {
             throw new AssertionError();
         }
@@ -163,6 +168,10 @@ public class DefaultContentModificationListener
         return new DeleteObservationUpdate(handler,  e.getDeletedObservation());
     }
 
+    private ContentCacheUpdate createUpdate(ObservationsExpired e) {
+        return new ObservationsExpiredUpdate(handler, e.getOfferings());
+    }
+
     private ContentCacheUpdate createUpdate(SensorInsertion e) {
         return new SensorInsertionUpdate(e.getRequest(), e.getResponse(), converterRepository);
     }
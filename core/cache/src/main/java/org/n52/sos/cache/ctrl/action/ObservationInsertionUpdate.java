@@ -29,13 +29,20 @@ package org.n52.sos.cache.ctrl.action;
 
 import com.google.common.base.Preconditions;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.joda.time.DateTime;
 import org.n52.shetland.ogc.sos.Sos2Constants;
 import org.n52.iceland.util.action.Action;
 import org.n52.shetland.ogc.OGCConstants;
 import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
 import org.n52.shetland.ogc.om.AbstractPhenomenon;
 import org.n52.shetland.ogc.om.NamedValue;
 import org.n52.shetland.ogc.om.OmCompositePhenomenon;
@@ -43,6 +50,7 @@ import org.n52.shetland.ogc.om.OmObservableProperty;
 import org.n52.shetland.ogc.om.OmObservation;
 import org.n52.shetland.ogc.om.features.samplingFeatures.AbstractSamplingFeature;
 import org.n52.sos.cache.InMemoryCacheImpl;
+import org.n52.sos.cache.WriteableTimeCache;
 import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
 
 import org.locationtech.jts.geom.Envelope;
@@ -69,6 +77,9 @@ import org.locationtech.jts.geom.Geometry;
  * <li>Procedure &rarr; temporal bounding box</li>
  * <li>Global temporal bounding box</li>
  * </ul>
+ * The observations of the request are first collected into a single
+ * {@link Delta} without touching the cache, so that each relation and
+ * bounding box is updated once per request instead of once per observation.
  *
  * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk
  *         J&uuml;rrens</a>
@@ -91,114 +102,262 @@ public class ObservationInsertionUpdate extends InMemoryCacheUpdate {
         // TODO Review required methods and update test accordingly (@see
         // SensorInsertionInMemoryCacheUpdate)
         // Always update the javadoc when changing this method!
+        Delta delta = new Delta();
         for (OmObservation observation : request.getObservations()) {
+            delta.add(observation);
+        }
+        delta.apply(cache);
+    }
+
+    /**
+     * The cache modifications of all observations of the request.
+     */
+    private final class Delta {
+
+        private final Set<String> observationTypes = new LinkedHashSet<>();
+
+        private final Set<String> procedures = new LinkedHashSet<>();
+
+        private final TimeRange phenomenonTime = new TimeRange();
+
+        private final TimeRange resultTime = new TimeRange();
+
+        private final Map<String, TimeRange> phenomenonTimeForProcedures = new HashMap<>();
+
+        private final Set<String> featuresOfInterest = new LinkedHashSet<>();
+
+        private final Set<String> publishedFeaturesOfInterest = new LinkedHashSet<>();
+
+        private final Map<String, String> featureOfInterestNames = new LinkedHashMap<>();
+
+        private final Map<String, Set<String>> proceduresForFeaturesOfInterest = new LinkedHashMap<>();
+
+        private final Map<String, Set<String>> parentFeaturesForFeaturesOfInterest = new LinkedHashMap<>();
+
+        private final Set<String> featureOfInterestTypes = new LinkedHashSet<>();
+
+        private final Envelope envelope = new Envelope();
+
+        private final Envelope spatialFilteringProfileEnvelope = new Envelope();
+
+        private boolean updateSpatialFilteringProfileEnvelope;
+
+        private final Set<String> observableProperties = new LinkedHashSet<>();
+
+        private final Map<String, Set<String>> observablePropertiesForProcedures = new LinkedHashMap<>();
+
+        private final Set<String> compositePhenomenons = new LinkedHashSet<>();
+
+        private final Map<String, Set<String>> compositePhenomenonsForProcedures = new LinkedHashMap<>();
+
+        private final Map<String, Set<String>> observablePropertiesForCompositePhenomenons = new LinkedHashMap<>();
+
+        private boolean empty = true;
+
+        void add(OmObservation observation) {
+            empty = false;
             AbstractPhenomenon observableProperty = observation.getObservationConstellation().getObservableProperty();
-            final String observationType = observation.getObservationConstellation().getObservationType();
             final String procedure = observation.getObservationConstellation().getProcedure().getIdentifier();
-            final Time phenomenonTime = observation.getPhenomenonTime();
-            final Time resultTime = observation.getResultTime();
+            final Time observationPhenomenonTime = observation.getPhenomenonTime();
 
-            cache.updatePhenomenonTime(phenomenonTime);
-            cache.updateResultTime(resultTime);
-            cache.updatePhenomenonTimeForProcedure(procedure, phenomenonTime);
+            observationTypes.add(observation.getObservationConstellation().getObservationType());
+            procedures.add(procedure);
+            phenomenonTime.extend(observationPhenomenonTime);
+            if (observation.getResultTime() != null) {
+                resultTime.extend(observation.getResultTime());
+            }
+            phenomenonTimeForProcedures.computeIfAbsent(procedure, p -> new TimeRange())
+                    .extend(observationPhenomenonTime);
 
-            // update features
+            // features
             List<AbstractSamplingFeature> observedFeatures =
                     sosFeaturesToList(observation.getObservationConstellation().getFeatureOfInterest());
-
-            final Envelope envelope = createEnvelopeFrom(observedFeatures);
-
+            final Envelope featureEnvelope = createEnvelopeFrom(observedFeatures);
+            envelope.expandToInclude(featureEnvelope);
             for (AbstractSamplingFeature sosSamplingFeature : observedFeatures) {
                 String featureOfInterest = sosSamplingFeature.getIdentifierCodeWithAuthority().getValue();
-
-                cache.addFeatureOfInterest(featureOfInterest);
-                cache.addPublishedFeatureOfInterest(featureOfInterest);
-                cache.addPublishedFeatureOfInterest(featureOfInterest);
+                featuresOfInterest.add(featureOfInterest);
+                publishedFeaturesOfInterest.add(featureOfInterest);
                 if (sosSamplingFeature.isSetName()) {
-                    cache.addFeatureOfInterestIdentifierHumanReadableName(featureOfInterest,
-                            sosSamplingFeature.getFirstName().getValue());
+                    featureOfInterestNames.put(featureOfInterest, sosSamplingFeature.getFirstName().getValue());
                 }
-                cache.addProcedureForFeatureOfInterest(featureOfInterest, procedure);
+                proceduresForFeaturesOfInterest.computeIfAbsent(featureOfInterest, f -> new LinkedHashSet<>())
+                        .add(procedure);
                 if (sosSamplingFeature.isSetSampledFeatures()) {
                     for (AbstractFeature parentFeature : sosSamplingFeature.getSampledFeatures()) {
-                        cache.addParentFeature(sosSamplingFeature.getIdentifierCodeWithAuthority().getValue(),
-                                parentFeature.getIdentifierCodeWithAuthority().getValue());
-                        cache.addPublishedFeatureOfInterest(parentFeature.getIdentifierCodeWithAuthority().getValue());
+                        String parent = parentFeature.getIdentifierCodeWithAuthority().getValue();
+                        parentFeaturesForFeaturesOfInterest
+                                .computeIfAbsent(featureOfInterest, f -> new LinkedHashSet<>()).add(parent);
+                        publishedFeaturesOfInterest.add(parent);
                     }
                 }
-                for (String offering : request.getOfferings()) {
-                    cache.addRelatedFeatureForOffering(offering, featureOfInterest);
-                    cache.addFeatureOfInterestForOffering(offering, featureOfInterest);
-                    if (!OGCConstants.UNKNOWN.equals(sosSamplingFeature.getFeatureType())) {
-                        cache.addFeatureOfInterestTypesForOffering(offering, sosSamplingFeature.getFeatureType());
-                    }
+                if (!OGCConstants.UNKNOWN.equals(sosSamplingFeature.getFeatureType())) {
+                    featureOfInterestTypes.add(sosSamplingFeature.getFeatureType());
                 }
             }
 
-            // update Spatial Filtering Profile envelope
-            Envelope spatialFitleringProfileEnvelope = new Envelope();
-            if (observation.isSetParameter()) {
-                for (NamedValue<?> namedValue : observation.getParameter()) {
-                    if (Sos2Constants.HREF_PARAMETER_SPATIAL_FILTERING_PROFILE
-                            .equals(namedValue.getName().getHref())) {
-                        if (namedValue.getValue().isSetValue()) {
-                            spatialFitleringProfileEnvelope.expandToInclude(
-                                    ((Geometry) namedValue.getValue().getValue()).getEnvelopeInternal());
-                            spatialFitleringProfileEnvelope.expandToInclude(
+            // Spatial Filtering Profile envelope
+            if (!featureEnvelope.isNull()) {
+                updateSpatialFilteringProfileEnvelope = true;
+                if (observation.isSetParameter()) {
+                    for (NamedValue<?> namedValue : observation.getParameter()) {
+                        if (Sos2Constants.HREF_PARAMETER_SPATIAL_FILTERING_PROFILE
+                                .equals(namedValue.getName().getHref()) && namedValue.getValue().isSetValue()) {
+                            spatialFilteringProfileEnvelope.expandToInclude(
                                     ((Geometry) namedValue.getValue().getValue()).getEnvelopeInternal());
                         }
                     }
                 }
             }
 
+            // observable properties
+            observableProperties.add(observableProperty.getIdentifier());
+            observablePropertiesForProcedures.computeIfAbsent(procedure, p -> new LinkedHashSet<>())
+                    .add(observableProperty.getIdentifier());
+            if (observableProperty instanceof OmCompositePhenomenon) {
+                OmCompositePhenomenon parent = (OmCompositePhenomenon) observableProperty;
+                compositePhenomenons.add(parent.getIdentifier());
+                compositePhenomenonsForProcedures.computeIfAbsent(procedure, p -> new LinkedHashSet<>())
+                        .add(parent.getIdentifier());
+                Set<String> children = observablePropertiesForCompositePhenomenons
+                        .computeIfAbsent(parent.getIdentifier(), p -> new LinkedHashSet<>());
+                for (OmObservableProperty child : parent) {
+                    children.add(child.getIdentifier());
+                }
+            }
+        }
+
+        void apply(InMemoryCacheImpl cache) {
+            if (empty) {
+                return;
+            }
+            cache.updatePhenomenonTime(phenomenonTime.toTime());
+            if (resultTime.isSet()) {
+                cache.updateResultTime(resultTime.toTime());
+            }
+            phenomenonTimeForProcedures
+                    .forEach((procedure, time) -> cache.updatePhenomenonTimeForProcedure(procedure, time.toTime()));
+
+            // update features
+            for (String featureOfInterest : featuresOfInterest) {
+                cache.addFeatureOfInterest(featureOfInterest);
+            }
+            for (String featureOfInterest : publishedFeaturesOfInterest) {
+                cache.addPublishedFeatureOfInterest(featureOfInterest);
+            }
+            featureOfInterestNames.forEach(cache::addFeatureOfInterestIdentifierHumanReadableName);
+            proceduresForFeaturesOfInterest.forEach((featureOfInterest, featureProcedures) -> featureProcedures
+                    .forEach(procedure -> cache.addProcedureForFeatureOfInterest(featureOfInterest, procedure)));
+            parentFeaturesForFeaturesOfInterest.forEach(cache::addParentFeatures);
+
             // update offerings
             for (String offering : request.getOfferings()) {
+                if (!featuresOfInterest.isEmpty()) {
+                    cache.addRelatedFeaturesForOffering(offering, featuresOfInterest);
+                }
+                for (String featureOfInterest : featuresOfInterest) {
+                    cache.addFeatureOfInterestForOffering(offering, featureOfInterest);
+                }
+                for (String featureOfInterestType : featureOfInterestTypes) {
+                    cache.addFeatureOfInterestTypesForOffering(offering, featureOfInterestType);
+                }
                 // procedure
                 cache.addOffering(offering);
-                if (!cache.getHiddenChildProceduresForOffering(offering).contains(procedure)) {
-                    cache.addProcedureForOffering(offering, procedure);
+                Set<String> hiddenChildProcedures = cache.getHiddenChildProceduresForOffering(offering);
+                for (String procedure : procedures) {
+                    if (!hiddenChildProcedures.contains(procedure)) {
+                        cache.addProcedureForOffering(offering, procedure);
+                    }
+                    cache.addOfferingForProcedure(procedure, offering);
                 }
-                cache.addOfferingForProcedure(procedure, offering);
                 // observation type
-                cache.addObservationTypesForOffering(offering, observationType);
+                for (String observationType : observationTypes) {
+                    cache.addObservationTypesForOffering(offering, observationType);
+                }
                 // envelopes/bounding boxes (spatial and temporal)
-                cache.updatePhenomenonTimeForOffering(offering, phenomenonTime);
-                cache.updateResultTimeForOffering(offering, resultTime);
+                cache.updatePhenomenonTimeForOffering(offering, phenomenonTime.toTime());
+                if (resultTime.isSet()) {
+                    cache.updateResultTimeForOffering(offering, resultTime.toTime());
+                }
                 cache.updateEnvelopeForOffering(offering, envelope);
                 cache.updateGlobalEnvelope(envelope);
-                if (!envelope.isNull()) {
-                    cache.updateSpatialFilteringProfileEnvelopeForOffering(offering, spatialFitleringProfileEnvelope);
+                if (updateSpatialFilteringProfileEnvelope) {
+                    cache.updateSpatialFilteringProfileEnvelopeForOffering(offering,
+                            spatialFilteringProfileEnvelope);
                 }
             }
 
-            updateObservableProperties(cache, observableProperty, procedure);
+            updateObservableProperties(cache);
         }
-    }
-
-    private void updateObservableProperties(InMemoryCacheImpl cache, AbstractPhenomenon observableProperty,
-            String procedure) {
-        // procedure <-> observable property
-        cache.addProcedureForObservableProperty(observableProperty.getIdentifier(), procedure);
-        cache.addObservablePropertyForProcedure(procedure, observableProperty.getIdentifier());
 
-        // offering <-> observable property
-        for (String offering : request.getOfferings()) {
-            cache.addOfferingForObservableProperty(observableProperty.getIdentifier(), offering);
-            cache.addObservablePropertyForOffering(offering, observableProperty.getIdentifier());
-        }
+        private void updateObservableProperties(InMemoryCacheImpl cache) {
+            // procedure <-> observable property
+            observablePropertiesForProcedures.forEach((procedure, procedureObservableProperties) -> {
+                for (String observableProperty : procedureObservableProperties) {
+                    cache.addProcedureForObservableProperty(observableProperty, procedure);
+                    cache.addObservablePropertyForProcedure(procedure, observableProperty);
+                }
+            });
 
-        if (observableProperty instanceof OmCompositePhenomenon) {
-            OmCompositePhenomenon parent = (OmCompositePhenomenon) observableProperty;
-            cache.addCompositePhenomenon(parent.getIdentifier());
-            cache.addCompositePhenomenonForProcedure(procedure, parent.getIdentifier());
+            // offering <-> observable property
             for (String offering : request.getOfferings()) {
-                cache.addCompositePhenomenonForOffering(offering, parent.getIdentifier());
+                for (String observableProperty : observableProperties) {
+                    cache.addOfferingForObservableProperty(observableProperty, offering);
+                    cache.addObservablePropertyForOffering(offering, observableProperty);
+                }
+            }
+
+            if (!compositePhenomenons.isEmpty()) {
+                for (String compositePhenomenon : compositePhenomenons) {
+                    cache.addCompositePhenomenon(compositePhenomenon);
+                }
+                compositePhenomenonsForProcedures.forEach((procedure, procedureCompositePhenomenons) ->
+                        procedureCompositePhenomenons.forEach(compositePhenomenon -> cache
+                                .addCompositePhenomenonForProcedure(procedure, compositePhenomenon)));
+                for (String offering : request.getOfferings()) {
+                    cache.addCompositePhenomenonForOffering(offering, compositePhenomenons);
+                }
+                observablePropertiesForCompositePhenomenons.forEach((parent, children) -> {
+                    for (String child : children) {
+                        cache.addObservablePropertyForCompositePhenomenon(parent, child);
+                        cache.addCompositePhenomenonForObservableProperty(child, parent);
+                    }
+                });
             }
+        }
+
+    }
 
-            for (OmObservableProperty child : parent) {
-                cache.addObservablePropertyForCompositePhenomenon(parent.getIdentifier(), child.getIdentifier());
-                cache.addCompositePhenomenonForObservableProperty(child.getIdentifier(), parent.getIdentifier());
+    /**
+     * The minimal start and maximal end of a set of times, compared like in
+     * {@link WriteableTimeCache}.
+     */
+    private static final class TimeRange {
+
+        private DateTime start;
+
+        private DateTime end;
+
+        private boolean set;
+
+        void extend(Time time) {
+            TimePeriod period = WriteableTimeCache.toTimePeriod(time);
+            if (!set || start == null || start.isAfter(period.getStart())) {
+                start = period.getStart();
+            }
+            if (!set || end == null || end.isBefore(period.getEnd())) {
+                end = period.getEnd();
             }
+            set = true;
         }
+
+        boolean isSet() {
+            return set;
+        }
+
+        Time toTime() {
+            return new TimePeriod(start, end);
+        }
+
     }
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl.action;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.NamedValue;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.features.SfConstants;
+import org.n52.shetland.ogc.om.values.GeometryValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.sos.cache.InMemoryCacheImpl;
+import org.n52.sos.util.builder.ObservablePropertyBuilder;
+import org.n52.sos.util.builder.ObservationBuilder;
+import org.n52.sos.util.builder.ObservationConstellationBuilder;
+import org.n52.sos.util.builder.ProcedureDescriptionBuilder;
+import org.n52.sos.util.builder.QuantityObservationValueBuilder;
+import org.n52.sos.util.builder.QuantityValueBuilder;
+import org.n52.sos.util.builder.SamplingFeatureBuilder;
+
+public class ObservationInsertionUpdateTest {
+
+    private static final String OFFERING_1 = "offering-1";
+
+    private static final String OFFERING_2 = "offering-2";
+
+    private static final String PROCEDURE_1 = "procedure-1";
+
+    private static final String PROCEDURE_2 = "procedure-2";
+
+    private static final String FEATURE_1 = "feature-1";
+
+    private static final String FEATURE_2 = "feature-2";
+
+    private static final String OBSERVABLE_PROPERTY_1 = "observable-property-1";
+
+    private static final String OBSERVABLE_PROPERTY_2 = "observable-property-2";
+
+    private static final int WGS84 = 4326;
+
+    private static final long START = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC).getMillis();
+
+    private static final long MINUTE = 60 * 1000L;
+
+    private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), WGS84);
+
+    private InMemoryCacheImpl batched;
+
+    private InMemoryCacheImpl sequential;
+
+    @Before
+    public void setUp() {
+        batched = new InMemoryCacheImpl();
+        sequential = new InMemoryCacheImpl();
+        // hidden child procedures are not added to the offerings
+        batched.addHiddenChildProcedureForOffering(OFFERING_2, PROCEDURE_2);
+        sequential.addHiddenChildProcedureForOffering(OFFERING_2, PROCEDURE_2);
+    }
+
+    @Test
+    public void should_produce_the_same_cache_as_per_observation_updates() throws OwsExceptionReport {
+        List<OmObservation> observations = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            observations.add(observation(i % 2 == 0 ? PROCEDURE_1 : PROCEDURE_2,
+                    i % 3 == 0 ? FEATURE_1 : FEATURE_2, i % 5 == 0 ? OBSERVABLE_PROPERTY_1 : OBSERVABLE_PROPERTY_2,
+                    // out of order phenomenon times
+                    START + ((i * 7) % 50) * MINUTE, 7.0 + i % 4, 51.0 + i % 3, i % 4 == 0));
+        }
+
+        update(batched, observations);
+        for (OmObservation observation : observations) {
+            update(sequential, Collections.singletonList(observation));
+        }
+
+        assertThat(batched, is(sequential));
+        assertThat(batched.getProceduresForOffering(OFFERING_1), containsInAnyOrder(PROCEDURE_1, PROCEDURE_2));
+        assertThat(batched.getProceduresForOffering(OFFERING_2), containsInAnyOrder(PROCEDURE_1));
+        assertThat(batched.getFeaturesOfInterestForOffering(OFFERING_2), containsInAnyOrder(FEATURE_1, FEATURE_2));
+        assertThat(batched.getMinPhenomenonTimeForOffering(OFFERING_1), is(new DateTime(START, DateTimeZone.UTC)));
+        assertThat(batched.getMaxPhenomenonTimeForProcedure(PROCEDURE_2),
+                is(new DateTime(START + 49 * MINUTE, DateTimeZone.UTC)));
+    }
+
+    @Test
+    public void should_not_modify_the_cache_without_observations() {
+        update(batched, new ArrayList<>());
+        assertThat(batched, is(sequential));
+    }
+
+    private void update(InMemoryCacheImpl cache, List<OmObservation> observations) {
+        InsertObservationRequest request = new InsertObservationRequest();
+        request.setObservation(new ArrayList<>(observations));
+        request.setOfferings(Arrays.asList(OFFERING_1, OFFERING_2));
+        ObservationInsertionUpdate update = new ObservationInsertionUpdate(request);
+        update.setCache(cache);
+        update.execute();
+    }
+
+    private OmObservation observation(String procedure, String feature, String observableProperty, long time,
+            double x, double y, boolean spatialFilteringProfile) throws OwsExceptionReport {
+        SamplingFeatureBuilder featureBuilder = SamplingFeatureBuilder.aSamplingFeature().setIdentifier(feature)
+                .setFeatureType(SfConstants.FT_SAMPLINGPOINT).setGeometry(y, x, WGS84);
+        if (FEATURE_1.equals(feature)) {
+            featureBuilder.setName("Feature 1");
+        }
+        OmObservation observation = ObservationBuilder.anObservation()
+                .setObservationConstellation(ObservationConstellationBuilder.anObservationConstellation()
+                        .setFeature(featureBuilder.build())
+                        .setProcedure(ProcedureDescriptionBuilder.aSensorMLProcedureDescription()
+                                .setIdentifier(procedure).build())
+                        .setObservationType(OmConstants.OBS_TYPE_MEASUREMENT)
+                        .setObservableProperty(
+                                ObservablePropertyBuilder.aObservableProperty().setIdentifier(observableProperty)
+                                        .build())
+                        .build())
+                .setValue(QuantityObservationValueBuilder.aQuantityValue()
+                        .setValue(QuantityValueBuilder.aQuantitiy().setValue(2.0).setUnit("m").build())
+                        .setPhenomenonTime(time).build())
+                .build();
+        observation.setResultTime(new TimeInstant(new DateTime(time + MINUTE, DateTimeZone.UTC)));
+        if (spatialFilteringProfile) {
+            NamedValue<Geometry> namedValue = new NamedValue<>();
+            namedValue.setName(new ReferenceType(Sos2Constants.HREF_PARAMETER_SPATIAL_FILTERING_PROFILE));
+            namedValue.setValue(new GeometryValue(geometryFactory.createPoint(new Coordinate(y + 0.5, x + 0.5))));
+            observation.addParameter(namedValue);
+        }
+        return observation;
+    }
+
+}
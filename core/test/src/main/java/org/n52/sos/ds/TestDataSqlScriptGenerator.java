@@ -153,7 +153,7 @@ public final class TestDataSqlScriptGenerator {
             for (int observationBatch = 0; observationBatch < obsPerFeaturePerSensorCount; observationBatch++) {
                 // 1 generate timestamp by incrementing from 0l by
                 // TIMESTAMP_INCREMENT_IN_MS
-                DateTime timeStamp = new DateTime(observationBatch * TIMESTAMP_INCREMENT_IN_MS);
+                DateTime timeStamp = generateTimestamp(observationBatch);
 
                 // feature loop
                 for (int featureId = 0; featureId < featuresCount; featureId++) {
@@ -265,8 +265,29 @@ public final class TestDataSqlScriptGenerator {
     }
 
     private static Double[] generateRandomCoordinateTuple(double yMin, double yMax, double xMin, double xMax) {
+        return generateCoordinateTuple(new Random(System.currentTimeMillis()), yMin, yMax, xMin, xMax);
+    }
+
+    /**
+     * Creates a coordinate tuple (x, y) within the given bounds. Passing a
+     * seeded {@link Random} makes the generated test data reproducible.
+     *
+     * @param randomizer
+     *            the random number source
+     * @param yMin
+     *            the minimal y coordinate
+     * @param yMax
+     *            the maximal y coordinate
+     * @param xMin
+     *            the minimal x coordinate
+     * @param xMax
+     *            the maximal x coordinate
+     * @return the coordinate tuple
+     * @since 5.5.0
+     */
+    public static Double[] generateCoordinateTuple(Random randomizer, double yMin, double yMax, double xMin,
+                                                   double xMax) {
         if (xMax > xMin && yMax > yMin) {
-            Random randomizer = new Random(System.currentTimeMillis());
             double xCoord = xMin + (randomizer.nextDouble() * (Math.abs(xMax) + Math.abs(xMin)));
             double yCoord = yMin + (randomizer.nextDouble() * (Math.abs(yMax) + Math.abs(yMin)));
             Double[] result = new Double[2];
@@ -298,13 +319,54 @@ public final class TestDataSqlScriptGenerator {
     }
 
     private static double generateRandomResult(double min, double max) {
+        return generateResult(new Random(System.currentTimeMillis()), min, max);
+    }
+
+    /**
+     * Creates a numeric result within the given range.
+     *
+     * @param randomizer
+     *            the random number source
+     * @param min
+     *            the minimal value
+     * @param max
+     *            the maximal value
+     * @return the result value
+     * @since 5.5.0
+     */
+    public static double generateResult(Random randomizer, double min, double max) {
         if (max > min) {
-            Random randomizer = new Random(System.currentTimeMillis());
             return min + (randomizer.nextDouble() * (Math.abs(max) + Math.abs(min)));
         }
         throw new IllegalArgumentException(String.format("Give parameter values wrong: max: %s, min:%s", max, min));
     }
 
+    /**
+     * Creates a numeric result within the default result range of the
+     * generated test data.
+     *
+     * @param randomizer
+     *            the random number source
+     * @return the result value
+     * @since 5.5.0
+     */
+    public static double generateResult(Random randomizer) {
+        return generateResult(randomizer, RESULT_MIN_VALUE, RESULT_MAX_VALUE);
+    }
+
+    /**
+     * Get the timestamp of the given observation batch. Batches are
+     * {@value #TIMESTAMP_INCREMENT_IN_MS} ms apart, starting at the epoch.
+     *
+     * @param observationBatch
+     *            the batch index
+     * @return the timestamp
+     * @since 5.5.0
+     */
+    public static DateTime generateTimestamp(int observationBatch) {
+        return new DateTime(observationBatch * TIMESTAMP_INCREMENT_IN_MS);
+    }
+
     private static IllegalArgumentException invalidCoordinateTuple(double xMax, double xMin, double yMax, double yMin) {
         return new IllegalArgumentException(String.format(
                 "Given parameter values wrong: xMax: %s, xMin: %s, yMax: %s, yMin: %s", xMax, xMin, yMax, yMin));
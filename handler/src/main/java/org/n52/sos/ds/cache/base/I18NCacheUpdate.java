@@ -41,6 +41,7 @@ import org.n52.iceland.i18n.metadata.I18NProcedureMetadata;
 import org.n52.iceland.ogc.ows.OwsServiceMetadataRepository;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.CachingI18NDAO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -86,6 +87,9 @@ public class I18NCacheUpdate extends AbstractThreadableDatasourceCacheUpdate {
     private Collection<Locale> getEntityLocales(Class<? extends AbstractI18NMetadata> type) throws OwsExceptionReport {
         I18NDAO<? extends AbstractI18NMetadata> dao = this.i18NDAORepository.getDAO(type);
         if (dao != null) {
+            if (dao instanceof CachingI18NDAO) {
+                ((CachingI18NDAO) dao).warmCache(getSession());
+            }
             return dao.getAvailableLocales();
         } else {
             return Collections.emptySet();
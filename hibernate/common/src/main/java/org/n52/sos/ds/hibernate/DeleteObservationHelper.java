@@ -28,6 +28,8 @@
 package org.n52.sos.ds.hibernate;
 
 import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -56,6 +58,7 @@ import org.n52.shetland.util.CollectionHelper;
 import org.n52.shetland.util.DateTimeHelper;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesObservationDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.ObservationRollupDAO;
 import org.n52.sos.ds.hibernate.dao.observation.series.SeriesTimeExtrema;
 import org.n52.sos.ds.hibernate.type.UtcTimestampType;
 import org.n52.sos.ds.hibernate.util.HibernateUnproxy;
@@ -111,6 +114,8 @@ public interface DeleteObservationHelper extends HibernateUnproxy {
         }
         if (!modifiedDatasets.isEmpty()) {
             checkSeriesForFirstLatest(modifiedDatasets, session);
+            // the rollups are rebuilt in the background
+            getDaoFactory().getObservationRollupDAO().invalidate(modifiedDatasets, session);
             if (isDeletePhysically()) {
                 // TODO select all parent ids -> delete childs -> delete parents
                 Set<Long> parents = getParents(modifiedDatasets, filters, temporalFilters, session);
@@ -304,6 +309,7 @@ public interface DeleteObservationHelper extends HibernateUnproxy {
                 .getObservationByIdentifiers(ids, session);
         if (CollectionHelper.isNotEmpty(observations)) {
             Set<DatasetEntity> modifiedDatasets = new HashSet<>();
+            Map<DatasetEntity, Date[]> modifiedTimes = new HashMap<>();
             for (DataEntity<?> observation : observations) {
                 if (DeleteObservationConstants.NS_SOSDO_1_0.equals(request.getResponseFormat())) {
                     response.setObservationId(request.getObservationIdentifiers()
@@ -311,12 +317,18 @@ public interface DeleteObservationHelper extends HibernateUnproxy {
                             .next());
                 }
                 modifiedDatasets.add(observation.getDataset());
+                Date time = observation.getSamplingTimeStart();
+                modifiedTimes.merge(observation.getDataset(), new Date[] { time, time },
+                        (a, b) -> new Date[] { a[0].before(b[0]) ? a[0] : b[0], a[1].after(b[1]) ? a[1] : b[1] });
                 delete(observation, session);
             }
             if (!modifiedDatasets.isEmpty()) {
                 checkSeriesForFirstLatest(modifiedDatasets.stream()
                         .map(DatasetEntity::getId)
                         .collect(Collectors.toSet()), session);
+                session.flush();
+                ObservationRollupDAO rollupDAO = getDaoFactory().getObservationRollupDAO();
+                modifiedTimes.forEach((dataset, times) -> rollupDAO.rebuild(dataset, times[0], times[1], session));
             }
         } else {
             if (DeleteObservationConstants.NS_SOSDO_1_0.equals(request.getResponseFormat())) {
@@ -30,6 +30,7 @@ package org.n52.sos.ds.hibernate.dao;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.hibernate.Criteria;
 import org.hibernate.Session;
@@ -45,6 +46,7 @@ import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.SosConstants;
 import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.ds.hibernate.util.IdentifierSetRestriction;
 import org.n52.sos.ds.hibernate.util.QueryHelper;
 import org.n52.sos.ds.hibernate.util.SpatialRestrictions;
 import org.slf4j.Logger;
@@ -117,6 +119,15 @@ public abstract class AbstractFeatureOfInterestDAO extends AbstractIdentifierNam
     public List<AbstractFeatureEntity> getFeatureOfInterestObjects(final Collection<String> identifiers,
             final Session session) {
         if (identifiers != null && !identifiers.isEmpty()) {
+            Optional<IdentifierSetRestriction> restriction = IdentifierSetRestriction.create(identifiers, session);
+            if (restriction.isPresent()) {
+                try (IdentifierSetRestriction identifierSet = restriction.get()) {
+                    Criteria c = getDefaultCriteria(session);
+                    c.add(identifierSet.restrict(AbstractFeatureEntity.IDENTIFIER));
+                    LOGGER.trace(QUERY_LOG_TEMPLATE, HibernateHelper.getSqlString(c));
+                    return c.list();
+                }
+            }
             List<AbstractFeatureEntity> features = new ArrayList<>();
             int count = 1;
             for (List<String> ids : QueryHelper.getListsForIdentifiers(identifiers)) {
@@ -32,6 +32,7 @@ import org.hibernate.Session;
 import org.hibernate.criterion.Restrictions;
 import org.n52.series.db.beans.CodespaceEntity;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.ds.hibernate.util.ReferenceEntityCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,7 +59,7 @@ public class CodespaceDAO {
         Criteria criteria = session.createCriteria(CodespaceEntity.class)
                 .add(Restrictions.eq(CodespaceEntity.PROPERTY_NAME, codespace));
         LOGGER.trace("QUERY getCodespace(codespace): {}", HibernateHelper.getSqlString(criteria));
-        return (CodespaceEntity) criteria.uniqueResult();
+        return (CodespaceEntity) ReferenceEntityCache.cacheable(criteria).uniqueResult();
     }
 
     /**
@@ -27,15 +27,21 @@
  */
 package org.n52.sos.ds.hibernate.dao;
 
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 
+import org.n52.faroe.ConfigurationError;
 import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.i18n.I18NDAORepository;
@@ -55,6 +61,8 @@ import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesObservationDAO;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesValueDAO;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesValueTimeDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.ObservationRollupDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.ObservationRollupSettings;
 import org.n52.sos.ds.hibernate.dao.observation.series.SeriesDAO;
 import org.n52.sos.ds.hibernate.dao.observation.series.SeriesObservationDAO;
 import org.n52.sos.ds.hibernate.dao.observation.series.SeriesObservationTimeDAO;
@@ -92,6 +100,8 @@ public class DaoFactory {
     private boolean includeChildObservableProperties;
     private boolean staSupportsUrls;
     private SosHelper sosHelper;
+    private List<Long> rollupResolutions = Collections.emptyList();
+    private final AtomicReference<Boolean> rollupTableAvailable = new AtomicReference<>();
 
     @Inject
     public void setI18NDAORepository(I18NDAORepository i18NDAORepository) {
@@ -159,6 +169,34 @@ public class DaoFactory {
         this.staSupportsUrls = staSupportsUrls;
     }
 
+    public List<Long> getRollupResolutions() {
+        return rollupResolutions;
+    }
+
+    @Setting(value = ObservationRollupSettings.RESOLUTIONS, required = false)
+    public void setRollupResolutions(String resolutions) {
+        try {
+            this.rollupResolutions = Optional.ofNullable(resolutions).map(s -> Arrays.stream(s.split(","))
+                    .map(String::trim).filter(r -> !r.isEmpty()).map(Duration::parse).map(Duration::getSeconds)
+                    .filter(r -> r > 0).distinct().sorted().collect(toList())).orElseGet(Collections::emptyList);
+        } catch (DateTimeParseException e) {
+            throw new ConfigurationError(
+                    String.format("The rollup resolutions '%s' are not ISO 8601 durations!", resolutions), e);
+        }
+    }
+
+    /**
+     * @return if the rollup table exists or {@code null} if it was not checked
+     *         yet
+     */
+    public Boolean getRollupTableAvailable() {
+        return rollupTableAvailable.get();
+    }
+
+    public void setRollupTableAvailable(Boolean available) {
+        this.rollupTableAvailable.set(available);
+    }
+
     @Inject
     public void setFeatureQueryHandler(FeatureQueryHandler featureQueryHandler) {
         this.featureQueryHandler = featureQueryHandler;
@@ -279,6 +317,10 @@ public class DaoFactory {
         return new FormatDAO();
     }
 
+    public ObservationRollupDAO getObservationRollupDAO() {
+        return new ObservationRollupDAO(this);
+    }
+
     public VerticalMetadataDAO getVerticalMetadataDAO() {
         return new VerticalMetadataDAO(this);
     }
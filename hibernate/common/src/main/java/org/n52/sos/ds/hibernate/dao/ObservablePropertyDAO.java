@@ -54,6 +54,7 @@ import org.n52.shetland.ogc.om.OmObservableProperty;
 import org.n52.shetland.ogc.ows.exception.CodedException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.ds.hibernate.util.ReferenceEntityCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -174,7 +175,7 @@ public class ObservablePropertyDAO extends AbstractIdentifierNameDescriptionDAO
                 .add(Restrictions.eq(PhenomenonEntity.IDENTIFIER, identifier));
         LOGGER.trace("QUERY getObservablePropertyForIdentifier(identifier): {}",
                 HibernateHelper.getSqlString(criteria));
-        return (PhenomenonEntity) criteria.uniqueResult();
+        return (PhenomenonEntity) ReferenceEntityCache.cacheable(criteria).uniqueResult();
     }
 
     /**
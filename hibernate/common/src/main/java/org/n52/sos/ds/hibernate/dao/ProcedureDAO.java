@@ -71,6 +71,7 @@ import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.NoopTransformerAdapter;
 import org.n52.sos.ds.hibernate.util.ProcedureTimeExtrema;
 import org.n52.sos.ds.hibernate.util.QueryHelper;
+import org.n52.sos.ds.hibernate.util.ReferenceEntityCache;
 import org.n52.sos.ds.hibernate.util.TimeExtrema;
 import org.n52.sos.exception.ows.concrete.UnsupportedOperatorException;
 import org.n52.sos.exception.ows.concrete.UnsupportedTimeException;
@@ -190,7 +191,7 @@ public class ProcedureDAO extends AbstractIdentifierNameDescriptionDAO implement
     public ProcedureEntity getProcedureForIdentifier(final String identifier, final Session session) {
         Criteria criteria = getDefaultCriteria(session).add(Restrictions.eq(ProcedureEntity.IDENTIFIER, identifier));
         LOGGER.trace(QUERY_IDENTIFIER_LOG_TEMPLATE, HibernateHelper.getSqlString(criteria));
-        ProcedureEntity procedure = (ProcedureEntity) criteria.uniqueResult();
+        ProcedureEntity procedure = (ProcedureEntity) ReferenceEntityCache.cacheable(criteria).uniqueResult();
         if (HibernateHelper.isEntitySupported(ProcedureHistoryEntity.class)) {
             criteria.createCriteria(ProcedureEntity.PROPERTY_VALID_PROCEDURE_TIME)
                     .add(Restrictions.isNull(ProcedureHistoryEntity.END_TIME));
@@ -39,6 +39,7 @@ import org.n52.series.db.beans.i18n.I18nEntity;
 import org.n52.series.db.beans.i18n.I18nUnitEntity;
 import org.n52.shetland.ogc.UoM;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.ds.hibernate.util.ReferenceEntityCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -73,7 +74,7 @@ public class UnitDAO {
         Criteria criteria =
                 session.createCriteria(UnitEntity.class).add(Restrictions.eq(UnitEntity.PROPERTY_UNIT, unit));
         LOGGER.trace(QUERY_UNIT_TEMPLATE, HibernateHelper.getSqlString(criteria));
-        return (UnitEntity) criteria.uniqueResult();
+        return (UnitEntity) ReferenceEntityCache.cacheable(criteria).uniqueResult();
     }
 
     /**
@@ -89,7 +90,7 @@ public class UnitDAO {
         Criteria criteria =
                 session.createCriteria(UnitEntity.class).add(Restrictions.eq(UnitEntity.PROPERTY_UNIT, unit.getUom()));
         LOGGER.trace(QUERY_UNIT_TEMPLATE, HibernateHelper.getSqlString(criteria));
-        return (UnitEntity) criteria.uniqueResult();
+        return (UnitEntity) ReferenceEntityCache.cacheable(criteria).uniqueResult();
     }
 
     /**
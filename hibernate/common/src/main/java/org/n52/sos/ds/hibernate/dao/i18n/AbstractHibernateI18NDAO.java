@@ -28,16 +28,22 @@
 package org.n52.sos.ds.hibernate.dao.i18n;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
 import org.hibernate.HibernateException;
 import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
@@ -52,18 +58,29 @@ import org.n52.janmayen.i18n.LocalizedString;
 import org.n52.series.db.beans.DescribableEntity;
 import org.n52.series.db.beans.i18n.I18nEntity;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.cache.CachingI18NDAO;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Maps;
 
 public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
                                                S extends AbstractI18NMetadata,
                                                H extends I18nEntity>
-        implements I18NDAO<S>, HibernateI18NDAO<S> {
+        implements I18NDAO<S>, HibernateI18NDAO<S>, CachingI18NDAO {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractHibernateI18NDAO.class);
 
     private HibernateSessionHolder sessionHolder;
 
+    /**
+     * The metadata per entity identifier, {@code null} until the cache is
+     * warmed.
+     */
+    private volatile ConcurrentMap<String, List<H>> cache;
+
     @Inject
     public void setConnectionProvider(ConnectionProvider connectionProvider) {
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
@@ -156,6 +173,10 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
     @SuppressWarnings("unchecked")
     public S getMetadata(String id, Session session)
             throws OwsExceptionReport {
+        Map<String, List<H>> cached = this.cache;
+        if (cached != null) {
+            return createSosObject(id, getCached(cached, id, h18n -> true));
+        }
         Criteria criteria = session.createCriteria(getHibernateEntityClass());
         criteria.createCriteria(I18nEntity.PROPERTY_ENTITY)
                 .add(Restrictions.eq(DescribableEntity.IDENTIFIER, id));
@@ -167,6 +188,10 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
     @SuppressWarnings("unchecked")
     public Collection<S> getMetadata(Collection<String> id, Session session)
             throws OwsExceptionReport {
+        Map<String, List<H>> cached = this.cache;
+        if (cached != null) {
+            return createSosObject(getCached(cached, id, h18n -> true));
+        }
         Criteria criteria = session.createCriteria(getHibernateEntityClass());
         criteria.createCriteria(I18nEntity.PROPERTY_ENTITY)
                 .add(Restrictions.in(DescribableEntity.IDENTIFIER, id));
@@ -182,6 +207,15 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
 
     private S getMetadata(String id, String locale, Session session)
             throws OwsExceptionReport {
+        Map<String, List<H>> cached = this.cache;
+        if (cached != null) {
+            List<H> list = getCached(cached, id, h18n -> locale.equals(h18n.getLocale()));
+            if (list.isEmpty()) {
+                Set<String> locales = LocaleHelper.getEquivalents(locale);
+                list = getCached(cached, id, h18n -> locales.contains(h18n.getLocale()));
+            }
+            return createSosObject(id, list);
+        }
         Criteria criteria = session.createCriteria(getHibernateEntityClass());
         criteria.createCriteria(I18nEntity.PROPERTY_ENTITY)
                 .add(Restrictions.eq(DescribableEntity.IDENTIFIER, id));
@@ -211,6 +245,15 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
 
     private Collection<S> getMetadata(Collection<String> id, String locale, Session session)
             throws OwsExceptionReport {
+        Map<String, List<H>> cached = this.cache;
+        if (cached != null) {
+            List<H> list = getCached(cached, id, h18n -> locale.equals(h18n.getLocale()));
+            if (list.isEmpty()) {
+                Set<String> locales = LocaleHelper.getEquivalents(locale);
+                list = getCached(cached, id, h18n -> locales.contains(h18n.getLocale()));
+            }
+            return createSosObject(list);
+        }
         Criteria criteria = session.createCriteria(getHibernateEntityClass());
         criteria.createCriteria(I18nEntity.PROPERTY_ENTITY)
                 .add(Restrictions.in(DescribableEntity.IDENTIFIER, id));
@@ -236,6 +279,10 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
     @SuppressWarnings("unchecked")
     public Collection<S> getMetadata(Session session)
             throws OwsExceptionReport {
+        Map<String, List<H>> cached = this.cache;
+        if (cached != null) {
+            return createSosObject(getCached(cached, cached.keySet(), h18n -> true));
+        }
         Criteria criteria = session.createCriteria(getHibernateEntityClass());
         List<H> list = criteria.list();
         return createSosObject(list);
@@ -249,15 +296,18 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
             transaction = session.beginTransaction();
             deleteOldValues(i18n.getIdentifier(), session);
             T entity = getEntity(i18n.getIdentifier(), session);
+            List<H> saved = new LinkedList<>();
             for (Locale locale : i18n.getLocales()) {
                 H h18n = createHibernateObject();
                 h18n.setEntity(entity);
                 h18n.setLocale(locale.toString());
                 fillHibernateObject(i18n, h18n);
                 session.save(h18n);
+                saved.add(h18n);
             }
             session.flush();
             transaction.commit();
+            updateCache(i18n.getIdentifier(), saved);
         } catch (HibernateException e) {
             if (transaction != null) {
                 transaction.rollback();
@@ -299,6 +349,63 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
         return criteria.list();
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void warmCache(Session session)
+            throws OwsExceptionReport {
+        if (!isSupported()) {
+            return;
+        }
+        Criteria criteria = session.createCriteria(getHibernateEntityClass());
+        criteria.setFetchMode(I18nEntity.PROPERTY_ENTITY, FetchMode.JOIN);
+        List<H> list = criteria.list();
+        ConcurrentMap<String, List<H>> map = new ConcurrentHashMap<>();
+        for (H h18n : list) {
+            map.computeIfAbsent(getIdentifier(h18n), id -> new LinkedList<>()).add(h18n);
+            session.evict(h18n);
+        }
+        map.replaceAll((id, h18ns) -> Collections.unmodifiableList(h18ns));
+        this.cache = map;
+        LOGGER.debug("Cached {} {} for {} entities", list.size(), getHibernateEntityClass().getSimpleName(),
+                map.size());
+    }
+
+    /**
+     * Replace the cached metadata of the entity after it was saved.
+     *
+     * @param id
+     *            the entity identifier
+     * @param h18ns
+     *            the saved metadata
+     */
+    protected void updateCache(String id, List<H> h18ns) {
+        Map<String, List<H>> cached = this.cache;
+        if (cached != null) {
+            if (h18ns.isEmpty()) {
+                cached.remove(id);
+            } else {
+                cached.put(id, Collections.unmodifiableList(h18ns));
+            }
+        }
+    }
+
+    private List<H> getCached(Map<String, List<H>> cached, String id, Predicate<H> filter) {
+        return cached.getOrDefault(id, Collections.emptyList()).stream().filter(filter)
+                .collect(Collectors.toList());
+    }
+
+    private List<H> getCached(Map<String, List<H>> cached, Collection<String> ids, Predicate<H> filter) {
+        return ids.stream().distinct().flatMap(id -> cached.getOrDefault(id, Collections.emptyList()).stream())
+                .filter(filter).collect(Collectors.toList());
+    }
+
+    private String getIdentifier(H h18n) {
+        if (h18n.getEntity() instanceof DescribableEntity) {
+            return ((DescribableEntity) h18n.getEntity()).getIdentifier();
+        }
+        return h18n.getId().toString();
+    }
+
     @Override
     public boolean isSupported() {
         return HibernateHelper.isEntitySupported(getHibernateEntityClass());
@@ -47,6 +47,7 @@ import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.TimeCreator;
 import org.n52.sos.ds.hibernate.util.ResultFilterClasses;
+import org.n52.sos.ds.hibernate.util.ResultFilterPlanner;
 import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions;
 import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions.SubQueryIdentifier;
 import org.n52.sos.ds.hibernate.util.SpatialRestrictions;
@@ -123,6 +124,10 @@ public abstract class AbstractValueDAO extends TimeCreator {
                 getValuedObservationFactory().profileClass());
     }
 
+    protected ResultFilterPlanner getResultFilterPlanner() {
+        return new ResultFilterPlanner(getResultFilterClasses());
+    }
+
     protected void addTemporalFilterCriterion(Criteria c, Criterion temporalFilterCriterion, StringBuilder logArgs) {
         if (temporalFilterCriterion != null) {
             logArgs.append(", filterCriterion");
@@ -247,6 +252,28 @@ public abstract class AbstractValueDAO extends TimeCreator {
         return criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
     }
 
+    /**
+     * Get the default {@link Criteria} for a simple value class, e.g.
+     * {@link org.n52.series.db.beans.QuantityDataEntity}, whose value property
+     * can be restricted directly.
+     *
+     * @param clazz
+     *            the simple value class
+     * @param session
+     *            Hibernate session
+     * @return the default criteria
+     */
+    @SuppressWarnings("rawtypes")
+    protected Criteria getDefaultSimpleValueCriteria(Class clazz, Session session) {
+        Criteria criteria = session.createCriteria(clazz).add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false));
+        // simple values are never parents, so only the child restriction applies
+        if (!daoFactory.isIncludeChildObservableProperties()) {
+            criteria.add(Restrictions.isNull(DataEntity.PROPERTY_PARENT));
+        }
+        criteria.setFetchMode(DataEntity.PROPERTY_PARAMETERS, FetchMode.JOIN);
+        return criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+    }
+
     protected abstract void addSpecificRestrictions(Criteria c, GetObservationRequest request, StringBuilder logArgs)
             throws OwsExceptionReport;
 
@@ -255,4 +282,8 @@ public abstract class AbstractValueDAO extends TimeCreator {
     public GeometryHandler getGeometryHandler() {
         return daoFactory.getGeometryHandler();
     }
+
+    protected DaoFactory getDaoFactory() {
+        return daoFactory;
+    }
 }
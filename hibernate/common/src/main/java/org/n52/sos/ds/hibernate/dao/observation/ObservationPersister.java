@@ -114,6 +114,7 @@ import org.n52.sos.ds.hibernate.dao.PlatformDAO;
 import org.n52.sos.ds.hibernate.dao.UnitDAO;
 import org.n52.sos.ds.hibernate.dao.VerticalMetadataDAO;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.ObservationRollupDAO;
 import org.n52.sos.request.InternalInsertResultTemplateRequest;
 import org.n52.sos.util.GeometryHandler;
 
@@ -684,6 +685,7 @@ public class ObservationPersister
         session.flush();
         session.refresh(observation);
         daos.dataset.updateSeriesWithFirstLatestValues(persitedDataset, observation, session);
+        daos.rollup().add(observation, session);
         return observation;
     }
 
@@ -861,6 +863,8 @@ public class ObservationPersister
 
         private final VerticalMetadataDAO verticalMetadata;
 
+        private final ObservationRollupDAO rollup;
+
         DAOs(AbstractObservationDAO observationDao, DaoFactory daoFactory) {
             this.observation = observationDao;
             this.observableProperty = daoFactory.getObservablePropertyDAO();
@@ -871,6 +875,7 @@ public class ObservationPersister
             this.dataset = daoFactory.getSeriesDAO();
             this.unit = daoFactory.getUnitDAO();
             this.verticalMetadata = daoFactory.getVerticalMetadataDAO();
+            this.rollup = daoFactory.getObservationRollupDAO();
         }
 
         public ObservablePropertyDAO observableProperty() {
@@ -908,6 +913,10 @@ public class ObservationPersister
         public VerticalMetadataDAO verticalMetadata() {
             return this.verticalMetadata;
         }
+
+        public ObservationRollupDAO rollup() {
+            return this.rollup;
+        }
     }
 
 }
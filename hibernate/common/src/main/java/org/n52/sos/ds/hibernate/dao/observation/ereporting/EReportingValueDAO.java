@@ -65,6 +65,12 @@ public class EReportingValueDAO extends AbstractSeriesValueDAO implements ERepor
         addValidityAndVerificationRestrictions(c, request, logArgs);
     }
 
+    @Override
+    protected boolean supportsRollups() {
+        // the rollups do not consider the validity and verification flags
+        return false;
+    }
+
     @Override
     protected ValuedObservationFactory getValuedObservationFactory() {
         return EReportingValuedObservationFactory.getInstance();
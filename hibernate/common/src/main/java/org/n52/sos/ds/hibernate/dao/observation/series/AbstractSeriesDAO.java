@@ -27,12 +27,15 @@
  */
 package org.n52.sos.ds.hibernate.dao.observation.series;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.hibernate.Criteria;
@@ -82,6 +85,8 @@ import org.n52.sos.ds.hibernate.dao.FormatDAO;
 import org.n52.sos.ds.hibernate.dao.observation.ObservationContext;
 import org.n52.sos.ds.hibernate.dao.observation.ObservationFactory;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.ds.hibernate.util.IdentifierSetRestriction;
+import org.n52.sos.ds.hibernate.util.QueryHelper;
 import org.n52.sos.ds.hibernate.util.ResultFilterClasses;
 import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions;
 import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions.SubQueryIdentifier;
@@ -561,15 +566,66 @@ public abstract class AbstractSeriesDAO extends AbstractIdentifierNameDescriptio
         }
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Query the series for the request and features. Large feature
+     * collections are restricted by an {@link IdentifierSetRestriction} in a
+     * single query if the dialect supports it, otherwise one query per chunk
+     * of features is executed.
+     *
+     * @param request
+     *            GetObservation request
+     * @param features
+     *            Feature identifiers, may be empty
+     * @param session
+     *            Hibernate session
+     * @return the series
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    protected List<DatasetEntity> querySeries(GetObservationRequest request, Collection<String> features,
+            Session session) throws OwsExceptionReport {
+        List<DatasetEntity> series = new ArrayList<>();
+        if (CollectionHelper.isNotEmpty(features)) {
+            Optional<IdentifierSetRestriction> restriction = IdentifierSetRestriction.create(features, session);
+            if (restriction.isPresent()) {
+                try (IdentifierSetRestriction featureSet = restriction.get()) {
+                    series.addAll(getSeriesSet(request, featureSet, session));
+                }
+            } else {
+                for (List<String> ids : QueryHelper.getListsForIdentifiers(features)) {
+                    series.addAll(getSeriesSet(request, ids, session));
+                }
+            }
+        } else {
+            series.addAll(getSeriesSet(request, features, session));
+        }
+        return series;
+    }
+
     public Set<DatasetEntity> getSeriesSet(GetObservationRequest request, Collection<String> features, Session session)
             throws OwsExceptionReport {
+        return getSeriesSet(request, c -> {
+            if (CollectionHelper.isNotEmpty(features)) {
+                addFeatureOfInterestToCriteria(c, features);
+            }
+        }, session);
+    }
+
+    public Set<DatasetEntity> getSeriesSet(GetObservationRequest request, IdentifierSetRestriction features,
+            Session session) throws OwsExceptionReport {
+        return getSeriesSet(request, c -> addFeatureOfInterestToCriteria(c, features), session);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<DatasetEntity> getSeriesSet(GetObservationRequest request, Consumer<Criteria> featureRestriction,
+            Session session) throws OwsExceptionReport {
         Set<DatasetEntity> set = new LinkedHashSet<>();
         if (request.hasResultFilter()) {
             for (SubQueryIdentifier identifier : ResultFilterRestrictions
                     .getSubQueryIdentifier(getResultFilterClasses())) {
                 final Criteria c = createCriteriaFor(request.getProcedures(), request.getObservedProperties(),
-                        features, request.getOfferings(), session);
+                        null, request.getOfferings(), session);
+                featureRestriction.accept(c);
                 addSpecificRestrictions(c, request);
                 checkAndAddResultFilterCriterion(c, request, identifier, session);
                 checkAndAddSpatialFilterCriterion(c, request, session);
@@ -578,8 +634,9 @@ public abstract class AbstractSeriesDAO extends AbstractIdentifierNameDescriptio
                 set.addAll(c.list());
             }
         } else {
-            final Criteria c = createCriteriaFor(request.getProcedures(), request.getObservedProperties(), features,
+            final Criteria c = createCriteriaFor(request.getProcedures(), request.getObservedProperties(), null,
                     request.getOfferings(), session);
+            featureRestriction.accept(c);
             addSpecificRestrictions(c, request);
             checkAndAddSpatialFilterCriterion(c, request, session);
             LOGGER.trace("QUERY getSeries(request, features): {}", HibernateHelper.getSqlString(c));
@@ -728,6 +785,18 @@ public abstract class AbstractSeriesDAO extends AbstractIdentifierNameDescriptio
 
     }
 
+    /**
+     * Add featuresOfInterest restriction to Hibernate Criteria
+     *
+     * @param c
+     *            Hibernate Criteria to add restriction
+     * @param features
+     *            AbstractFeatureEntity identifier set to add
+     */
+    public void addFeatureOfInterestToCriteria(Criteria c, IdentifierSetRestriction features) {
+        c.createCriteria(DatasetEntity.PROPERTY_FEATURE, FOI).add(features.restrict(AbstractFeatureEntity.IDENTIFIER));
+    }
+
     /**
      * Add observedProperty restriction to Hibernate Criteria
      *
@@ -27,24 +27,52 @@
  */
 package org.n52.sos.ds.hibernate.dao.observation.series;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 
 import org.hibernate.Criteria;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.DoubleType;
+import org.hibernate.type.Type;
+import org.n52.series.db.beans.CountDataEntity;
 import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.dataset.ObservationType;
+import org.n52.series.db.beans.dataset.ValueType;
+import org.n52.shetland.ogc.filter.FilterConstants.TimeOperator;
+import org.n52.shetland.ogc.filter.TemporalFilter;
+import org.n52.shetland.ogc.gml.time.IndeterminateValue;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
 import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractValueDAO;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
-import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions;
+import org.n52.sos.ds.hibernate.util.ResultFilterPlanner;
 import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions.SubQueryIdentifier;
+import org.n52.sos.ds.hibernate.util.TemporalAggregator;
+import org.n52.sos.ds.hibernate.util.TemporalAggregator.Bucket;
+import org.n52.sos.request.TemporalAggregation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -88,15 +116,11 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
      * @throws OwsExceptionReport
      *             If an error occurs when querying
      */
-    @SuppressWarnings("unchecked")
     public List<DataEntity<?>> getStreamingSeriesValuesFor(AbstractObservationRequest request, long series,
             Criterion temporalFilterCriterion, int chunkSize, int currentRow, Session session)
             throws OwsExceptionReport {
-        StringBuilder logArgs = new StringBuilder();
-        Criteria c = getSeriesValueCriteriaFor(request, series, temporalFilterCriterion, session, logArgs);
-        addChunkValuesToCriteria(c, chunkSize, currentRow, request, logArgs);
-        LOGGER.trace(QUERY_STREAMING_SERIES_VALUE, logArgs.toString(), HibernateHelper.getSqlString(c));
-        return (List<DataEntity<?>>) c.list();
+        return getStreamingSeriesValuesFor(request, Collections.singleton(series), temporalFilterCriterion,
+                chunkSize, currentRow, session);
     }
 
     /**
@@ -123,16 +147,18 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
             Criterion temporalFilterCriterion, int chunkSize, int currentRow, Session session)
             throws OwsExceptionReport {
         if (request instanceof GetObservationRequest && ((GetObservationRequest) request).hasResultFilter()) {
-            StringBuilder logArgs = new StringBuilder();
             List<DataEntity<?>> list = new LinkedList<>();
-            for (SubQueryIdentifier identifier : ResultFilterRestrictions
-                    .getSubQueryIdentifier(getResultFilterClasses())) {
-                Criteria c = getSeriesValueCriteriaFor(request, series, temporalFilterCriterion, session, logArgs);
-                addChunkValuesToCriteria(c, chunkSize, currentRow, request, logArgs);
-                checkAndAddResultFilterCriterion(c, (GetObservationRequest) request, identifier, session, logArgs);
-                LOGGER.trace(QUERY_STREAMING_SERIES_VALUE, logArgs.toString(),
-                        HibernateHelper.getSqlString(c));
-                list.addAll(c.list());
+            for (Entry<Class<?>, List<Long>> entry : getSeriesByValueClass(series, session).entrySet()) {
+                StringBuilder logArgs = new StringBuilder();
+                Criteria c = getResultFilterCriteriaFor((GetObservationRequest) request, entry.getKey(),
+                        entry.getValue(), temporalFilterCriterion, session, logArgs);
+                if (c != null) {
+                    c.addOrder(Order.asc(getOrderColumn(request)));
+                    addChunkValuesToCriteria(c, chunkSize, currentRow, request, logArgs);
+                    LOGGER.trace(QUERY_STREAMING_SERIES_VALUE, logArgs.toString(),
+                            HibernateHelper.getSqlString(c));
+                    list.addAll(c.list());
+                }
             }
             return list;
         } else {
@@ -162,30 +188,9 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
      * @throws OwsExceptionReport
      *             If an error occurs when querying
      */
-    @SuppressWarnings("unchecked")
     public List<DataEntity<?>> getStreamingSeriesValuesFor(AbstractObservationRequest request, Set<Long> series,
             int chunkSize, int currentRow, Session session) throws OwsExceptionReport {
-        if (request instanceof GetObservationRequest && ((GetObservationRequest) request).hasResultFilter()) {
-            List<DataEntity<?>> list = new LinkedList<>();
-            for (SubQueryIdentifier identifier : ResultFilterRestrictions
-                    .getSubQueryIdentifier(getResultFilterClasses())) {
-                StringBuilder logArgs = new StringBuilder();
-                Criteria c = getSeriesValueCriteriaFor(request, series, null, session, logArgs);
-                addChunkValuesToCriteria(c, chunkSize, currentRow, request, logArgs);
-                checkAndAddResultFilterCriterion(c, (GetObservationRequest) request, identifier, session, logArgs);
-                LOGGER.trace(QUERY_STREAMING_SERIES_VALUE, logArgs.toString(),
-                        HibernateHelper.getSqlString(c));
-                list.addAll(c.list());
-            }
-            return list;
-        } else {
-            StringBuilder logArgs = new StringBuilder();
-            Criteria c = getSeriesValueCriteriaFor(request, series, null, session, logArgs);
-            addChunkValuesToCriteria(c, chunkSize, currentRow, request, logArgs);
-            LOGGER.trace(QUERY_STREAMING_SERIES_VALUE, logArgs.toString(),
-                    HibernateHelper.getSqlString(c));
-            return (List<DataEntity<?>>) c.list();
-        }
+        return getStreamingSeriesValuesFor(request, series, null, chunkSize, currentRow, session);
     }
 
     /**
@@ -205,54 +210,395 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
      * @throws OwsExceptionReport
      *             If an error occurs when querying
      */
-    @SuppressWarnings("unchecked")
     public List<DataEntity<?>> getStreamingSeriesValuesFor(AbstractObservationRequest request, long series,
             int chunkSize, int currentRow, Session session) throws OwsExceptionReport {
-        if (request instanceof GetObservationRequest && ((GetObservationRequest) request).hasResultFilter()) {
-            StringBuilder logArgs = new StringBuilder();
-            List<DataEntity<?>> list = new LinkedList<>();
-            for (SubQueryIdentifier identifier : ResultFilterRestrictions
-                    .getSubQueryIdentifier(getResultFilterClasses())) {
-                Criteria c = getSeriesValueCriteriaFor(request, series, null, session, logArgs);
-                addChunkValuesToCriteria(c, chunkSize, currentRow, request, logArgs);
-                checkAndAddResultFilterCriterion(c, (GetObservationRequest) request, identifier, session, logArgs);
-                LOGGER.trace(QUERY_STREAMING_SERIES_VALUE, logArgs.toString(),
-                        HibernateHelper.getSqlString(c));
-                list.addAll(c.list());
-            }
-            return list;
-        } else {
-            StringBuilder logArgs = new StringBuilder();
-            Criteria c = getSeriesValueCriteriaFor(request, series, null, session, logArgs);
-            addChunkValuesToCriteria(c, chunkSize, currentRow, request, logArgs);
-            LOGGER.trace(QUERY_STREAMING_SERIES_VALUE, logArgs.toString(),
-                    HibernateHelper.getSqlString(c));
-            return (List<DataEntity<?>>) c.list();
+        return getStreamingSeriesValuesFor(request, Collections.singleton(series), null, chunkSize, currentRow,
+                session);
+    }
+
+    /**
+     * Get the value class of the dataset if its values can be queried as
+     * value rows with
+     * {@link #getStreamingSeriesValueRowsFor(AbstractObservationRequest, long, Class, Criterion, int, int, Session)}.
+     *
+     * @param dataset
+     *            the dataset
+     * @return the value class or {@code null} if the values of the dataset
+     *         require the full {@link DataEntity}
+     */
+    public Class<?> getValueRowClass(DatasetEntity dataset) {
+        if (ObservationType.profile.equals(dataset.getObservationType())) {
+            return null;
         }
+        if (ValueType.quantity.equals(dataset.getValueType()) || ValueType.count.equals(dataset.getValueType())) {
+            return getResultFilterPlanner().getValueClass(dataset);
+        }
+        return null;
     }
 
     /**
-     * Get {@link Criteria} for parameter
+     * Query streaming values of the series as chunk of value rows. Instead of
+     * {@link DataEntity}s only the phenomenon time start, the phenomenon time
+     * end and the value are selected, so the rows are not attached to the
+     * session.
      *
      * @param request
      *            {@link AbstractObservationRequest}
      * @param series
      *            Datasource series id
+     * @param valueClass
+     *            the value class of the series, see
+     *            {@link #getValueRowClass(DatasetEntity)}
      * @param temporalFilterCriterion
      *            Temporal filter {@link Criterion}
+     * @param chunkSize
+     *            chunk size
+     * @param currentRow
+     *            Start row
      * @param session
      *            Hibernate Session
-     * @param logArgs log arguments
-     * @return Resulting {@link Criteria}
+     * @return Resulting chunk of {@code [samplingTimeStart, samplingTimeEnd, value]}
      * @throws OwsExceptionReport
-     *             If an error occurs when adding Spatial Filtering Profile
-     *             restrictions
+     *             If an error occurs when querying
      */
-    private Criteria getSeriesValueCriteriaFor(AbstractObservationRequest request, long series,
-            Criterion temporalFilterCriterion, Session session, StringBuilder logArgs) throws OwsExceptionReport {
-        final Criteria c = getDefaultSeriesValueCriteriaFor(request, temporalFilterCriterion, session, logArgs);
-        c.add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, series));
-        return c.setReadOnly(true);
+    @SuppressWarnings("unchecked")
+    public List<Object[]> getStreamingSeriesValueRowsFor(AbstractObservationRequest request, long series,
+            Class<?> valueClass, Criterion temporalFilterCriterion, int chunkSize, int currentRow, Session session)
+            throws OwsExceptionReport {
+        StringBuilder logArgs = new StringBuilder();
+        Criteria c;
+        if (request instanceof GetObservationRequest) {
+            c = getResultFilterCriteriaFor((GetObservationRequest) request, valueClass,
+                    Collections.singleton(series), temporalFilterCriterion, session, logArgs);
+            if (c == null) {
+                return Collections.emptyList();
+            }
+        } else {
+            c = getDefaultSimpleValueCriteria(valueClass, session);
+            addSeriesRestriction(c, Collections.singleton(series), logArgs);
+        }
+        c.addOrder(Order.asc(getOrderColumn(request)));
+        c.setProjection(Projections.projectionList()
+                .add(Projections.property(DataEntity.PROPERTY_SAMPLING_TIME_START))
+                .add(Projections.property(DataEntity.PROPERTY_SAMPLING_TIME_END))
+                .add(Projections.property(DataEntity.PROPERTY_VALUE)));
+        addChunkValuesToCriteria(c, chunkSize, currentRow, request, logArgs);
+        LOGGER.trace("QUERY getStreamingSeriesValueRowsFor({}): {}", logArgs.toString(),
+                HibernateHelper.getSqlString(c));
+        return (List<Object[]>) c.list();
+    }
+
+    /**
+     * Query the values of the series aggregated into the buckets of the
+     * temporal aggregation.
+     *
+     * @param request
+     *            {@link GetObservationRequest}
+     * @param series
+     *            Datasource series, see
+     *            {@link #getValueRowClass(DatasetEntity)}
+     * @param aggregation
+     *            the temporal aggregation
+     * @param temporalFilterCriterion
+     *            Temporal filter {@link Criterion}
+     * @param session
+     *            Hibernate Session
+     * @return Resulting {@link List} of transient {@link DataEntity}s, one per
+     *         bucket or two per bucket for
+     *         {@link TemporalAggregation.Function#ENVELOPE}
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying
+     */
+    public List<DataEntity<?>> getAggregatedSeriesValuesFor(GetObservationRequest request, DatasetEntity series,
+            TemporalAggregation aggregation, Criterion temporalFilterCriterion, Session session)
+            throws OwsExceptionReport {
+        Class<?> valueClass = getValueRowClass(series);
+        StringBuilder logArgs = new StringBuilder();
+        Criteria c = getResultFilterCriteriaFor(request, valueClass, Collections.singleton(series.getId()),
+                temporalFilterCriterion, session, logArgs);
+        if (c == null) {
+            return Collections.emptyList();
+        }
+        logArgs.append(", aggregation");
+        Optional<ObservationRollupDAO.Range> range = getRollupRange(request, series, aggregation, session);
+        if (!range.isPresent()) {
+            LOGGER.trace("QUERY getAggregatedSeriesValuesFor({})", logArgs.toString());
+            return getAggregatedSeriesValuesFor(c, valueClass, series, aggregation, session);
+        }
+        ObservationRollupDAO.Range r = range.get();
+        logArgs.append(", rollup(").append(r.getResolution()).append(')');
+        LOGGER.trace("QUERY getAggregatedSeriesValuesFor({})", logArgs.toString());
+        TemporalAggregator aggregator = new TemporalAggregator(aggregation);
+        getDaoFactory().getObservationRollupDAO().aggregate(series.getId(), r, aggregator, session);
+        if (!r.isUnbounded()) {
+            // the values of the partial buckets at the edges of the temporal filter
+            c.add(Restrictions.or(Restrictions.lt(DataEntity.PROPERTY_SAMPLING_TIME_START, r.getStart()),
+                    Restrictions.ge(DataEntity.PROPERTY_SAMPLING_TIME_START, r.getEnd())));
+            aggregate(c, valueClass, aggregator, session);
+        }
+        return createAggregatedValues(aggregator, series);
+    }
+
+    /**
+     * Get the rollup resolution and the time range of the rollups that can
+     * replace the values of the request. Rollups are used for SQL aggregate
+     * functions without result or spatial filter if the temporal filter is
+     * absent or a phenomenon time during filter. The buckets that are only
+     * partially covered by the filter are aggregated from the values.
+     *
+     * @param request
+     *            {@link GetObservationRequest}
+     * @param series
+     *            Datasource series
+     * @param aggregation
+     *            the temporal aggregation
+     * @param session
+     *            Hibernate Session
+     * @return the rollup range, if the rollups can be used
+     */
+    private Optional<ObservationRollupDAO.Range> getRollupRange(GetObservationRequest request,
+            DatasetEntity series, TemporalAggregation aggregation, Session session) {
+        ObservationRollupDAO rollupDAO = getDaoFactory().getObservationRollupDAO();
+        long resolution = rollupDAO.getResolutionFor(aggregation.getInterval());
+        if (resolution <= 0 || !supportsRollups() || !aggregation.getFunction().isSqlAggregate()
+                || request.hasResultFilter() || request.hasSpatialFilteringProfileSpatialFilter()
+                || getDaoFactory().isIncludeChildObservableProperties()) {
+            return Optional.empty();
+        }
+        ObservationRollupDAO.Range range;
+        if (!request.isSetTemporalFilter()) {
+            range = new ObservationRollupDAO.Range(resolution, null, null);
+        } else if (request.getTemporalFilters().size() == 1) {
+            TemporalFilter filter = request.getTemporalFilters().iterator().next();
+            if (!TimeOperator.TM_During.equals(filter.getOperator()) || !(filter.getTime() instanceof TimePeriod)
+                    || !filter.getValueReference().contains(OmConstants.EN_PHENOMENON_TIME)) {
+                return Optional.empty();
+            }
+            TimePeriod period = (TimePeriod) filter.getTime();
+            TemporalAggregation rollup = new TemporalAggregation(resolution, aggregation.getFunction());
+            Date start = new Date(rollup.getBucketStart(rollup.getBucket(period.getStart().getMillis()) + 1));
+            Date end = new Date(rollup.getBucketStart(rollup.getBucket(period.getEnd().getMillis())));
+            if (!start.before(end) || hasValuesEndingAfter(series, start, end, period.getEnd().toDate(), session)) {
+                return Optional.empty();
+            }
+            range = new ObservationRollupDAO.Range(resolution, start, end);
+        } else {
+            return Optional.empty();
+        }
+        return rollupDAO.isComplete(series.getId(), session) ? Optional.of(range) : Optional.empty();
+    }
+
+    /**
+     * Check if a value within the rollup range ends at or after the end of
+     * the during filter and would therefore be excluded by the filter.
+     */
+    private boolean hasValuesEndingAfter(DatasetEntity series, Date start, Date end, Date filterEnd,
+            Session session) {
+        Criteria c = getDefaultCriteria(getValueRowClass(series), session)
+                .add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, series.getId()))
+                .add(Restrictions.ge(DataEntity.PROPERTY_SAMPLING_TIME_START, start))
+                .add(Restrictions.lt(DataEntity.PROPERTY_SAMPLING_TIME_START, end))
+                .add(Restrictions.ge(DataEntity.PROPERTY_SAMPLING_TIME_END, filterEnd))
+                .setProjection(Projections.id()).setMaxResults(1);
+        return !c.list().isEmpty();
+    }
+
+    /**
+     * @return if the values of this DAO can be read from the rollups
+     */
+    protected boolean supportsRollups() {
+        return true;
+    }
+
+    /**
+     * Aggregate the values selected by the {@link Criteria} into the buckets
+     * of the temporal aggregation. The buckets are computed in the database if
+     * the dialect is supported by
+     * {@link TemporalAggregator#getEpochSeconds(org.hibernate.dialect.Dialect, String)}
+     * and the function is a SQL aggregate, otherwise the values are scrolled
+     * and aggregated in memory.
+     *
+     * @param c
+     *            the {@link Criteria} for the value class without projection
+     *            and order
+     * @param valueClass
+     *            the value class of the series
+     * @param series
+     *            Datasource series
+     * @param aggregation
+     *            the temporal aggregation
+     * @param session
+     *            Hibernate Session
+     * @return Resulting {@link List} of transient {@link DataEntity}s
+     * @throws OwsExceptionReport
+     *             If an error occurs when creating the values
+     */
+    public List<DataEntity<?>> getAggregatedSeriesValuesFor(Criteria c, Class<?> valueClass, DatasetEntity series,
+            TemporalAggregation aggregation, Session session) throws OwsExceptionReport {
+        TemporalAggregator aggregator = new TemporalAggregator(aggregation);
+        aggregate(c, valueClass, aggregator, session);
+        return createAggregatedValues(aggregator, series);
+    }
+
+    /**
+     * Aggregate the values of the series in the time range into the buckets
+     * of the aggregator, e.g. to rebuild rollups. Child observations are not
+     * aggregated.
+     *
+     * @param series
+     *            Datasource series id
+     * @param valueClass
+     *            the value class of the series
+     * @param start
+     *            the inclusive start of the phenomenon time or {@code null}
+     * @param end
+     *            the exclusive end of the phenomenon time or {@code null}
+     * @param aggregator
+     *            the aggregator
+     * @param session
+     *            Hibernate Session
+     */
+    public void aggregate(long series, Class<?> valueClass, Date start, Date end, TemporalAggregator aggregator,
+            Session session) {
+        Criteria c = session.createCriteria(valueClass).add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false))
+                .add(Restrictions.isNull(DataEntity.PROPERTY_PARENT))
+                .add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, series));
+        if (start != null) {
+            c.add(Restrictions.ge(DataEntity.PROPERTY_SAMPLING_TIME_START, start));
+        }
+        if (end != null) {
+            c.add(Restrictions.lt(DataEntity.PROPERTY_SAMPLING_TIME_START, end));
+        }
+        aggregate(c.setReadOnly(true), valueClass, aggregator, session);
+    }
+
+    /**
+     * Aggregate the values selected by the {@link Criteria} into the buckets
+     * of the aggregator.
+     *
+     * @param c
+     *            the {@link Criteria} for the value class without projection
+     *            and order
+     * @param valueClass
+     *            the value class of the series
+     * @param aggregator
+     *            the aggregator
+     * @param session
+     *            Hibernate Session
+     */
+    @SuppressWarnings("unchecked")
+    public void aggregate(Criteria c, Class<?> valueClass, TemporalAggregator aggregator, Session session) {
+        String bucket = getBucketExpression(aggregator, valueClass, session);
+        if (bucket != null) {
+            c.setProjection(Projections.projectionList()
+                    .add(Projections.sqlGroupProjection(bucket + " as bucket", bucket, new String[] { "bucket" },
+                            new Type[] { DoubleType.INSTANCE }))
+                    .add(Projections.min(DataEntity.PROPERTY_VALUE))
+                    .add(Projections.max(DataEntity.PROPERTY_VALUE))
+                    .add(Projections.sum(DataEntity.PROPERTY_VALUE))
+                    .add(Projections.count(DataEntity.PROPERTY_VALUE)));
+            LOGGER.trace("QUERY getAggregatedSeriesValuesFor(sql): {}", HibernateHelper.getSqlString(c));
+            for (Object[] row : (List<Object[]>) c.list()) {
+                aggregator.add(((Number) row[0]).longValue(), (Number) row[1], (Number) row[2], (Number) row[3],
+                        ((Number) row[4]).longValue());
+            }
+        } else {
+            c.addOrder(Order.asc(DataEntity.PROPERTY_SAMPLING_TIME_START));
+            c.setProjection(Projections.projectionList()
+                    .add(Projections.property(DataEntity.PROPERTY_SAMPLING_TIME_START))
+                    .add(Projections.property(DataEntity.PROPERTY_VALUE)));
+            LOGGER.trace("QUERY getAggregatedSeriesValuesFor(scroll): {}", HibernateHelper.getSqlString(c));
+            ScrollableResults results = c.scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                while (results.next()) {
+                    aggregator.add((Date) results.get(0), (Number) results.get(1));
+                }
+            } finally {
+                results.close();
+            }
+        }
+    }
+
+    private String getBucketExpression(TemporalAggregator aggregator, Class<?> valueClass, Session session) {
+        if (!aggregator.getAggregation().getFunction().isSqlAggregate()) {
+            return null;
+        }
+        ClassMetadata metadata = session.getSessionFactory().getClassMetadata(valueClass);
+        if (!(metadata instanceof AbstractEntityPersister)) {
+            return null;
+        }
+        AbstractEntityPersister persister = (AbstractEntityPersister) metadata;
+        // {alias} only refers to the table of the root entity
+        if (!persister.getTableName()
+                .equals(persister.getPropertyTableName(DataEntity.PROPERTY_SAMPLING_TIME_START))) {
+            return null;
+        }
+        String column = persister.getPropertyColumnNames(DataEntity.PROPERTY_SAMPLING_TIME_START)[0];
+        return aggregator.getBucketExpression(HibernateHelper.getDialect(session), "{alias}." + column);
+    }
+
+    private List<DataEntity<?>> createAggregatedValues(TemporalAggregator aggregator, DatasetEntity series)
+            throws OwsExceptionReport {
+        TemporalAggregation.Function function = aggregator.getAggregation().getFunction();
+        boolean count = TemporalAggregation.Function.COUNT.equals(function)
+                || ValueType.count.equals(series.getValueType())
+                        && !TemporalAggregation.Function.MEAN.equals(function);
+        List<DataEntity<?>> values = new LinkedList<>();
+        long id = 0;
+        for (Bucket bucket : aggregator.getBuckets()) {
+            for (Number value : bucket.getValues()) {
+                DataEntity<?> entity;
+                if (count) {
+                    CountDataEntity countEntity = getValuedObservationFactory().count();
+                    countEntity.setValue(value != null ? value.intValue() : null);
+                    entity = countEntity;
+                } else {
+                    QuantityDataEntity quantityEntity = getValuedObservationFactory().numeric();
+                    quantityEntity.setValue(value != null ? BigDecimal.valueOf(value.doubleValue()) : null);
+                    entity = quantityEntity;
+                }
+                entity.setId(++id);
+                entity.setDataset(series);
+                entity.setSamplingTimeStart(bucket.getStart());
+                entity.setSamplingTimeEnd(bucket.getEnd());
+                entity.setResultTime(bucket.getEnd());
+                values.add(entity);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Query the first or latest values of the series that match the result
+     * filter and spatial filtering profile of the request.
+     *
+     * @param request
+     *            {@link GetObservationRequest}
+     * @param series
+     *            Datasource series
+     * @param indeterminateValue
+     *            {@link org.n52.shetland.ogc.sos.ExtendedIndeterminateTime#FIRST}
+     *            or
+     *            {@link org.n52.shetland.ogc.sos.ExtendedIndeterminateTime#LATEST}
+     * @param session
+     *            Hibernate Session
+     * @return Resulting {@link List}
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying
+     */
+    @SuppressWarnings("unchecked")
+    public List<DataEntity<?>> getFirstLatestSeriesValuesFor(GetObservationRequest request, DatasetEntity series,
+            IndeterminateValue indeterminateValue, Session session) throws OwsExceptionReport {
+        StringBuilder logArgs = new StringBuilder();
+        Criteria c = getResultFilterCriteriaFor(request, getResultFilterPlanner().getValueClass(series),
+                Collections.singleton(series.getId()), null, session, logArgs);
+        if (c == null) {
+            return Collections.emptyList();
+        }
+        addIndeterminateTimeRestriction(c, indeterminateValue, logArgs);
+        LOGGER.trace("QUERY getFirstLatestSeriesValuesFor({}): {}", logArgs.toString(),
+                HibernateHelper.getSqlString(c));
+        return (List<DataEntity<?>>) c.list();
     }
 
     /**
@@ -274,16 +620,93 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
      */
     private Criteria getSeriesValueCriteriaFor(AbstractObservationRequest request, Set<Long> series,
             Criterion temporalFilterCriterion, Session session, StringBuilder logArgs) throws OwsExceptionReport {
-        final Criteria c = getDefaultSeriesValueCriteriaFor(request, temporalFilterCriterion, session, logArgs);
-        c.add(Restrictions.in(DataEntity.PROPERTY_DATASET_ID, series));
+        final Criteria c = getDefaultObservationCriteria(session);
+        c.addOrder(Order.asc(getOrderColumn(request)));
+        addSeriesRestriction(c, series, logArgs);
+        addSeriesValueRestrictions(c, request, temporalFilterCriterion, session, logArgs);
         return c.setReadOnly(true);
     }
 
-    private Criteria getDefaultSeriesValueCriteriaFor(AbstractObservationRequest request,
-            Criterion temporalFilterCriterion, Session session, StringBuilder logArgs) throws OwsExceptionReport {
-        final Criteria c = getDefaultObservationCriteria(session);
-        c.addOrder(Order.asc(getOrderColumn(request)));
+    /**
+     * Get the {@link Criteria} for the values of the series with the value
+     * class, restricted by the result filter of the request. For simple value
+     * classes the result filter is compiled into a restriction of the value
+     * property, the values of complex and profile observations are restricted
+     * with subqueries.
+     *
+     * @param request
+     *            {@link GetObservationRequest} with result filter
+     * @param valueClass
+     *            the value class of the series
+     * @param series
+     *            Datasource series ids
+     * @param temporalFilterCriterion
+     *            Temporal filter {@link Criterion}
+     * @param session
+     *            Hibernate Session
+     * @param logArgs
+     *            log arguments
+     * @return Resulting {@link Criteria} or {@code null} if no value can match
+     *         the result filter
+     * @throws OwsExceptionReport
+     *             If an error occurs when adding the restrictions
+     */
+    private Criteria getResultFilterCriteriaFor(GetObservationRequest request, Class<?> valueClass,
+            Collection<Long> series, Criterion temporalFilterCriterion, Session session, StringBuilder logArgs)
+            throws OwsExceptionReport {
+        ResultFilterPlanner planner = getResultFilterPlanner();
+        SubQueryIdentifier subQueryIdentifier = planner.getSubQueryIdentifier(valueClass);
+        Criteria c;
+        Criterion resultFilter = null;
+        if (planner.isSupported(valueClass)) {
+            c = getDefaultSimpleValueCriteria(valueClass, session);
+            if (request.hasResultFilter()) {
+                Optional<Criterion> compiled = planner.compile(request.getResultFilter(), valueClass);
+                if (!compiled.isPresent()) {
+                    return null;
+                }
+                resultFilter = compiled.get();
+            }
+        } else if (subQueryIdentifier != null || !request.hasResultFilter()) {
+            c = getDefaultObservationCriteria(session);
+        } else {
+            return null;
+        }
+        addSeriesRestriction(c, series, logArgs);
+        if (resultFilter != null) {
+            c.add(resultFilter);
+            logArgs.append(", resultFilter");
+        } else if (subQueryIdentifier != null) {
+            checkAndAddResultFilterCriterion(c, request, subQueryIdentifier, session, logArgs);
+        }
+        addSeriesValueRestrictions(c, request, temporalFilterCriterion, session, logArgs);
+        return c.setReadOnly(true);
+    }
+
+    private Map<Class<?>, List<Long>> getSeriesByValueClass(Collection<Long> series, Session session) {
+        ResultFilterPlanner planner = getResultFilterPlanner();
+        Map<Class<?>, List<Long>> map = new LinkedHashMap<>();
+        for (Long id : series) {
+            DatasetEntity dataset = session.get(DatasetEntity.class, id);
+            Class<?> valueClass = dataset != null ? planner.getValueClass(dataset) : null;
+            if (valueClass != null) {
+                map.computeIfAbsent(valueClass, k -> new LinkedList<>()).add(id);
+            }
+        }
+        return map;
+    }
+
+    private void addSeriesRestriction(Criteria c, Collection<Long> series, StringBuilder logArgs) {
+        if (series.size() == 1) {
+            c.add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, series.iterator().next()));
+        } else {
+            c.add(Restrictions.in(DataEntity.PROPERTY_DATASET_ID, series));
+        }
         logArgs.append("request, series");
+    }
+
+    private void addSeriesValueRestrictions(Criteria c, AbstractObservationRequest request,
+            Criterion temporalFilterCriterion, Session session, StringBuilder logArgs) throws OwsExceptionReport {
         if (request instanceof GetObservationRequest) {
             GetObservationRequest getObsReq = (GetObservationRequest) request;
             checkAndAddSpatialFilteringProfileCriterion(c, getObsReq, session, logArgs);
@@ -294,7 +717,6 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
             }
             addSpecificRestrictions(c, getObsReq, logArgs);
         }
-        return c.setReadOnly(true);
     }
 
     /**
@@ -0,0 +1,603 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation.series;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.LockMode;
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.DoubleType;
+import org.n52.series.db.beans.CountDataEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.util.HibernateConstants;
+import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.ds.hibernate.util.TemporalAggregator;
+import org.n52.sos.ds.hibernate.util.TemporalAggregator.Bucket;
+import org.n52.sos.request.TemporalAggregation;
+import org.n52.sos.request.TemporalAggregation.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Data access object for the rollups of numeric and count datasets. A rollup
+ * holds the minimum, maximum, sum and count of the values of a dataset per
+ * epoch aligned bucket of the configured resolutions.
+ * <p>
+ * Inserted observations append a row per resolution, so concurrent inserts
+ * into different datasets do not conflict. The rows of a bucket are merged
+ * later by {@link #compact(Session, int)}. Deletions rebuild the affected
+ * buckets from the observations or {@link #invalidate(Collection, Session)
+ * invalidate} the rollups of the dataset. Rollups of a dataset are only read
+ * if they are {@link #isComplete(long, Session) complete}, i.e. if they were
+ * {@link #backfill(DatasetEntity, Session) backfilled} from the existing
+ * observations after they were invalidated or enabled. Appending, rebuilding
+ * and merging lock the row of the dataset until the transaction ends, so an
+ * observation inserted while its bucket is rebuilt is either part of the
+ * rebuilt bucket or appended afterwards, but never counted twice.
+ * <p>
+ * The rollups are stored in a table next to the observation table that is
+ * created by {@link #createTable(Session)} because it is not part of the
+ * entity mappings.
+ *
+ * @since 5.5.0
+ */
+public class ObservationRollupDAO {
+
+    public static final String TABLE = "sos_observation_rollup";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ObservationRollupDAO.class);
+
+    private static final String DATASET = "dataset_id";
+
+    private static final String RESOLUTION = "resolution";
+
+    private static final String BUCKET = "bucket";
+
+    private static final String MIN = "min_value";
+
+    private static final String MAX = "max_value";
+
+    private static final String SUM = "sum_value";
+
+    private static final String COUNT = "value_count";
+
+    private static final String MERGING = "merging";
+
+    private static final String BUCKETS = "buckets";
+
+    private static final String FROM = "fromBucket";
+
+    private static final String TO = "toBucket";
+
+    /**
+     * The resolution of the row that marks the rollups of a dataset as
+     * complete.
+     */
+    private static final long COMPLETE = 0L;
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    private final DaoFactory daoFactory;
+
+    public ObservationRollupDAO(DaoFactory daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    /**
+     * @return the resolutions in seconds, ascending
+     */
+    public List<Long> getResolutions() {
+        return daoFactory.getRollupResolutions();
+    }
+
+    /**
+     * @return if rollups are configured
+     */
+    public boolean isEnabled() {
+        return !getResolutions().isEmpty();
+    }
+
+    /**
+     * Get the coarsest resolution whose buckets can be merged into the
+     * buckets of the interval.
+     *
+     * @param interval
+     *            the interval in seconds
+     * @return the resolution in seconds or {@code 0} if no resolution fits
+     */
+    public long getResolutionFor(long interval) {
+        List<Long> resolutions = getResolutions();
+        for (int i = resolutions.size() - 1; i >= 0; i--) {
+            if (interval % resolutions.get(i) == 0) {
+                return resolutions.get(i);
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Check if rollups are enabled and the rollup table exists. The result of
+     * the check is kept, a missing table is not looked up again until it is
+     * created by {@link #createTable(Session)}.
+     *
+     * @param session
+     *            Hibernate session
+     * @return if the rollups can be read and written
+     */
+    public boolean isAvailable(Session session) {
+        if (!isEnabled()) {
+            return false;
+        }
+        Boolean available = daoFactory.getRollupTableAvailable();
+        if (available == null) {
+            String schema = getSchema(session);
+            available = session.doReturningWork(connection -> exists(connection, schema));
+            daoFactory.setRollupTableAvailable(available);
+            if (!available) {
+                LOGGER.debug("The rollup table {} does not exist yet!", TABLE);
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Create the rollup table if it does not exist. The session should not
+     * have an active transaction because some databases commit it implicitly
+     * before DDL statements.
+     *
+     * @param session
+     *            Hibernate session
+     */
+    public void createTable(Session session) {
+        Dialect dialect = HibernateHelper.getDialect(session);
+        String schema = getSchema(session);
+        String table = getTableName(session);
+        session.doWork(connection -> {
+            if (!exists(connection, schema)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(String.format(
+                            "create table %s (%s %s not null, %s %s not null, %s %s not null, %s %s, %s %s, %s %s, "
+                                    + "%s %s not null, %s %s not null)",
+                            table, DATASET, dialect.getTypeName(Types.BIGINT), RESOLUTION,
+                            dialect.getTypeName(Types.BIGINT), BUCKET, dialect.getTypeName(Types.BIGINT), MIN,
+                            dialect.getTypeName(Types.DOUBLE), MAX, dialect.getTypeName(Types.DOUBLE), SUM,
+                            dialect.getTypeName(Types.DOUBLE), COUNT, dialect.getTypeName(Types.BIGINT), MERGING,
+                            dialect.getTypeName(Types.INTEGER)));
+                    statement.execute(String.format("create index %s_idx on %s (%s, %s, %s)", TABLE, table, DATASET,
+                            RESOLUTION, BUCKET));
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+                LOGGER.info("Created the rollup table {}", table);
+            }
+        });
+        daoFactory.setRollupTableAvailable(true);
+    }
+
+    /**
+     * Add the value of an inserted numeric or count observation to the
+     * rollups of its dataset. Other observations, child observations and
+     * observations without value are ignored. The dataset is locked until the
+     * transaction ends.
+     *
+     * @param observation
+     *            the inserted observation
+     * @param session
+     *            Hibernate session
+     */
+    public void add(DataEntity<?> observation, Session session) {
+        if (!(observation instanceof QuantityDataEntity || observation instanceof CountDataEntity)
+                || !(observation.getValue() instanceof Number) || observation.getDataset() == null
+                || observation.getParent() != null || !isAvailable(session)) {
+            return;
+        }
+        Number value = (Number) observation.getValue();
+        long time = observation.getSamplingTimeStart().getTime();
+        lock(observation.getDataset().getId(), session);
+        for (Long resolution : getResolutions()) {
+            insert(observation.getDataset().getId(), resolution, Math.floorDiv(time, resolution * MILLIS_PER_SECOND),
+                    value, value, value.doubleValue(), 1L, session);
+        }
+    }
+
+    /**
+     * Rebuild the buckets of the dataset that overlap the time range from
+     * the observations. The dataset is locked until the transaction ends, so
+     * observations of concurrent transactions are not appended while the
+     * buckets are replaced.
+     *
+     * @param dataset
+     *            the dataset
+     * @param start
+     *            the start of the time range or {@code null} for all buckets
+     *            before the end
+     * @param end
+     *            the end of the time range or {@code null} for all buckets
+     *            after the start
+     * @param session
+     *            Hibernate session
+     */
+    public void rebuild(DatasetEntity dataset, Date start, Date end, Session session) {
+        if (dataset == null) {
+            return;
+        }
+        AbstractSeriesValueDAO valueDAO = daoFactory.getValueDAO();
+        Class<?> valueClass = valueDAO.getValueRowClass(dataset);
+        if (valueClass == null || !isAvailable(session)) {
+            return;
+        }
+        lock(dataset.getId(), session);
+        for (Long resolution : getResolutions()) {
+            TemporalAggregation aggregation = new TemporalAggregation(resolution, Function.ENVELOPE);
+            Long from = start != null ? aggregation.getBucket(start.getTime()) : null;
+            Long to = end != null ? aggregation.getBucket(end.getTime()) : null;
+            NativeQuery<?> delete = createUpdate(
+                    String.format("delete from %s where %s = :%s and %s = :%s", getTableName(session), DATASET,
+                            DATASET, RESOLUTION, RESOLUTION) + getBucketRange(from, to), session);
+            setBucketRange(delete.setParameter(DATASET, dataset.getId()).setParameter(RESOLUTION, resolution), from,
+                    to).executeUpdate();
+            TemporalAggregator aggregator = new TemporalAggregator(aggregation);
+            valueDAO.aggregate(dataset.getId(), valueClass,
+                    from != null ? new Date(aggregation.getBucketStart(from)) : null,
+                    to != null ? new Date(aggregation.getBucketEnd(to)) : null, aggregator, session);
+            for (Bucket bucket : aggregator.getBuckets()) {
+                if (bucket.getCount() > 0) {
+                    insert(dataset.getId(), resolution, bucket.getBucket(), bucket.getMin(), bucket.getMax(),
+                            bucket.getSum(), bucket.getCount(), session);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuild all rollups of the dataset from the observations and mark them
+     * as complete.
+     *
+     * @param dataset
+     *            the dataset
+     * @param session
+     *            Hibernate session
+     */
+    public void backfill(DatasetEntity dataset, Session session) {
+        if (dataset == null || !isAvailable(session)) {
+            return;
+        }
+        invalidate(Collections.singleton(dataset.getId()), session);
+        rebuild(dataset, null, null, session);
+        insert(dataset.getId(), COMPLETE, 0L, null, null, 0.0, 0L, session);
+    }
+
+    /**
+     * Remove the rollups of the datasets. They are not read until they are
+     * {@link #backfill(DatasetEntity, Session) backfilled} again.
+     *
+     * @param datasets
+     *            the dataset ids
+     * @param session
+     *            Hibernate session
+     */
+    public void invalidate(Collection<Long> datasets, Session session) {
+        if (datasets.isEmpty() || !isAvailable(session)) {
+            return;
+        }
+        for (List<Long> partition : Lists.partition(new ArrayList<>(datasets),
+                HibernateConstants.LIMIT_EXPRESSION_DEPTH)) {
+            createUpdate(String.format("delete from %s where %s in (:%s)", getTableName(session), DATASET, DATASET),
+                    session).setParameterList(DATASET, partition).executeUpdate();
+        }
+    }
+
+    /**
+     * @param dataset
+     *            the dataset id
+     * @param session
+     *            Hibernate session
+     * @return if the rollups of the dataset were backfilled and can be read
+     */
+    public boolean isComplete(long dataset, Session session) {
+        if (!isAvailable(session)) {
+            return false;
+        }
+        Number count = (Number) session.createNativeQuery(String.format(
+                "select count(*) from %s where %s = :%s and %s = :%s", getTableName(session), DATASET, DATASET,
+                RESOLUTION, RESOLUTION)).setParameter(DATASET, dataset).setParameter(RESOLUTION, COMPLETE)
+                .uniqueResult();
+        return count != null && count.longValue() > 0;
+    }
+
+    /**
+     * Get the ids of the datasets whose rollups are complete.
+     *
+     * @param session
+     *            Hibernate session
+     * @return the dataset ids
+     */
+    @SuppressWarnings("unchecked")
+    public Set<Long> getCompleteDatasets(Session session) {
+        Set<Long> datasets = new HashSet<>();
+        if (isAvailable(session)) {
+            for (Object id : session.createNativeQuery(String.format("select %s from %s where %s = :%s", DATASET,
+                    getTableName(session), RESOLUTION, RESOLUTION)).setParameter(RESOLUTION, COMPLETE).list()) {
+                datasets.add(((Number) id).longValue());
+            }
+        }
+        return datasets;
+    }
+
+    /**
+     * Merge the rows of buckets that received observations since the last
+     * compaction into one row per bucket. The rows are marked before they are
+     * merged, so rows of observations inserted concurrently are kept. The
+     * datasets are locked in the order of their ids until the transaction
+     * ends.
+     *
+     * @param session
+     *            Hibernate session with an active transaction
+     * @param maxBuckets
+     *            maximum number of buckets to merge
+     * @return the number of merged buckets
+     */
+    @SuppressWarnings("unchecked")
+    public int compact(Session session, int maxBuckets) {
+        if (!isAvailable(session)) {
+            return 0;
+        }
+        String table = getTableName(session);
+        List<Object[]> rows = session.createNativeQuery(String.format(
+                "select %s, %s, %s from %s where %s > :%s group by %s, %s, %s having count(*) > 1 order by %s, %s, %s",
+                DATASET, RESOLUTION, BUCKET, table, RESOLUTION, RESOLUTION, DATASET, RESOLUTION, BUCKET, DATASET,
+                RESOLUTION, BUCKET))
+                .setParameter(RESOLUTION, COMPLETE).setMaxResults(maxBuckets).list();
+        Map<List<Long>, List<Long>> buckets = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            buckets.computeIfAbsent(Lists.newArrayList(((Number) row[0]).longValue(), ((Number) row[1]).longValue()),
+                    k -> new ArrayList<>()).add(((Number) row[2]).longValue());
+        }
+        String where = String.format(" where %s = :%s and %s = :%s and %s in (:%s) and %s = ", DATASET, DATASET,
+                RESOLUTION, RESOLUTION, BUCKET, BUCKETS, MERGING);
+        for (Map.Entry<List<Long>, List<Long>> entry : buckets.entrySet()) {
+            long dataset = entry.getKey().get(0);
+            long resolution = entry.getKey().get(1);
+            lock(dataset, session);
+            for (List<Long> partition : Lists.partition(entry.getValue(),
+                    HibernateConstants.LIMIT_EXPRESSION_DEPTH)) {
+                createUpdate(String.format("update %s set %s = 1", table, MERGING) + where + "0", session)
+                        .setParameter(DATASET, dataset).setParameter(RESOLUTION, resolution)
+                        .setParameterList(BUCKETS, partition).executeUpdate();
+                List<Object[]> merged = session.createNativeQuery(String.format(
+                        "select %s, min(%s), max(%s), sum(%s), sum(%s) from %s", BUCKET, MIN, MAX, SUM, COUNT, table)
+                        + where + "1 group by " + BUCKET).setParameter(DATASET, dataset)
+                        .setParameter(RESOLUTION, resolution).setParameterList(BUCKETS, partition).list();
+                createUpdate(String.format("delete from %s", table) + where + "1", session)
+                        .setParameter(DATASET, dataset).setParameter(RESOLUTION, resolution)
+                        .setParameterList(BUCKETS, partition).executeUpdate();
+                for (Object[] row : merged) {
+                    insert(dataset, resolution, ((Number) row[0]).longValue(), (Number) row[1], (Number) row[2],
+                            row[3] != null ? ((Number) row[3]).doubleValue() : 0.0, ((Number) row[4]).longValue(),
+                            session);
+                }
+            }
+        }
+        return rows.size();
+    }
+
+    /**
+     * Add the rollups of the dataset within the time range to the buckets of
+     * the aggregator. The start and end of the range have to be aligned to
+     * the resolution.
+     *
+     * @param dataset
+     *            the dataset id
+     * @param range
+     *            the resolution and time range
+     * @param aggregator
+     *            the aggregator, its interval has to be a multiple of the
+     *            resolution
+     * @param session
+     *            Hibernate session
+     */
+    @SuppressWarnings("unchecked")
+    public void aggregate(long dataset, Range range, TemporalAggregator aggregator, Session session) {
+        long resolution = range.getResolution();
+        long millis = resolution * MILLIS_PER_SECOND;
+        Long from = range.getStart() != null ? Math.floorDiv(range.getStart().getTime(), millis) : null;
+        Long to = range.getEnd() != null ? Math.floorDiv(range.getEnd().getTime(), millis) - 1 : null;
+        NativeQuery<Object[]> query = session.createNativeQuery(String.format(
+                "select %s, min(%s), max(%s), sum(%s), sum(%s) from %s where %s = :%s and %s = :%s", BUCKET, MIN, MAX,
+                SUM, COUNT, getTableName(session), DATASET, DATASET, RESOLUTION, RESOLUTION)
+                + getBucketRange(from, to) + " group by " + BUCKET);
+        setBucketRange(query.setParameter(DATASET, dataset).setParameter(RESOLUTION, resolution), from, to);
+        TemporalAggregation aggregation = aggregator.getAggregation();
+        for (Object[] row : query.list()) {
+            long bucket = ((Number) row[0]).longValue();
+            aggregator.add(aggregation.getBucket(bucket * millis), (Number) row[1], (Number) row[2],
+                    row[3] != null ? (Number) row[3] : 0.0, ((Number) row[4]).longValue());
+        }
+    }
+
+    /**
+     * Lock the row of the dataset. Appending to the rollups of a dataset
+     * waits until its buckets are rebuilt or merged and vice versa.
+     */
+    private void lock(long dataset, Session session) {
+        session.get(DatasetEntity.class, dataset, new LockOptions(LockMode.PESSIMISTIC_WRITE));
+    }
+
+    private void insert(long dataset, long resolution, long bucket, Number min, Number max, double sum, long count,
+            Session session) {
+        createUpdate(String.format(
+                "insert into %s (%s, %s, %s, %s, %s, %s, %s, %s) values (:%s, :%s, :%s, :%s, :%s, :%s, :%s, 0)",
+                getTableName(session), DATASET, RESOLUTION, BUCKET, MIN, MAX, SUM, COUNT, MERGING, DATASET,
+                RESOLUTION, BUCKET, MIN, MAX, SUM, COUNT), session).setParameter(DATASET, dataset)
+                .setParameter(RESOLUTION, resolution).setParameter(BUCKET, bucket)
+                .setParameter(MIN, min != null ? min.doubleValue() : null, DoubleType.INSTANCE)
+                .setParameter(MAX, max != null ? max.doubleValue() : null, DoubleType.INSTANCE)
+                .setParameter(SUM, sum).setParameter(COUNT, count).executeUpdate();
+    }
+
+    /**
+     * Create a modifying native query that is synchronized on the rollup table
+     * only. Without a query space Hibernate invalidates all second-level cache
+     * regions on execution.
+     */
+    private NativeQuery<?> createUpdate(String sql, Session session) {
+        return session.createNativeQuery(sql).addSynchronizedQuerySpace(getTableName(session));
+    }
+
+    private String getBucketRange(Long from, Long to) {
+        StringBuilder builder = new StringBuilder();
+        if (from != null) {
+            builder.append(String.format(" and %s >= :%s", BUCKET, FROM));
+        }
+        if (to != null) {
+            builder.append(String.format(" and %s <= :%s", BUCKET, TO));
+        }
+        return builder.toString();
+    }
+
+    private NativeQuery<?> setBucketRange(NativeQuery<?> query, Long from, Long to) {
+        if (from != null) {
+            query.setParameter(FROM, from);
+        }
+        if (to != null) {
+            query.setParameter(TO, to);
+        }
+        return query;
+    }
+
+    /**
+     * Get the name of the rollup table in the schema of the observation
+     * table.
+     */
+    private String getTableName(Session session) {
+        String schema = getSchema(session);
+        return schema != null ? schema + "." + TABLE : TABLE;
+    }
+
+    private String getSchema(Session session) {
+        ClassMetadata metadata = session.getSessionFactory()
+                .getClassMetadata(daoFactory.getSeriesDAO().getObservationFactory().observationClass());
+        if (metadata instanceof AbstractEntityPersister) {
+            String table = ((AbstractEntityPersister) metadata).getTableName();
+            int index = table.lastIndexOf('.');
+            if (index > 0) {
+                return table.substring(0, index);
+            }
+        }
+        return null;
+    }
+
+    private boolean exists(Connection connection, String schema) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String table = TABLE;
+        String schemaPattern = schema;
+        if (metaData.storesUpperCaseIdentifiers()) {
+            table = table.toUpperCase(Locale.ROOT);
+            schemaPattern = schema != null ? schema.toUpperCase(Locale.ROOT) : null;
+        } else if (metaData.storesLowerCaseIdentifiers() && schema != null) {
+            schemaPattern = schema.toLowerCase(Locale.ROOT);
+        }
+        try (ResultSet tables = metaData.getTables(null, schemaPattern, table, null)) {
+            return tables.next();
+        }
+    }
+
+    /**
+     * The resolution and time range of the rollups that are read for a
+     * temporal aggregation.
+     */
+    public static class Range {
+
+        private final long resolution;
+
+        private final Date start;
+
+        private final Date end;
+
+        /**
+         * @param resolution
+         *            the resolution in seconds
+         * @param start
+         *            the inclusive start or {@code null} if unbounded
+         * @param end
+         *            the exclusive end or {@code null} if unbounded
+         */
+        public Range(long resolution, Date start, Date end) {
+            this.resolution = resolution;
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getResolution() {
+            return resolution;
+        }
+
+        public Date getStart() {
+            return start;
+        }
+
+        public Date getEnd() {
+            return end;
+        }
+
+        /**
+         * @return if the rollups cover all observations
+         */
+        public boolean isUnbounded() {
+            return start == null && end == null;
+        }
+
+    }
+
+}
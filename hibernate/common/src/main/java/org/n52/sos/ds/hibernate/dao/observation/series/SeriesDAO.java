@@ -61,16 +61,7 @@ public class SeriesDAO extends AbstractSeriesDAO {
     @Override
     public List<DatasetEntity> getSeries(GetObservationRequest request, Collection<String> features, Session session)
             throws OwsExceptionReport {
-        List<DatasetEntity> series = new ArrayList<>();
-        if (CollectionHelper.isNotEmpty(features)) {
-            for (List<String> ids : QueryHelper.getListsForIdentifiers(features)) {
-                series.addAll(getSeriesSet(request, ids, session));
-            }
-
-        } else {
-            series.addAll(getSeriesSet(request, features, session));
-        }
-        return series;
+        return querySeries(request, features, session);
     }
 
     @SuppressWarnings("unchecked")
@@ -0,0 +1,406 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.Criteria;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.criterion.CriteriaQuery;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.TypedValue;
+import org.hibernate.type.AbstractSingleColumnStandardBasicType;
+import org.hibernate.type.IntegerType;
+import org.hibernate.type.descriptor.ValueBinder;
+import org.hibernate.type.descriptor.ValueExtractor;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.AbstractTypeDescriptor;
+import org.hibernate.type.descriptor.java.JavaTypeDescriptor;
+import org.hibernate.type.descriptor.sql.BasicBinder;
+import org.hibernate.type.descriptor.sql.SqlTypeDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Restriction of a property to a (possibly large) set of identifiers.
+ * Collections that exceed {@link HibernateConstants#LIMIT_EXPRESSION_DEPTH}
+ * are bound as a single array parameter on PostgreSQL and are written to a
+ * session scoped temporary table on H2 and MySQL, so that the query has to be
+ * executed only once. For other dialects no restriction is created and the
+ * caller has to fall back to chunked queries, see
+ * {@link QueryHelper#getListsForIdentifiers(Collection)}.
+ *
+ * Instances have to be closed after the restricted query was executed to
+ * release the temporary table rows:
+ *
+ * <pre>
+ * Optional&lt;IdentifierSetRestriction&gt; set = IdentifierSetRestriction.create(identifiers, session);
+ * if (set.isPresent()) {
+ *     try (IdentifierSetRestriction restriction = set.get()) {
+ *         criteria.add(restriction.restrict(FeatureEntity.IDENTIFIER));
+ *         return criteria.list();
+ *     }
+ * }
+ * </pre>
+ *
+ * @since 5.5.0
+ */
+public abstract class IdentifierSetRestriction implements AutoCloseable {
+
+    static final String TABLE = "sos_identifier_set";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdentifierSetRestriction.class);
+
+    private static final String SET_ID = "set_id";
+
+    private static final String STRING_VALUE = "string_value";
+
+    private static final String LONG_VALUE = "long_value";
+
+    private static final String COLUMNS = " (" + SET_ID + " integer not null, " + STRING_VALUE + " varchar(4000), "
+            + LONG_VALUE + " bigint)";
+
+    private static final AtomicInteger SET_IDS = new AtomicInteger();
+
+    /**
+     * The strategy used to restrict a property to a set of identifiers.
+     */
+    public enum Strategy {
+        /**
+         * A single <code>IN</code> list, used if the set does not exceed the
+         * expression limit.
+         */
+        IN_LIST,
+        /**
+         * A single array parameter (<code>= ANY(?)</code>).
+         */
+        ARRAY,
+        /**
+         * A sub query on a session scoped temporary table.
+         */
+        TEMPORARY_TABLE,
+        /**
+         * Not supported, the caller has to split the set into chunks.
+         */
+        CHUNKED;
+    }
+
+    /**
+     * Get the strategy to use for a set of the given size.
+     *
+     * @param size
+     *            the number of identifiers
+     * @param dialect
+     *            the dialect of the session
+     * @return the strategy
+     */
+    public static Strategy getStrategy(int size, Dialect dialect) {
+        if (size <= HibernateConstants.LIMIT_EXPRESSION_DEPTH) {
+            return Strategy.IN_LIST;
+        } else if (dialect instanceof PostgreSQL81Dialect) {
+            return Strategy.ARRAY;
+        } else if (dialect instanceof H2Dialect || dialect instanceof MySQLDialect) {
+            return Strategy.TEMPORARY_TABLE;
+        }
+        return Strategy.CHUNKED;
+    }
+
+    /**
+     * Create a restriction for the identifiers. The values have to be either
+     * all {@link String}s or all {@link Long}s.
+     *
+     * @param identifiers
+     *            the identifiers
+     * @param session
+     *            the session the restricted query is executed in
+     * @return the restriction or {@link Optional#empty()} if the identifiers
+     *         have to be queried in chunks
+     */
+    public static Optional<IdentifierSetRestriction> create(Collection<?> identifiers, Session session) {
+        switch (getStrategy(identifiers.size(), HibernateHelper.getDialect(session))) {
+            case IN_LIST:
+                return Optional.of(new InListRestriction(identifiers));
+            case ARRAY:
+                return Optional.of(new ArrayRestriction(identifiers));
+            case TEMPORARY_TABLE:
+                return Optional.of(new TemporaryTableRestriction(identifiers, session));
+            default:
+                return Optional.empty();
+        }
+    }
+
+    /**
+     * Create the criterion restricting the property to the identifiers.
+     *
+     * @param propertyName
+     *            the property
+     * @return the criterion
+     */
+    public abstract Criterion restrict(String propertyName);
+
+    @Override
+    public void close() {
+    }
+
+    private static boolean isNumeric(Collection<?> identifiers) {
+        return !identifiers.isEmpty() && identifiers.iterator().next() instanceof Number;
+    }
+
+    private static class InListRestriction extends IdentifierSetRestriction {
+        private final Collection<?> identifiers;
+
+        InListRestriction(Collection<?> identifiers) {
+            this.identifiers = identifiers;
+        }
+
+        @Override
+        public Criterion restrict(String propertyName) {
+            return Restrictions.in(propertyName, identifiers);
+        }
+    }
+
+    private static class ArrayRestriction extends IdentifierSetRestriction {
+        private final Object[] identifiers;
+        private final ArrayType type;
+
+        ArrayRestriction(Collection<?> identifiers) {
+            this.identifiers = identifiers.toArray();
+            this.type = new ArrayType(isNumeric(identifiers) ? "int8" : "varchar");
+        }
+
+        @Override
+        public Criterion restrict(String propertyName) {
+            return new SetCriterion(propertyName, " = any(?)", new TypedValue(type, identifiers));
+        }
+    }
+
+    private static class TemporaryTableRestriction extends IdentifierSetRestriction {
+        private final int id = SET_IDS.incrementAndGet();
+        private final Session session;
+        private final String column;
+
+        TemporaryTableRestriction(Collection<?> identifiers, Session session) {
+            this.session = session;
+            this.column = isNumeric(identifiers) ? LONG_VALUE : STRING_VALUE;
+            String ddl = HibernateHelper.getDialect(session) instanceof H2Dialect
+                    ? "create local temporary table if not exists " + TABLE + COLUMNS + " transactional"
+                    : "create temporary table if not exists " + TABLE + COLUMNS;
+            String insert = "insert into " + TABLE + " (" + SET_ID + ", " + column + ") values (?, ?)";
+            session.doWork(connection -> {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute(ddl);
+                }
+                try (PreparedStatement stmt = connection.prepareStatement(insert)) {
+                    for (List<?> chunk : Lists.partition(Lists.newArrayList(identifiers),
+                            HibernateConstants.LIMIT_EXPRESSION_DEPTH)) {
+                        for (Object identifier : chunk) {
+                            stmt.setInt(1, id);
+                            stmt.setObject(2, identifier);
+                            stmt.addBatch();
+                        }
+                        stmt.executeBatch();
+                    }
+                }
+            });
+            LOGGER.trace("Inserted {} identifiers as set {} into {}", identifiers.size(), id, TABLE);
+        }
+
+        @Override
+        public Criterion restrict(String propertyName) {
+            return new SetCriterion(propertyName,
+                    " in (select " + column + " from " + TABLE + " where " + SET_ID + " = ?)",
+                    new TypedValue(IntegerType.INSTANCE, id));
+        }
+
+        @Override
+        public void close() {
+            if (session.isOpen()) {
+                session.doWork(connection -> {
+                    try (PreparedStatement stmt =
+                            connection.prepareStatement("delete from " + TABLE + " where " + SET_ID + " = ?")) {
+                        stmt.setInt(1, id);
+                        stmt.executeUpdate();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Criterion that appends a SQL fragment with a single parameter to the
+     * column of the property.
+     */
+    private static class SetCriterion implements Criterion {
+        private static final long serialVersionUID = 3573683395471049226L;
+        private final String propertyName;
+        private final String fragment;
+        private final TypedValue value;
+
+        SetCriterion(String propertyName, String fragment, TypedValue value) {
+            this.propertyName = propertyName;
+            this.fragment = fragment;
+            this.value = value;
+        }
+
+        @Override
+        public String toSqlString(Criteria criteria, CriteriaQuery criteriaQuery) throws HibernateException {
+            String[] columns = criteriaQuery.getColumnsUsingProjection(criteria, propertyName);
+            if (columns.length != 1) {
+                throw new HibernateException(
+                        "Identifier set restrictions may only be used with single column properties");
+            }
+            return columns[0] + fragment;
+        }
+
+        @Override
+        public TypedValue[] getTypedValues(Criteria criteria, CriteriaQuery criteriaQuery) throws HibernateException {
+            return new TypedValue[] { value };
+        }
+
+        @Override
+        public String toString() {
+            return propertyName + fragment;
+        }
+    }
+
+    /**
+     * Type binding an {@code Object[]} as JDBC array of the given element
+     * type.
+     */
+    private static class ArrayType extends AbstractSingleColumnStandardBasicType<Object[]> {
+        private static final long serialVersionUID = -2452307471596498567L;
+
+        ArrayType(String elementType) {
+            super(new ArraySqlTypeDescriptor(elementType), ArrayTypeDescriptor.INSTANCE);
+        }
+
+        @Override
+        public String getName() {
+            return "identifier_array";
+        }
+    }
+
+    private static class ArraySqlTypeDescriptor implements SqlTypeDescriptor {
+        private static final long serialVersionUID = -2870466536962698633L;
+        private final String elementType;
+
+        ArraySqlTypeDescriptor(String elementType) {
+            this.elementType = elementType;
+        }
+
+        @Override
+        public int getSqlType() {
+            return Types.ARRAY;
+        }
+
+        @Override
+        public boolean canBeRemapped() {
+            return false;
+        }
+
+        @Override
+        public <X> ValueBinder<X> getBinder(JavaTypeDescriptor<X> javaTypeDescriptor) {
+            return new BasicBinder<X>(javaTypeDescriptor, this) {
+                @Override
+                protected void doBind(PreparedStatement st, X value, int index, WrapperOptions options)
+                        throws SQLException {
+                    st.setArray(index, st.getConnection().createArrayOf(elementType,
+                            javaTypeDescriptor.unwrap(value, Object[].class, options)));
+                }
+
+                @Override
+                protected void doBind(CallableStatement st, X value, String name, WrapperOptions options)
+                        throws SQLException {
+                    throw new UnsupportedOperationException("Arrays can not be bound by name");
+                }
+            };
+        }
+
+        @Override
+        public <X> ValueExtractor<X> getExtractor(JavaTypeDescriptor<X> javaTypeDescriptor) {
+            throw new UnsupportedOperationException("Identifier arrays are only bound as parameters");
+        }
+    }
+
+    private static class ArrayTypeDescriptor extends AbstractTypeDescriptor<Object[]> {
+        static final ArrayTypeDescriptor INSTANCE = new ArrayTypeDescriptor();
+        private static final long serialVersionUID = 6166924394498587137L;
+
+        ArrayTypeDescriptor() {
+            super(Object[].class);
+        }
+
+        @Override
+        public boolean areEqual(Object[] one, Object[] another) {
+            return Arrays.equals(one, another);
+        }
+
+        @Override
+        public int extractHashCode(Object[] value) {
+            return Arrays.hashCode(value);
+        }
+
+        @Override
+        public String toString(Object[] value) {
+            return Arrays.toString(value);
+        }
+
+        @Override
+        public Object[] fromString(String string) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <X> X unwrap(Object[] value, Class<X> type, WrapperOptions options) {
+            return (X) value;
+        }
+
+        @Override
+        public <X> Object[] wrap(X value, WrapperOptions options) {
+            return (Object[]) value;
+        }
+    }
+}
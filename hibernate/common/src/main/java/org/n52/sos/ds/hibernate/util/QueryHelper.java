@@ -217,20 +217,12 @@ public final class QueryHelper {
      */
     public static Criterion getCriterionForObjects(String propertyName, Collection<?> identifiers) {
         if (identifiers.size() >= LIMIT_EXPRESSION_DEPTH) {
-            List<?> identifiersList = Lists.newArrayList(identifiers);
             Criterion criterion = null;
-            List<Object> ids = null;
-            for (int i = 0; i < identifiersList.size(); i++) {
-                if (i == 0 || i % (LIMIT_EXPRESSION_DEPTH - 1) == 0) {
-                    if (criterion == null && i != 0) {
-                        criterion = Restrictions.in(propertyName, ids);
-                    } else if (criterion != null) {
-                        criterion = Restrictions.or(criterion, Restrictions.in(propertyName, ids));
-                    }
-                    ids = Lists.newArrayList();
-                    ids.add(identifiersList.get(i));
+            for (List<?> ids : Lists.partition(Lists.newArrayList(identifiers), LIMIT_EXPRESSION_DEPTH - 1)) {
+                if (criterion == null) {
+                    criterion = Restrictions.in(propertyName, ids);
                 } else {
-                    ids.add(identifiersList.get(i));
+                    criterion = Restrictions.or(criterion, Restrictions.in(propertyName, ids));
                 }
             }
             return criterion;
@@ -248,24 +240,12 @@ public final class QueryHelper {
      * @return The splitted identifiers
      */
     public static List<List<String>> getListsForIdentifiers(Collection<String> identifiers) {
-        List<List<String>> list = new ArrayList<>();
         List<String> identifiersList = Lists.newArrayList(identifiers);
         if (identifiers.size() >= LIMIT_EXPRESSION_DEPTH) {
-            List<String> ids = null;
-            for (int i = 0; i < identifiersList.size(); i++) {
-                if (i == 0 || i % (LIMIT_EXPRESSION_DEPTH - 1) == 0) {
-                    if (i != 0) {
-                        list.add(ids);
-                    }
-                    ids = Lists.newArrayList();
-                    ids.add(identifiersList.get(i));
-                } else {
-                    ids.add(identifiersList.get(i));
-                }
-            }
-        } else {
-            list.add(identifiersList);
+            return new ArrayList<>(Lists.partition(identifiersList, LIMIT_EXPRESSION_DEPTH - 1));
         }
+        List<List<String>> list = new ArrayList<>();
+        list.add(identifiersList);
         return list;
     }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.hibernate.Session;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.event.events.UpdateCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Evicts the second-level cache of the reference entities if a complete cache
+ * update is requested, e.g. after the datasource was cleared or modified
+ * outside of Hibernate. Changes made through Hibernate sessions or HQL bulk
+ * statements are synchronized by the read-write regions themselves.
+ *
+ * @since 5.5.0
+ */
+public class ReferenceEntityCacheEvictor implements EventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReferenceEntityCacheEvictor.class);
+
+    private static final Set<Class<? extends Event>> TYPES = Collections.singleton(UpdateCache.class);
+
+    private HibernateSessionHolder sessionHolder;
+
+    @Inject
+    public void setConnectionProvider(ConnectionProvider connectionProvider) {
+        this.sessionHolder = new HibernateSessionHolder(connectionProvider);
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return TYPES;
+    }
+
+    @Override
+    public void handle(Event event) {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            LOGGER.debug("Evicting reference entity cache after {}", event.getClass().getSimpleName());
+            ReferenceEntityCache.evict(session.getSessionFactory());
+        } catch (OwsExceptionReport e) {
+            LOGGER.warn("Error while evicting the reference entity cache", e);
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.HibernateCriterionHelper;
+import org.hibernate.criterion.Restrictions;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.dataset.ObservationType;
+import org.n52.shetland.ogc.filter.BinaryLogicFilter;
+import org.n52.shetland.ogc.filter.ComparisonFilter;
+import org.n52.shetland.ogc.filter.Filter;
+import org.n52.shetland.ogc.filter.FilterConstants;
+import org.n52.shetland.ogc.ows.exception.CodedException;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.sos.ResultFilterConstants;
+import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions.SubQueryIdentifier;
+
+/**
+ * Compiles a result filter into a single {@link Criterion} on the value
+ * property of a typed value class, e.g. {@code value > 5} for
+ * {@link org.n52.series.db.beans.QuantityDataEntity}. In contrast to the
+ * {@link ResultFilterRestrictions} no subqueries are created, so the filter can
+ * be evaluated directly on the value column of the queried rows.
+ *
+ * Only simple value classes (numeric, count, text and category) are supported,
+ * the values of complex and profile observations still require the subqueries
+ * of the {@link ResultFilterRestrictions}.
+ *
+ * @since 5.5.0
+ */
+public class ResultFilterPlanner {
+
+    private final ResultFilterClasses resultFilterClasses;
+
+    public ResultFilterPlanner(ResultFilterClasses resultFilterClasses) {
+        this.resultFilterClasses = resultFilterClasses;
+    }
+
+    /**
+     * Get the value class of the observations of the dataset.
+     *
+     * @param dataset
+     *            the dataset
+     * @return the value class or {@code null} if result filtering is not
+     *         supported for the values of the dataset
+     */
+    public Class<?> getValueClass(DatasetEntity dataset) {
+        if (ObservationType.profile.equals(dataset.getObservationType())) {
+            return resultFilterClasses.getProfile();
+        }
+        if (dataset.getValueType() == null) {
+            return null;
+        }
+        switch (dataset.getValueType()) {
+            case quantity:
+                return resultFilterClasses.getNumeric();
+            case count:
+                return resultFilterClasses.getCount();
+            case text:
+                return resultFilterClasses.getText();
+            case category:
+                return resultFilterClasses.getCategory();
+            case complex:
+                return resultFilterClasses.getComplex();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Check if filters on the value class can be compiled.
+     *
+     * @param valueClass
+     *            the value class
+     * @return {@code true} if {@link #compile(Filter, Class)} supports the
+     *         value class
+     */
+    public boolean isSupported(Class<?> valueClass) {
+        return getKind(valueClass) != null;
+    }
+
+    /**
+     * Get the subquery identifier for value classes that are not supported by
+     * {@link #compile(Filter, Class)}.
+     *
+     * @param valueClass
+     *            the value class
+     * @return the subquery identifier or {@code null} if result filtering is
+     *         not supported for the value class
+     */
+    public SubQueryIdentifier getSubQueryIdentifier(Class<?> valueClass) {
+        if (isAssignable(resultFilterClasses.getProfile(), valueClass)) {
+            return SubQueryIdentifier.Profile;
+        } else if (isAssignable(resultFilterClasses.getComplex(), valueClass)) {
+            return SubQueryIdentifier.Complex;
+        }
+        return null;
+    }
+
+    /**
+     * Compile the result filter for the value class.
+     *
+     * @param filter
+     *            the result filter
+     * @param valueClass
+     *            the value class
+     * @return the criterion or {@link Optional#empty()} if no value of the
+     *         value class can match the filter
+     * @throws CodedException
+     *             If the filter is invalid or not supported
+     */
+    public Optional<Criterion> compile(Filter<?> filter, Class<?> valueClass) throws CodedException {
+        Kind kind = getKind(valueClass);
+        if (kind == null) {
+            throw new NoApplicableCodeException().withMessage("Result filtering of %s values is not supported!",
+                    valueClass == null ? null : valueClass.getSimpleName());
+        }
+        return compile(filter, kind);
+    }
+
+    private Optional<Criterion> compile(Filter<?> filter, Kind kind) throws CodedException {
+        if (filter instanceof ComparisonFilter) {
+            return compile((ComparisonFilter) filter, kind);
+        } else if (filter instanceof BinaryLogicFilter) {
+            BinaryLogicFilter binaryLogicFilter = (BinaryLogicFilter) filter;
+            List<Criterion> criteria = new ArrayList<>();
+            for (Filter<?> predicate : binaryLogicFilter.getFilterPredicates()) {
+                Optional<Criterion> criterion = compile(predicate, kind);
+                if (criterion.isPresent()) {
+                    criteria.add(criterion.get());
+                } else if (binaryLogicFilter.getOperator() == FilterConstants.BinaryLogicOperator.And) {
+                    return Optional.empty();
+                }
+            }
+            switch (binaryLogicFilter.getOperator()) {
+                case And:
+                    return Optional.of(Restrictions.and(criteria.toArray(new Criterion[0])));
+                case Or:
+                    return criteria.isEmpty() ? Optional.empty()
+                            : Optional.of(Restrictions.or(criteria.toArray(new Criterion[0])));
+                default:
+                    throw new NoApplicableCodeException().withMessage("BinaryLogicalOpserator '%s' is not supported!",
+                            binaryLogicFilter.getOperator().name());
+            }
+        }
+        throw new NoApplicableCodeException().withMessage("The result filter %s is not supported!", filter);
+    }
+
+    private Optional<Criterion> compile(ComparisonFilter filter, Kind kind) throws CodedException {
+        String value = filter.getValue();
+        switch (filter.getOperator()) {
+            case PropertyIsEqualTo:
+                if (kind == Kind.TEXT) {
+                    return isNumeric(value) || isCount(value) ? Optional.empty()
+                            : Optional.of(Restrictions.eq(DataEntity.PROPERTY_VALUE, value));
+                }
+                return toValue(value, kind).map(v -> Restrictions.eq(DataEntity.PROPERTY_VALUE, v));
+            case PropertyIsBetween:
+                checkNumeric(value);
+                Optional<Object> lower = toValue(value, kind);
+                Optional<Object> upper = toValue(filter.getValueUpper(), kind);
+                return lower.isPresent() && upper.isPresent()
+                        ? Optional.of(Restrictions.between(DataEntity.PROPERTY_VALUE, lower.get(), upper.get()))
+                        : Optional.empty();
+            case PropertyIsGreaterThan:
+                checkNumeric(value);
+                return toValue(value, kind).map(v -> Restrictions.gt(DataEntity.PROPERTY_VALUE, v));
+            case PropertyIsGreaterThanOrEqualTo:
+                checkNumeric(value);
+                return toValue(value, kind).map(v -> Restrictions.ge(DataEntity.PROPERTY_VALUE, v));
+            case PropertyIsLessThan:
+                checkNumeric(value);
+                return toValue(value, kind).map(v -> Restrictions.lt(DataEntity.PROPERTY_VALUE, v));
+            case PropertyIsLessThanOrEqualTo:
+                checkNumeric(value);
+                return toValue(value, kind).map(v -> Restrictions.le(DataEntity.PROPERTY_VALUE, v));
+            case PropertyIsLike:
+                return kind == Kind.TEXT ? Optional.of(getLikeExpression(filter)) : Optional.empty();
+            default:
+                throw new InvalidParameterValueException(ResultFilterConstants.RESULT_FILTER + ".operator",
+                        filter.getOperator().toString());
+        }
+    }
+
+    private Criterion getLikeExpression(ComparisonFilter filter) {
+        String value = filter.getValue();
+        if (filter.getSingleChar() != null) {
+            value = value.replace(filter.getSingleChar(), "_");
+        }
+        if (filter.getWildCard() != null) {
+            value = value.replace(filter.getWildCard(), "%");
+        }
+        return HibernateCriterionHelper.getLikeExpression(DataEntity.PROPERTY_VALUE, value, filter.getEscapeString(),
+                filter.isMatchCase());
+    }
+
+    private Optional<Object> toValue(String value, Kind kind) {
+        switch (kind) {
+            case NUMERIC:
+                return isNumeric(value) ? Optional.of(new BigDecimal(value)) : Optional.empty();
+            case COUNT:
+                return isCount(value) ? Optional.of(Integer.parseInt(value)) : Optional.empty();
+            default:
+                return Optional.empty();
+        }
+    }
+
+    private void checkNumeric(String value) throws NoApplicableCodeException {
+        if (!isNumeric(value) && !isCount(value)) {
+            throw new NoApplicableCodeException();
+        }
+    }
+
+    private Kind getKind(Class<?> valueClass) {
+        if (valueClass == null) {
+            return null;
+        } else if (isAssignable(resultFilterClasses.getNumeric(), valueClass)) {
+            return Kind.NUMERIC;
+        } else if (isAssignable(resultFilterClasses.getCount(), valueClass)) {
+            return Kind.COUNT;
+        } else if (isAssignable(resultFilterClasses.getText(), valueClass)
+                || isAssignable(resultFilterClasses.getCategory(), valueClass)) {
+            return Kind.TEXT;
+        }
+        return null;
+    }
+
+    private static boolean isAssignable(Class<?> supported, Class<?> valueClass) {
+        return supported != null && valueClass != null && supported.isAssignableFrom(valueClass);
+    }
+
+    private static boolean isNumeric(String value) {
+        try {
+            Double.parseDouble(value);
+        } catch (NumberFormatException | NullPointerException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isCount(String value) {
+        try {
+            Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private enum Kind {
+        NUMERIC, COUNT, TEXT;
+    }
+
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.Oracle8iDialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.n52.sos.request.TemporalAggregation;
+
+/**
+ * Collects the values of a series into the buckets of a
+ * {@link TemporalAggregation}. The buckets are either filled value by value
+ * (Java fallback) or with the results of a SQL {@code GROUP BY} on the bucket
+ * expression of {@link #getEpochSeconds(Dialect, String)}.
+ *
+ * @since 5.5.0
+ */
+public class TemporalAggregator {
+
+    private final TemporalAggregation aggregation;
+
+    private final Map<Long, Bucket> buckets = new TreeMap<>();
+
+    public TemporalAggregator(TemporalAggregation aggregation) {
+        this.aggregation = aggregation;
+    }
+
+    public TemporalAggregation getAggregation() {
+        return aggregation;
+    }
+
+    /**
+     * Add a value. The values do not have to be ordered by time.
+     *
+     * @param phenomenonTimeStart
+     *            the phenomenon time start of the value
+     * @param value
+     *            the value, may be {@code null}
+     */
+    public void add(Date phenomenonTimeStart, Number value) {
+        long time = phenomenonTimeStart.getTime();
+        buckets.computeIfAbsent(aggregation.getBucket(time), Bucket::new).add(time, value);
+    }
+
+    /**
+     * Add the aggregates of a part of a bucket, e.g. from a {@code GROUP BY}
+     * in the database or a rollup. The parts of a bucket are merged.
+     *
+     * @param bucket
+     *            the bucket
+     * @param min
+     *            the minimum value
+     * @param max
+     *            the maximum value
+     * @param sum
+     *            the sum of the values
+     * @param count
+     *            the number of values
+     */
+    public void add(long bucket, Number min, Number max, Number sum, long count) {
+        buckets.computeIfAbsent(bucket, Bucket::new).merge(min, max, sum, count);
+    }
+
+    /**
+     * @return the buckets ordered by time
+     */
+    public List<Bucket> getBuckets() {
+        return Collections.unmodifiableList(new ArrayList<>(buckets.values()));
+    }
+
+    /**
+     * Get the SQL expression for the seconds since 1970-01-01T00:00:00 of the
+     * timestamp column.
+     *
+     * @param dialect
+     *            the dialect
+     * @param column
+     *            the qualified timestamp column
+     * @return the expression or {@code null} if the dialect is not supported
+     */
+    public static String getEpochSeconds(Dialect dialect, String column) {
+        if (dialect instanceof PostgreSQL81Dialect) {
+            return String.format("extract(epoch from %s)", column);
+        } else if (dialect instanceof H2Dialect) {
+            return String.format("datediff('SECOND', timestamp '1970-01-01 00:00:00', %s)", column);
+        } else if (dialect instanceof MySQLDialect) {
+            return String.format("unix_timestamp(%s)", column);
+        } else if (dialect instanceof Oracle8iDialect) {
+            return String.format("((cast(%s as date) - date '1970-01-01') * 86400)", column);
+        }
+        return null;
+    }
+
+    /**
+     * Get the SQL expression for the bucket of the timestamp column.
+     *
+     * @param dialect
+     *            the dialect
+     * @param column
+     *            the qualified timestamp column
+     * @return the expression or {@code null} if the dialect is not supported
+     */
+    public String getBucketExpression(Dialect dialect, String column) {
+        String epochSeconds = getEpochSeconds(dialect, column);
+        if (epochSeconds == null) {
+            return null;
+        }
+        return String.format("floor((%s) / %d.0)", epochSeconds, aggregation.getInterval());
+    }
+
+    /**
+     * The values of one bucket.
+     */
+    public final class Bucket {
+
+        private final long bucket;
+
+        private long firstTime = Long.MAX_VALUE;
+
+        private long lastTime = Long.MIN_VALUE;
+
+        private Number first;
+
+        private Number last;
+
+        private Number min;
+
+        private Number max;
+
+        private double sum;
+
+        private long count;
+
+        private Bucket(long bucket) {
+            this.bucket = bucket;
+        }
+
+        private void add(long time, Number value) {
+            if (time < firstTime) {
+                firstTime = time;
+                first = value;
+            }
+            if (time >= lastTime) {
+                lastTime = time;
+                last = value;
+            }
+            if (value != null) {
+                merge(value, value, value, 1);
+            }
+        }
+
+        private void merge(Number min, Number max, Number sum, long count) {
+            if (count <= 0) {
+                return;
+            }
+            if (this.min == null || min.doubleValue() < this.min.doubleValue()) {
+                this.min = min;
+            }
+            if (this.max == null || max.doubleValue() > this.max.doubleValue()) {
+                this.max = max;
+            }
+            this.sum += sum.doubleValue();
+            this.count += count;
+        }
+
+        /**
+         * @return the bucket number
+         */
+        public long getBucket() {
+            return bucket;
+        }
+
+        /**
+         * @return the minimum value or {@code null}
+         */
+        public Number getMin() {
+            return min;
+        }
+
+        /**
+         * @return the maximum value or {@code null}
+         */
+        public Number getMax() {
+            return max;
+        }
+
+        /**
+         * @return the sum of the values
+         */
+        public double getSum() {
+            return sum;
+        }
+
+        /**
+         * @return the number of values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the inclusive start of the bucket
+         */
+        public Date getStart() {
+            return new Date(aggregation.getBucketStart(bucket));
+        }
+
+        /**
+         * @return the exclusive end of the bucket
+         */
+        public Date getEnd() {
+            return new Date(aggregation.getBucketEnd(bucket));
+        }
+
+        /**
+         * Get the values of the aggregation function, two values for
+         * {@link TemporalAggregation.Function#ENVELOPE}, otherwise one.
+         *
+         * @return the aggregated values, may contain {@code null} if the
+         *         bucket only contains {@code null} values
+         */
+        public List<Number> getValues() {
+            switch (aggregation.getFunction()) {
+                case MIN:
+                    return Collections.singletonList(min);
+                case MAX:
+                    return Collections.singletonList(max);
+                case MEAN:
+                    return Collections.singletonList(count > 0 ? sum / count : null);
+                case FIRST:
+                    return Collections.singletonList(first);
+                case LAST:
+                    return Collections.singletonList(last);
+                case COUNT:
+                    return Collections.singletonList(count);
+                case ENVELOPE:
+                    return Arrays.asList(min, max);
+                default:
+                    throw new IllegalStateException("Unknown aggregation function " + aggregation.getFunction());
+            }
+        }
+
+    }
+
+}
@@ -29,6 +29,7 @@ package org.n52.sos.ds.hibernate.util.observation;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -72,6 +73,7 @@ import org.n52.sos.ds.I18nNameDescriptionAdder;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.ProcedureDAO;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.ds.hibernate.util.observation.ObservationCreatorMemo.Kind;
 import org.n52.sos.ds.hibernate.util.procedure.generator.HibernateProcedureDescriptionGeneratorFactoryRepository;
 import org.n52.sos.service.profile.Profile;
 import org.n52.sos.util.GeometryHandler;
@@ -105,6 +107,8 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
 
     private final OmObservationCreatorContext creatorContext;
 
+    private final ObservationCreatorMemo memo;
+
     public AbstractOmObservationCreator(AbstractObservationRequest request, Locale i18n, String pdf,
             OmObservationCreatorContext creatorContext, Session session) {
         this.creatorContext = creatorContext;
@@ -112,6 +116,7 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
         this.session = session;
         this.i18n = i18n == null ? creatorContext.getDefaultLanguage() : i18n;
         this.pdf = pdf;
+        this.memo = creatorContext.getMemo(request);
     }
 
     protected OmObservationCreatorContext getCreatorContext() {
@@ -240,8 +245,31 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
         return new SpatialFilteringProfileCreator(getGeometryHandler()).create(samplingGeometry);
     }
 
+    /**
+     * Create the observable property. The returned object is a copy of the
+     * memoized one and can be modified, e.g. by setting the unit.
+     *
+     * @param observableProperty
+     *            the observable property entity
+     * @return the observable property
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
     protected OmObservableProperty createObservableProperty(PhenomenonEntity observableProperty)
             throws OwsExceptionReport {
+        OmObservableProperty memoized = memoizeWithoutConversion(Kind.OBSERVABLE_PROPERTY,
+                observableProperty.getIdentifier(), () -> buildObservableProperty(observableProperty));
+        OmObservableProperty omObservableProperty = new OmObservableProperty(memoized.getIdentifier(),
+                memoized.getDescription(), memoized.getUnit(), memoized.getValueType());
+        if (memoized.isSetName()) {
+            memoized.getName().forEach(omObservableProperty::addName);
+        }
+        omObservableProperty.setHumanReadableIdentifier(memoized.getHumanReadableIdentifier());
+        return omObservableProperty;
+    }
+
+    private OmObservableProperty buildObservableProperty(PhenomenonEntity observableProperty)
+            throws OwsExceptionReport {
         String phenID = observableProperty.getIdentifier();
         String description = observableProperty.getDescription();
         OmObservableProperty omObservableProperty = new OmObservableProperty(phenID, description, null, null);
@@ -274,7 +302,8 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
      */
     protected SosProcedureDescription<?> createProcedure(String identifier)
             throws ConverterException, OwsExceptionReport {
-        return createProcedure(new ProcedureDAO(getDaoFactory()).getProcedureForIdentifier(identifier, getSession()));
+        return memoize(Kind.PROCEDURE, identifier, () -> createProcedure(
+                new ProcedureDAO(getDaoFactory()).getProcedureForIdentifier(identifier, getSession())));
     }
 
     /**
@@ -291,6 +320,11 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
      */
     protected SosProcedureDescription<?> createProcedure(ProcedureEntity hProcedure)
             throws ConverterException, OwsExceptionReport {
+        return memoize(Kind.PROCEDURE, hProcedure.getIdentifier(), () -> buildProcedure(hProcedure));
+    }
+
+    private SosProcedureDescription<?> buildProcedure(ProcedureEntity hProcedure)
+            throws ConverterException, OwsExceptionReport {
         // Procedure hProcedure =
         // getDaoFactory().getProcedureDAO().getProcedureForIdentifier(identifier,
         // getSession());
@@ -352,6 +386,10 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
      *             If an error occurs
      */
     protected AbstractFeature createFeatureOfInterest(AbstractFeatureEntity foi) throws OwsExceptionReport {
+        return memoizeWithoutConversion(Kind.FEATURE, foi.getIdentifier(), () -> buildFeatureOfInterest(foi));
+    }
+
+    private AbstractFeature buildFeatureOfInterest(AbstractFeatureEntity foi) throws OwsExceptionReport {
         FeatureQueryHandlerQueryObject queryObject = new FeatureQueryHandlerQueryObject(getSession());
         queryObject.setFeatureObject(foi).addFeatureIdentifier(foi.getIdentifier()).setVersion(getVersion());
         if (getRequest().isSetRequestedLanguage()) {
@@ -436,27 +474,85 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
     protected String queryUnit(DatasetEntity series) {
         if (series.hasUnit()) {
             return series.getUnit().getUnit();
-        } else if (HibernateHelper.isNamedQuerySupported(SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_PROCEDURE_SERIES,
+        }
+        return queryUnit(series.getObservableProperty().getIdentifier(), series.getProcedure().getIdentifier());
+    }
+
+    /**
+     * Query the unit of the observable property and procedure with the
+     * supported named query. The result is memoized per request.
+     *
+     * @param observableProperty
+     *            the observable property identifier
+     * @param procedure
+     *            the procedure identifier
+     * @return the unit or {@code null}
+     */
+    protected String queryUnit(String observableProperty, String procedure) {
+        try {
+            return memoize(Kind.UNIT, Arrays.asList(observableProperty, procedure),
+                    () -> queryUnitWithNamedQuery(observableProperty, procedure));
+        } catch (OwsExceptionReport | ConverterException e) {
+            // the loader does not throw checked exceptions
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String queryUnitWithNamedQuery(String observableProperty, String procedure) {
+        if (HibernateHelper.isNamedQuerySupported(SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_PROCEDURE_SERIES,
                 getSession())) {
             Query namedQuery = getSession().getNamedQuery(SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_PROCEDURE_SERIES);
-            namedQuery.setParameter(DatasetEntity.PROPERTY_PHENOMENON, series.getObservableProperty().getIdentifier());
-            namedQuery.setParameter(DatasetEntity.PROPERTY_PROCEDURE, series.getProcedure().getIdentifier());
-            LOGGER.debug("QUERY queryUnit({}, {}) with NamedQuery '{}': {}",
-                    series.getObservableProperty().getIdentifier(), series.getProcedure().getIdentifier(),
+            namedQuery.setParameter(DatasetEntity.PROPERTY_PHENOMENON, observableProperty);
+            namedQuery.setParameter(DatasetEntity.PROPERTY_PROCEDURE, procedure);
+            LOGGER.debug("QUERY queryUnit({}, {}) with NamedQuery '{}': {}", observableProperty, procedure,
                     SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_PROCEDURE_SERIES, namedQuery.getQueryString());
             return (String) namedQuery.uniqueResult();
         } else if (HibernateHelper.isNamedQuerySupported(SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_SERIES,
                 getSession())) {
             Query namedQuery = getSession().getNamedQuery(SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_SERIES);
-            namedQuery.setParameter(DatasetEntity.PROPERTY_PHENOMENON, series.getObservableProperty().getIdentifier());
-            LOGGER.debug("QUERY queryUnit({}) with NamedQuery '{}': {}",
-                    series.getObservableProperty().getIdentifier(), SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_SERIES,
-                    namedQuery.getQueryString());
+            namedQuery.setParameter(DatasetEntity.PROPERTY_PHENOMENON, observableProperty);
+            LOGGER.debug("QUERY queryUnit({}) with NamedQuery '{}': {}", observableProperty,
+                    SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_SERIES, namedQuery.getQueryString());
             return (String) namedQuery.uniqueResult();
         }
         return null;
     }
 
+    /**
+     * Get the memoized value or build it. The key contains everything the
+     * built value depends on besides the entity identifier, so that the
+     * values can be shared by the cross-request
+     * {@link ObservationCreatorCache}.
+     *
+     * @param kind
+     *            the kind of the value
+     * @param id
+     *            the entity identifier
+     * @param loader
+     *            the loader
+     * @param <T>
+     *            the value type
+     * @return the value
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     * @throws ConverterException
+     *             If an error occurs
+     */
+    protected <T> T memoize(Kind kind, Object id, ObservationCreatorMemo.Loader<T> loader)
+            throws OwsExceptionReport, ConverterException {
+        return memo.get(Arrays.asList(kind, id, getService(), getVersion(), getI18N(),
+                getRequest().getRequestedLanguage(), pdf, getActiveProfile().getIdentifier()), loader);
+    }
+
+    private <T> T memoizeWithoutConversion(Kind kind, Object id, ObservationCreatorMemo.Loader<T> loader)
+            throws OwsExceptionReport {
+        try {
+            return memoize(kind, id, loader);
+        } catch (ConverterException e) {
+            throw new NoApplicableCodeException().causedBy(e).withMessage("Error while creating %s '%s'", kind, id);
+        }
+    }
+
     protected Locale getRequestedLanguage() {
         if (getRequest().isSetRequestedLanguage()) {
             return LocaleHelper.decode(getRequest().getRequestedLanguage());
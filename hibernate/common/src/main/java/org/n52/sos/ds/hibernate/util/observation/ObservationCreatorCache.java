@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util.observation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.sos.event.events.DeleteObservationEvent;
+import org.n52.sos.event.events.FeatureInsertion;
+import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.ObservationsExpired;
+import org.n52.sos.event.events.ResultInsertion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.SensorInsertion;
+import org.n52.sos.event.events.SensorModification;
+import org.n52.sos.event.events.UpdateCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Sets;
+
+/**
+ * Optional cross-request LRU cache for the features, procedure descriptions,
+ * observable properties and units built during observation creation. The
+ * cache is disabled by default and completely invalidated after each content
+ * modification.
+ *
+ * @since 5.5.0
+ */
+@Configurable
+public class ObservationCreatorCache implements EventListener {
+
+    public static final String CACHE_SIZE = "service.observation.creator.cacheSize";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ObservationCreatorCache.class);
+
+    @SuppressWarnings("unchecked")
+    private static final Set<Class<? extends Event>> TYPES = Sets.<Class<? extends Event>> newHashSet(
+            SensorInsertion.class,
+            SensorModification.class,
+            SensorDeletion.class,
+            ObservationInsertion.class,
+            ResultInsertion.class,
+            FeatureInsertion.class,
+            DeleteObservationEvent.class,
+            ObservationsExpired.class,
+            UpdateCache.class);
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Cache<List<Object>, Optional<Object>> cache;
+
+    /**
+     * Set the maximum number of cached values, a size &lt;= 0 disables the
+     * cache.
+     *
+     * @param size
+     *            the maximum size
+     */
+    @Setting(CACHE_SIZE)
+    public void setCacheSize(int size) {
+        if (size > 0) {
+            this.cache = CacheBuilder.newBuilder().maximumSize(size).build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    public Optional<Object> get(List<Object> key) {
+        Cache<List<Object>, Optional<Object>> c = this.cache;
+        return c != null ? c.getIfPresent(key) : null;
+    }
+
+    /**
+     * @return the current generation, incremented by each invalidation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Put the value into the cache if it was not invalidated since the value
+     * was loaded, otherwise a value read before a content modification could
+     * outlive the invalidation.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @param loadGeneration
+     *            the generation when the value was loaded
+     */
+    public void put(List<Object> key, Optional<Object> value, long loadGeneration) {
+        Cache<List<Object>, Optional<Object>> c = this.cache;
+        if (c != null && loadGeneration == generation.get()) {
+            c.put(key, value);
+        }
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        Cache<List<Object>, Optional<Object>> c = this.cache;
+        if (c != null) {
+            c.invalidateAll();
+        }
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.unmodifiableSet(TYPES);
+    }
+
+    @Override
+    public void handle(Event event) {
+        if (isEnabled()) {
+            LOGGER.debug("Invalidating observation creator cache after {}", event.getClass().getSimpleName());
+            invalidate();
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util.observation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.n52.iceland.convert.ConverterException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+/**
+ * Request scoped memo for the features, procedure descriptions, observable
+ * properties and units built by the {@link AbstractOmObservationCreator}s of
+ * one request. Misses are looked up in the optional cross-request
+ * {@link ObservationCreatorCache} before they are built.
+ * <p>
+ * Features and procedure descriptions are handed out as they are, so they
+ * may only be shared if nobody changes them after creation. If request or
+ * response modifiers are active for a request (e.g. identifier modifiers that
+ * rewrite identifiers in place), the memo is created as
+ * {@link #ObservationCreatorMemo(ObservationCreatorCache, boolean) modifiable}
+ * and these kinds are built for each call and never taken from or put into
+ * the cross-request cache.
+ *
+ * @since 5.5.0
+ */
+public class ObservationCreatorMemo {
+
+    private final Map<List<Object>, Optional<Object>> values = new ConcurrentHashMap<>();
+
+    private final ObservationCreatorCache sharedCache;
+
+    private final boolean modifiable;
+
+    public ObservationCreatorMemo(ObservationCreatorCache sharedCache) {
+        this(sharedCache, false);
+    }
+
+    /**
+     * @param sharedCache
+     *            the cross-request cache or {@code null}
+     * @param modifiable
+     *            if the values of mutable kinds may be modified after creation
+     */
+    public ObservationCreatorMemo(ObservationCreatorCache sharedCache, boolean modifiable) {
+        this.sharedCache = sharedCache;
+        this.modifiable = modifiable;
+    }
+
+    /**
+     * Get the memoized value for the key or load, memoize and return it.
+     * {@code null} values are memoized as well.
+     *
+     * @param key
+     *            the key, see {@link AbstractOmObservationCreator}
+     * @param loader
+     *            the loader to build the value
+     * @param <T>
+     *            the value type
+     * @return the value
+     * @throws OwsExceptionReport
+     *             If the loader fails
+     * @throws ConverterException
+     *             If the loader fails
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(List<Object> key, Loader<T> loader) throws OwsExceptionReport, ConverterException {
+        if (modifiable && !key.isEmpty() && key.get(0) instanceof Kind && ((Kind) key.get(0)).isMutable()) {
+            return loader.load();
+        }
+        Optional<Object> value = values.get(key);
+        if (value == null && sharedCache != null) {
+            value = sharedCache.get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        if (value == null) {
+            long generation = sharedCache != null ? sharedCache.getGeneration() : 0L;
+            value = Optional.ofNullable(loader.load());
+            values.put(key, value);
+            if (sharedCache != null) {
+                sharedCache.put(key, value, generation);
+            }
+        }
+        return (T) value.orElse(null);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public boolean isModifiable() {
+        return modifiable;
+    }
+
+    /**
+     * The kinds of memoized values. Values of mutable kinds are handed out
+     * without copying them.
+     */
+    public enum Kind {
+        FEATURE(true), PROCEDURE(true), OBSERVABLE_PROPERTY(false), UNIT(false);
+
+        private final boolean mutable;
+
+        Kind(boolean mutable) {
+            this.mutable = mutable;
+        }
+
+        public boolean isMutable() {
+            return mutable;
+        }
+    }
+
+    /**
+     * Builds a value on a memo miss.
+     *
+     * @param <T>
+     *            the value type
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws OwsExceptionReport, ConverterException;
+    }
+
+}
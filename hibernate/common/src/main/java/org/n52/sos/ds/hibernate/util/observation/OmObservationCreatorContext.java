@@ -28,6 +28,7 @@
 package org.n52.sos.ds.hibernate.util.observation;
 
 import java.util.Locale;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 
@@ -38,12 +39,14 @@ import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.binding.BindingRepository;
 import org.n52.iceland.cache.ContentCacheController;
 import org.n52.iceland.convert.ConverterRepository;
+import org.n52.iceland.convert.RequestResponseModifierRepository;
 import org.n52.iceland.i18n.I18NDAORepository;
 import org.n52.iceland.i18n.I18NSettings;
 import org.n52.iceland.ogc.ows.OwsServiceMetadataRepository;
 import org.n52.iceland.util.LocalizedProducer;
 import org.n52.janmayen.i18n.LocaleHelper;
 import org.n52.shetland.ogc.ows.OwsServiceProvider;
+import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
 import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.ds.FeatureQueryHandler;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
@@ -54,6 +57,8 @@ import org.n52.sos.util.GeometryHandler;
 import org.n52.svalbard.CodingSettings;
 import org.n52.svalbard.decode.DecoderRepository;
 
+import com.google.common.cache.CacheBuilder;
+
 @Configurable
 public class OmObservationCreatorContext {
 
@@ -74,6 +79,14 @@ public class OmObservationCreatorContext {
     private DecoderRepository decoderRepository;
     private HibernateProcedureConverter procedureConverter;
     private BindingRepository bindingRepository;
+    private ObservationCreatorCache observationCreatorCache;
+    private RequestResponseModifierRepository requestResponseModifierRepository;
+    /*
+     * weak keys are compared by identity, the memo is released together with
+     * the request
+     */
+    private final ConcurrentMap<AbstractObservationRequest, ObservationCreatorMemo> memos =
+            CacheBuilder.newBuilder().weakKeys().<AbstractObservationRequest, ObservationCreatorMemo> build().asMap();
 
     @Inject
     public OmObservationCreatorContext(
@@ -106,6 +119,16 @@ public class OmObservationCreatorContext {
         this.bindingRepository = bindingRepository;
     }
 
+    @Inject
+    public void setObservationCreatorCache(ObservationCreatorCache observationCreatorCache) {
+        this.observationCreatorCache = observationCreatorCache;
+    }
+
+    @Inject
+    public void setRequestResponseModifierRepository(RequestResponseModifierRepository repo) {
+        this.requestResponseModifierRepository = repo;
+    }
+
     @Setting(CodingSettings.TOKEN_SEPARATOR)
     public void setTokenSeparator(final String separator) throws ConfigurationError {
         Validation.notNullOrEmpty("Token separator", separator);
@@ -259,4 +282,22 @@ public class OmObservationCreatorContext {
         return bindingRepository;
     }
 
+    /**
+     * Get the memo shared by all observation creators of the request. If
+     * request or response modifiers are active for the request, features and
+     * procedures may be changed in place and are not memoized.
+     *
+     * @param request
+     *            the request
+     * @return the request scoped memo
+     */
+    public ObservationCreatorMemo getMemo(AbstractObservationRequest request) {
+        if (request == null) {
+            return new ObservationCreatorMemo(observationCreatorCache);
+        }
+        return memos.computeIfAbsent(request, r -> new ObservationCreatorMemo(observationCreatorCache,
+                requestResponseModifierRepository != null
+                        && requestResponseModifierRepository.hasRequestResponseModifier(r)));
+    }
+
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.i18n;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.n52.iceland.i18n.metadata.I18NOfferingMetadata;
+import org.n52.janmayen.i18n.MultilingualString;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.beans.i18n.I18nOfferingEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+/**
+ * Tests the cached lookups of the {@link AbstractHibernateI18NDAO} with a
+ * mocked session, the database is only queried to warm the cache.
+ */
+public class AbstractHibernateI18NDAOTest {
+
+    private static final String OFFERING_1 = "offering1";
+
+    private static final String OFFERING_2 = "offering2";
+
+    private final Session session = Mockito.mock(Session.class);
+
+    private final Criteria criteria = Mockito.mock(Criteria.class);
+
+    private final CachedOfferingI18NDAO dao = new CachedOfferingI18NDAO();
+
+    @Before
+    public void setUp() throws OwsExceptionReport {
+        Mockito.when(session.createCriteria(I18nOfferingEntity.class)).thenReturn(criteria);
+        Mockito.when(criteria.list()).thenReturn(Arrays.asList(i18n(1L, OFFERING_1, "en", "english name"),
+                i18n(2L, OFFERING_1, "de", "deutscher Name"), i18n(3L, OFFERING_2, "en", "second name")));
+        dao.warmCache(session);
+    }
+
+    @Test
+    public void shouldServeLookupsFromWarmedCache() throws OwsExceptionReport {
+        I18NOfferingMetadata metadata = dao.getMetadata(OFFERING_1, session);
+        assertThat(name(metadata, Locale.ENGLISH), is("english name"));
+        assertThat(name(metadata, Locale.GERMAN), is("deutscher Name"));
+        assertThat(dao.getMetadata(session), hasSize(2));
+        assertThat(dao.getMetadata(OFFERING_2, session).getName().getLocales(), containsInAnyOrder(Locale.ENGLISH));
+        Mockito.verify(session, Mockito.times(1)).createCriteria(I18nOfferingEntity.class);
+        Mockito.verify(session, Mockito.times(3)).evict(Mockito.any());
+    }
+
+    @Test
+    public void shouldFallBackToEquivalentLocale() throws OwsExceptionReport {
+        I18NOfferingMetadata metadata = dao.getMetadata(OFFERING_1, new Locale("ger"), session);
+        assertThat(name(metadata, Locale.GERMAN), is("deutscher Name"));
+        assertThat(metadata.getName().hasLocale(Locale.ENGLISH), is(false));
+        Mockito.verify(session, Mockito.times(1)).createCriteria(I18nOfferingEntity.class);
+    }
+
+    @Test
+    public void shouldLookUpCollectionForLocaleAtOnce() throws OwsExceptionReport {
+        Collection<I18NOfferingMetadata> metadata =
+                dao.getMetadata(Arrays.asList(OFFERING_1, OFFERING_2, "unknown"), Locale.ENGLISH, session);
+        assertThat(metadata.stream().map(I18NOfferingMetadata::getIdentifier).collect(Collectors.toList()),
+                containsInAnyOrder(OFFERING_1, OFFERING_2));
+        assertThat(metadata.stream().map(m -> name(m, Locale.ENGLISH)).collect(Collectors.toList()),
+                containsInAnyOrder("english name", "second name"));
+        assertThat(metadata.stream().anyMatch(m -> m.getName().hasLocale(Locale.GERMAN)), is(false));
+        Mockito.verify(session, Mockito.times(1)).createCriteria(I18nOfferingEntity.class);
+    }
+
+    @Test
+    public void shouldReplaceCachedMetadataAfterSave() throws OwsExceptionReport {
+        Transaction transaction = Mockito.mock(Transaction.class);
+        Mockito.when(session.beginTransaction()).thenReturn(transaction);
+        dao.saveMetadata(new I18NOfferingMetadata(OFFERING_1,
+                new MultilingualString().addLocalization(Locale.ENGLISH, "new name"), null), session);
+        Mockito.verify(transaction).commit();
+
+        I18NOfferingMetadata metadata = dao.getMetadata(OFFERING_1, session);
+        assertThat(name(metadata, Locale.ENGLISH), is("new name"));
+        assertThat(metadata.getName().hasLocale(Locale.GERMAN), is(false));
+        assertThat(name(dao.getMetadata(OFFERING_2, session), Locale.ENGLISH), is("second name"));
+    }
+
+    private static String name(I18NOfferingMetadata metadata, Locale locale) {
+        return metadata.getName().getLocalization(locale).map(l -> l.getText()).orElse(null);
+    }
+
+    private static I18nOfferingEntity i18n(long id, String offering, String locale, String name) {
+        I18nOfferingEntity i18n = new I18nOfferingEntity();
+        i18n.setId(id);
+        i18n.setEntity(offering(offering));
+        i18n.setLocale(locale);
+        i18n.setName(name);
+        return i18n;
+    }
+
+    private static OfferingEntity offering(String identifier) {
+        OfferingEntity offering = new OfferingEntity();
+        offering.setIdentifier(identifier);
+        return offering;
+    }
+
+    /**
+     * Offering DAO that does not access the database apart from the mocked
+     * session.
+     */
+    private static class CachedOfferingI18NDAO extends OfferingI18NDAO {
+
+        CachedOfferingI18NDAO() {
+            super(null);
+        }
+
+        @Override
+        public boolean isSupported() {
+            return true;
+        }
+
+        @Override
+        protected OfferingEntity getEntity(String id, Session session) {
+            return offering(id);
+        }
+
+        @Override
+        protected void deleteOldValues(String id, Session session) {
+            // nothing to delete
+        }
+    }
+}
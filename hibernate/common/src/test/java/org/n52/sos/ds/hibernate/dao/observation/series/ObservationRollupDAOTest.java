@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation.series;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Test;
+import org.n52.faroe.ConfigurationError;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+
+public class ObservationRollupDAOTest {
+
+    @Test
+    public void should_parse_sorted_resolutions() {
+        DaoFactory daoFactory = new DaoFactory();
+        daoFactory.setRollupResolutions("P1D, PT1M,PT1H,PT1M");
+        assertThat(daoFactory.getRollupResolutions(), contains(60L, 3600L, 86400L));
+        assertThat(daoFactory.getObservationRollupDAO().isEnabled(), is(true));
+    }
+
+    @Test
+    public void should_be_disabled_without_resolutions() {
+        DaoFactory daoFactory = new DaoFactory();
+        daoFactory.setRollupResolutions(null);
+        assertThat(daoFactory.getObservationRollupDAO().isEnabled(), is(false));
+        assertThat(daoFactory.getObservationRollupDAO().getResolutionFor(3600L), is(0L));
+    }
+
+    @Test(expected = ConfigurationError.class)
+    public void should_reject_invalid_resolutions() {
+        new DaoFactory().setRollupResolutions("1h");
+    }
+
+    @Test
+    public void should_select_coarsest_dividing_resolution() {
+        DaoFactory daoFactory = new DaoFactory();
+        daoFactory.setRollupResolutions("PT1M,PT1H,P1D");
+        ObservationRollupDAO rollupDAO = daoFactory.getObservationRollupDAO();
+        assertThat(rollupDAO.getResolutionFor(7 * 86400L), is(86400L));
+        assertThat(rollupDAO.getResolutionFor(6 * 3600L), is(3600L));
+        assertThat(rollupDAO.getResolutionFor(90 * 60L), is(60L));
+        assertThat(rollupDAO.getResolutionFor(90L), is(0L));
+    }
+
+    @Test
+    public void should_not_look_up_missing_table_again() {
+        DaoFactory daoFactory = new DaoFactory();
+        daoFactory.setRollupResolutions("PT1H");
+        daoFactory.setRollupTableAvailable(false);
+        // the session is not used while the missing table is cached
+        assertThat(daoFactory.getObservationRollupDAO().isAvailable(null), is(false));
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQL57Dialect;
+import org.hibernate.dialect.Oracle12cDialect;
+import org.hibernate.dialect.PostgreSQL95Dialect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.series.db.beans.FeatureEntity;
+import org.n52.series.db.beans.FormatEntity;
+import org.n52.sos.ds.hibernate.H2Configuration;
+import org.n52.sos.ds.hibernate.HibernateTestCase;
+import org.n52.sos.ds.hibernate.util.IdentifierSetRestriction.Strategy;
+
+/**
+ * @since 5.5.0
+ */
+public class IdentifierSetRestrictionTest extends HibernateTestCase {
+
+    private static final int FEATURES = 2 * HibernateConstants.LIMIT_EXPRESSION_DEPTH + 500;
+
+    private static final String FEATURE_PREFIX = "feature-";
+
+    private final AtomicInteger statements = new AtomicInteger();
+
+    private Session session;
+
+    private Session counting;
+
+    private Transaction transaction;
+
+    @Before
+    public void setUp() {
+        H2Configuration.truncate();
+        session = getSession();
+        transaction = session.beginTransaction();
+        FormatEntity featureType = new FormatEntity();
+        featureType.setFormat("featureType");
+        session.save(featureType);
+        for (int i = 0; i < FEATURES; i++) {
+            FeatureEntity feature = new FeatureEntity();
+            feature.setIdentifier(FEATURE_PREFIX + i);
+            feature.setName(FEATURE_PREFIX + i);
+            feature.setFeatureType(featureType);
+            session.save(feature);
+        }
+        session.flush();
+        session.clear();
+        counting = session.sessionWithOptions().connection().statementInspector(sql -> {
+            statements.incrementAndGet();
+            return sql;
+        }).openSession();
+    }
+
+    @After
+    public void tearDown() {
+        counting.close();
+        transaction.rollback();
+        returnSession(session);
+    }
+
+    @Test
+    public void shouldSelectStrategyByDialectAndSize() {
+        int limit = HibernateConstants.LIMIT_EXPRESSION_DEPTH;
+        assertThat(IdentifierSetRestriction.getStrategy(limit, new Oracle12cDialect()), is(Strategy.IN_LIST));
+        assertThat(IdentifierSetRestriction.getStrategy(limit + 1, new PostgreSQL95Dialect()), is(Strategy.ARRAY));
+        assertThat(IdentifierSetRestriction.getStrategy(limit + 1, new H2Dialect()), is(Strategy.TEMPORARY_TABLE));
+        assertThat(IdentifierSetRestriction.getStrategy(limit + 1, new MySQL57Dialect()),
+                is(Strategy.TEMPORARY_TABLE));
+        assertThat(IdentifierSetRestriction.getStrategy(limit + 1, new Oracle12cDialect()), is(Strategy.CHUNKED));
+    }
+
+    @Test
+    public void shouldReturnSameFeaturesAsChunkedQueriesWithOneSelect() {
+        List<String> identifiers = new ArrayList<>();
+        for (int i = 0; i < FEATURES; i += 2) {
+            identifiers.add(FEATURE_PREFIX + i);
+        }
+        // add some identifiers that do not exist
+        identifiers.add("unknown-1");
+        identifiers.add("unknown-2");
+
+        statements.set(0);
+        Set<String> chunked = queryChunked(identifiers);
+        int chunkedStatements = statements.getAndSet(0);
+
+        Set<String> restricted = queryRestricted(identifiers);
+        int restrictedStatements = statements.get();
+
+        assertThat(chunked, hasSize(FEATURES / 2));
+        assertThat(restricted, is(equalTo(chunked)));
+        assertThat(chunkedStatements, is(QueryHelper.getListsForIdentifiers(identifiers).size()));
+        assertThat(chunkedStatements, is(greaterThan(1)));
+        assertThat(restrictedStatements, is(1));
+    }
+
+    @Test
+    public void shouldReleaseTemporaryTableRows() {
+        List<String> identifiers = new ArrayList<>();
+        for (int i = 0; i < FEATURES; i++) {
+            identifiers.add(FEATURE_PREFIX + i);
+        }
+        assertThat(queryRestricted(identifiers), hasSize(FEATURES));
+        Number rows = (Number) counting
+                .createNativeQuery("select count(*) from " + IdentifierSetRestriction.TABLE).uniqueResult();
+        assertThat(rows.intValue(), is(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> queryChunked(List<String> identifiers) {
+        List<FeatureEntity> features = new ArrayList<>();
+        for (List<String> ids : QueryHelper.getListsForIdentifiers(identifiers)) {
+            Criteria c = counting.createCriteria(FeatureEntity.class);
+            c.add(Restrictions.in(FeatureEntity.IDENTIFIER, ids));
+            features.addAll(c.list());
+        }
+        return toIdentifiers(features);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> queryRestricted(List<String> identifiers) {
+        Optional<IdentifierSetRestriction> restriction = IdentifierSetRestriction.create(identifiers, counting);
+        assertThat(restriction.isPresent(), is(true));
+        try (IdentifierSetRestriction identifierSet = restriction.get()) {
+            Criteria c = counting.createCriteria(FeatureEntity.class);
+            c.add(identifierSet.restrict(FeatureEntity.IDENTIFIER));
+            return toIdentifiers(c.list());
+        }
+    }
+
+    private Set<String> toIdentifiers(List<FeatureEntity> features) {
+        return features.stream().map(FeatureEntity::getIdentifier).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.Statistics;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.n52.series.db.beans.UnitEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.hibernate.ExtendedHibernateTestCase;
+import org.n52.sos.ds.hibernate.H2Configuration;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.dao.FormatDAO;
+
+/**
+ * @since 5.5.0
+ */
+public class ReferenceEntityCacheTest extends ExtendedHibernateTestCase {
+
+    private static final int REQUESTS = 3;
+
+    private static SessionFactory sessionFactory;
+
+    private DaoFactory daoFactory;
+
+    @BeforeClass
+    public static void createSessionFactory() {
+        sessionFactory = H2Configuration.createSessionFactory(configuration -> {
+            ReferenceEntityCache.configure(configuration);
+            configuration.setProperty(AvailableSettings.GENERATE_STATISTICS, Boolean.TRUE.toString());
+        });
+    }
+
+    @AfterClass
+    public static void closeSessionFactory() {
+        sessionFactory.close();
+        H2Configuration.recreate();
+    }
+
+    @Before
+    public void fillReferences() throws OwsExceptionReport {
+        daoFactory = getDaoFactory();
+        Session session = sessionFactory.openSession();
+        HibernateMetadataCache.init(session);
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            new HibernateObservationBuilder(session, daoFactory).createObservation("1", new DateTime());
+            session.flush();
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            session.close();
+        }
+        ReferenceEntityCache.evict(sessionFactory);
+        sessionFactory.getStatistics().clear();
+    }
+
+    @After
+    public void clearReferences() {
+        H2Configuration.truncate();
+        // the truncation bypasses Hibernate
+        ReferenceEntityCache.evict(sessionFactory);
+    }
+
+    @Test
+    public void repeatedRequestsAreServedFromCache() {
+        Statistics statistics = sessionFactory.getStatistics();
+        lookupReferences();
+        assertThat(statistics.getPrepareStatementCount(), is(greaterThan(0L)));
+        assertThat(statistics.getQueryCachePutCount(), is(greaterThan(0L)));
+        assertThat(statistics.getSecondLevelCachePutCount(), is(greaterThan(0L)));
+
+        statistics.clear();
+        for (int i = 0; i < REQUESTS; i++) {
+            lookupReferences();
+        }
+        assertThat(statistics.getPrepareStatementCount(), is(0L));
+        assertThat(statistics.getQueryCacheMissCount(), is(0L));
+        assertThat(statistics.getQueryCacheHitCount(), is(greaterThan(0L)));
+        assertThat(statistics.getSecondLevelCacheMissCount(), is(0L));
+        assertThat(statistics.getSecondLevelCacheHitCount(), is(greaterThan(0L)));
+    }
+
+    @Test
+    public void evictionQueriesTheDatabaseAgain() {
+        Statistics statistics = sessionFactory.getStatistics();
+        lookupReferences();
+
+        ReferenceEntityCache.evict(sessionFactory, UnitEntity.class);
+        statistics.clear();
+        lookupReferences();
+        assertThat(statistics.getPrepareStatementCount(), is(greaterThan(0L)));
+        assertThat(statistics.getQueryCacheHitCount(), is(0L));
+        assertThat(statistics.getQueryCacheMissCount(), is(greaterThan(0L)));
+    }
+
+    private void lookupReferences() {
+        Session session = sessionFactory.openSession();
+        try {
+            assertThat(daoFactory.getProcedureDAO()
+                    .getProcedureForIdentifier(HibernateObservationBuilder.PROCEDURE, session), is(notNullValue()));
+            assertThat(daoFactory.getObservablePropertyDAO().getObservablePropertyForIdentifier(
+                    HibernateObservationBuilder.OBSERVABLE_PROPERTY, session), is(notNullValue()));
+            assertThat(daoFactory.getOfferingDAO()
+                    .getOfferingForIdentifier(HibernateObservationBuilder.OFFERING_1, session), is(notNullValue()));
+            assertThat(daoFactory.getUnitDAO().getUnit(HibernateObservationBuilder.UNIT, session),
+                    is(notNullValue()));
+            assertThat(new FormatDAO().getFormatEntityObject(
+                    HibernateObservationBuilder.PROCEDURE_DESCRIPTION_FORMAT, session), is(notNullValue()));
+            assertThat(daoFactory.getCodespaceDAO().getCodespace(HibernateObservationBuilder.CODESPACE, session),
+                    is(notNullValue()));
+        } finally {
+            session.close();
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+
+import org.hibernate.criterion.Criterion;
+import org.junit.Test;
+import org.n52.series.db.beans.CategoryDataEntity;
+import org.n52.series.db.beans.ComplexDataEntity;
+import org.n52.series.db.beans.CountDataEntity;
+import org.n52.series.db.beans.ProfileDataEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.TextDataEntity;
+import org.n52.shetland.ogc.filter.BinaryLogicFilter;
+import org.n52.shetland.ogc.filter.ComparisonFilter;
+import org.n52.shetland.ogc.filter.Filter;
+import org.n52.shetland.ogc.filter.FilterConstants.BinaryLogicOperator;
+import org.n52.shetland.ogc.filter.FilterConstants.ComparisonOperator;
+import org.n52.shetland.ogc.ows.exception.CodedException;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions.SubQueryIdentifier;
+
+public class ResultFilterPlannerTest {
+
+    private final ResultFilterPlanner planner = new ResultFilterPlanner(new ResultFilterClasses(
+            QuantityDataEntity.class, CountDataEntity.class, TextDataEntity.class, CategoryDataEntity.class,
+            ComplexDataEntity.class, ProfileDataEntity.class));
+
+    @Test
+    public void should_compile_comparison_to_value_restriction() throws CodedException {
+        Optional<Criterion> criterion =
+                planner.compile(filter(ComparisonOperator.PropertyIsGreaterThan, "5"), QuantityDataEntity.class);
+        assertThat(criterion.isPresent(), is(true));
+        assertThat(criterion.get().toString(), is("value>5"));
+    }
+
+    @Test
+    public void should_not_match_text_filter_on_numeric_values() throws CodedException {
+        assertThat(planner.compile(filter(ComparisonOperator.PropertyIsLike, "a*"), QuantityDataEntity.class)
+                .isPresent(), is(false));
+        assertThat(planner.compile(filter(ComparisonOperator.PropertyIsEqualTo, "abc"), CountDataEntity.class)
+                .isPresent(), is(false));
+    }
+
+    @Test
+    public void should_not_match_decimal_on_count_values() throws CodedException {
+        assertThat(planner.compile(filter(ComparisonOperator.PropertyIsLessThan, "2.5"), CountDataEntity.class)
+                .isPresent(), is(false));
+        assertThat(planner.compile(filter(ComparisonOperator.PropertyIsLessThan, "2"), CountDataEntity.class)
+                .isPresent(), is(true));
+    }
+
+    @Test
+    public void should_compile_equal_text_for_text_and_category_values() throws CodedException {
+        Filter<?> filter = filter(ComparisonOperator.PropertyIsEqualTo, "abc");
+        assertThat(planner.compile(filter, TextDataEntity.class).get().toString(), is("value=abc"));
+        assertThat(planner.compile(filter, CategoryDataEntity.class).isPresent(), is(true));
+        assertThat(planner.compile(filter(ComparisonOperator.PropertyIsEqualTo, "5"), TextDataEntity.class)
+                .isPresent(), is(false));
+    }
+
+    @Test
+    public void should_replace_both_wildcards_literally() throws CodedException {
+        ComparisonFilter filter = filter(ComparisonOperator.PropertyIsLike, "a*b.c");
+        filter.setWildCard("*");
+        filter.setSingleChar(".");
+        assertThat(planner.compile(filter, TextDataEntity.class).get().toString(), is("value like a%b_c"));
+    }
+
+    @Test
+    public void should_drop_non_matching_predicates_of_or() throws CodedException {
+        Filter<?> or = binary(BinaryLogicOperator.Or, filter(ComparisonOperator.PropertyIsLike, "a*"),
+                filter(ComparisonOperator.PropertyIsGreaterThan, "5"));
+        assertThat(planner.compile(or, QuantityDataEntity.class).get().toString(), is("(value>5)"));
+    }
+
+    @Test
+    public void should_not_match_and_with_non_matching_predicate() throws CodedException {
+        Filter<?> and = binary(BinaryLogicOperator.And, filter(ComparisonOperator.PropertyIsLike, "a*"),
+                filter(ComparisonOperator.PropertyIsGreaterThan, "5"));
+        assertThat(planner.compile(and, QuantityDataEntity.class).isPresent(), is(false));
+    }
+
+    @Test(expected = NoApplicableCodeException.class)
+    public void should_reject_non_numeric_range_comparison() throws CodedException {
+        planner.compile(filter(ComparisonOperator.PropertyIsGreaterThan, "abc"), TextDataEntity.class);
+    }
+
+    @Test
+    public void should_use_subqueries_for_complex_values() {
+        assertThat(planner.isSupported(ProfileDataEntity.class), is(false));
+        assertThat(planner.isSupported(ComplexDataEntity.class), is(false));
+        assertThat(planner.getSubQueryIdentifier(ProfileDataEntity.class), is(SubQueryIdentifier.Profile));
+        assertThat(planner.getSubQueryIdentifier(ComplexDataEntity.class), is(SubQueryIdentifier.Complex));
+        assertThat(planner.getSubQueryIdentifier(QuantityDataEntity.class) == null, is(true));
+    }
+
+    private static ComparisonFilter filter(ComparisonOperator operator, String value) {
+        ComparisonFilter filter = new ComparisonFilter();
+        filter.setOperator(operator);
+        filter.setValueReference("om:result");
+        filter.setValue(value);
+        return filter;
+    }
+
+    private static Filter<?> binary(BinaryLogicOperator operator, Filter<?>... filters) {
+        return new BinaryLogicFilter(operator).addFilterPredicates(new LinkedHashSet<>(Arrays.asList(filters)));
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.dialect.DB2Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQL94Dialect;
+import org.junit.Test;
+import org.n52.sos.ds.hibernate.util.TemporalAggregator.Bucket;
+import org.n52.sos.request.TemporalAggregation;
+import org.n52.sos.request.TemporalAggregation.Function;
+
+public class TemporalAggregatorTest {
+
+    private static final long HOUR = 3600 * 1000L;
+
+    @Test
+    public void should_group_values_into_epoch_aligned_buckets() {
+        TemporalAggregator aggregator = aggregator(Function.MEAN);
+        aggregator.add(new Date(HOUR + 10), 1);
+        aggregator.add(new Date(HOUR + 20), 3);
+        aggregator.add(new Date(2 * HOUR), 5);
+        List<Bucket> buckets = aggregator.getBuckets();
+        assertThat(buckets.size(), is(2));
+        assertThat(buckets.get(0).getStart(), is(new Date(HOUR)));
+        assertThat(buckets.get(0).getEnd(), is(new Date(2 * HOUR)));
+        assertThat(buckets.get(0).getValues(), contains((Number) 2.0));
+        assertThat(buckets.get(1).getValues(), contains((Number) 5.0));
+    }
+
+    @Test
+    public void should_order_buckets_by_time() {
+        TemporalAggregator aggregator = aggregator(Function.COUNT);
+        aggregator.add(new Date(3 * HOUR), 1);
+        aggregator.add(new Date(HOUR), 1);
+        aggregator.add(new Date(HOUR + 1), null);
+        List<Bucket> buckets = aggregator.getBuckets();
+        assertThat(buckets.get(0).getStart(), is(new Date(HOUR)));
+        assertThat(buckets.get(0).getValues(), contains((Number) 1L));
+        assertThat(buckets.get(1).getStart(), is(new Date(3 * HOUR)));
+    }
+
+    @Test
+    public void should_pick_first_and_last_by_time() {
+        TemporalAggregator first = aggregator(Function.FIRST);
+        TemporalAggregator last = aggregator(Function.LAST);
+        for (TemporalAggregator aggregator : new TemporalAggregator[] { first, last }) {
+            aggregator.add(new Date(HOUR + 30), 3);
+            aggregator.add(new Date(HOUR + 10), 1);
+            aggregator.add(new Date(HOUR + 20), 2);
+        }
+        assertThat(first.getBuckets().get(0).getValues(), contains((Number) 1));
+        assertThat(last.getBuckets().get(0).getValues(), contains((Number) 3));
+    }
+
+    @Test
+    public void should_return_min_and_max_for_envelope() {
+        TemporalAggregator aggregator = aggregator(Function.ENVELOPE);
+        aggregator.add(new Date(HOUR), 4);
+        aggregator.add(new Date(HOUR + 1), -2);
+        aggregator.add(new Date(HOUR + 2), 7);
+        assertThat(aggregator.getBuckets().get(0).getValues(), contains((Number) (-2), 7));
+    }
+
+    @Test
+    public void should_use_database_aggregates() {
+        TemporalAggregator aggregator = aggregator(Function.MEAN);
+        aggregator.add(5L, 1, 3, 10.0, 4L);
+        Bucket bucket = aggregator.getBuckets().get(0);
+        assertThat(bucket.getStart(), is(new Date(5 * HOUR)));
+        assertThat(bucket.getValues(), contains((Number) 2.5));
+    }
+
+    @Test
+    public void should_merge_parts_of_a_bucket() {
+        TemporalAggregator mean = aggregator(Function.MEAN);
+        TemporalAggregator envelope = aggregator(Function.ENVELOPE);
+        for (TemporalAggregator aggregator : new TemporalAggregator[] { mean, envelope }) {
+            aggregator.add(5L, 1, 3, 4.0, 2L);
+            aggregator.add(5L, null, null, 0, 0L);
+            aggregator.add(new Date(5 * HOUR + 1), 8);
+        }
+        assertThat(mean.getBuckets().size(), is(1));
+        assertThat(mean.getBuckets().get(0).getValues(), contains((Number) 4.0));
+        assertThat(envelope.getBuckets().get(0).getValues(), contains((Number) 1, 8));
+        assertThat(envelope.getBuckets().get(0).getCount(), is(3L));
+    }
+
+    @Test
+    public void should_create_bucket_expression_for_known_dialects() {
+        TemporalAggregator aggregator = aggregator(Function.MAX);
+        assertThat(aggregator.getBucketExpression(new PostgreSQL94Dialect(), "t.col"),
+                is("floor((extract(epoch from t.col)) / 3600.0)"));
+        assertThat(aggregator.getBucketExpression(new H2Dialect(), "t.col"),
+                is("floor((datediff('SECOND', timestamp '1970-01-01 00:00:00', t.col)) / 3600.0)"));
+        assertThat(aggregator.getBucketExpression(new DB2Dialect(), "t.col"), is(nullValue()));
+    }
+
+    private TemporalAggregator aggregator(Function function) {
+        return new TemporalAggregator(new TemporalAggregation(3600, function));
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util.observation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.hibernate.util.observation.ObservationCreatorMemo.Kind;
+import org.n52.sos.event.events.UpdateCache;
+
+public class ObservationCreatorMemoTest {
+
+    private static final List<Object> KEY = Arrays.asList(Kind.FEATURE, "feature", "2.0.0");
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Object load() {
+        loads.incrementAndGet();
+        return new Object();
+    }
+
+    @Test
+    public void shouldLoadOncePerRequest() throws OwsExceptionReport, ConverterException {
+        ObservationCreatorMemo memo = new ObservationCreatorMemo(null);
+        Object first = memo.get(KEY, this::load);
+        Object second = memo.get(Arrays.asList(Kind.FEATURE, "feature", "2.0.0"), this::load);
+        assertThat(second, is(sameInstance(first)));
+        assertThat(loads.get(), is(1));
+        memo.get(Arrays.asList(Kind.PROCEDURE, "feature", "2.0.0"), this::load);
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void shouldMemoizeNullValues() throws OwsExceptionReport, ConverterException {
+        ObservationCreatorMemo memo = new ObservationCreatorMemo(null);
+        ObservationCreatorMemo.Loader<String> loader = () -> {
+            loads.incrementAndGet();
+            return null;
+        };
+        assertThat(memo.get(KEY, loader), is(nullValue()));
+        assertThat(memo.get(KEY, loader), is(nullValue()));
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    public void shouldNotShareBetweenRequestsIfCacheIsDisabled() throws OwsExceptionReport, ConverterException {
+        ObservationCreatorCache cache = new ObservationCreatorCache();
+        cache.setCacheSize(0);
+        new ObservationCreatorMemo(cache).get(KEY, this::load);
+        new ObservationCreatorMemo(cache).get(KEY, this::load);
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void shouldShareBetweenRequestsUntilInvalidated() throws OwsExceptionReport, ConverterException {
+        ObservationCreatorCache cache = new ObservationCreatorCache();
+        cache.setCacheSize(10);
+        Object first = new ObservationCreatorMemo(cache).get(KEY, this::load);
+        assertThat(new ObservationCreatorMemo(cache).get(KEY, this::load), is(sameInstance(first)));
+        assertThat(loads.get(), is(1));
+        cache.handle(new UpdateCache());
+        new ObservationCreatorMemo(cache).get(KEY, this::load);
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void shouldNotCacheValuesLoadedBeforeInvalidation() throws OwsExceptionReport, ConverterException {
+        ObservationCreatorCache cache = new ObservationCreatorCache();
+        cache.setCacheSize(10);
+        new ObservationCreatorMemo(cache).get(KEY, () -> {
+            cache.invalidate();
+            return load();
+        });
+        new ObservationCreatorMemo(cache).get(KEY, this::load);
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void shouldNotShareMutableValuesOfModifiableRequests() throws OwsExceptionReport, ConverterException {
+        ObservationCreatorCache cache = new ObservationCreatorCache();
+        cache.setCacheSize(10);
+        Object shared = new ObservationCreatorMemo(cache).get(KEY, this::load);
+        ObservationCreatorMemo memo = new ObservationCreatorMemo(cache, true);
+        Object first = memo.get(KEY, this::load);
+        Object second = memo.get(KEY, this::load);
+        assertThat(first, is(not(sameInstance(shared))));
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(loads.get(), is(3));
+        // a modified value never reaches the cross-request cache
+        assertThat(new ObservationCreatorMemo(cache).get(KEY, this::load), is(sameInstance(shared)));
+        // immutable kinds are still memoized
+        List<Object> unit = Arrays.asList(Kind.UNIT, Arrays.asList("property", "procedure"), "2.0.0");
+        memo.get(unit, this::load);
+        memo.get(unit, this::load);
+        assertThat(loads.get(), is(4));
+    }
+
+}
@@ -141,6 +141,16 @@ public abstract class AbstractHibernateDatasource extends AbstractHibernateCoreD
 
     protected static final Integer BATCH_SIZE_DEFAULT_VALUE = 20;
 
+    protected static final String REFERENCE_CACHE_KEY = "sos.hibernate.cache.reference";
+
+    protected static final String REFERENCE_CACHE_TITLE = "Reference entity cache";
+
+    protected static final String REFERENCE_CACHE_DESCRIPTION =
+            "Should phenomena, procedures, offerings, units, formats and codespaces be held in an in-process "
+            + "second-level cache? Changes applied directly to the database bypass this cache.";
+
+    protected static final Boolean REFERENCE_CACHE_DEFAULT_VALUE = false;
+
     private static final Logger LOG = LoggerFactory.getLogger(AbstractHibernateDatasource.class);
 
     private static final String SETTING_NOT_FOUND_TEMPLATE =
@@ -279,6 +289,23 @@ public abstract class AbstractHibernateDatasource extends AbstractHibernateCoreD
         return def;
     }
 
+    /**
+     * Create settings definition for the second-level cache of the reference
+     * entities
+     *
+     * @return Reference entity cache settings definition
+     */
+    protected BooleanSettingDefinition createReferenceCacheDefinition() {
+        BooleanSettingDefinition def = new BooleanSettingDefinition();
+        def.setGroup(ADVANCED_GROUP);
+        def.setOrder(12);
+        def.setKey(REFERENCE_CACHE_KEY);
+        def.setTitle(REFERENCE_CACHE_TITLE);
+        def.setDescription(REFERENCE_CACHE_DESCRIPTION);
+        def.setDefaultValue(REFERENCE_CACHE_DEFAULT_VALUE);
+        return def;
+    }
+
     /**
      * Get custom configuration from datasource settings
      *
@@ -70,6 +70,7 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
         }
         set.add(createBatchSizeDefinition(batchSizeDefault));
         set.add(createProvidedJdbcDriverDefinition(providedJdbc));
+        set.add(createReferenceCacheDefinition());
         set.add(getDatabaseConceptDefinition());
         set.add(getDatabaseExtensionDefinition());
         set.add(getFeatureConceptDefinition());
@@ -90,6 +91,7 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
                         createMinPoolSizeDefinition(JavaHelper.asInteger(settings.get(MIN_POOL_SIZE_KEY))),
                         createMaxPoolSizeDefinition(JavaHelper.asInteger(settings.get(MAX_POOL_SIZE_KEY))),
                         createBatchSizeDefinition(JavaHelper.asInteger(settings.get(BATCH_SIZE_KEY))),
+                        createReferenceCacheDefinition((Boolean) settings.get(REFERENCE_CACHE_KEY)),
                         createTimeZoneDefinition((String) settings.get(TIMEZONE_KEY)));
         if (supportsSchema) {
             settingDefinitions.add(schemaSetting);
@@ -116,6 +118,12 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
         return def;
     }
 
+    protected SettingDefinition<?> createReferenceCacheDefinition(final Boolean defaultValue) {
+        BooleanSettingDefinition def = createReferenceCacheDefinition();
+        def.setDefaultValue(defaultValue);
+        return def;
+    }
+
     @Override
     public Properties getDatasourceProperties(final Map<String, Object> settings) {
         final Properties p = new Properties();
@@ -143,6 +151,9 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
         p.put(HibernateConstants.CONNECTION_AUTO_RECONNECT_FOR_POOLS, Boolean.TRUE.toString());
         p.put(HibernateConstants.CONNECTION_TEST_ON_BORROW, Boolean.TRUE.toString());
         p.put(PROVIDED_JDBC, settings.get(PROVIDED_JDBC_DRIVER_KEY).toString());
+        if (settings.containsKey(REFERENCE_CACHE_KEY)) {
+            p.put(HIBERNATE_DATASOURCE_REFERENCE_CACHE, settings.get(REFERENCE_CACHE_KEY).toString());
+        }
         p.put(DATABASE_CONCEPT_KEY, settings.get(DATABASE_CONCEPT_KEY));
         p.put(FEATURE_CONCEPT_KEY, settings.get(FEATURE_CONCEPT_KEY));
         if (settings.containsKey(TIMEZONE_KEY)) {
@@ -177,6 +188,8 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
         settings.put(FEATURE_CONCEPT_KEY,  current.getProperty(FEATURE_CONCEPT_KEY));
         settings.put(PROVIDED_JDBC_DRIVER_KEY,
                 current.getProperty(PROVIDED_JDBC, PROVIDED_JDBC_DRIVER_DEFAULT_VALUE.toString()));
+        settings.put(REFERENCE_CACHE_KEY, Boolean.valueOf(current.getProperty(HIBERNATE_DATASOURCE_REFERENCE_CACHE,
+                REFERENCE_CACHE_DEFAULT_VALUE.toString())));
         if (current.containsKey(HIBERNATE_DATASOURCE_TIMEZONE)) {
             settings.put(TIMEZONE_KEY, current.getProperty(HIBERNATE_DATASOURCE_TIMEZONE));
         } else {
@@ -54,9 +54,9 @@ public class AbstractHibernateFullDBDatasourceTest
         extends TestCase {
     private static final String POSTGRES = "postgres";
 
-    private static int CHANGEABLE_COUNT = 10;
+    private static int CHANGEABLE_COUNT = 11;
 
-    private static int MAX_COUNT = 17;
+    private static int MAX_COUNT = 18;
 
     private AbstractHibernateFullDBDatasource ds;
 
@@ -125,6 +125,7 @@ public class AbstractHibernateFullDBDatasourceTest
         assertTrue(keys.contains(AbstractHibernateCoreDatasource.MIN_POOL_SIZE_KEY));
         assertTrue(keys.contains(AbstractHibernateCoreDatasource.MAX_POOL_SIZE_KEY));
         assertTrue(keys.contains(AbstractHibernateDatasource.BATCH_SIZE_KEY));
+        assertTrue(keys.contains(AbstractHibernateDatasource.REFERENCE_CACHE_KEY));
         assertTrue(
                 changeable || settingsDefinitions || keys.contains(HibernateDatasourceConstants.HIBERNATE_DIRECTORY));
         assertTrue(changeable || keys.contains(AbstractHibernateDatasource.PROVIDED_JDBC_DRIVER_KEY));
@@ -70,6 +70,7 @@ import org.n52.shetland.util.ReferencedEnvelope;
 import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.ds.FeatureQueryHandler;
 import org.n52.sos.ds.FeatureQueryHandlerQueryObject;
+import org.n52.sos.ds.hibernate.create.FeatureBatchInitializer;
 import org.n52.sos.ds.hibernate.create.FeatureVisitorContext;
 import org.n52.sos.ds.hibernate.create.HibernateFeatureVisitor;
 import org.n52.sos.ds.hibernate.create.HibernateGeometryVisitor;
@@ -332,7 +333,9 @@ public class HibernateFeatureQueryHandler
     }
 
     /**
-     * Creates a map with FOI identifier and SOS feature
+     * Creates a map with FOI identifier and SOS feature. The associations of
+     * the features are fetched with a few set based queries before the
+     * features are created.
      *
      * @param features FeatureOfInterest objects
      * @param queryObject SOS version
@@ -343,8 +346,12 @@ public class HibernateFeatureQueryHandler
     protected Map<String, AbstractFeature> createSosFeatures(final List<AbstractFeatureEntity> features,
             final FeatureQueryHandlerQueryObject queryObject, Session session) throws OwsExceptionReport {
         final Map<String, AbstractFeature> sosAbstractFois = new HashMap<>(features.size());
+        new FeatureBatchInitializer(session).initialize(features);
+        FeatureVisitorContext context = getDefaultContext()
+                .setSession(session)
+                .setRequestedLanguage(queryObject.getI18N());
         for (final AbstractFeatureEntity feature : features) {
-            final AbstractFeature sosFeature = createSosAbstractFeature(feature, queryObject, session);
+            final AbstractFeature sosFeature = new HibernateFeatureVisitor(context).visit(feature);
             sosAbstractFois.put(feature.getIdentifier(), sosFeature);
         }
         // TODO if sampledFeatures are also in sosAbstractFois, reference them.
@@ -427,9 +434,13 @@ public class HibernateFeatureQueryHandler
         }
         final List<AbstractFeatureEntity> featuresOfInterest =
                 daoFactory.getFeatureDAO().getFeatureOfInterestObjects(queryObject.getFeatures(), session);
+        new FeatureBatchInitializer(session).initialize(featuresOfInterest);
+        FeatureVisitorContext context = getDefaultContext()
+                .setSession(session)
+                .setRequestedLanguage(queryObject.getI18N());
         for (final AbstractFeatureEntity feature : featuresOfInterest) {
             final AbstractSamplingFeature sosAbstractFeature =
-                    (AbstractSamplingFeature) createSosAbstractFeature(feature, queryObject, session);
+                    (AbstractSamplingFeature) new HibernateFeatureVisitor(context).visit(feature);
             if (!hasSpatialFilter) {
                 featureMap.put(sosAbstractFeature.getIdentifierCodeWithAuthority().getValue(), sosAbstractFeature);
             } else if (getGeometryHandler().featureIsInFilter(sosAbstractFeature.getGeometry(), envelopes)) {
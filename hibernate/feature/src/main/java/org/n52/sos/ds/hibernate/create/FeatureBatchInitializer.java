@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.create;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.n52.series.db.beans.AbstractFeatureEntity;
+import org.n52.series.db.beans.FeatureEntity;
+import org.n52.sos.ds.hibernate.util.HibernateConstants;
+import org.n52.sos.ds.hibernate.util.QueryHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Initializes the lazy associations of many features with a few set based
+ * queries before the features are converted by the
+ * {@link HibernateFeatureVisitor}. The parents, parameters and translations of
+ * a page of features are each fetched by one query instead of one query per
+ * feature. The features have to be attached to the session.
+ *
+ * @since 5.5.0
+ */
+public class FeatureBatchInitializer {
+
+    static final String PARAMETERS = "parameters";
+
+    static final String TRANSLATIONS = "translations";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FeatureBatchInitializer.class);
+
+    private final Session session;
+
+    private final int pageSize;
+
+    public FeatureBatchInitializer(Session session) {
+        this(session, HibernateConstants.LIMIT_EXPRESSION_DEPTH);
+    }
+
+    public FeatureBatchInitializer(Session session, int pageSize) {
+        this.session = session;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Initialize the parents, parameters and translations of the features and
+     * of their parents.
+     *
+     * @param features
+     *            the features to initialize
+     */
+    public void initialize(Collection<? extends AbstractFeatureEntity> features) {
+        for (List<? extends AbstractFeatureEntity> page : Lists.partition(Lists.newArrayList(features), pageSize)) {
+            Map<Long, AbstractFeatureEntity> entities = page.stream().filter(f -> f.getId() != null)
+                    .collect(Collectors.toMap(AbstractFeatureEntity::getId, Function.identity(), (a, b) -> a,
+                            LinkedHashMap::new));
+            fetch(entities.values(), AbstractFeatureEntity.PROPERTY_PARENTS, FeatureEntity::getParents);
+            for (AbstractFeatureEntity feature : page) {
+                if (feature instanceof FeatureEntity && ((FeatureEntity) feature).getParents() != null) {
+                    for (FeatureEntity parent : ((FeatureEntity) feature).getParents()) {
+                        entities.putIfAbsent(parent.getId(), parent);
+                    }
+                }
+            }
+            fetch(entities.values(), PARAMETERS, FeatureEntity::getParameters);
+            fetch(entities.values(), TRANSLATIONS, FeatureEntity::getTranslations);
+        }
+    }
+
+    private void fetch(Collection<AbstractFeatureEntity> features, String association,
+            Function<FeatureEntity, Object> getter) {
+        List<Long> ids = features.stream().filter(f -> f instanceof FeatureEntity)
+                .filter(f -> !Hibernate.isInitialized(getter.apply((FeatureEntity) f)))
+                .map(AbstractFeatureEntity::getId).collect(Collectors.toList());
+        if (!ids.isEmpty()) {
+            Criteria c = session.createCriteria(FeatureEntity.class)
+                    .add(QueryHelper.getCriterionForObjects(AbstractFeatureEntity.PROPERTY_ID, ids))
+                    .setFetchMode(association, FetchMode.JOIN)
+                    .setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+            LOGGER.trace("Initializing {} of {} features", association, ids.size());
+            c.list();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.create;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Restrictions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.series.db.beans.FeatureEntity;
+import org.n52.series.db.beans.FormatEntity;
+import org.n52.sos.ds.hibernate.H2Configuration;
+import org.n52.sos.ds.hibernate.HibernateTestCase;
+
+import com.google.common.collect.Sets;
+
+/**
+ * @since 5.5.0
+ */
+public class FeatureBatchInitializerTest extends HibernateTestCase {
+
+    private static final int FEATURES = 200;
+
+    private static final int PARENTS = 5;
+
+    private static final int ASSOCIATIONS = 3;
+
+    private static final String FEATURE_PREFIX = "feature-";
+
+    private static final String PARENT_PREFIX = "parent-";
+
+    private final AtomicInteger statements = new AtomicInteger();
+
+    private Session session;
+
+    private Session counting;
+
+    private Transaction transaction;
+
+    @Before
+    public void setUp() {
+        H2Configuration.truncate();
+        session = getSession();
+        transaction = session.beginTransaction();
+        FormatEntity featureType = new FormatEntity();
+        featureType.setFormat("featureType");
+        session.save(featureType);
+        FeatureEntity[] parents = new FeatureEntity[PARENTS];
+        for (int i = 0; i < PARENTS; i++) {
+            parents[i] = createFeature(PARENT_PREFIX + i, featureType);
+            session.save(parents[i]);
+        }
+        for (int i = 0; i < FEATURES; i++) {
+            FeatureEntity feature = createFeature(FEATURE_PREFIX + i, featureType);
+            feature.setParents(Sets.newHashSet(parents[i % PARENTS]));
+            session.save(feature);
+        }
+        session.flush();
+        session.clear();
+        counting = session.sessionWithOptions().connection().statementInspector(sql -> {
+            statements.incrementAndGet();
+            return sql;
+        }).openSession();
+    }
+
+    @After
+    public void tearDown() {
+        counting.close();
+        transaction.rollback();
+        returnSession(session);
+    }
+
+    @Test
+    public void shouldUseConstantNumberOfQueries() {
+        int few = countInitializationStatements(10);
+        int many = countInitializationStatements(FEATURES);
+        assertThat(few, is(ASSOCIATIONS));
+        assertThat(many, is(few));
+    }
+
+    @Test
+    public void shouldNotQueryWhenAccessingInitializedAssociations() {
+        List<FeatureEntity> features = loadFeatures(FEATURES);
+        new FeatureBatchInitializer(counting).initialize(features);
+        statements.set(0);
+        for (FeatureEntity feature : features) {
+            assertThat(feature.getParents(), hasSize(1));
+            accessAssociations(feature);
+            accessAssociations(feature.getParents().iterator().next());
+        }
+        assertThat(statements.get(), is(0));
+    }
+
+    @Test
+    public void shouldQueryPerFeatureWithoutInitializer() {
+        List<FeatureEntity> features = loadFeatures(10);
+        statements.set(0);
+        for (FeatureEntity feature : features) {
+            accessAssociations(feature);
+        }
+        assertThat(statements.get(), is(greaterThanOrEqualTo(2 * features.size())));
+    }
+
+    @Test
+    public void shouldQueryPerPage() {
+        List<FeatureEntity> features = loadFeatures(FEATURES);
+        statements.set(0);
+        new FeatureBatchInitializer(counting, FEATURES / 4).initialize(features);
+        assertThat(statements.get(), is(4 * ASSOCIATIONS));
+    }
+
+    private int countInitializationStatements(int size) {
+        counting.clear();
+        List<FeatureEntity> features = loadFeatures(size);
+        statements.set(0);
+        new FeatureBatchInitializer(counting).initialize(features);
+        return statements.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<FeatureEntity> loadFeatures(int size) {
+        List<FeatureEntity> features = counting.createCriteria(FeatureEntity.class)
+                .add(Restrictions.like(FeatureEntity.IDENTIFIER, FEATURE_PREFIX + "%"))
+                .setMaxResults(size)
+                .list();
+        assertThat(features, hasSize(size));
+        return features;
+    }
+
+    private static void accessAssociations(FeatureEntity feature) {
+        feature.getParameters().size();
+        feature.getTranslations().size();
+    }
+
+    private static FeatureEntity createFeature(String identifier, FormatEntity featureType) {
+        FeatureEntity feature = new FeatureEntity();
+        feature.setIdentifier(identifier);
+        feature.setName(identifier);
+        feature.setFeatureType(featureType);
+        return feature;
+    }
+}
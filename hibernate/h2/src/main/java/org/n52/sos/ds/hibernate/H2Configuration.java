@@ -38,6 +38,7 @@ import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
+import java.util.function.Consumer;
 
 import org.apache.commons.io.FileUtils;
 import org.hibernate.HibernateException;
@@ -185,6 +186,29 @@ public final class H2Configuration implements ConnectionProvider {
         }
     }
 
+    /**
+     * Build an additional session factory for the in-memory database, e.g. to
+     * test settings that should not affect the shared session factory. The
+     * caller has to close the returned session factory.
+     *
+     * @param customizer
+     *            applied to the configuration before the session factory is
+     *            built
+     * @return the session factory
+     */
+    public static SessionFactory createSessionFactory(Consumer<Configuration> customizer) {
+        H2Configuration.assertInitialized();
+        Configuration cfg = new Configuration().configure("/hibernate.cfg.xml");
+        cfg.addProperties(properties);
+        @SuppressWarnings("unchecked")
+        List<String> resources = (List<String>) properties.get(SessionFactoryProvider.HIBERNATE_RESOURCES);
+        for (String resource : resources) {
+            cfg.addInputStream(H2Configuration.class.getResourceAsStream(resource));
+        }
+        customizer.accept(cfg);
+        return cfg.buildSessionFactory();
+    }
+
     public static void returnSession(final Session session) {
         try {
             if (session != null) {
@@ -27,8 +27,12 @@
  */
 package org.n52.sos.ds.hibernate;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -59,14 +63,18 @@ import org.n52.shetland.ogc.sos.response.GetResultResponse;
 import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.ds.AbstractGetResultHandler;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesValueDAO;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.ds.hibernate.util.ParsedResultTemplate;
 import org.n52.sos.ds.hibernate.util.QueryHelper;
 import org.n52.sos.ds.hibernate.util.ResultHandlingHelper;
+import org.n52.sos.ds.hibernate.util.ResultTemplateCache;
 import org.n52.sos.ds.hibernate.util.SosTemporalRestrictions;
 import org.n52.sos.ds.hibernate.util.SpatialRestrictions;
 import org.n52.sos.exception.ows.concrete.UnsupportedOperatorException;
 import org.n52.sos.exception.ows.concrete.UnsupportedTimeException;
 import org.n52.sos.exception.ows.concrete.UnsupportedValueReferenceException;
+import org.n52.sos.request.TemporalAggregation;
 import org.n52.sos.service.SosSettings;
 import org.n52.svalbard.ConformanceClasses;
 import org.n52.svalbard.util.SweHelper;
@@ -96,10 +104,17 @@ public class GetResultHandler extends AbstractGetResultHandler implements Abstra
 
     private boolean supportsDatabaseEntities;
 
+    private ResultTemplateCache resultTemplateCache;
+
     public GetResultHandler() {
         super(SosConstants.SOS);
     }
 
+    @Inject
+    public void setResultTemplateCache(ResultTemplateCache resultTemplateCache) {
+        this.resultTemplateCache = resultTemplateCache;
+    }
+
     @Inject
     public void setDaoFactory(DaoFactory daoFactory) {
         this.daoFactory = daoFactory;
@@ -171,22 +186,20 @@ public class GetResultHandler extends AbstractGetResultHandler implements Abstra
             final Set<String> featureIdentifier =
                     QueryHelper.getFeatures(getDaoFactory().getFeatureQueryHandler(), request, session);
             final ResultTemplateEntity resultTemplate = queryResultTemplate(request, featureIdentifier, session);
-            SosResultEncoding sosResultEncoding = null;
-            SosResultStructure sosResultStructure = null;
+            final String noDataPlaceholder = getProfileHandler().getActiveProfile().getResponseNoDataPlaceholder();
             if (resultTemplate != null) {
-                sosResultEncoding = createSosResultEncoding(resultTemplate.getEncoding());
-                sosResultStructure = createSosResultStructure(resultTemplate.getStructure());
+                ParsedResultTemplate parsed = getParsedResultTemplate(resultTemplate);
+                final List<DataEntity<?>> observations = querySeriesObservation(request, featureIdentifier, session);
+                response.setResultValues(getResultHandlingHelper().createResultValuesFromObservations(observations,
+                        parsed, noDataPlaceholder, session));
             } else {
-                sosResultEncoding = createSosResultEncoding();
-                sosResultStructure = generateSosResultStructure(request.getObservedProperty(), request.getOffering(),
-                        featureIdentifier, session);
+                SosResultEncoding sosResultEncoding = createSosResultEncoding();
+                SosResultStructure sosResultStructure = generateSosResultStructure(request.getObservedProperty(),
+                        request.getOffering(), featureIdentifier, session);
+                final List<DataEntity<?>> observations = querySeriesObservation(request, featureIdentifier, session);
+                response.setResultValues(getResultHandlingHelper().createResultValuesFromObservations(observations,
+                        sosResultEncoding, sosResultStructure, noDataPlaceholder, session));
             }
-            final List<DataEntity<?>> observations;
-            observations = querySeriesObservation(request, featureIdentifier, session);
-            response.setResultValues(getResultHandlingHelper().createResultValuesFromObservations(observations,
-                    sosResultEncoding, sosResultStructure, getProfileHandler().getActiveProfile()
-                            .getResponseNoDataPlaceholder(),
-                    session));
             return response;
         } catch (final HibernateException he) {
             throw new NoApplicableCodeException().causedBy(he)
@@ -212,31 +225,105 @@ public class GetResultHandler extends AbstractGetResultHandler implements Abstra
      * @throws OwsExceptionReport
      *             If an error occurs.
      */
-    @SuppressWarnings("unchecked")
     protected List<DataEntity<?>> querySeriesObservation(GetResultRequest request,
             Collection<String> featureIdentifiers, Session session) throws OwsExceptionReport {
-        final Criteria c = createCriteriaFor(DataEntity.class, session);
-        addSpatialFilteringProfileRestrictions(c, request, session);
-        addParentChildRestriction(c);
-
         List<DatasetEntity> series = getDaoFactory().getSeriesDAO()
                 .getSeries(request, featureIdentifiers, session);
         if (CollectionHelper.isEmpty(series)) {
             return null;
-        } else {
-            c.add(Restrictions.in(DataEntity.PROPERTY_DATASET_ID, series.stream()
-                    .map(DatasetEntity::getId)
-                    .collect(Collectors.toSet())));
         }
+        Optional<TemporalAggregation> aggregation = TemporalAggregation.fromRequest(request);
+        if (aggregation.isPresent()) {
+            return queryAggregatedSeriesObservation(request, series, aggregation.get(), session);
+        }
+        return querySeriesObservation(request, series, session);
+    }
 
+    @SuppressWarnings("unchecked")
+    private List<DataEntity<?>> querySeriesObservation(GetResultRequest request, Collection<DatasetEntity> series,
+            Session session) throws OwsExceptionReport {
+        final Criteria c = createCriteriaFor(DataEntity.class, session);
+        addSeriesRestrictions(c, request, series, session);
+        LOGGER.trace("QUERY queryObservation(request, featureIdentifiers): {}", HibernateHelper.getSqlString(c));
+        return c.list();
+    }
+
+    /**
+     * Query the values of the numeric and count series aggregated into the
+     * buckets of the temporal aggregation. The values of other series are
+     * returned without aggregation.
+     *
+     * @param request
+     *            GetResult request
+     * @param series
+     *            the series to query
+     * @param aggregation
+     *            the temporal aggregation
+     * @param session
+     *            Hibernate session
+     * @return the aggregated values ordered by phenomenon time
+     * @throws OwsExceptionReport
+     *             If an error occurs.
+     */
+    private List<DataEntity<?>> queryAggregatedSeriesObservation(GetResultRequest request,
+            List<DatasetEntity> series, TemporalAggregation aggregation, Session session) throws OwsExceptionReport {
+        AbstractSeriesValueDAO valueDAO = getDaoFactory().getValueDAO();
+        List<DataEntity<?>> observations = new ArrayList<>();
+        List<DatasetEntity> notAggregated = new LinkedList<>();
+        for (DatasetEntity dataset : series) {
+            Class<?> valueClass = valueDAO.getValueRowClass(dataset);
+            if (valueClass != null) {
+                Criteria c = session.createCriteria(valueClass)
+                        .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false));
+                addSeriesRestrictions(c, request, Collections.singleton(dataset), session);
+                observations.addAll(
+                        valueDAO.getAggregatedSeriesValuesFor(c, valueClass, dataset, aggregation, session));
+            } else {
+                notAggregated.add(dataset);
+            }
+        }
+        if (!notAggregated.isEmpty()) {
+            observations.addAll(querySeriesObservation(request, notAggregated, session));
+        }
+        observations.sort((o1, o2) -> o1.getSamplingTimeStart().compareTo(o2.getSamplingTimeStart()));
+        return observations;
+    }
+
+    private void addSeriesRestrictions(Criteria c, GetResultRequest request, Collection<DatasetEntity> series,
+            Session session) throws OwsExceptionReport {
+        addSpatialFilteringProfileRestrictions(c, request, session);
+        addParentChildRestriction(c);
+        c.add(Restrictions.in(DataEntity.PROPERTY_DATASET_ID, series.stream()
+                .map(DatasetEntity::getId)
+                .collect(Collectors.toSet())));
         if (request.getTemporalFilter() != null && !request.getTemporalFilter()
                 .isEmpty()) {
             addTemporalFilter(c, request.getTemporalFilter());
         }
+    }
 
-        LOGGER.trace("QUERY queryObservation(request, featureIdentifiers): {}", HibernateHelper.getSqlString(c));
-        return c.list();
+    /**
+     * Get the parsed structure and encoding of the result template, from the
+     * {@link ResultTemplateCache} if available
+     *
+     * @param resultTemplate
+     *            Associated ResultTemplate
+     * @return the parsed result template
+     * @throws OwsExceptionReport
+     *             If the template can not be parsed
+     */
+    private ParsedResultTemplate getParsedResultTemplate(ResultTemplateEntity resultTemplate)
+            throws OwsExceptionReport {
+        if (resultTemplateCache != null) {
+            return resultTemplateCache.get(resultTemplate, this::parseResultTemplate);
+        }
+        return parseResultTemplate(resultTemplate);
+    }
 
+    private ParsedResultTemplate parseResultTemplate(ResultTemplateEntity resultTemplate)
+            throws OwsExceptionReport {
+        return new ParsedResultTemplate(resultTemplate, createSosResultStructure(resultTemplate.getStructure()),
+                createSosResultEncoding(resultTemplate.getEncoding()), getResultHandlingHelper());
     }
 
     /**
@@ -94,7 +94,9 @@ import org.n52.sos.ds.hibernate.dao.FormatDAO;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationDAO;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.ds.hibernate.util.ParsedResultTemplate;
 import org.n52.sos.ds.hibernate.util.ResultHandlingHelper;
+import org.n52.sos.ds.hibernate.util.ResultTemplateCache;
 import org.n52.sos.ds.hibernate.util.observation.ObservationUnfolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -133,10 +135,17 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
 
     private ResultHandlingHelper helper;
 
+    private ResultTemplateCache resultTemplateCache;
+
     public InsertResultHandler() {
         super(SosConstants.SOS);
     }
 
+    @Inject
+    public void setResultTemplateCache(ResultTemplateCache resultTemplateCache) {
+        this.resultTemplateCache = resultTemplateCache;
+    }
+
     @Override
     public void init() {
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
@@ -290,11 +299,11 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     private OmObservation getSingleObservationFromResultValues(final String version,
             final ResultTemplateEntity resultTemplate, final String resultValues, final Session session)
             throws OwsExceptionReport {
-        final SosResultEncoding resultEncoding = createSosResultEncoding(resultTemplate.getEncoding());
-        final SosResultStructure resultStructure = createSosResultStructure(resultTemplate.getStructure());
-        final String[] blockValues = getBlockValues(resultValues, resultEncoding.get().get());
-        final OmObservation singleObservation = getObservation(resultTemplate, blockValues,
-                resultStructure.get().get(), resultEncoding.get().get(), session);
+        final ParsedResultTemplate parsed = getParsedResultTemplate(resultTemplate);
+        final SweAbstractEncoding encoding = parsed.getEncoding().get().get();
+        final String[] blockValues = getBlockValues(resultValues, encoding);
+        final OmObservation singleObservation = getObservation(resultTemplate, parsed, blockValues,
+                parsed.getStructure().get().get(), encoding, session);
         // final AbstractFeature feature =
         // getSosAbstractFeature(resultTemplate.getFeatureOfInterest(), version,
         // session);
@@ -302,6 +311,31 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         return singleObservation;
     }
 
+    /**
+     * Get the parsed structure and encoding of the result template, from the
+     * {@link ResultTemplateCache} if available
+     *
+     * @param resultTemplate
+     *            Associated result template
+     * @return the parsed result template
+     * @throws OwsExceptionReport
+     *             If the template can not be parsed
+     */
+    private ParsedResultTemplate getParsedResultTemplate(ResultTemplateEntity resultTemplate)
+            throws OwsExceptionReport {
+        if (resultTemplateCache != null) {
+            return resultTemplateCache.get(resultTemplate, this::parseResultTemplate);
+        }
+        return parseResultTemplate(resultTemplate);
+    }
+
+    private ParsedResultTemplate parseResultTemplate(ResultTemplateEntity resultTemplate)
+            throws OwsExceptionReport {
+        final SosResultEncoding resultEncoding = createSosResultEncoding(resultTemplate.getEncoding());
+        final SosResultStructure resultStructure = createSosResultStructure(resultTemplate.getStructure());
+        return new ParsedResultTemplate(resultTemplate, resultStructure, resultEncoding, helper);
+    }
+
     /**
      * Unfold internal observation from result values to single internal
      * observations
@@ -330,6 +364,9 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      *
      * @param resultTemplate
      *            The result template entity
+     * @param parsed
+     *            The parsed result template holding the resolved observation
+     *            type
      * @param session
      *            Hibernate session
      * @return Internal ObservationConstellation
@@ -337,16 +374,18 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      *             If an error occurs
      */
     private OmObservationConstellation getSosObservationConstellation(final ResultTemplateEntity resultTemplate,
-            final Session session) throws OwsExceptionReport {
-
-        final List<DatasetEntity> obsConsts = getDaoFactory().getSeriesDAO().getSeriesForOfferings(
-                resultTemplate.getPhenomenon(), Sets.newHashSet(resultTemplate.getOffering()), session);
+            final ParsedResultTemplate parsed, final Session session) throws OwsExceptionReport {
         final Set<String> offerings = Sets.newHashSet(resultTemplate.getOffering().getIdentifier());
-        String observationType = null;
-        for (DatasetEntity obsConst : obsConsts) {
-            if (observationType == null && obsConst.isSetOmObservationType()) {
-                observationType = obsConst.getOmObservationType().getFormat();
+        String observationType = parsed.getObservationType();
+        if (observationType == null) {
+            final List<DatasetEntity> obsConsts = getDaoFactory().getSeriesDAO().getSeriesForOfferings(
+                    resultTemplate.getPhenomenon(), Sets.newHashSet(resultTemplate.getOffering()), session);
+            for (DatasetEntity obsConst : obsConsts) {
+                if (observationType == null && obsConst.isSetOmObservationType()) {
+                    observationType = obsConst.getOmObservationType().getFormat();
+                }
             }
+            parsed.setObservationType(observationType);
         }
         OmObservationConstellation omObservationConstellation = new OmObservationConstellation()
                 .setObservableProperty(new OmObservableProperty(resultTemplate.getPhenomenon().getIdentifier()))
@@ -385,6 +424,8 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      *
      * @param resultTemplate
      *            Associated ResultTemplate
+     * @param parsed
+     *            The parsed ResultTemplate
      * @param blockValues
      *            Block values from result values
      * @param resultStructure
@@ -397,11 +438,11 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      * @throws OwsExceptionReport
      *             If processing fails
      */
-    private OmObservation getObservation(final ResultTemplateEntity resultTemplate, final String[] blockValues,
-            final SweAbstractDataComponent resultStructure, final SweAbstractEncoding encoding, final Session session)
-            throws OwsExceptionReport {
-        final int resultTimeIndex = helper.hasResultTime(resultStructure);
-        final int phenomenonTimeIndex = helper.hasPhenomenonTime(resultStructure);
+    private OmObservation getObservation(final ResultTemplateEntity resultTemplate, final ParsedResultTemplate parsed,
+            final String[] blockValues, final SweAbstractDataComponent resultStructure,
+            final SweAbstractEncoding encoding, final Session session) throws OwsExceptionReport {
+        final int resultTimeIndex = parsed.getResultTimeIndex();
+        final int phenomenonTimeIndex = parsed.getPhenomenonTimeIndex();
 
         final SweDataRecord record = setRecordFrom(resultStructure);
 
@@ -418,7 +459,7 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
                 createObservationValueFrom(blockValues, record, encoding, resultTimeIndex, phenomenonTimeIndex);
 
         final OmObservation observation = new OmObservation();
-        observation.setObservationConstellation(getSosObservationConstellation(resultTemplate, session));
+        observation.setObservationConstellation(getSosObservationConstellation(resultTemplate, parsed, session));
         observation.setResultType(OmConstants.OBS_TYPE_SWE_ARRAY_OBSERVATION);
         observation.setValue(sosValues);
         return observation;
@@ -476,7 +517,9 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     }
 
     /**
-     * Create internal observation value
+     * Create internal observation value. The result structure and encoding
+     * are copied as they belong to the cached result template that is shared
+     * between concurrent requests.
      *
      * @param blockValues
      *            Block values from result values
@@ -492,12 +535,13 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      * @throws OwsExceptionReport
      *             If processing fails
      */
-    private MultiObservationValues<SweDataArray> createObservationValueFrom(final String[] blockValues,
+    @VisibleForTesting
+    protected MultiObservationValues<SweDataArray> createObservationValueFrom(final String[] blockValues,
             final SweAbstractDataComponent recordFromResultStructure, final SweAbstractEncoding encoding,
             final int resultTimeIndex, final int phenomenonTimeIndex) throws OwsExceptionReport {
         final SweDataArray dataArray = new SweDataArray();
-        dataArray.setElementType(recordFromResultStructure);
-        dataArray.setEncoding(encoding);
+        dataArray.setElementType(recordFromResultStructure.copy());
+        dataArray.setEncoding(encoding.copy());
 
         final SweDataArrayValue dataArrayValue = new SweDataArrayValue();
         dataArrayValue.setValue(dataArray);
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.admin;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.MatchMode;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.DeleteProceduresHandler;
+import org.n52.sos.ds.hibernate.DeleteDataHelper;
+import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Physically deletes procedures like a DeleteSensor request with enabled
+ * physical deletion, independent of the DeleteSensor setting.
+ *
+ * @since 5.5.0
+ */
+@Configurable
+public class HibernateDeleteProceduresHandler implements DeleteProceduresHandler, DeleteDataHelper, Constructable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HibernateDeleteProceduresHandler.class);
+
+    private HibernateSessionHolder sessionHolder;
+
+    @Inject
+    private DaoFactory daoFactory;
+
+    @Inject
+    private ConnectionProvider connectionProvider;
+
+    @Override
+    public void init() {
+        sessionHolder = new HibernateSessionHolder(connectionProvider);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> getProcedures(String prefix) throws OwsExceptionReport {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            List<String> procedures = session.createCriteria(ProcedureEntity.class)
+                    .add(Restrictions.like(ProcedureEntity.IDENTIFIER, prefix, MatchMode.START))
+                    .setProjection(Projections.property(ProcedureEntity.IDENTIFIER)).list();
+            return new HashSet<>(procedures);
+        } catch (HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while querying procedures!");
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    @Override
+    public synchronized int deleteProcedures(Collection<String> procedures) throws OwsExceptionReport {
+        int deleted = 0;
+        for (String identifier : procedures) {
+            Session session = null;
+            Transaction transaction = null;
+            try {
+                session = sessionHolder.getSession();
+                transaction = session.beginTransaction();
+                ProcedureEntity procedure = daoFactory.getProcedureDAO().getProcedureForIdentifier(identifier,
+                        session);
+                if (procedure != null) {
+                    deleteSensor(procedure, session);
+                    deleted++;
+                }
+                session.flush();
+                transaction.commit();
+            } catch (HibernateException he) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new NoApplicableCodeException().causedBy(he)
+                        .withMessage("Error while deleting procedure '%s'!", identifier);
+            } finally {
+                sessionHolder.returnSession(session);
+            }
+        }
+        LOG.debug("Physically deleted {} procedures", deleted);
+        return deleted;
+    }
+
+    @Override
+    public DaoFactory getDaoFactory() {
+        return daoFactory;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return LOG;
+    }
+
+    @Override
+    public boolean isDeletePhysically() {
+        return true;
+    }
+
+}
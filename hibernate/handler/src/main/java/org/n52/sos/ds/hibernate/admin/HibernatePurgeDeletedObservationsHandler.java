@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.admin;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+import org.joda.time.DateTime;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.PurgeDeletedObservationsHandler;
+import org.n52.sos.ds.PurgeDeletedObservationsProgress;
+import org.n52.sos.ds.PurgeDeletedObservationsProgress.State;
+import org.n52.sos.ds.hibernate.DeleteObservationHelper;
+import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.util.HibernateConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Background job that physically removes observations flagged as deleted.
+ * Instead of deleting all observations in one transaction, the observations
+ * are deleted with bulk HQL statements in bounded id ranges, each range is
+ * committed in its own transaction and the deletion rate can be throttled.
+ * <p>
+ * Because each chunk is committed, an interrupted run (cancellation, error or
+ * restart of the service) can simply be started again and continues with the
+ * lowest remaining id.
+ *
+ * @since 5.5.0
+ */
+@Configurable
+public class HibernatePurgeDeletedObservationsHandler
+        implements PurgeDeletedObservationsHandler, DeleteObservationHelper, Constructable, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HibernatePurgeDeletedObservationsHandler.class);
+
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private static final String PARAMETER_FROM = "from";
+
+    private static final String PARAMETER_TO = "to";
+
+    private HibernateSessionHolder sessionHolder;
+
+    private ExecutorService executor;
+
+    private volatile PurgeDeletedObservationsProgress progress = PurgeDeletedObservationsProgress.idle();
+
+    private volatile boolean cancelled;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private int maxObservationsPerSecond;
+
+    @Inject
+    private DaoFactory daoFactory;
+
+    @Inject
+    private ConnectionProvider connectionProvider;
+
+    @Override
+    public void init() {
+        this.sessionHolder = new HibernateSessionHolder(connectionProvider);
+        this.executor = Executors.newSingleThreadExecutor(
+                new GroupedAndNamedThreadFactory("52n-purge-deleted-observations"));
+    }
+
+    @Override
+    public void destroy() {
+        this.cancelled = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Setting(PurgeDeletedObservationsSettings.CHUNK_SIZE)
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    }
+
+    @Setting(PurgeDeletedObservationsSettings.MAX_OBSERVATIONS_PER_SECOND)
+    public void setMaxObservationsPerSecond(int maxObservationsPerSecond) {
+        this.maxObservationsPerSecond = Math.max(0, maxObservationsPerSecond);
+    }
+
+    @Override
+    public synchronized boolean startPurge() {
+        if (progress.isRunning()) {
+            return false;
+        }
+        this.cancelled = false;
+        this.progress = new PurgeDeletedObservationsProgress(State.RUNNING, 0, 0, null, null, DateTime.now(), null,
+                null);
+        executor.execute(this::purge);
+        return true;
+    }
+
+    @Override
+    public synchronized void cancelPurge() {
+        if (progress.isRunning()) {
+            this.cancelled = true;
+            PurgeDeletedObservationsProgress p = progress;
+            this.progress = new PurgeDeletedObservationsProgress(State.CANCELLING, p.getDeleted(), p.getChunks(),
+                    p.getCurrentId(), p.getMaxId(), p.getStarted(), null, null);
+        }
+    }
+
+    @Override
+    public PurgeDeletedObservationsProgress getProgress() {
+        return progress;
+    }
+
+    @Override
+    public DaoFactory getDaoFactory() {
+        return daoFactory;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return LOG;
+    }
+
+    @Override
+    public boolean isDeletePhysically() {
+        return true;
+    }
+
+    private void purge() {
+        DateTime started = progress.getStarted();
+        long deleted = 0;
+        long chunks = 0;
+        Long current = null;
+        Long max = null;
+        try {
+            Long[] bounds = getDeletedIdBounds(null);
+            if (bounds != null) {
+                current = bounds[0];
+                max = bounds[1];
+                LOG.info("Purging deleted observations with ids between {} and {} in chunks of {}", current, max,
+                        chunkSize);
+                while (current <= max && !isCancelled()) {
+                    long start = System.currentTimeMillis();
+                    long to = current + chunkSize;
+                    int chunkDeleted = deleteChunk(current, to);
+                    deleted += chunkDeleted;
+                    chunks++;
+                    current = to;
+                    if (chunkDeleted == 0) {
+                        // skip gaps between sparse deleted observations
+                        Long[] next = getDeletedIdBounds(to);
+                        current = next != null ? next[0] : max + 1;
+                    }
+                    updateProgress(State.RUNNING, deleted, chunks, current, max, started);
+                    throttle(chunkDeleted, start);
+                }
+            }
+            State state = isCancelled() ? State.CANCELLED : State.FINISHED;
+            LOG.info("Purge of deleted observations {}: {} observations deleted in {} chunks", state, deleted,
+                    chunks);
+            setProgress(new PurgeDeletedObservationsProgress(state, deleted, chunks, current, max, started,
+                    DateTime.now(), null));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            setProgress(new PurgeDeletedObservationsProgress(State.CANCELLED, deleted, chunks, current, max,
+                    started, DateTime.now(), null));
+        } catch (OwsExceptionReport | RuntimeException e) {
+            LOG.error("Error while purging deleted observations!", e);
+            setProgress(new PurgeDeletedObservationsProgress(State.FAILED, deleted, chunks, current, max,
+                    started, DateTime.now(), e.getMessage()));
+        } finally {
+            // never leave the purge running, startPurge() would refuse every later purge
+            if (getProgress().isRunning()) {
+                setProgress(new PurgeDeletedObservationsProgress(State.FAILED, deleted, chunks, current, max,
+                        started, DateTime.now(), "Purge of deleted observations was aborted"));
+            }
+        }
+    }
+
+    private synchronized void updateProgress(State running, long deleted, long chunks, Long current, Long max,
+            DateTime started) {
+        // keep a requested cancellation visible
+        State state = progress.getState() == State.CANCELLING ? State.CANCELLING : running;
+        this.progress = new PurgeDeletedObservationsProgress(state, deleted, chunks, current, max, started, null,
+                null);
+    }
+
+    private synchronized void setProgress(PurgeDeletedObservationsProgress progress) {
+        this.progress = progress;
+    }
+
+    private boolean isCancelled() {
+        return cancelled || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Sleep until the chunk took at least as long as the configured rate
+     * allows for the number of observations deleted in it.
+     */
+    private void throttle(int chunkDeleted, long chunkStart) throws InterruptedException {
+        if (maxObservationsPerSecond > 0 && chunkDeleted > 0) {
+            long minDuration = chunkDeleted * 1000L / maxObservationsPerSecond;
+            long sleep = minDuration - (System.currentTimeMillis() - chunkStart);
+            if (sleep > 0) {
+                TimeUnit.MILLISECONDS.sleep(sleep);
+            }
+        }
+    }
+
+    /**
+     * Get the minimum and maximum id of the deleted observations.
+     *
+     * @param from
+     *            Optional lower id bound (inclusive)
+     * @return the id bounds or <code>null</code> if there are no deleted
+     *         observations
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    private Long[] getDeletedIdBounds(Long from) throws OwsExceptionReport {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            StringBuilder builder = new StringBuilder();
+            builder.append("select min(").append(DataEntity.PROPERTY_ID).append("), max(")
+                    .append(DataEntity.PROPERTY_ID).append(")").append(FROM_PARAMETER)
+                    .append(getObservationClassName());
+            builder.append(WHERE_PARAMETER).append(DataEntity.PROPERTY_DELETED).append(EQUAL_PARAMETER)
+                    .append(DataEntity.PROPERTY_DELETED);
+            if (from != null) {
+                builder.append(AND_PARAMETER).append(DataEntity.PROPERTY_ID).append(" >= :").append(PARAMETER_FROM);
+            }
+            Query<?> q = session.createQuery(builder.toString());
+            q.setParameter(DataEntity.PROPERTY_DELETED, true);
+            if (from != null) {
+                q.setParameter(PARAMETER_FROM, from);
+            }
+            Object[] result = (Object[]) q.uniqueResult();
+            if (result == null || result[0] == null || result[1] == null) {
+                return null;
+            }
+            return new Long[] { ((Number) result[0]).longValue(), ((Number) result[1]).longValue() };
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    /**
+     * Delete the deleted observations with <code>from &lt;= id &lt; to</code>
+     * and their child observations in one transaction.
+     *
+     * @param from
+     *            Lower id bound (inclusive)
+     * @param to
+     *            Upper id bound (exclusive)
+     * @return the number of deleted observations
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    private int deleteChunk(long from, long to) throws OwsExceptionReport {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionHolder.getSession();
+            transaction = session.beginTransaction();
+            List<Long> parents = getDeletedIds(from, to, session);
+            int executeUpdate = 0;
+            if (!parents.isEmpty()) {
+                for (List<Long> partition : Lists.partition(parents, HibernateConstants.LIMIT_EXPRESSION_DEPTH)) {
+                    deleteDeletedChildObservations(partition, session);
+                }
+                Query<?> q = session.createQuery(getDeleteRangeQueryString());
+                q.setParameter(DataEntity.PROPERTY_DELETED, true);
+                q.setParameter(PARAMETER_FROM, from);
+                q.setParameter(PARAMETER_TO, to);
+                executeUpdate = q.executeUpdate();
+            }
+            transaction.commit();
+            LOG.debug("{} deleted observations with ids between {} and {} were physically deleted!", executeUpdate,
+                    from, to);
+            return executeUpdate;
+        } catch (HibernateException | OwsExceptionReport e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> getDeletedIds(long from, long to, Session session) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("select ").append(DataEntity.PROPERTY_ID).append(FROM_PARAMETER)
+                .append(getObservationClassName());
+        addRangeRestriction(builder);
+        Query<?> q = session.createQuery(builder.toString());
+        q.setParameter(DataEntity.PROPERTY_DELETED, true);
+        q.setParameter(PARAMETER_FROM, from);
+        q.setParameter(PARAMETER_TO, to);
+        return (List<Long>) q.list();
+    }
+
+    private String getDeleteRangeQueryString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(DELETE_PARAMETER).append(getObservationClassName());
+        addRangeRestriction(builder);
+        return builder.toString();
+    }
+
+    private void addRangeRestriction(StringBuilder builder) {
+        builder.append(WHERE_PARAMETER).append(DataEntity.PROPERTY_DELETED).append(EQUAL_PARAMETER)
+                .append(DataEntity.PROPERTY_DELETED);
+        builder.append(AND_PARAMETER).append(DataEntity.PROPERTY_ID).append(" >= :").append(PARAMETER_FROM);
+        builder.append(AND_PARAMETER).append(DataEntity.PROPERTY_ID).append(" < :").append(PARAMETER_TO);
+    }
+
+    private String getObservationClassName() {
+        return getDaoFactory().getObservationDAO().getObservationFactory().observationClass().getSimpleName();
+    }
+
+}
@@ -95,6 +95,8 @@ public abstract class AbstractObservationDao implements HibernateDao {
 
     private int chunkSize;
 
+    private boolean valueRows;
+
     @Inject
     public void setEncoderRepository(EncoderRepository encoderRepository) {
         this.encoderRepository = encoderRepository;
@@ -138,6 +140,24 @@ public abstract class AbstractObservationDao implements HibernateDao {
         return chunkSize;
     }
 
+    /**
+     * Set if time value pairs are streamed as value rows
+     *
+     * @param valueRows
+     *            Value rows streaming
+     */
+    @Setting(HibernateStreamingSettings.VALUE_ROWS)
+    public void setValueRows(boolean valueRows) {
+        this.valueRows = valueRows;
+    }
+
+    /**
+     * @return if time value pairs are streamed as value rows
+     */
+    public boolean isValueRows() {
+        return valueRows;
+    }
+
     /**
      * Get ObservationConstellations and check if size limit is exceeded
      *
@@ -34,6 +34,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 
 import javax.inject.Inject;
 
@@ -45,7 +46,6 @@ import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.convert.ConverterException;
 import org.n52.iceland.ds.ConnectionProvider;
-import org.n52.iceland.exception.ows.concrete.NotYetSupportedException;
 import org.n52.iceland.i18n.I18NSettings;
 import org.n52.janmayen.http.HTTPStatus;
 import org.n52.janmayen.i18n.LocaleHelper;
@@ -65,8 +65,11 @@ import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
 import org.n52.sos.ds.hibernate.util.ObservationTimeExtrema;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.OmObservationCreatorContext;
+import org.n52.sos.ds.hibernate.values.series.HibernateAggregatedSeriesStreamingValue;
 import org.n52.sos.ds.hibernate.values.series.HibernateChunkSeriesStreamingValue;
 import org.n52.sos.ds.hibernate.values.series.HibernateSeriesStreamingValue;
+import org.n52.sos.ds.hibernate.values.series.SeriesValuePrefetcher;
+import org.n52.sos.request.TemporalAggregation;
 import org.n52.sos.service.profile.ProfileHandler;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.ObservationEncoder;
@@ -91,6 +94,8 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
 
     private OmObservationCreatorContext observationCreatorContext;
 
+    private SeriesValuePrefetcher seriesValuePrefetcher;
+
     private boolean overallExtrema;
 
     private Locale defaultLanguage;
@@ -115,6 +120,11 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         this.observationCreatorContext = observationCreatorContext;
     }
 
+    @Inject
+    public void setSeriesValuePrefetcher(SeriesValuePrefetcher seriesValuePrefetcher) {
+        this.seriesValuePrefetcher = seriesValuePrefetcher;
+    }
+
     @Setting("profile.hydrology.overallExtrema")
     public void setOverallExtrema(boolean overallExtrema) {
         this.overallExtrema = overallExtrema;
@@ -182,9 +192,6 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
      */
     private List<OmObservation> querySeriesObservation(GetObservationRequest request, Session session)
             throws OwsExceptionReport, ConverterException {
-        if (request.isSetResultFilter()) {
-            throw new NotYetSupportedException("result filtering");
-        }
         Locale requestedLocale = getRequestedLocale(request);
         String pdf = getProcedureDescriptionFormat(request.getResponseFormat());
         final long start = System.currentTimeMillis();
@@ -194,7 +201,11 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         AbstractSeriesDAO seriesDAO = daoFactory.getSeriesDAO();
         for (IndeterminateValue sosIndeterminateTime : request.getFirstLatestTemporalFilter()) {
             for (DatasetEntity series : getSeries(seriesDAO, request, features, sosIndeterminateTime, session)) {
-                if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.FIRST)) {
+                if (request.isSetResultFilter() || request.hasSpatialFilteringProfileSpatialFilter()) {
+                    // the stored first/latest values may not match the filters
+                    seriesObservations.addAll(daoFactory.getValueDAO().getFirstLatestSeriesValuesFor(request, series,
+                            sosIndeterminateTime, session));
+                } else if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.FIRST)) {
                     seriesObservations.add(series.getFirstObservation());
                 } else if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.LATEST)) {
                     seriesObservations.add(series.getLastObservation());
@@ -291,15 +302,33 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         List<DatasetEntity> serieses = daoFactory.getSeriesDAO().getSeries(request, features, session);
         checkMaxNumberOfReturnedSeriesSize(serieses.size());
         int maxNumberOfValuesPerSeries = getMaxNumberOfValuesPerSeries(serieses.size());
+        Optional<TemporalAggregation> aggregation = TemporalAggregation.fromRequest(request);
+        SeriesValuePrefetcher.ReadAhead readAhead =
+                seriesValuePrefetcher != null ? seriesValuePrefetcher.newReadAhead() : null;
         for (DatasetEntity series : serieses) {
             ObservationStream createSosObservationFromSeries =
                     HibernateObservationUtilities.createSosObservationFromSeries(series, request,
                             getRequestedLocale(request), getProcedureDescriptionFormat(request.getResponseFormat()),
                             observationCreatorContext, session);
             OmObservation observationTemplate = createSosObservationFromSeries.next();
-            HibernateSeriesStreamingValue streamingValue =
-                    new HibernateChunkSeriesStreamingValue(sessionHolder.getConnectionProvider(), daoFactory, request,
-                            series.getId(), observationCreatorContext.getBindingRepository(), getChunkSize());
+            HibernateSeriesStreamingValue streamingValue;
+            Class<?> valueRowClass = daoFactory.getValueDAO().getValueRowClass(series);
+            if (aggregation.isPresent() && valueRowClass != null) {
+                streamingValue = new HibernateAggregatedSeriesStreamingValue(sessionHolder.getConnectionProvider(),
+                        daoFactory, request, series.getId(), observationCreatorContext.getBindingRepository(),
+                        aggregation.get());
+            } else {
+                HibernateChunkSeriesStreamingValue chunkValue = new HibernateChunkSeriesStreamingValue(
+                        sessionHolder.getConnectionProvider(), daoFactory, request, series.getId(),
+                        observationCreatorContext.getBindingRepository(), getChunkSize());
+                if (isValueRows()) {
+                    chunkValue.setValueRows(valueRowClass, series.hasUnit() ? series.getUnit().getUnit() : null);
+                }
+                if (readAhead != null) {
+                    readAhead.add(chunkValue);
+                }
+                streamingValue = chunkValue;
+            }
             streamingValue.setResponseFormat(request.getResponseFormat());
             streamingValue.setTemporalFilterCriterion(temporalFilterCriterion);
             streamingValue.setObservationTemplate(observationTemplate);
@@ -0,0 +1,477 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.retention;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+import org.joda.time.DateTime;
+import org.n52.faroe.ConfigurationError;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.event.EventBus;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.hibernate.DeleteObservationHelper;
+import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.type.UtcTimestampType;
+import org.n52.sos.ds.hibernate.util.HibernateConstants;
+import org.n52.sos.event.events.ObservationsExpired;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Scheduled job that physically removes the observations that expired
+ * according to the configured {@link RetentionPolicy retention policies}.
+ * <p>
+ * The expired observations of each dataset are deleted with bulk HQL
+ * statements in chunks, each chunk in its own transaction. A chunk deletes
+ * about {@code chunkSize} rows including the child observations, the number
+ * of observations selected for the next chunk is reduced accordingly if the
+ * observations have children. The first/last
+ * values of a dataset are recomputed right after its chunks were deleted, also
+ * if the deletion failed midway, and a single partial cache update is
+ * triggered for the affected offerings, also for the datasets processed before
+ * a failure.
+ *
+ * @since 5.5.0
+ */
+@Configurable
+public class HibernateRetentionPolicyHandler
+        implements DeleteObservationHelper, Constructable, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HibernateRetentionPolicyHandler.class);
+
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private static final String PARAMETER_EXPIRATION = "expiration";
+
+    private HibernateSessionHolder sessionHolder;
+
+    private ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> scheduled;
+
+    private List<RetentionPolicy> policies = Collections.emptyList();
+
+    private int interval;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    @Inject
+    private DaoFactory daoFactory;
+
+    @Inject
+    private ConnectionProvider connectionProvider;
+
+    @Inject
+    private EventBus serviceEventBus;
+
+    @Override
+    public void init() {
+        this.sessionHolder = new HibernateSessionHolder(connectionProvider);
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new GroupedAndNamedThreadFactory("52n-retention-policies"));
+        schedule();
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Setting(RetentionPolicySettings.POLICIES)
+    public void setPolicies(String policies) throws ConfigurationError {
+        this.policies = RetentionPolicy.parse(policies);
+    }
+
+    /**
+     * Set the interval between two runs of the retention policies.
+     *
+     * @param interval
+     *            Interval in minutes, the policies are not applied
+     *            automatically if &lt;= 0
+     */
+    @Setting(RetentionPolicySettings.INTERVAL)
+    public synchronized void setInterval(int interval) {
+        this.interval = interval;
+        if (executor != null) {
+            schedule();
+        }
+    }
+
+    @Setting(RetentionPolicySettings.CHUNK_SIZE)
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    }
+
+    public List<RetentionPolicy> getPolicies() {
+        return Collections.unmodifiableList(policies);
+    }
+
+    @Override
+    public DaoFactory getDaoFactory() {
+        return daoFactory;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return LOG;
+    }
+
+    @Override
+    public boolean isDeletePhysically() {
+        return true;
+    }
+
+    private synchronized void schedule() {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        if (interval > 0) {
+            scheduled = executor.scheduleWithFixedDelay(this::run, interval, interval, TimeUnit.MINUTES);
+            LOG.debug("Retention policies are applied every {} minutes", interval);
+        }
+    }
+
+    private void run() {
+        try {
+            expire();
+        } catch (OwsExceptionReport | RuntimeException e) {
+            // an uncaught exception would cancel the scheduled task
+            LOG.error("Error while applying the retention policies!", e);
+        }
+    }
+
+    /**
+     * Apply all retention policies.
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    public synchronized void expire() throws OwsExceptionReport {
+        List<RetentionPolicy> current = policies;
+        if (current.isEmpty()) {
+            return;
+        }
+        DateTime now = DateTime.now();
+        Set<String> offerings = new HashSet<>();
+        try {
+            for (RetentionPolicy policy : current) {
+                Date expiration = policy.getExpiration(now).toDate();
+                for (Map.Entry<Long, String> dataset : getDatasets(policy).entrySet()) {
+                    long deleted = expire(dataset.getKey(), dataset.getValue(), expiration, offerings);
+                    if (deleted > 0) {
+                        LOG.debug("{} observations of dataset {} expired by retention policy '{}'", deleted,
+                                dataset.getKey(), policy);
+                    }
+                }
+            }
+        } finally {
+            // also announce the datasets expired before a failure
+            if (!offerings.isEmpty()) {
+                serviceEventBus.submit(new ObservationsExpired(offerings));
+                LOG.info("Retention policies removed observations of {} offerings", offerings.size());
+            }
+        }
+    }
+
+    /**
+     * Get the ids and offering identifiers of the datasets the policy applies
+     * to.
+     */
+    private Map<Long, String> getDatasets(RetentionPolicy policy) throws OwsExceptionReport {
+        List<String> procedures = Collections.emptyList();
+        List<String> observableProperties = Collections.emptyList();
+        List<String> offerings = Collections.emptyList();
+        switch (policy.getType()) {
+            case PROCEDURE:
+                procedures = Collections.singletonList(policy.getIdentifier());
+                break;
+            case OBSERVABLE_PROPERTY:
+                observableProperties = Collections.singletonList(policy.getIdentifier());
+                break;
+            case OFFERING:
+            default:
+                offerings = Collections.singletonList(policy.getIdentifier());
+                break;
+        }
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            Map<Long, String> datasets = new HashMap<>();
+            for (DatasetEntity dataset : getDaoFactory().getSeriesDAO().getSeries(procedures, observableProperties,
+                    Collections.emptyList(), offerings, session)) {
+                datasets.put(dataset.getId(), dataset.getOffering().getIdentifier());
+            }
+            return datasets;
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    /**
+     * Expire the observations of one dataset. The first/last values of the
+     * dataset are recomputed whenever its references were released, even if
+     * deleting a chunk failed, so that the dataset is never left without
+     * them. The offering is added to the expired offerings as soon as the
+     * first chunk was deleted.
+     */
+    private long expire(Long dataset, String offering, Date expiration, Set<String> offerings)
+            throws OwsExceptionReport {
+        boolean released = releaseFirstLastReferences(dataset, expiration);
+        long deleted = 0;
+        Exception failure = null;
+        try {
+            int limit = chunkSize;
+            Chunk chunk;
+            do {
+                chunk = deleteChunk(dataset, expiration, limit);
+                deleted += chunk.rows;
+                if (chunk.rows > 0) {
+                    offerings.add(offering);
+                }
+                if (chunk.rows > chunk.observations) {
+                    // the child observations are deleted with their parents
+                    limit = (int) Math.max(1L, (long) chunkSize * chunk.observations / chunk.rows);
+                } else {
+                    limit = chunkSize;
+                }
+            } while (chunk.isFull());
+            if (deleted > 0) {
+                rebuildRollups(dataset, expiration);
+            }
+            return deleted;
+        } catch (OwsExceptionReport | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (released || deleted > 0) {
+                try {
+                    updateFirstLatest(Collections.singleton(dataset));
+                } catch (OwsExceptionReport | RuntimeException e) {
+                    if (failure == null) {
+                        throw e;
+                    }
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the references to the first/last observation of the dataset if
+     * they expire so that they can be deleted. The references are recomputed
+     * in {@link #updateFirstLatest(Set)}.
+     *
+     * @return if the dataset has to be recomputed, also if the references
+     *         were released by an earlier run that did not complete
+     */
+    private boolean releaseFirstLastReferences(Long id, Date expiration) throws OwsExceptionReport {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionHolder.getSession();
+            transaction = session.beginTransaction();
+            DatasetEntity dataset = session.get(DatasetEntity.class, id);
+            boolean released = dataset.isSetFirstValueAt() && dataset.getFirstObservation() == null
+                    || dataset.isSetLastValueAt() && dataset.getLastObservation() == null;
+            boolean update = false;
+            if (dataset.isSetFirstValueAt() && dataset.getFirstValueAt().before(expiration)) {
+                dataset.setFirstObservation(null);
+                update = true;
+            }
+            if (dataset.isSetLastValueAt() && dataset.getLastValueAt().before(expiration)) {
+                dataset.setLastObservation(null);
+                update = true;
+            }
+            if (update) {
+                session.update(dataset);
+                session.flush();
+            }
+            transaction.commit();
+            return released || update;
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    /**
+     * Delete the next {@code limit} expired observations of the dataset and
+     * their child observations.
+     */
+    @SuppressWarnings("unchecked")
+    private Chunk deleteChunk(Long dataset, Date expiration, int limit) throws OwsExceptionReport {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionHolder.getSession();
+            transaction = session.beginTransaction();
+            StringBuilder builder = new StringBuilder();
+            builder.append("select ").append(DataEntity.PROPERTY_ID).append(FROM_PARAMETER)
+                    .append(getObservationClassName());
+            builder.append(WHERE_PARAMETER).append(DataEntity.PROPERTY_DATASET_ID).append(EQUAL_PARAMETER)
+                    .append(DataEntity.PROPERTY_DATASET);
+            builder.append(AND_PARAMETER).append(DataEntity.PROPERTY_SAMPLING_TIME_END).append(" < :")
+                    .append(PARAMETER_EXPIRATION);
+            builder.append(" order by ").append(DataEntity.PROPERTY_ID);
+            Query<?> q = session.createQuery(builder.toString());
+            q.setParameter(DataEntity.PROPERTY_DATASET, dataset);
+            q.setParameter(PARAMETER_EXPIRATION, expiration, UtcTimestampType.INSTANCE);
+            q.setMaxResults(limit);
+            List<Long> ids = (List<Long>) q.list();
+            int rows = 0;
+            for (List<Long> partition : Lists.partition(ids, HibernateConstants.LIMIT_EXPRESSION_DEPTH)) {
+                Query<?> deleteChildren = session.createQuery(getDeletChildQueryString(partition));
+                deleteChildren.setParameter(DataEntity.PROPERTY_PARENT, partition);
+                rows += deleteChildren.executeUpdate();
+                Query<?> delete = session.createQuery(getDeleteByIdQueryString());
+                delete.setParameter(DataEntity.PROPERTY_ID, partition);
+                rows += delete.executeUpdate();
+            }
+            transaction.commit();
+            return new Chunk(limit, ids.size(), rows);
+        } catch (HibernateException | OwsExceptionReport e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    /**
+     * Rebuild the rollups of the dataset up to the expiration.
+     */
+    private void rebuildRollups(Long id, Date expiration) throws OwsExceptionReport {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionHolder.getSession();
+            transaction = session.beginTransaction();
+            getDaoFactory().getObservationRollupDAO().rebuild(session.get(DatasetEntity.class, id), null, expiration,
+                    session);
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    private void updateFirstLatest(Set<Long> modifiedDatasets) throws OwsExceptionReport {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionHolder.getSession();
+            transaction = session.beginTransaction();
+            checkSeriesForFirstLatest(modifiedDatasets, session);
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    private String getDeleteByIdQueryString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(DELETE_PARAMETER).append(getObservationClassName());
+        builder.append(WHERE_PARAMETER).append(DataEntity.PROPERTY_ID).append(IN_PARAMETER)
+                .append(DataEntity.PROPERTY_ID);
+        return builder.toString();
+    }
+
+    private String getObservationClassName() {
+        return getDaoFactory().getObservationDAO().getObservationFactory().observationClass().getSimpleName();
+    }
+
+    /**
+     * The result of a deleted chunk.
+     */
+    private static final class Chunk {
+
+        private final int limit;
+
+        private final int observations;
+
+        private final int rows;
+
+        Chunk(int limit, int observations, int rows) {
+            this.limit = limit;
+            this.observations = observations;
+            this.rows = rows;
+        }
+
+        /**
+         * @return if the limit was reached, so that there may be further
+         *         expired observations
+         */
+        boolean isFull() {
+            return observations >= limit;
+        }
+    }
+}
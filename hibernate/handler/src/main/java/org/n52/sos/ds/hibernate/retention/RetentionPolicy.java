@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.retention;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+import org.n52.faroe.ConfigurationError;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+
+/**
+ * A retention policy defines the maximum age of the observations of an
+ * offering, procedure or observable property. Policies are defined as
+ * <code>type:identifier=period</code> where <code>type</code> is one of
+ * <code>offering</code>, <code>procedure</code> or
+ * <code>observableProperty</code> and <code>period</code> is an ISO 8601
+ * period, e.g. <code>offering:raw_1hz=P2Y</code>.
+ *
+ * @since 5.5.0
+ */
+public class RetentionPolicy {
+
+    private static final String POLICY_SEPARATOR = ";";
+
+    private static final String TYPE_SEPARATOR = ":";
+
+    private static final String PERIOD_SEPARATOR = "=";
+
+    public enum Type {
+        OFFERING("offering"), PROCEDURE("procedure"), OBSERVABLE_PROPERTY("observableProperty");
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public static Type fromName(String name) {
+            for (Type type : values()) {
+                if (type.getName().toLowerCase(Locale.ROOT).equals(name.toLowerCase(Locale.ROOT))) {
+                    return type;
+                }
+            }
+            throw new ConfigurationError(String.format("Unknown retention policy type '%s'!", name));
+        }
+    }
+
+    private final Type type;
+
+    private final String identifier;
+
+    private final Period maxAge;
+
+    public RetentionPolicy(Type type, String identifier, Period maxAge) {
+        this.type = Objects.requireNonNull(type, "type");
+        this.identifier = Objects.requireNonNull(identifier, "identifier");
+        this.maxAge = Objects.requireNonNull(maxAge, "maxAge");
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public Period getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Get the time before which observations expire.
+     *
+     * @param now
+     *            the reference time
+     * @return the expiration time
+     */
+    public DateTime getExpiration(DateTime now) {
+        return now.minus(maxAge);
+    }
+
+    /**
+     * Parse the retention policies from the setting value.
+     *
+     * @param value
+     *            Semicolon separated policy definitions
+     * @return the parsed policies
+     * @throws ConfigurationError
+     *             If a policy definition is invalid
+     */
+    public static List<RetentionPolicy> parse(String value) throws ConfigurationError {
+        if (Strings.isNullOrEmpty(value) || value.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<RetentionPolicy> policies = new LinkedList<>();
+        for (String policy : Splitter.on(POLICY_SEPARATOR).trimResults().omitEmptyStrings().split(value)) {
+            int typeIndex = policy.indexOf(TYPE_SEPARATOR);
+            int periodIndex = policy.lastIndexOf(PERIOD_SEPARATOR);
+            if (typeIndex <= 0 || periodIndex <= typeIndex + 1 || periodIndex == policy.length() - 1) {
+                throw new ConfigurationError(String.format(
+                        "Invalid retention policy '%s', expected 'type:identifier=period'!", policy));
+            }
+            Type type = Type.fromName(policy.substring(0, typeIndex).trim());
+            String identifier = policy.substring(typeIndex + 1, periodIndex).trim();
+            String period = policy.substring(periodIndex + 1).trim();
+            try {
+                policies.add(new RetentionPolicy(type, identifier, Period.parse(period)));
+            } catch (IllegalArgumentException e) {
+                throw new ConfigurationError(
+                        String.format("Invalid ISO 8601 period '%s' in retention policy '%s'!", period, policy), e);
+            }
+        }
+        return policies;
+    }
+
+    @Override
+    public String toString() {
+        return type.getName() + TYPE_SEPARATOR + identifier + PERIOD_SEPARATOR + maxAge;
+    }
+
+}
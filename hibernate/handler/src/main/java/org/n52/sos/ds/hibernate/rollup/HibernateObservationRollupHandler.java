@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.rollup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.dao.observation.series.ObservationRollupDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.ObservationRollupSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scheduled job that maintains the {@link ObservationRollupDAO observation
+ * rollups}.
+ * <p>
+ * The rollup table is created when the handler is started. Each run
+ * backfills the rollups of numeric and count datasets that are not
+ * complete, e.g. after the rollups were enabled or observations were deleted,
+ * and merges the rows that inserted observations added to the rollups. Each
+ * dataset and each chunk of merged buckets is committed in its own
+ * transaction.
+ *
+ * @since 5.5.0
+ */
+@Configurable
+public class HibernateObservationRollupHandler implements Constructable, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HibernateObservationRollupHandler.class);
+
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private HibernateSessionHolder sessionHolder;
+
+    private ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> scheduled;
+
+    private int interval;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    @Inject
+    private DaoFactory daoFactory;
+
+    @Inject
+    private ConnectionProvider connectionProvider;
+
+    @Override
+    public void init() {
+        this.sessionHolder = new HibernateSessionHolder(connectionProvider);
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new GroupedAndNamedThreadFactory("52n-observation-rollups"));
+        executor.execute(this::createTableIfEnabled);
+        schedule();
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Set the interval between two runs of the rollup maintenance.
+     *
+     * @param interval
+     *            Interval in minutes, the rollups are not maintained
+     *            automatically if &lt;= 0
+     */
+    @Setting(ObservationRollupSettings.INTERVAL)
+    public synchronized void setInterval(int interval) {
+        this.interval = interval;
+        if (executor != null) {
+            schedule();
+        }
+    }
+
+    @Setting(ObservationRollupSettings.CHUNK_SIZE)
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    }
+
+    private synchronized void schedule() {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        if (interval > 0) {
+            scheduled = executor.scheduleWithFixedDelay(this::run, interval, interval, TimeUnit.MINUTES);
+            LOG.debug("Observation rollups are maintained every {} minutes", interval);
+        }
+    }
+
+    private void createTableIfEnabled() {
+        try {
+            if (daoFactory.getObservationRollupDAO().isEnabled()) {
+                createTable();
+            }
+        } catch (OwsExceptionReport | HibernateException e) {
+            LOG.error("Error while creating the observation rollup table!", e);
+        }
+    }
+
+    private void run() {
+        try {
+            maintain();
+        } catch (OwsExceptionReport | HibernateException e) {
+            LOG.error("Error while maintaining the observation rollups!", e);
+        }
+    }
+
+    /**
+     * Create the rollup table if necessary, backfill the incomplete rollups
+     * and merge the rollup rows of inserted observations.
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    public synchronized void maintain() throws OwsExceptionReport {
+        if (!daoFactory.getObservationRollupDAO().isEnabled()) {
+            return;
+        }
+        createTable();
+        int backfilled = 0;
+        for (Long dataset : getIncompleteDatasets()) {
+            backfill(dataset);
+            backfilled++;
+        }
+        long merged = 0;
+        int chunk;
+        do {
+            chunk = compact();
+            merged += chunk;
+        } while (chunk >= chunkSize);
+        if (backfilled > 0 || merged > 0) {
+            LOG.info("Backfilled the rollups of {} datasets and merged {} rollup buckets", backfilled, merged);
+        }
+    }
+
+    private void createTable() throws OwsExceptionReport {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            ObservationRollupDAO rollupDAO = daoFactory.getObservationRollupDAO();
+            if (!rollupDAO.isAvailable(session)) {
+                rollupDAO.createTable(session);
+            }
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    /**
+     * Get the ids of the numeric and count datasets whose rollups are not
+     * complete.
+     */
+    private List<Long> getIncompleteDatasets() throws OwsExceptionReport {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            Set<Long> complete = daoFactory.getObservationRollupDAO().getCompleteDatasets(session);
+            List<Long> datasets = new ArrayList<>();
+            for (DatasetEntity dataset : daoFactory.getSeriesDAO().getSeries(Collections.emptyList(),
+                    Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), session)) {
+                if (!complete.contains(dataset.getId())
+                        && daoFactory.getValueDAO().getValueRowClass(dataset) != null) {
+                    datasets.add(dataset.getId());
+                }
+            }
+            return datasets;
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    private void backfill(Long id) throws OwsExceptionReport {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionHolder.getSession();
+            transaction = session.beginTransaction();
+            daoFactory.getObservationRollupDAO().backfill(session.get(DatasetEntity.class, id), session);
+            transaction.commit();
+            LOG.debug("Backfilled the rollups of dataset {}", id);
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    private int compact() throws OwsExceptionReport {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionHolder.getSession();
+            transaction = session.beginTransaction();
+            int merged = daoFactory.getObservationRollupDAO().compact(session, chunkSize);
+            transaction.commit();
+            return merged;
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+import org.n52.series.db.beans.ResultTemplateEntity;
+import org.n52.shetland.ogc.sos.SosResultEncoding;
+import org.n52.shetland.ogc.sos.SosResultStructure;
+import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
+
+/**
+ * Decoded result structure and encoding of a stored result template together
+ * with the values that are derived from them. Instances are shared between
+ * concurrent requests and must not be modified.
+ *
+ * @since 5.5.0
+ */
+public class ParsedResultTemplate {
+
+    private final String identifier;
+
+    private final Long id;
+
+    private final String structureXml;
+
+    private final String encodingXml;
+
+    private final SosResultStructure structure;
+
+    private final SosResultEncoding encoding;
+
+    private final int resultTimeIndex;
+
+    private final int phenomenonTimeIndex;
+
+    private final Map<Integer, String> valueOrder;
+
+    private volatile String observationType;
+
+    public ParsedResultTemplate(ResultTemplateEntity entity, SosResultStructure structure,
+            SosResultEncoding encoding, ResultHandlingHelper helper) {
+        this.identifier = entity.getIdentifier();
+        this.id = entity.getId();
+        this.structureXml = entity.getStructure();
+        this.encodingXml = entity.getEncoding();
+        this.structure = structure;
+        this.encoding = encoding;
+        SweAbstractDataComponent component = structure.get().orElse(null);
+        this.resultTimeIndex = helper.hasResultTime(component);
+        this.phenomenonTimeIndex = helper.hasPhenomenonTime(component);
+        this.valueOrder = component != null ? Collections.unmodifiableMap(helper.getValueOrderMap(component))
+                : Collections.emptyMap();
+    }
+
+    /**
+     * Check if this template was parsed from the stored entity. The stored
+     * XML is compared so that a template that was replaced under the same
+     * identifier is never served from the cache.
+     *
+     * @param entity
+     *            the stored result template
+     *
+     * @return if the entity matches
+     */
+    public boolean isFor(ResultTemplateEntity entity) {
+        return Objects.equals(identifier, entity.getIdentifier()) && Objects.equals(id, entity.getId())
+                && Objects.equals(structureXml, entity.getStructure())
+                && Objects.equals(encodingXml, entity.getEncoding());
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public SosResultStructure getStructure() {
+        return structure;
+    }
+
+    public SosResultEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @return position of the result time field or -1
+     */
+    public int getResultTimeIndex() {
+        return resultTimeIndex;
+    }
+
+    /**
+     * @return position of the phenomenon time field or -1
+     */
+    public int getPhenomenonTimeIndex() {
+        return phenomenonTimeIndex;
+    }
+
+    /**
+     * @return the token positions and definitions of the result values
+     */
+    public Map<Integer, String> getValueOrder() {
+        return valueOrder;
+    }
+
+    /**
+     * @return the observation type of the datasets of the template or
+     *         {@code null} if it was not resolved yet
+     */
+    public String getObservationType() {
+        return observationType;
+    }
+
+    /**
+     * Remember the observation type resolved from the datasets of the
+     * template. The type of the first dataset does not change, so only a
+     * resolved type is kept.
+     *
+     * @param observationType
+     *            the observation type
+     */
+    public void setObservationType(String observationType) {
+        this.observationType = observationType;
+    }
+}
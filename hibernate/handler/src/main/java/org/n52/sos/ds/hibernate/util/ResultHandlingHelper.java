@@ -149,6 +149,28 @@ public class ResultHandlingHelper implements HibernateUnproxy {
                 noDataPlaceholder, valueOrder, true, null, session);
     }
 
+    /**
+     * Create result values from observation according to the parsed result
+     * template
+     *
+     * @param observations
+     *            Observation to create result values from
+     * @param template
+     *            The parsed result template
+     * @param session
+     *            The Hibernate session
+     * @return Result values String from observation according to ResultEncoding
+     *         and ResultStructure
+     * @throws OwsExceptionReport
+     *             If creation fails
+     */
+    public String createResultValuesFromObservations(final Collection<DataEntity<?>> observations,
+            final ParsedResultTemplate template, String noDataPlaceholder, Session session)
+            throws OwsExceptionReport {
+        return createResultValuesFromObservations(observations, template.getEncoding(), template.getStructure(),
+                noDataPlaceholder, template.getValueOrder(), true, null, session);
+    }
+
     private String createResultValuesFromObservations(final Collection<DataEntity<?>> observations,
             final SosResultEncoding sosResultEncoding, final SosResultStructure sosResultStructure,
             String noDataPlaceholder, Map<Integer, String> valueOrder, boolean addCount,
@@ -356,7 +378,14 @@ public class ResultHandlingHelper implements HibernateUnproxy {
         return builder.toString();
     }
 
-    private Map<Integer, String> getValueOrderMap(final SweAbstractDataComponent sweDataElement) {
+    /**
+     * Get the token positions of the definitions in the result structure
+     *
+     * @param sweDataElement
+     *            the result structure
+     * @return the definitions sorted by token position
+     */
+    public Map<Integer, String> getValueOrderMap(final SweAbstractDataComponent sweDataElement) {
         final Map<Integer, String> valueOrder = new HashMap<>(0);
         if (sweDataElement instanceof SweDataArray
                 && ((SweDataArray) sweDataElement).getElementType() instanceof SweDataRecord) {
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.series.db.beans.ResultTemplateEntity;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.event.events.DeleteObservationEvent;
+import org.n52.sos.event.events.ResultTemplateInsertion;
+import org.n52.sos.event.events.ResultTemplatesDeletion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.SensorModification;
+import org.n52.sos.event.events.UpdateCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Cache of the parsed result templates used by InsertResult and GetResult,
+ * keyed by the template identifier. Concurrent requests for a missing template
+ * wait for a single parse. The cache is invalidated by result template
+ * insertions and by deletions of templates, sensors and observations.
+ *
+ * @since 5.5.0
+ */
+@Configurable
+public class ResultTemplateCache implements EventListener {
+
+    public static final String CACHE_SIZE = "service.resultTemplate.cacheSize";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultTemplateCache.class);
+
+    @SuppressWarnings("unchecked")
+    private static final Set<Class<? extends Event>> TYPES = Sets.<Class<? extends Event>> newHashSet(
+            ResultTemplateInsertion.class,
+            ResultTemplatesDeletion.class,
+            SensorModification.class,
+            SensorDeletion.class,
+            DeleteObservationEvent.class,
+            UpdateCache.class);
+
+    private volatile Cache<String, ParsedResultTemplate> cache;
+
+    /**
+     * Set the maximum number of cached templates, a size &lt;= 0 disables the
+     * cache.
+     *
+     * @param size
+     *            the maximum size
+     */
+    @Setting(CACHE_SIZE)
+    public void setCacheSize(int size) {
+        if (size > 0) {
+            this.cache = CacheBuilder.newBuilder().maximumSize(size).build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Get the parsed template for the stored entity, parsing it if it is not
+     * cached or the cached one was parsed from a different entity.
+     *
+     * @param entity
+     *            the stored result template
+     * @param loader
+     *            parses the entity
+     *
+     * @return the parsed template
+     *
+     * @throws OwsExceptionReport
+     *             if the template can not be parsed
+     */
+    public ParsedResultTemplate get(ResultTemplateEntity entity, Loader loader) throws OwsExceptionReport {
+        Cache<String, ParsedResultTemplate> c = this.cache;
+        if (c == null || entity.getIdentifier() == null) {
+            return loader.load(entity);
+        }
+        ParsedResultTemplate parsed;
+        try {
+            parsed = c.get(entity.getIdentifier(), () -> loader.load(entity));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof OwsExceptionReport) {
+                throw (OwsExceptionReport) e.getCause();
+            }
+            throw new NoApplicableCodeException().causedBy(e.getCause())
+                    .withMessage("Error while parsing the result template '%s'!", entity.getIdentifier());
+        }
+        if (!parsed.isFor(entity)) {
+            parsed = loader.load(entity);
+            c.put(entity.getIdentifier(), parsed);
+        }
+        return parsed;
+    }
+
+    public void invalidate() {
+        Cache<String, ParsedResultTemplate> c = this.cache;
+        if (c != null) {
+            c.invalidateAll();
+        }
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.unmodifiableSet(TYPES);
+    }
+
+    @Override
+    public void handle(Event event) {
+        if (isEnabled()) {
+            LOGGER.debug("Invalidating result template cache after {}", event.getClass().getSimpleName());
+            invalidate();
+        }
+    }
+
+    /**
+     * Parses a stored result template.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        ParsedResultTemplate load(ResultTemplateEntity entity) throws OwsExceptionReport;
+    }
+}
@@ -151,6 +151,51 @@ public abstract class AbstractHibernateStreamingValue extends StreamingValue<Dat
         sessionHolder.returnSession(session);
     }
 
+    /**
+     * Get a new session that is not bound to this streaming value, e.g. to
+     * query values on another thread.
+     *
+     * @return a new session
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    protected Session openSession() throws OwsExceptionReport {
+        return sessionHolder.getSession();
+    }
+
+    /**
+     * Return a session obtained from {@link #openSession()} that was not
+     * handed over with {@link #setSession(Session)}.
+     *
+     * @param session
+     *            the session to return
+     */
+    protected void closeSession(Session session) {
+        sessionHolder.returnSession(session);
+    }
+
+    /**
+     * @return the session that is bound to this streaming value or
+     *         {@code null}
+     */
+    protected Session getBoundSession() {
+        return session;
+    }
+
+    /**
+     * Bind a session obtained from {@link #openSession()} to this streaming
+     * value. It is returned with {@link #returnSession(Session)}.
+     *
+     * @param session
+     *            the session to bind
+     */
+    protected void setSession(Session session) {
+        if (this.session != null && this.session != session) {
+            sessionHolder.returnSession(this.session);
+        }
+        this.session = session;
+    }
+
     @Override
     public ObservationStream merge() throws OwsExceptionReport {
         Map<String, OmObservation> observations = Maps.newHashMap();
@@ -38,4 +38,14 @@ public interface HibernateStreamingSettings {
 
     String CHUNK_SIZE = "service.streaming.datasource.chunkSize";
 
+    String VALUE_ROWS = "service.streaming.datasource.valueRows";
+
+    String PREFETCH_DEPTH = "service.streaming.datasource.prefetchDepth";
+
+    String PREFETCH_CHUNKS = "service.streaming.datasource.prefetchChunks";
+
+    String PREFETCH_SESSIONS = "service.streaming.datasource.prefetchSessions";
+
+    String PREFETCH_TIMEOUT = "service.streaming.datasource.prefetchTimeout";
+
 }
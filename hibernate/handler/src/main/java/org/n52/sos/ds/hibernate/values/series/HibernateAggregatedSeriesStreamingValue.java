@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values.series;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.n52.iceland.binding.BindingRepository;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.http.HTTPStatus;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.util.OMHelper;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.request.TemporalAggregation;
+
+/**
+ * Hibernate series streaming value implementation for temporally aggregated
+ * values. The buckets of the series are queried at once when the first value
+ * is requested, each bucket is returned as a transient {@link DataEntity}. The
+ * session is kept until the last bucket is read because the buckets refer to
+ * the dataset of the session.
+ *
+ * @since 5.5.0
+ */
+public class HibernateAggregatedSeriesStreamingValue extends HibernateSeriesStreamingValue {
+
+    private static final String ERROR_LOG = "Error while querying aggregated observation data!";
+
+    private final TemporalAggregation aggregation;
+
+    private Iterator<DataEntity<?>> seriesValuesResult;
+
+    private int index;
+
+    /**
+     * constructor
+     *
+     * @param connectionProvider
+     *            the connection provider
+     * @param daoFactory
+     *            the DAO factory
+     * @param request
+     *            {@link GetObservationRequest}
+     * @param series
+     *            Datasource series id
+     * @param bindingRepository
+     *            the binding repository
+     * @param aggregation
+     *            the temporal aggregation
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    public HibernateAggregatedSeriesStreamingValue(ConnectionProvider connectionProvider, DaoFactory daoFactory,
+            GetObservationRequest request, long series, BindingRepository bindingRepository,
+            TemporalAggregation aggregation) throws OwsExceptionReport {
+        super(connectionProvider, daoFactory, request, series, bindingRepository);
+        this.aggregation = aggregation;
+    }
+
+    @Override
+    public boolean hasNext() throws OwsExceptionReport {
+        if (seriesValuesResult == null) {
+            queryAggregatedValues();
+        }
+        boolean next = seriesValuesResult.hasNext();
+        if (!next) {
+            returnSession(getSession());
+        }
+        return next;
+    }
+
+    @Override
+    public DataEntity<?> nextEntity() throws OwsExceptionReport {
+        hasNext();
+        index++;
+        return seriesValuesResult.next();
+    }
+
+    @Override
+    public TimeValuePair nextValue() throws OwsExceptionReport {
+        if (hasNext()) {
+            index++;
+            return createTimeValuePairFrom(seriesValuesResult.next());
+        }
+        return null;
+    }
+
+    @Override
+    public OmObservation next() throws OwsExceptionReport {
+        if (hasNext()) {
+            OmObservation observation = getObservationTemplate().cloneTemplate();
+            addValuesToObservation(seriesValuesResult.next(), observation, getResponseFormat());
+            // the ids of the transient buckets are only unique within the series
+            observation.setObservationID(series + "_" + index++);
+            // counts and means may differ from the observation type of the series
+            observation.getObservationConstellation()
+                    .setObservationType(OMHelper.getObservationTypeFor(observation.getValue().getValue()));
+            checkForModifications(observation);
+            return observation;
+        }
+        return null;
+    }
+
+    private void queryAggregatedValues() throws OwsExceptionReport {
+        Session session = null;
+        try {
+            session = getSession();
+            DatasetEntity dataset = session.get(DatasetEntity.class, series);
+            List<DataEntity<?>> values = seriesValueDAO.getAggregatedSeriesValuesFor((GetObservationRequest) request,
+                    dataset, aggregation, temporalFilterCriterion, session);
+            checkMaxNumberOfReturnedValues(values.size());
+            seriesValuesResult = values.iterator();
+        } catch (final HibernateException he) {
+            returnSession(session);
+            throw new NoApplicableCodeException().causedBy(he).withMessage(ERROR_LOG)
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+}
@@ -27,18 +27,28 @@
  */
 package org.n52.sos.ds.hibernate.values.series;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.n52.iceland.binding.BindingRepository;
 import org.n52.iceland.ds.ConnectionProvider;
 import org.n52.janmayen.http.HTTPStatus;
+import org.n52.series.db.beans.CountDataEntity;
 import org.n52.series.db.beans.DataEntity;
+import org.n52.shetland.ogc.UoM;
 import org.n52.shetland.ogc.om.OmObservation;
 import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.values.CountValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
 import org.n52.shetland.ogc.ows.exception.CodedException;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
@@ -57,7 +67,7 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
 
     private static final String ERROR_LOG = "Error while querying observation data!";
 
-    private Iterator<DataEntity<?>> seriesValuesResult;
+    private Iterator<?> seriesValuesResult;
 
     private int chunkSize;
 
@@ -67,6 +77,24 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
 
     private int currentResultSize;
 
+    private int chunkStart;
+
+    private int consumed;
+
+    private Class<?> valueRowClass;
+
+    private String valueRowUnit;
+
+    private boolean valueRows;
+
+    private SeriesValuePrefetcher.ReadAhead readAhead;
+
+    private int readAheadPosition;
+
+    private boolean started;
+
+    private final Deque<ChunkPrefetch> prefetched = new ArrayDeque<>();
+
     /**
      * constructor
      *
@@ -90,14 +118,27 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
 
     @Override
     public boolean hasNext() throws OwsExceptionReport {
+        if (!started) {
+            started = true;
+            if (readAhead != null) {
+                readAhead.advance(readAheadPosition);
+            }
+        }
         boolean next = false;
-        if ((seriesValuesResult == null || !seriesValuesResult.hasNext()) && getSession().isOpen()) {
-            if (!noChunk) {
+        if (seriesValuesResult == null || !seriesValuesResult.hasNext()) {
+            if (!noChunk && !prefetched.isEmpty()) {
+                takePrefetched();
+            } else if (getSession().isOpen() && !noChunk) {
                 getNextResults();
                 if (chunkSize <= 0 || currentResultSize < chunkSize) {
                     noChunk = true;
                 }
             }
+            if (noChunk) {
+                cancelPrefetched();
+            } else {
+                prefetchChunks();
+            }
         }
         if (seriesValuesResult != null) {
             next = seriesValuesResult.hasNext();
@@ -111,6 +152,11 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
 
     @Override
     public DataEntity<?> nextEntity() throws OwsExceptionReport {
+        if (valueRows) {
+            useEntities();
+            hasNext();
+        }
+        consumed++;
         return (DataEntity<?>) seriesValuesResult.next();
     }
 
@@ -118,14 +164,18 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
     public TimeValuePair nextValue() throws OwsExceptionReport {
         try {
             if (hasNext()) {
-                DataEntity<?> resultObject = seriesValuesResult.next();
+                consumed++;
+                if (valueRows) {
+                    return createTimeValuePairFrom((Object[]) seriesValuesResult.next());
+                }
+                DataEntity<?> resultObject = (DataEntity<?>) seriesValuesResult.next();
                 TimeValuePair value = createTimeValuePairFrom(resultObject);
                 getSession().evict(resultObject);
                 return value;
             }
             return null;
         } catch (final HibernateException he) {
-            returnSession(getSession());
+            close();
             throw new NoApplicableCodeException().causedBy(he).withMessage(ERROR_LOG)
                     .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
         }
@@ -133,10 +183,12 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
 
     @Override
     public OmObservation next() throws OwsExceptionReport {
+        useEntities();
         try {
             if (hasNext()) {
                 OmObservation observation = getObservationTemplate().cloneTemplate();
-                DataEntity<?> resultObject = seriesValuesResult.next();
+                consumed++;
+                DataEntity<?> resultObject = (DataEntity<?>) seriesValuesResult.next();
                 addValuesToObservation(resultObject, observation, getResponseFormat());
                 checkForModifications(observation);
                 getSession().evict(resultObject);
@@ -144,10 +196,159 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
             }
             return null;
         } catch (final HibernateException he) {
-            returnSession(getSession());
+            close();
+            throw new NoApplicableCodeException().causedBy(he).withMessage(ERROR_LOG)
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Discard the prefetched chunks and return the session of this value. The
+     * value can not be read afterwards.
+     */
+    public void close() {
+        noChunk = true;
+        seriesValuesResult = null;
+        cancelPrefetched();
+        Session session = getBoundSession();
+        if (session != null) {
+            returnSession(session);
+        }
+    }
+
+    /**
+     * Stream the values of a numeric or count series as value rows if only
+     * {@link TimeValuePair}s are requested. The value switches back to
+     * {@link DataEntity}s when an observation or entity is requested.
+     *
+     * @param valueClass
+     *            the value class of the series or {@code null} if the series
+     *            does not support value rows
+     * @param unit
+     *            the unit of the series
+     */
+    public void setValueRows(Class<?> valueClass, String unit) {
+        this.valueRowClass = valueClass;
+        this.valueRowUnit = unit;
+        this.valueRows = valueClass != null;
+    }
+
+    /**
+     * Set the read-ahead this value is part of.
+     *
+     * @param readAhead
+     *            the read-ahead
+     * @param position
+     *            the position of this value in the read-ahead
+     */
+    void setReadAhead(SeriesValuePrefetcher.ReadAhead readAhead, int position) {
+        this.readAhead = readAhead;
+        this.readAheadPosition = position;
+    }
+
+    /**
+     * @return {@code true} if the encoder has not yet started to read this
+     *         value and its first chunk is not yet prefetched
+     */
+    boolean isPrefetchable() {
+        return !started && prefetched.isEmpty();
+    }
+
+    /**
+     * Query the first chunk of this value in the background before the encoder
+     * starts to read it.
+     *
+     * @return {@code true} if the prefetch was submitted
+     */
+    boolean prefetchFirstChunk() {
+        return isPrefetchable() && submitPrefetch();
+    }
+
+    /**
+     * Keep the configured number of upcoming chunks of this value in flight.
+     */
+    private void prefetchChunks() {
+        if (readAhead != null && chunkSize > 0) {
+            while (prefetched.size() < readAhead.getChunks() && submitPrefetch()) {
+                // submit until the pipeline or the session budget is full
+            }
+        }
+    }
+
+    private boolean submitPrefetch() {
+        ChunkPrefetch prefetch = new ChunkPrefetch(currentRow, valueRows);
+        if (readAhead.submit(prefetch)) {
+            prefetched.add(prefetch);
+            currentRow += chunkSize;
+            return true;
+        }
+        return false;
+    }
+
+    private void cancelPrefetched() {
+        ChunkPrefetch prefetch;
+        while ((prefetch = prefetched.poll()) != null) {
+            prefetch.cancel();
+        }
+    }
+
+    /**
+     * Switch from value rows to {@link DataEntity}s. The current chunk and the
+     * prefetched chunks are discarded and queried again starting with the
+     * first value that was not consumed.
+     */
+    private void useEntities() {
+        if (valueRows) {
+            valueRows = false;
+            cancelPrefetched();
+            currentRow = chunkStart + consumed;
+            seriesValuesResult = null;
+            noChunk = false;
+        }
+    }
+
+    /**
+     * Take the next prefetched chunk and bind its session to this value. If
+     * the chunk expired, it is queried again with the current session.
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying the chunk
+     */
+    private void takePrefetched() throws OwsExceptionReport {
+        ChunkPrefetch prefetch = prefetched.poll();
+        List<?> values;
+        try {
+            Session session = prefetch.take();
+            if (session == null) {
+                values = queryNextResults(getSession(), prefetch.row, prefetch.rows);
+            } else {
+                Session current = getBoundSession();
+                if (current != null) {
+                    returnSession(current);
+                }
+                setSession(session);
+                values = prefetch.values;
+                prefetch.values = null;
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            prefetch.cancel();
+            close();
+            throw new NoApplicableCodeException().causedBy(ie).withMessage(ERROR_LOG)
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+        } catch (OwsExceptionReport owse) {
+            close();
+            throw owse;
+        } catch (HibernateException he) {
+            close();
             throw new NoApplicableCodeException().causedBy(he).withMessage(ERROR_LOG)
                     .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
         }
+        checkMaxNumberOfReturnedValues(values.size());
+        setSeriesValuesResult(values, prefetch.row);
+        if (chunkSize <= 0 || values.size() < chunkSize) {
+            noChunk = true;
+        }
     }
 
     /**
@@ -160,19 +361,10 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
         Session session = null;
         try {
             session = getSession();
-            // query with temporal filter
-            Collection<DataEntity<?>> resutltValues = new ArrayList<>();
-            if (temporalFilterCriterion != null) {
-                resutltValues.addAll(seriesValueDAO.getStreamingSeriesValuesFor(request, series,
-                        temporalFilterCriterion, chunkSize, currentRow, session));
-            } else {
-                // query without temporal or indeterminate filters
-                resutltValues.addAll(seriesValueDAO.getStreamingSeriesValuesFor(request, series, chunkSize, currentRow,
-                        getSession()));
-            }
-            currentRow += chunkSize;
+            Collection<?> resutltValues = queryNextResults(session, currentRow, valueRows);
             checkMaxNumberOfReturnedValues(resutltValues.size());
-            setSeriesValuesResult(resutltValues);
+            setSeriesValuesResult(resutltValues, currentRow);
+            currentRow += chunkSize;
         } catch (final HibernateException he) {
             returnSession(session);
             throw new NoApplicableCodeException().causedBy(he).withMessage(ERROR_LOG)
@@ -180,17 +372,178 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
         }
     }
 
+    private List<?> queryNextResults(Session session, int row, boolean rows) throws OwsExceptionReport {
+        if (rows) {
+            return seriesValueDAO.getStreamingSeriesValueRowsFor(request, series, valueRowClass,
+                    temporalFilterCriterion, chunkSize, row, session);
+        }
+        List<DataEntity<?>> resutltValues = new ArrayList<>();
+        if (temporalFilterCriterion != null) {
+            // query with temporal filter
+            resutltValues.addAll(seriesValueDAO.getStreamingSeriesValuesFor(request, series,
+                    temporalFilterCriterion, chunkSize, row, session));
+        } else {
+            // query without temporal or indeterminate filters
+            resutltValues.addAll(
+                    seriesValueDAO.getStreamingSeriesValuesFor(request, series, chunkSize, row, session));
+        }
+        return resutltValues;
+    }
+
     /**
-     * Check the queried {@link DataEntity}s for null and set
+     * Check the queried {@link DataEntity}s or value rows for null and set
      * them as iterator to local variable.
      *
      * @param seriesValuesResult
-     *            Queried {@link DataEntity}s
+     *            Queried {@link DataEntity}s or value rows
+     * @param row
+     *            the row of the first queried value
      */
-    private void setSeriesValuesResult(Collection<DataEntity<?>> seriesValuesResult) {
+    private void setSeriesValuesResult(Collection<?> seriesValuesResult, int row) {
         if (CollectionHelper.isNotEmpty(seriesValuesResult)) {
             this.currentResultSize = seriesValuesResult.size();
             this.seriesValuesResult = seriesValuesResult.iterator();
+            this.chunkStart = row;
+            this.consumed = 0;
+        }
+
+    }
+
+    /**
+     * Create a {@link TimeValuePair} from a value row.
+     *
+     * @param row
+     *            {@code [samplingTimeStart, samplingTimeEnd, value]}
+     * @return resulting {@link TimeValuePair}
+     */
+    private TimeValuePair createTimeValuePairFrom(Object[] row) {
+        DateTime start = new DateTime((Date) row[0], DateTimeZone.UTC);
+        DateTime end = row[1] != null ? new DateTime((Date) row[1], DateTimeZone.UTC) : start;
+        if (CountDataEntity.class.isAssignableFrom(valueRowClass)) {
+            return new TimeValuePair(createTime(start, end),
+                    new CountValue(row[2] != null ? ((Number) row[2]).intValue() : null));
+        }
+        QuantityValue value = new QuantityValue(row[2] != null ? ((Number) row[2]).doubleValue() : null);
+        if (valueRowUnit != null) {
+            value.setUnit(new UoM(valueRowUnit));
+        }
+        return new TimeValuePair(createTime(start, end), value);
+    }
+
+    /**
+     * A chunk that is queried on the worker pool with its own session. The
+     * session counts against the session budget of the read-ahead until it is
+     * handed over to the value, returned on cancellation or returned after
+     * the timeout if the chunk is not taken.
+     */
+    private final class ChunkPrefetch implements Runnable {
+
+        private final int row;
+
+        private final boolean rows;
+
+        private Session session;
+
+        private List<?> values;
+
+        private Throwable failure;
+
+        private boolean done;
+
+        private boolean cancelled;
+
+        private boolean expired;
+
+        ChunkPrefetch(int row, boolean rows) {
+            this.row = row;
+            this.rows = rows;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (cancelled) {
+                    readAhead.release();
+                    return;
+                }
+            }
+            Session querySession = null;
+            List<?> result = null;
+            Throwable error = null;
+            try {
+                querySession = openSession();
+                result = queryNextResults(querySession, row, rows);
+            } catch (OwsExceptionReport | RuntimeException | Error e) {
+                error = e;
+            }
+            boolean discard;
+            synchronized (this) {
+                discard = cancelled || error != null;
+                if (!discard) {
+                    this.session = querySession;
+                    this.values = result;
+                }
+                this.failure = error;
+                this.done = true;
+                notifyAll();
+            }
+            if (discard) {
+                if (querySession != null) {
+                    closeSession(querySession);
+                }
+                readAhead.release();
+            } else {
+                readAhead.expireAfterTimeout(this::expire);
+            }
+        }
+
+        /**
+         * Wait for the chunk.
+         *
+         * @return the session the chunk was queried with or {@code null} if
+         *         the chunk expired and has to be queried again
+         */
+        synchronized Session take() throws InterruptedException, OwsExceptionReport {
+            while (!done) {
+                wait();
+            }
+            if (failure instanceof OwsExceptionReport) {
+                throw (OwsExceptionReport) failure;
+            } else if (failure != null) {
+                throw new NoApplicableCodeException().causedBy(failure).withMessage(ERROR_LOG)
+                        .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+            }
+            if (expired) {
+                return null;
+            }
+            Session taken = this.session;
+            this.session = null;
+            // the session is now held by the value like a session it opened
+            // itself
+            readAhead.release();
+            return taken;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            discard();
+        }
+
+        private synchronized void expire() {
+            if (discard()) {
+                expired = true;
+            }
+        }
+
+        private boolean discard() {
+            if (done && session != null) {
+                closeSession(session);
+                session = null;
+                values = null;
+                readAhead.release();
+                return true;
+            }
+            return false;
         }
 
     }
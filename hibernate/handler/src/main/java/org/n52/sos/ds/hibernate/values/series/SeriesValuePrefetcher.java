@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values.series;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.sos.ds.hibernate.values.HibernateStreamingSettings;
+
+/**
+ * Prefetches chunks of series values on a worker pool while the encoder
+ * writes the current chunk. Two kinds of read-ahead are supported: the first
+ * chunk of the upcoming series of a response and the upcoming chunks of the
+ * current series. The number of sessions that are checked out by prefetched
+ * chunks is limited by the session budget; if the budget is exhausted, the
+ * chunk is queried when the encoder reaches it. Prefetched chunks that are
+ * not consumed within the timeout, e.g. because the client disconnected, are
+ * discarded and their session is returned.
+ *
+ * @since 5.5.0
+ */
+@Configurable
+public class SeriesValuePrefetcher implements Constructable, Destroyable {
+
+    private static final int DEFAULT_SESSIONS = 4;
+
+    private static final int DEFAULT_TIMEOUT = 30;
+
+    private int depth;
+
+    private int chunks;
+
+    private int sessions = DEFAULT_SESSIONS;
+
+    private long timeout = DEFAULT_TIMEOUT;
+
+    private ScheduledExecutorService executor;
+
+    private Semaphore sessionBudget;
+
+    @Setting(HibernateStreamingSettings.PREFETCH_DEPTH)
+    public void setDepth(int depth) {
+        this.depth = Math.max(0, depth);
+    }
+
+    @Setting(HibernateStreamingSettings.PREFETCH_CHUNKS)
+    public void setChunks(int chunks) {
+        this.chunks = Math.max(0, chunks);
+    }
+
+    @Setting(HibernateStreamingSettings.PREFETCH_SESSIONS)
+    public synchronized void setSessions(int sessions) {
+        int newSessions = sessions > 0 ? sessions : DEFAULT_SESSIONS;
+        if (newSessions != this.sessions && this.executor != null) {
+            // running prefetches finish on the old pool and release the old
+            // budget
+            this.executor.shutdown();
+            this.sessions = newSessions;
+            init();
+        }
+        this.sessions = newSessions;
+    }
+
+    @Setting(HibernateStreamingSettings.PREFETCH_TIMEOUT)
+    public void setTimeout(int timeout) {
+        this.timeout = timeout > 0 ? timeout : DEFAULT_TIMEOUT;
+    }
+
+    @Override
+    public synchronized void init() {
+        this.sessionBudget = new Semaphore(sessions);
+        ScheduledThreadPoolExecutor pool =
+                new ScheduledThreadPoolExecutor(sessions, new GroupedAndNamedThreadFactory("52n-series-prefetch"));
+        pool.setRemoveOnCancelPolicy(true);
+        this.executor = pool;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Create the read-ahead for the series values of one response.
+     *
+     * @return the read-ahead or {@code null} if prefetching is disabled
+     */
+    public synchronized ReadAhead newReadAhead() {
+        if (depth <= 0 && chunks <= 0 || executor == null) {
+            return null;
+        }
+        return new ReadAhead(depth, chunks, timeout, executor, sessionBudget);
+    }
+
+    /**
+     * Read-ahead over the series values of one response in output order.
+     */
+    public static final class ReadAhead {
+
+        private final List<HibernateChunkSeriesStreamingValue> values = new ArrayList<>();
+
+        private final int depth;
+
+        private final int chunks;
+
+        private final long timeout;
+
+        private final ScheduledExecutorService executor;
+
+        private final Semaphore sessionBudget;
+
+        private ReadAhead(int depth, int chunks, long timeout, ScheduledExecutorService executor,
+                Semaphore sessionBudget) {
+            this.depth = depth;
+            this.chunks = chunks;
+            this.timeout = timeout;
+            this.executor = executor;
+            this.sessionBudget = sessionBudget;
+        }
+
+        /**
+         * Add the next series value in output order.
+         *
+         * @param value
+         *            the series value
+         */
+        public void add(HibernateChunkSeriesStreamingValue value) {
+            value.setReadAhead(this, values.size());
+            values.add(value);
+        }
+
+        /**
+         * Called by the series value at the given position when the encoder
+         * starts to read it. Prefetches the first chunk of the upcoming series
+         * values.
+         *
+         * @param position
+         *            the position of the current series value
+         */
+        void advance(int position) {
+            int end = Math.min(values.size(), position + depth + 1);
+            for (int i = position + 1; i < end; i++) {
+                HibernateChunkSeriesStreamingValue value = values.get(i);
+                if (value.isPrefetchable() && !value.prefetchFirstChunk()) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return the number of chunks of a series to read ahead
+         */
+        int getChunks() {
+            return chunks;
+        }
+
+        /**
+         * Run the prefetch on the worker pool if the session budget permits.
+         * The prefetch has to call {@link #release()} once its session is
+         * handed over or returned.
+         *
+         * @param prefetch
+         *            the prefetch
+         * @return {@code true} if the prefetch was submitted
+         */
+        boolean submit(Runnable prefetch) {
+            if (!sessionBudget.tryAcquire()) {
+                return false;
+            }
+            try {
+                executor.execute(prefetch);
+                return true;
+            } catch (RejectedExecutionException ree) {
+                sessionBudget.release();
+                return false;
+            }
+        }
+
+        /**
+         * Run the expiry of a completed prefetch after the timeout.
+         *
+         * @param expiry
+         *            the expiry
+         */
+        void expireAfterTimeout(Runnable expiry) {
+            try {
+                executor.schedule(expiry, timeout, TimeUnit.SECONDS);
+            } catch (RejectedExecutionException ree) {
+                // the pool is shut down, run it immediately
+                expiry.run();
+            }
+        }
+
+        void release() {
+            sessionBudget.release();
+        }
+
+    }
+
+}
@@ -33,8 +33,11 @@ import java.util.Map;
 import org.junit.Test;
 import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.ows.exception.CodedException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.swe.SweDataArray;
 import org.n52.shetland.ogc.swe.SweDataRecord;
 import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
 import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
 import org.n52.shetland.ogc.swe.simpleType.SweTimeRange;
 
@@ -81,6 +84,27 @@ public class InsertResultDAOTest
         assertThat(observedProperties.get(3).equals(OBS_PROP_3), is(true));
     }
 
+    @Test
+    public void test_createObservationValueFrom_CopiesResultStructure()
+            throws OwsExceptionReport {
+        final SweDataRecord record = createRecordWithSimpleObservation();
+        final SweTextEncoding encoding = new SweTextEncoding();
+        encoding.setBlockSeparator("@");
+        encoding.setTokenSeparator(",");
+        final SweDataArray first = insertResultDAO.createObservationValueFrom(new String[] { "2020-01-01,1.0" },
+                record, encoding, -1, 0).getValue().getValue();
+        final SweDataArray second = insertResultDAO.createObservationValueFrom(new String[] { "2020-01-02,2.0" },
+                record, encoding, -1, 0).getValue().getValue();
+        assertThat(first.getElementType(), is(not(sameInstance(record))));
+        assertThat(first.getElementType(), is(not(sameInstance(second.getElementType()))));
+        assertThat(first.getEncoding(), is(not(sameInstance(encoding))));
+        assertThat(first.getElementType(), is(record));
+
+        first.getElementType().setDefinition(TEST);
+        assertThat(record.getDefinition(), is(nullValue()));
+        assertThat(second.getElementType().getDefinition(), is(nullValue()));
+    }
+
     private SweDataRecord createRecord() {
         SweDataRecord record = new SweDataRecord();
         record.addField(new SweField("phenomenonTime",
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.retention;
+
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Assert;
+import org.junit.Test;
+import org.n52.faroe.ConfigurationError;
+import org.n52.sos.ds.hibernate.retention.RetentionPolicy.Type;
+
+public class RetentionPolicyTest {
+
+    @Test
+    public void shouldReturnEmptyListForEmptyValue() {
+        Assert.assertTrue(RetentionPolicy.parse(null).isEmpty());
+        Assert.assertTrue(RetentionPolicy.parse(" ").isEmpty());
+    }
+
+    @Test
+    public void shouldParsePolicies() {
+        List<RetentionPolicy> policies = RetentionPolicy
+                .parse("offering:raw_1hz=P2Y; procedure:urn:ogc:object:Sensor:1=P30D;observableProperty:temp=PT12H;");
+        Assert.assertEquals(3, policies.size());
+        Assert.assertEquals(Type.OFFERING, policies.get(0).getType());
+        Assert.assertEquals("raw_1hz", policies.get(0).getIdentifier());
+        Assert.assertEquals(Period.years(2), policies.get(0).getMaxAge());
+        Assert.assertEquals(Type.PROCEDURE, policies.get(1).getType());
+        Assert.assertEquals("urn:ogc:object:Sensor:1", policies.get(1).getIdentifier());
+        Assert.assertEquals(Period.days(30), policies.get(1).getMaxAge());
+        Assert.assertEquals(Type.OBSERVABLE_PROPERTY, policies.get(2).getType());
+        Assert.assertEquals("temp", policies.get(2).getIdentifier());
+        Assert.assertEquals(Period.hours(12), policies.get(2).getMaxAge());
+    }
+
+    @Test
+    public void shouldCalculateExpiration() {
+        RetentionPolicy policy = RetentionPolicy.parse("offering:raw=P2Y").get(0);
+        DateTime now = new DateTime(2020, 6, 1, 0, 0, DateTimeZone.UTC);
+        Assert.assertEquals(new DateTime(2018, 6, 1, 0, 0, DateTimeZone.UTC), policy.getExpiration(now));
+    }
+
+    @Test(expected = ConfigurationError.class)
+    public void shouldFailForUnknownType() {
+        RetentionPolicy.parse("feature:f1=P1D");
+    }
+
+    @Test(expected = ConfigurationError.class)
+    public void shouldFailForMissingPeriod() {
+        RetentionPolicy.parse("offering:raw=");
+    }
+
+    @Test(expected = ConfigurationError.class)
+    public void shouldFailForInvalidPeriod() {
+        RetentionPolicy.parse("offering:raw=two years");
+    }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.n52.series.db.beans.ResultTemplateEntity;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosResultEncoding;
+import org.n52.shetland.ogc.sos.SosResultStructure;
+import org.n52.shetland.ogc.sos.drt.DeleteResultTemplateRequest;
+import org.n52.shetland.ogc.sos.drt.DeleteResultTemplateResponse;
+import org.n52.shetland.ogc.sos.request.InsertResultTemplateRequest;
+import org.n52.shetland.ogc.sos.response.InsertResultTemplateResponse;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweTimeRange;
+import org.n52.sos.event.events.ResultTemplateInsertion;
+import org.n52.sos.event.events.ResultTemplatesDeletion;
+
+import com.google.common.collect.Lists;
+
+public class ResultTemplateCacheTest {
+
+    private static final String TEMPLATE = "template";
+
+    private static final String OBS_PROP = "obsProp";
+
+    private static final String STRUCTURE = "<swe:DataRecord/>";
+
+    private static final String ENCODING = "<swe:TextEncoding/>";
+
+    private final ResultHandlingHelper helper = new ResultHandlingHelper(null, null, null);
+
+    private final AtomicInteger loaded = new AtomicInteger();
+
+    private ResultTemplateCache cache;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        cache = new ResultTemplateCache();
+        cache.setCacheSize(10);
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldParseTemplateOnce() throws OwsExceptionReport {
+        ResultTemplateEntity entity = createEntity(1L, STRUCTURE);
+        ParsedResultTemplate first = cache.get(entity, this::parse);
+        ParsedResultTemplate second = cache.get(createEntity(1L, STRUCTURE), this::parse);
+        assertThat(second, is(sameInstance(first)));
+        assertThat(loaded.get(), is(1));
+        assertThat(first.getPhenomenonTimeIndex(), is(0));
+        assertThat(first.getResultTimeIndex(), is(-1));
+        assertThat(first.getValueOrder().keySet(), hasItems(0, 1));
+        assertThat(first.getValueOrder().get(1), is(OBS_PROP));
+    }
+
+    @Test
+    public void shouldReparseReplacedTemplate() throws OwsExceptionReport {
+        ParsedResultTemplate first = cache.get(createEntity(1L, STRUCTURE), this::parse);
+        ParsedResultTemplate changed = cache.get(createEntity(1L, "<swe:DataArray/>"), this::parse);
+        ParsedResultTemplate recreated = cache.get(createEntity(2L, "<swe:DataArray/>"), this::parse);
+        assertThat(changed, is(not(sameInstance(first))));
+        assertThat(recreated, is(not(sameInstance(changed))));
+        assertThat(loaded.get(), is(3));
+        assertThat(cache.get(createEntity(2L, "<swe:DataArray/>"), this::parse), is(sameInstance(recreated)));
+    }
+
+    @Test
+    public void shouldInvalidateOnResultTemplateInsertion() throws OwsExceptionReport {
+        ParsedResultTemplate first = cache.get(createEntity(1L, STRUCTURE), this::parse);
+        first.setObservationType(OmConstants.OBS_TYPE_MEASUREMENT);
+        assertThat(cache.getTypes(), hasItems(ResultTemplateInsertion.class, ResultTemplatesDeletion.class));
+        cache.handle(new ResultTemplateInsertion(new InsertResultTemplateRequest(),
+                new InsertResultTemplateResponse()));
+        ParsedResultTemplate second = cache.get(createEntity(1L, STRUCTURE), this::parse);
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(second.getObservationType() == null, is(true));
+        assertThat(loaded.get(), is(2));
+    }
+
+    @Test
+    public void shouldInvalidateOnResultTemplateDeletion() throws OwsExceptionReport {
+        ParsedResultTemplate first = cache.get(createEntity(1L, STRUCTURE), this::parse);
+        cache.handle(new ResultTemplatesDeletion(Mockito.mock(DeleteResultTemplateRequest.class),
+                new DeleteResultTemplateResponse()));
+        assertThat(cache.get(createEntity(1L, STRUCTURE), this::parse), is(not(sameInstance(first))));
+        assertThat(loaded.get(), is(2));
+    }
+
+    @Test
+    public void shouldParseForEachRequestIfDisabled() throws OwsExceptionReport {
+        cache.setCacheSize(0);
+        cache.get(createEntity(1L, STRUCTURE), this::parse);
+        cache.get(createEntity(1L, STRUCTURE), this::parse);
+        assertThat(cache.isEnabled(), is(false));
+        assertThat(loaded.get(), is(2));
+    }
+
+    @Test
+    public void shouldParseOnceForConcurrentRequests() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ParsedResultTemplate>> futures = Lists.newArrayList();
+        for (int i = 0; i < 32; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return cache.get(createEntity(1L, STRUCTURE), entity -> {
+                    sleep();
+                    return parse(entity);
+                });
+            }));
+        }
+        start.countDown();
+        ParsedResultTemplate first = futures.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<ParsedResultTemplate> future : futures) {
+            assertThat(future.get(10, TimeUnit.SECONDS), is(sameInstance(first)));
+        }
+        assertThat(loaded.get(), is(1));
+    }
+
+    private ParsedResultTemplate parse(ResultTemplateEntity entity) {
+        loaded.incrementAndGet();
+        SweDataRecord record = new SweDataRecord();
+        record.addField(new SweField("phenomenonTime", new SweTimeRange().setDefinition(OmConstants.PHENOMENON_TIME)));
+        record.addField(new SweField(OBS_PROP, new SweQuantity().setDefinition(OBS_PROP)));
+        return new ParsedResultTemplate(entity, new SosResultStructure(record, entity.getStructure()),
+                new SosResultEncoding(new SweTextEncoding(), entity.getEncoding()), helper);
+    }
+
+    private ResultTemplateEntity createEntity(Long id, String structure) {
+        ResultTemplateEntity entity = new ResultTemplateEntity();
+        entity.setId(id);
+        entity.setIdentifier(TEMPLATE);
+        entity.setStructure(structure);
+        entity.setEncoding(ENCODING);
+        return entity;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.io.Serializable;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+import org.n52.sos.metrics.RequestMetricsContext;
+
+/**
+ * Reports the JDBC statement execution time and the number of loaded entities
+ * to the {@link RequestMetricsContext} of the current thread.
+ * <p>
+ * The JDBC time is measured by a {@link BaseSessionEventListener} that is
+ * instantiated by Hibernate for every session, the loaded entities are
+ * counted by the session factory wide {@link RowCounter}.
+ *
+ * @since 5.5.0
+ */
+public class RequestMetricsSessionEventListener extends BaseSessionEventListener {
+
+    private static final long serialVersionUID = 2941584209413436741L;
+
+    private long statementStart = -1L;
+
+    private long batchStart = -1L;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        if (statementStart >= 0) {
+            RequestMetricsContext.addDatabaseTime(System.nanoTime() - statementStart);
+            statementStart = -1L;
+        }
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        if (batchStart >= 0) {
+            RequestMetricsContext.addDatabaseTime(System.nanoTime() - batchStart);
+            batchStart = -1L;
+        }
+    }
+
+    /**
+     * Counts the entities that are loaded from the result sets.
+     */
+    public static class RowCounter extends EmptyInterceptor {
+
+        private static final long serialVersionUID = -6049823416129574361L;
+
+        @Override
+        public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames,
+                Type[] types) {
+            RequestMetricsContext.addRows(1);
+            return false;
+        }
+    }
+}
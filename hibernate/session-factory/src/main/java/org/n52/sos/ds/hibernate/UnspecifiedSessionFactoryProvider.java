@@ -32,11 +32,13 @@ import javax.inject.Inject;
 
 
 import org.hibernate.CacheMode;
+import org.hibernate.EmptyInterceptor;
 import org.hibernate.FlushMode;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.service.ServiceRegistry;
 import org.slf4j.Logger;
@@ -55,6 +57,7 @@ import org.n52.sos.ds.HibernateDatasourceConstants;
 //import org.n52.sos.ds.hibernate.type.UtcTimestampType;
 //import org.n52.sos.ds.hibernate.util.HibernateConstants;
 import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.util.ReferenceEntityCache;
 import org.n52.sos.service.DriverCleanupListener;
 
 public abstract class UnspecifiedSessionFactoryProvider
@@ -67,6 +70,7 @@ public abstract class UnspecifiedSessionFactoryProvider
 
     private static SessionFactory sessionFactory;
     private static Configuration configuration;
+    private static CacheMode cacheMode = CacheMode.IGNORE;
     private DriverCleanupListener driverCleanupListener;
     private DatabaseSettingsHandler databaseSettingsHandler;
 
@@ -98,7 +102,7 @@ public abstract class UnspecifiedSessionFactoryProvider
                 return null;
             }
             Session session = sessionFactory.openSession();
-            session.setCacheMode(CacheMode.IGNORE);
+            session.setCacheMode(cacheMode);
             session.setHibernateFlushMode(FlushMode.COMMIT);
             return session;
         } catch (HibernateException he) {
@@ -161,6 +165,8 @@ public abstract class UnspecifiedSessionFactoryProvider
             LOGGER.debug("Instantiating configuration and session factory");
             configuration = getConfiguration(properties);
             configuration.mergeProperties(properties);
+            registerRequestMetrics(configuration);
+            registerReferenceCache(configuration, properties);
 
             /*
              * set timestamp mapping to a special type to ensure time is always
@@ -185,6 +191,26 @@ public abstract class UnspecifiedSessionFactoryProvider
         }
     }
 
+    private void registerRequestMetrics(Configuration configuration) {
+        if (configuration.getProperty(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER) == null) {
+            configuration.setProperty(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER,
+                    RequestMetricsSessionEventListener.class.getName());
+        }
+        if (configuration.getInterceptor() == null || configuration.getInterceptor() == EmptyInterceptor.INSTANCE) {
+            configuration.setInterceptor(new RequestMetricsSessionEventListener.RowCounter());
+        }
+    }
+
+    private void registerReferenceCache(Configuration configuration, Properties properties) {
+        if (ReferenceEntityCache.isEnabled(properties)) {
+            LOGGER.debug("Enabling the second-level cache for the reference entities");
+            ReferenceEntityCache.configure(configuration);
+            cacheMode = CacheMode.NORMAL;
+        } else {
+            cacheMode = CacheMode.IGNORE;
+        }
+    }
+
 //    private void registerTimestampMapping(Configuration configuration, Properties properties) {
 //        if ((properties.containsKey(HIBERNATE_DATASOURCE_TIMEZONE)
 //                && !properties.getProperty(HIBERNATE_DATASOURCE_TIMEZONE)
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.Properties;
+import java.util.Set;
+
+import org.hibernate.Cache;
+import org.hibernate.Criteria;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+
+import org.n52.sos.ds.HibernateDatasourceConstants;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Second-level cache support for the rarely changing reference entities
+ * (phenomena, procedures, offerings, units, formats and codespaces). If
+ * enabled, each entity gets its own read-write region in an in-process JCache
+ * (Ehcache) provider and the identifier lookups of the DAOs are stored in a
+ * shared query region.
+ *
+ * @since 5.5.0
+ */
+public final class ReferenceEntityCache {
+
+    public static final String REGION_PREFIX = "sos.reference.";
+
+    public static final String QUERY_REGION = REGION_PREFIX + "query";
+
+    private static final String STRATEGY = "read-write";
+
+    private static final String REGION_FACTORY = "jcache";
+
+    private static final String PROVIDER = "hibernate.javax.cache.provider";
+
+    private static final String MISSING_CACHE_STRATEGY = "hibernate.javax.cache.missing_cache_strategy";
+
+    private static final String EHCACHE_PROVIDER = "org.ehcache.jsr107.EhcacheCachingProvider";
+
+    private static final Set<String> ENTITIES = ImmutableSet.of(
+            "org.n52.series.db.beans.PhenomenonEntity",
+            "org.n52.series.db.beans.ProcedureEntity",
+            "org.n52.series.db.beans.OfferingEntity",
+            "org.n52.series.db.beans.UnitEntity",
+            "org.n52.series.db.beans.FormatEntity",
+            "org.n52.series.db.beans.CodespaceEntity");
+
+    private ReferenceEntityCache() {
+    }
+
+    /**
+     * @return the names of the cached entities
+     */
+    public static Set<String> getEntityNames() {
+        return ENTITIES;
+    }
+
+    /**
+     * Check if the reference entity cache is enabled in the datasource
+     * properties.
+     *
+     * @param properties
+     *            the datasource properties
+     * @return if the cache is enabled
+     */
+    public static boolean isEnabled(Properties properties) {
+        return Boolean.parseBoolean(
+                properties.getProperty(HibernateDatasourceConstants.HIBERNATE_DATASOURCE_REFERENCE_CACHE));
+    }
+
+    /**
+     * Enable the second-level and query cache and assign the cache regions of
+     * the reference entities. Explicit cache settings of the configuration are
+     * kept.
+     *
+     * @param configuration
+     *            the configuration to extend
+     */
+    public static void configure(Configuration configuration) {
+        configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, Boolean.TRUE.toString());
+        configuration.setProperty(AvailableSettings.USE_QUERY_CACHE, Boolean.TRUE.toString());
+        setIfAbsent(configuration, AvailableSettings.CACHE_REGION_FACTORY, REGION_FACTORY);
+        setIfAbsent(configuration, PROVIDER, EHCACHE_PROVIDER);
+        setIfAbsent(configuration, MISSING_CACHE_STRATEGY, "create");
+        for (String entity : ENTITIES) {
+            configuration.setCacheConcurrencyStrategy(entity, STRATEGY, getRegion(entity));
+        }
+    }
+
+    /**
+     * Mark the criteria as cacheable in the reference query region. Without
+     * an enabled query cache this is a no-op.
+     *
+     * @param criteria
+     *            the identifier lookup
+     * @return the criteria
+     */
+    public static Criteria cacheable(Criteria criteria) {
+        return criteria.setCacheable(true).setCacheRegion(QUERY_REGION);
+    }
+
+    /**
+     * Evict the regions of the given reference entities and the reference
+     * query region.
+     *
+     * @param sessionFactory
+     *            the session factory
+     * @param entityClasses
+     *            the modified entity classes, all regions if empty
+     */
+    public static void evict(SessionFactory sessionFactory, Class<?>... entityClasses) {
+        if (sessionFactory == null || sessionFactory.isClosed()
+                || !sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()) {
+            return;
+        }
+        Cache cache = sessionFactory.getCache();
+        if (entityClasses.length == 0) {
+            for (String entity : ENTITIES) {
+                cache.evictEntityData(entity);
+            }
+        } else {
+            for (Class<?> entityClass : entityClasses) {
+                if (ENTITIES.contains(entityClass.getName())) {
+                    cache.evictEntityData(entityClass);
+                }
+            }
+        }
+        cache.evictQueryRegion(QUERY_REGION);
+    }
+
+    private static String getRegion(String entity) {
+        return REGION_PREFIX + entity.substring(entity.lastIndexOf('.') + 1);
+    }
+
+    private static void setIfAbsent(Configuration configuration, String key, String value) {
+        if (configuration.getProperty(key) == null) {
+            configuration.setProperty(key, value);
+        }
+    }
+
+}
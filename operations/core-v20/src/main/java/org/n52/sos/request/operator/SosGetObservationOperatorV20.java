@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
@@ -40,6 +41,7 @@ import org.n52.shetland.ogc.filter.FilterConstants.TimeOperator;
 import org.n52.shetland.ogc.filter.TemporalFilter;
 import org.n52.shetland.ogc.gml.time.TimeInstant;
 import org.n52.shetland.ogc.om.ObservationType;
+import org.n52.shetland.ogc.om.OmObservation;
 import org.n52.shetland.ogc.ows.exception.CompositeOwsException;
 import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
 import org.n52.shetland.ogc.ows.exception.MissingParameterValueException;
@@ -57,6 +59,7 @@ import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.ds.AbstractGetObservationHandler;
 import org.n52.sos.exception.ows.concrete.InvalidOfferingParameterException;
 import org.n52.sos.exception.ows.concrete.MissingOfferingParameterException;
+import org.n52.sos.request.TemporalAggregation;
 import org.n52.sos.wsdl.Metadata;
 import org.n52.sos.wsdl.Metadatas;
 import org.n52.svalbard.ConformanceClasses;
@@ -102,6 +105,48 @@ public class SosGetObservationOperatorV20 extends
         return sosResponse;
     }
 
+    @Override
+    protected Object getCoalescingKey(GetObservationRequest request) {
+        return new CoalescingKey()
+                .add("offering", request.getOfferings())
+                .add("procedure", request.getProcedures())
+                .add("observedProperty", request.getObservedProperties())
+                .add("featureOfInterest", request.getFeatureIdentifiers())
+                .add("temporalFilter", request.getTemporalFilters())
+                .add("spatialFilter", request.getSpatialFilter())
+                .add("resultFilter", request.isSetResultFilter() ? request.getResultFilter() : null)
+                .add("responseFormat", request.getResponseFormat())
+                .add("responseMode", request.getResponseMode())
+                .add("resultModel", request.getResultModel())
+                .add("srsName", request.getSrsName())
+                .add("checkForDuplicity", request.isCheckForDuplicity())
+                .add("mergeObservationValues", request.isSetMergeObservationValues())
+                .add("namespaces", request.isSetNamespaces() ? request.getNamespaces() : null)
+                .add("extensions", request.getExtensions())
+                .addRequestContext(request)
+                .build();
+    }
+
+    @Override
+    protected Supplier<GetObservationResponse> shareResponse(GetObservationResponse response)
+            throws OwsExceptionReport {
+        List<OmObservation> observations = getShareableObservations(response);
+        if (observations == null) {
+            return null;
+        }
+        return () -> {
+            GetObservationResponse copy = new GetObservationResponse(response.getService(), response.getVersion());
+            copy.setResponseFormat(response.getResponseFormat());
+            copy.setResultModel(response.getResultModel());
+            copy.setExtensions(response.getExtensions());
+            if (response.hasGlobalObservationValues()) {
+                copy.setGlobalObservationValues(response.getGlobalObservationValues());
+            }
+            copy.setObservationCollection(copyObservations(observations));
+            return copy;
+        };
+    }
+
     @Override
     protected void checkParameters(GetObservationRequest request) throws OwsExceptionReport {
         final CompositeOwsException exceptions = new CompositeOwsException();
@@ -172,6 +217,11 @@ public class SosGetObservationOperatorV20 extends
         } catch (OwsExceptionReport owse) {
             exceptions.add(owse);
         }
+        try {
+            TemporalAggregation.fromRequest(request);
+        } catch (OwsExceptionReport owse) {
+            exceptions.add(owse);
+        }
 
         try {
             if (!request.isSetResponseFormat()) {
@@ -28,6 +28,7 @@
 package org.n52.sos.request.operator;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -35,9 +36,11 @@ import java.util.Set;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.core.Is;
 import org.hamcrest.core.IsIterableContaining;
+import org.hamcrest.core.IsNot;
 import org.junit.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.sos.cache.SosContentCache;
 
 import com.google.common.collect.Lists;
@@ -86,4 +89,39 @@ public class SosGetObservationOperatorV20Test {
        MatcherAssert.assertThat(childFeatures, IsIterableContaining.hasItem(FEATURE));
     }
 
+    @Test
+    public void should_not_coalesce_requests_with_different_response_options() {
+        final SosGetObservationOperatorV20 operator = Mockito.mock(SosGetObservationOperatorV20.class);
+        Mockito.when(operator.getCoalescingKey(ArgumentMatchers.any())).thenCallRealMethod();
+        final Object key = operator.getCoalescingKey(createRequest());
+
+        MatcherAssert.assertThat(operator.getCoalescingKey(createRequest()), Is.is(key));
+
+        GetObservationRequest request = createRequest();
+        request.setSrsName("http://www.opengis.net/def/crs/EPSG/0/31466");
+        MatcherAssert.assertThat(operator.getCoalescingKey(request), IsNot.not(key));
+
+        request = createRequest();
+        request.setResponseMode("inline");
+        MatcherAssert.assertThat(operator.getCoalescingKey(request), IsNot.not(key));
+
+        request = createRequest();
+        request.setCheckForDuplicity(true);
+        MatcherAssert.assertThat(operator.getCoalescingKey(request), IsNot.not(key));
+
+        request = createRequest();
+        request.setMergeObservationValues(true);
+        MatcherAssert.assertThat(operator.getCoalescingKey(request), IsNot.not(key));
+
+        request = createRequest();
+        request.setNamespaces(Collections.singletonMap("om", "http://www.opengis.net/om/2.0"));
+        MatcherAssert.assertThat(operator.getCoalescingKey(request), IsNot.not(key));
+    }
+
+    private GetObservationRequest createRequest() {
+        GetObservationRequest request = new GetObservationRequest();
+        request.setFeatureIdentifiers(Lists.newArrayList(FEATURE));
+        return request;
+    }
+
 }
@@ -28,12 +28,16 @@
 package org.n52.sos.request.operator;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import javax.xml.namespace.QName;
 
+import org.n52.shetland.ogc.gml.time.TimePeriod;
 import org.n52.shetland.ogc.ows.exception.CodedOwsException;
 import org.n52.shetland.ogc.ows.exception.CompositeOwsException;
 import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
@@ -46,6 +50,7 @@ import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityConstants.GetDataAvailabi
 import org.n52.shetland.w3c.wsdl.Fault;
 import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityRequest;
 import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.DataAvailability;
 import org.n52.sos.ds.AbstractGetDataAvailabilityHandler;
 import org.n52.sos.wsdl.Metadata;
 
@@ -105,6 +110,58 @@ public class GetDataAvailabilityOperator extends
         return getOperationHandler().getDataAvailability(sosRequest);
     }
 
+    @Override
+    protected Object getCoalescingKey(GetDataAvailabilityRequest request) {
+        return new CoalescingKey()
+                .add("offering", request.getOfferings())
+                .add("procedure", request.getProcedures())
+                .add("observedProperty", request.getObservedProperties())
+                .add("featureOfInterest", request.getFeaturesOfInterest())
+                .add("responseFormat", request.getResponseFormat())
+                .add("namespace", request.getNamespace())
+                .add("extensions", request.getExtensions())
+                .addRequestContext(request)
+                .build();
+    }
+
+    @Override
+    protected Supplier<GetDataAvailabilityResponse> shareResponse(GetDataAvailabilityResponse response) {
+        List<DataAvailability> dataAvailabilities = new ArrayList<>(response.getDataAvailabilities());
+        return () -> {
+            GetDataAvailabilityResponse copy = new GetDataAvailabilityResponse();
+            copy.setService(response.getService());
+            copy.setVersion(response.getVersion());
+            copy.setResponseFormat(response.getResponseFormat());
+            copy.setExtensions(response.getExtensions());
+            dataAvailabilities.forEach(dataAvailability -> copy.addDataAvailability(copy(dataAvailability)));
+            return copy;
+        };
+    }
+
+    /**
+     * Copy the data availability including its mutable times, e.g. the
+     * phenomenon time is extended in place when data availabilities are
+     * merged.
+     */
+    private static DataAvailability copy(DataAvailability dataAvailability) {
+        TimePeriod phenomenonTime = dataAvailability.getPhenomenonTime();
+        DataAvailability copy = new DataAvailability(dataAvailability.getProcedure(),
+                dataAvailability.getObservedProperty(), dataAvailability.getFeatureOfInterest(),
+                dataAvailability.getOffering(),
+                phenomenonTime != null ? new TimePeriod(phenomenonTime.getStart(), phenomenonTime.getEnd()) : null);
+        copy.setCount(dataAvailability.getCount());
+        if (dataAvailability.isSetFormatDescriptors()) {
+            copy.setFormatDescriptor(dataAvailability.getFormatDescriptor().copy());
+        }
+        if (dataAvailability.isSetMetadata()) {
+            copy.setMetadata(dataAvailability.getMetadata());
+        }
+        if (dataAvailability.getResultTimes() != null) {
+            copy.setResultTimes(new ArrayList<>(dataAvailability.getResultTimes()));
+        }
+        return copy;
+    }
+
     @Override
     protected void checkParameters(GetDataAvailabilityRequest request) throws OwsExceptionReport {
         CompositeOwsException exceptions = new CompositeOwsException();
@@ -37,6 +37,7 @@ import org.n52.shetland.ogc.sos.SosConstants;
 import org.n52.shetland.ogc.sos.request.GetResultRequest;
 import org.n52.shetland.ogc.sos.response.GetResultResponse;
 import org.n52.sos.ds.AbstractGetResultHandler;
+import org.n52.sos.request.TemporalAggregation;
 import org.n52.sos.wsdl.Metadata;
 import org.n52.sos.wsdl.Metadatas;
 import org.n52.svalbard.ConformanceClasses;
@@ -101,6 +102,11 @@ public class SosGetResultOperatorV20
         } catch (OwsExceptionReport owse) {
             exceptions.add(owse);
         }
+        try {
+            TemporalAggregation.fromRequest(request);
+        } catch (OwsExceptionReport owse) {
+            exceptions.add(owse);
+        }
 
         exceptions.throwIfNotEmpty();
     }
@@ -50,11 +50,14 @@ import org.apache.xmlbeans.XmlException;
 import org.n52.iceland.ds.ConnectionProviderException;
 import org.n52.iceland.request.operator.RequestOperatorRepository;
 import org.n52.janmayen.Json;
+import org.n52.janmayen.event.EventBus;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.ows.service.OwsServiceRequestContext;
 import org.n52.sos.ds.GeneralQueryDAO;
 import org.n52.sos.ds.PredefinedInsertionHandler;
+import org.n52.sos.ds.PurgeDeletedObservationsHandler;
+import org.n52.sos.event.events.UpdateCache;
 import org.n52.sos.exception.MissingServiceOperatorException;
 import org.n52.sos.predefined.AbstractPredefined;
 import org.n52.sos.predefined.PhenomenonPredefined;
@@ -98,6 +101,8 @@ public class AdminDatasourceController extends AbstractDatasourceController {
 
     private static final String SUPPORTS_DELETE_DELETED = "supportsDeleteDeleted";
 
+    private static final String SUPPORTS_PURGE_DELETED = "supportsPurgeDeleted";
+
     private static final String PREDEFINED_PHENOMENA = "predefinedPhenomena";
 
     private static final String PREDEFINED_UNITS = "predefinedUnits";
@@ -116,6 +121,12 @@ public class AdminDatasourceController extends AbstractDatasourceController {
     @Inject
     private Optional<PredefinedInsertionHandler> handler;
 
+    @Inject
+    private Optional<PurgeDeletedObservationsHandler> purgeHandler;
+
+    @Inject
+    private EventBus serviceEventBus;
+
     private Map<PredefinedType, List<AbstractPredefined<?>>> predefinedMap;
 
     private SampleDataInserter sampleDataInserter;
@@ -125,6 +136,7 @@ public class AdminDatasourceController extends AbstractDatasourceController {
         Map<String, Object> model = Maps.newHashMap();
         model.put(SUPPORTS_CLEAR, getDatasource().supportsClear());
         model.put(SUPPORTS_DELETE_DELETED, generalQueryDAO != null);
+        model.put(SUPPORTS_PURGE_DELETED, purgeHandler.isPresent());
         model.put(PREDEFINED_PHENOMENA, getPredefinedObservedProperties());
         model.put(PREDEFINED_UNITS, getPredefinedUnits());
         return new ModelAndView(ControllerConstants.Views.ADMIN_DATASOURCE, model);
@@ -156,7 +168,8 @@ public class AdminDatasourceController extends AbstractDatasourceController {
             getDatasource().dropSchema(settings);
             getDatasource().createSchema(settings);
         }
-        updateCache();
+        // complete cache update that also evicts the entity caches of the datasource
+        serviceEventBus.submit(new UpdateCache());
     }
 
     @ResponseBody
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.web.admin;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+
+import org.n52.iceland.request.operator.RequestOperatorRepository;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.Json;
+import org.n52.janmayen.event.EventBus;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.DeleteProceduresHandler;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequestContext;
+import org.n52.sos.event.events.UpdateCache;
+import org.n52.sos.exception.MissingServiceOperatorException;
+import org.n52.sos.web.common.ControllerConstants;
+import org.n52.svalbard.decode.DecoderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Controller to execute a {@link LoadTestRunner} against the configured
+ * datasource. The load test inserts its own sensor network below the
+ * {@link LoadTestRunner#PREFIX prefix} of the load test. The procedures with
+ * this prefix, their datasets, observations and offerings are physically
+ * deleted before and after each run, other data of the datasource is not
+ * touched. The run is executed in the background, the report is available
+ * via GET.
+ *
+ * @since 5.5.0
+ */
+@Controller
+@RequestMapping(ControllerConstants.Paths.ADMIN_DATABASE_LOAD_TEST)
+public class AdminLoadTestController extends AbstractAdminController implements Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdminLoadTestController.class);
+
+    private static final String RUNNING = "running";
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new GroupedAndNamedThreadFactory("52n-load-test"));
+
+    private volatile ObjectNode report;
+
+    @Inject
+    private DecoderRepository decoderRepository;
+
+    @Inject
+    private RequestOperatorRepository requestOperatorRepository;
+
+    @Inject
+    private EventBus serviceEventBus;
+
+    @Inject
+    private Optional<DeleteProceduresHandler> deleteProceduresHandler;
+
+    @ResponseBody
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(IllegalArgumentException.class)
+    public String onError(IllegalArgumentException e) {
+        return e.getMessage();
+    }
+
+    @ResponseBody
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(IllegalStateException.class)
+    public String onError(IllegalStateException e) {
+        return e.getMessage();
+    }
+
+    @ResponseBody
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    @ExceptionHandler(MissingServiceOperatorException.class)
+    public String onError(MissingServiceOperatorException e) {
+        return e.getMessage();
+    }
+
+    @ResponseBody
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @RequestMapping(method = RequestMethod.POST, produces = "application/json; charset=UTF-8")
+    public String run(@RequestParam Map<String, String> parameters, HttpServletRequest request)
+            throws MissingServiceOperatorException, OwsExceptionReport {
+        LoadTestConfiguration configuration = LoadTestConfiguration.fromParameters(parameters);
+        if (!deleteProceduresHandler.isPresent()) {
+            throw new IllegalStateException("The datasource does not support the deletion of the load test data!");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Load test is still in progress!");
+        }
+        try {
+            // remove the data of an aborted run, InsertSensor would fail otherwise
+            deleteTestData();
+            LoadTestRunner runner = new LoadTestRunner(OwsServiceRequestContext.fromRequest(request),
+                    decoderRepository, requestOperatorRepository, configuration);
+            runner.checkRequestOperators();
+            this.report = null;
+            executor.execute(() -> execute(runner));
+        } catch (MissingServiceOperatorException | OwsExceptionReport | RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return getReport();
+    }
+
+    @ResponseBody
+    @RequestMapping(method = RequestMethod.GET, produces = "application/json; charset=UTF-8")
+    public String getReport() {
+        ObjectNode result = this.report;
+        if (result == null || running.get()) {
+            return Json.print(Json.nodeFactory().objectNode().put(RUNNING, running.get()));
+        }
+        return Json.print(result);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void execute(LoadTestRunner runner) {
+        ObjectNode result;
+        try {
+            result = runner.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = Json.nodeFactory().objectNode().put("error", "Load test was interrupted");
+        } catch (Exception e) {
+            LOG.error("Error while executing the load test", e);
+            result = Json.nodeFactory().objectNode().put("error", e.getMessage());
+        }
+        try {
+            deleteTestData();
+        } catch (OwsExceptionReport | RuntimeException e) {
+            LOG.error("Error while deleting the data of the load test", e);
+            result.put("cleanupError", e.getMessage());
+        } finally {
+            serviceEventBus.submit(new UpdateCache());
+            this.report = result.put(RUNNING, false);
+            running.set(false);
+        }
+    }
+
+    private void deleteTestData() throws OwsExceptionReport {
+        DeleteProceduresHandler handler = deleteProceduresHandler.get();
+        Set<String> procedures = handler.getProcedures(LoadTestRunner.PREFIX);
+        if (!procedures.isEmpty()) {
+            LOG.info("Deleting {} procedures of the load test", procedures.size());
+            handler.deleteProcedures(procedures);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.web.admin;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.n52.iceland.exception.ows.concrete.NoImplementationFoundException;
+import org.n52.janmayen.Json;
+import org.n52.sos.metrics.OperationMetrics;
+import org.n52.sos.metrics.PhaseTimer;
+import org.n52.sos.metrics.PrometheusMetricsWriter;
+import org.n52.sos.metrics.RequestMetrics;
+import org.n52.sos.metrics.RequestPhase;
+import org.n52.sos.request.operator.AdmissionControl;
+import org.n52.sos.request.operator.OperationLimiter;
+import org.n52.sos.web.common.ControllerConstants;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Controller for the built-in request metrics: an admin page, a JSON summary
+ * and the Prometheus text format for scraping.
+ *
+ * @since 5.5.0
+ */
+@Controller
+public class AdminMetricsController extends AbstractAdminController {
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Inject
+    private Optional<RequestMetrics> requestMetrics;
+
+    @Inject
+    private Optional<AdmissionControl> admissionControl;
+
+    private RequestMetrics getRequestMetrics() throws NoImplementationFoundException {
+        if (!requestMetrics.isPresent()) {
+            throw new NoImplementationFoundException(RequestMetrics.class);
+        }
+        return requestMetrics.get();
+    }
+
+    private List<OperationLimiter> getLimiters() {
+        return admissionControl.map(AdmissionControl::getLimiters).orElseGet(Collections::emptyList);
+    }
+
+    @ResponseBody
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    @ExceptionHandler(NoImplementationFoundException.class)
+    public String onError(NoImplementationFoundException e) {
+        return "The request metrics are not available";
+    }
+
+    @RequestMapping(value = ControllerConstants.Paths.ADMIN_METRICS, method = RequestMethod.GET)
+    public String view() {
+        return ControllerConstants.Views.ADMIN_METRICS;
+    }
+
+    @ResponseBody
+    @RequestMapping(value = ControllerConstants.Paths.ADMIN_METRICS_JSON,
+                    method = RequestMethod.GET,
+                    produces = "application/json; charset=UTF-8")
+    public String json() throws NoImplementationFoundException {
+        RequestMetrics metrics = getRequestMetrics();
+        DateTime since = metrics.getSince();
+        double seconds = Math.max(1L, DateTime.now().getMillis() - since.getMillis()) / 1000.0;
+        ObjectNode node = Json.nodeFactory().objectNode();
+        node.put("since", since.toString());
+        ArrayNode operations = node.putArray("operations");
+        for (OperationMetrics operation : metrics.getOperations()) {
+            ObjectNode o = operations.addObject();
+            o.put("operation", operation.getOperation());
+            o.put("requests", operation.getRequests());
+            o.put("failures", operation.getFailures());
+            o.put("throughput", operation.getRequests() / seconds);
+            o.put("rows", operation.getRows());
+            ObjectNode phases = o.putObject("phases");
+            for (Map.Entry<RequestPhase, PhaseTimer> entry : operation.getTimers().entrySet()) {
+                PhaseTimer timer = entry.getValue();
+                ObjectNode phase = phases.putObject(entry.getKey().getLabel());
+                phase.put("count", timer.getCount());
+                phase.put("meanMillis", timer.getMeanNanos() / NANOS_PER_MILLI);
+                phase.put("p50Millis", timer.getPercentileNanos(50) / NANOS_PER_MILLI);
+                phase.put("p99Millis", timer.getPercentileNanos(99) / NANOS_PER_MILLI);
+                phase.put("maxMillis", timer.getMaxNanos() / NANOS_PER_MILLI);
+            }
+        }
+        ArrayNode admission = node.putArray("admission");
+        for (OperationLimiter limiter : getLimiters()) {
+            ObjectNode o = admission.addObject();
+            o.put("operation", limiter.getOperation());
+            o.put("limit", limiter.getLimit());
+            o.put("queueSize", limiter.getQueueSize());
+            o.put("active", limiter.getActive());
+            o.put("queueDepth", limiter.getQueueDepth());
+            o.put("admitted", limiter.getAdmitted());
+            o.put("rejected", limiter.getRejected());
+            o.put("timedOut", limiter.getTimedOut());
+        }
+        return Json.print(node);
+    }
+
+    @ResponseBody
+    @RequestMapping(value = ControllerConstants.Paths.ADMIN_METRICS_PROMETHEUS,
+                    method = RequestMethod.GET,
+                    produces = PrometheusMetricsWriter.CONTENT_TYPE)
+    public String prometheus() throws NoImplementationFoundException {
+        return PrometheusMetricsWriter.write(getRequestMetrics(), getLimiters());
+    }
+
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @RequestMapping(value = ControllerConstants.Paths.ADMIN_METRICS_RESET, method = RequestMethod.POST)
+    public void reset() throws NoImplementationFoundException {
+        getRequestMetrics().reset();
+    }
+}
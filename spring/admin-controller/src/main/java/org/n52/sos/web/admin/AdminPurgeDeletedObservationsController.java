@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.web.admin;
+
+import java.util.Optional;
+
+import javax.inject.Inject;
+
+import org.n52.iceland.exception.ows.concrete.NoImplementationFoundException;
+import org.n52.janmayen.Json;
+import org.n52.sos.ds.PurgeDeletedObservationsHandler;
+import org.n52.sos.ds.PurgeDeletedObservationsProgress;
+import org.n52.sos.web.common.ControllerConstants;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Controller to start, cancel and monitor the background purge of deleted
+ * observations.
+ *
+ * @since 5.5.0
+ */
+@Controller
+@RequestMapping(ControllerConstants.Paths.ADMIN_DATABASE_PURGE_DELETED_OBSERVATIONS)
+public class AdminPurgeDeletedObservationsController extends AbstractAdminController {
+
+    @Inject
+    private Optional<PurgeDeletedObservationsHandler> handler;
+
+    private PurgeDeletedObservationsHandler getHandler() throws NoImplementationFoundException {
+        if (!handler.isPresent()) {
+            throw new NoImplementationFoundException(PurgeDeletedObservationsHandler.class);
+        }
+        return this.handler.get();
+    }
+
+    @ResponseBody
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    @ExceptionHandler(NoImplementationFoundException.class)
+    public String onError(NoImplementationFoundException e) {
+        return "The operation is not supported by this SOS";
+    }
+
+    @ResponseBody
+    @RequestMapping(method = RequestMethod.GET, produces = "application/json; charset=UTF-8")
+    public String progress() throws NoImplementationFoundException {
+        return Json.print(toJson(getHandler().getProgress()));
+    }
+
+    @ResponseBody
+    @RequestMapping(method = RequestMethod.POST, produces = "application/json; charset=UTF-8")
+    public String start() throws NoImplementationFoundException {
+        getHandler().startPurge();
+        return Json.print(toJson(getHandler().getProgress()));
+    }
+
+    @RequestMapping(value = "/cancel", method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void cancel() throws NoImplementationFoundException {
+        getHandler().cancelPurge();
+    }
+
+    private ObjectNode toJson(PurgeDeletedObservationsProgress progress) {
+        ObjectNode node = Json.nodeFactory().objectNode();
+        node.put("state", progress.getState().name());
+        node.put("running", progress.isRunning());
+        node.put("deleted", progress.getDeleted());
+        node.put("chunks", progress.getChunks());
+        node.put("currentId", progress.getCurrentId());
+        node.put("maxId", progress.getMaxId());
+        if (progress.getStarted() != null) {
+            node.put("started", progress.getStarted().toString());
+        }
+        if (progress.getFinished() != null) {
+            node.put("finished", progress.getFinished().toString());
+        }
+        if (progress.getMessage() != null) {
+            node.put("message", progress.getMessage());
+        }
+        return node;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.web.admin;
+
+import java.util.Map;
+
+import com.google.common.base.Strings;
+
+/**
+ * Parameters of a {@link LoadTestRunner} run. The synthetic network consists of
+ * {@code procedures × observableProperties × features} series, each of which
+ * receives {@code valuesPerSeries} values.
+ *
+ * @since 5.5.0
+ */
+public class LoadTestConfiguration {
+
+    public static final String PROCEDURES = "procedures";
+
+    public static final String OBSERVABLE_PROPERTIES = "observableProperties";
+
+    public static final String FEATURES = "features";
+
+    public static final String VALUES_PER_SERIES = "valuesPerSeries";
+
+    public static final String VALUES_PER_REQUEST = "valuesPerRequest";
+
+    public static final String VALUE_RATE = "valueRate";
+
+    public static final String WRITER_THREADS = "writerThreads";
+
+    public static final String READER_THREADS = "readerThreads";
+
+    public static final String READ_DURATION = "readDuration";
+
+    public static final String SEED = "seed";
+
+    private int procedures = 2;
+
+    private int observableProperties = 2;
+
+    private int features = 2;
+
+    private int valuesPerSeries = 100;
+
+    private int valuesPerRequest = 10;
+
+    private int valueRate;
+
+    private int writerThreads = 4;
+
+    private int readerThreads = 4;
+
+    private int readDuration = 30;
+
+    private long seed = 52L;
+
+    public static LoadTestConfiguration fromParameters(Map<String, String> parameters) {
+        LoadTestConfiguration configuration = new LoadTestConfiguration();
+        configuration.setProcedures(getInt(parameters, PROCEDURES, configuration.getProcedures()));
+        configuration.setObservableProperties(
+                getInt(parameters, OBSERVABLE_PROPERTIES, configuration.getObservableProperties()));
+        configuration.setFeatures(getInt(parameters, FEATURES, configuration.getFeatures()));
+        configuration.setValuesPerSeries(getInt(parameters, VALUES_PER_SERIES, configuration.getValuesPerSeries()));
+        configuration
+                .setValuesPerRequest(getInt(parameters, VALUES_PER_REQUEST, configuration.getValuesPerRequest()));
+        configuration.setValueRate(getInt(parameters, VALUE_RATE, configuration.getValueRate()));
+        configuration.setWriterThreads(getInt(parameters, WRITER_THREADS, configuration.getWriterThreads()));
+        configuration.setReaderThreads(getInt(parameters, READER_THREADS, configuration.getReaderThreads()));
+        configuration.setReadDuration(getInt(parameters, READ_DURATION, configuration.getReadDuration()));
+        String seed = parameters.get(SEED);
+        if (!Strings.isNullOrEmpty(seed)) {
+            configuration.setSeed(Long.parseLong(seed.trim()));
+        }
+        return configuration;
+    }
+
+    private static int getInt(Map<String, String> parameters, String key, int defaultValue) {
+        String value = parameters.get(key);
+        if (Strings.isNullOrEmpty(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Parameter '%s' is not an integer: %s", key, value), e);
+        }
+    }
+
+    private static int checkPositive(String key, int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException(String.format("Parameter '%s' must be positive: %d", key, value));
+        }
+        return value;
+    }
+
+    public int getProcedures() {
+        return procedures;
+    }
+
+    public void setProcedures(int procedures) {
+        this.procedures = checkPositive(PROCEDURES, procedures);
+    }
+
+    public int getObservableProperties() {
+        return observableProperties;
+    }
+
+    public void setObservableProperties(int observableProperties) {
+        this.observableProperties = checkPositive(OBSERVABLE_PROPERTIES, observableProperties);
+    }
+
+    public int getFeatures() {
+        return features;
+    }
+
+    public void setFeatures(int features) {
+        this.features = checkPositive(FEATURES, features);
+    }
+
+    public int getValuesPerSeries() {
+        return valuesPerSeries;
+    }
+
+    public void setValuesPerSeries(int valuesPerSeries) {
+        this.valuesPerSeries = checkPositive(VALUES_PER_SERIES, valuesPerSeries);
+    }
+
+    public int getValuesPerRequest() {
+        return valuesPerRequest;
+    }
+
+    public void setValuesPerRequest(int valuesPerRequest) {
+        this.valuesPerRequest = checkPositive(VALUES_PER_REQUEST, valuesPerRequest);
+    }
+
+    /**
+     * @return the maximum number of inserted values per second over all
+     *         writers, {@code 0} if unthrottled
+     */
+    public int getValueRate() {
+        return valueRate;
+    }
+
+    public void setValueRate(int valueRate) {
+        if (valueRate < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Parameter '%s' must not be negative: %d", VALUE_RATE, valueRate));
+        }
+        this.valueRate = valueRate;
+    }
+
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
+    public void setWriterThreads(int writerThreads) {
+        this.writerThreads = checkPositive(WRITER_THREADS, writerThreads);
+    }
+
+    public int getReaderThreads() {
+        return readerThreads;
+    }
+
+    public void setReaderThreads(int readerThreads) {
+        this.readerThreads = checkPositive(READER_THREADS, readerThreads);
+    }
+
+    /**
+     * @return the minimum duration of the read phase in seconds, the reads
+     *         start with the insertion of the values and last at least until
+     *         all values are inserted
+     */
+    public int getReadDuration() {
+        return readDuration;
+    }
+
+    public void setReadDuration(int readDuration) {
+        this.readDuration = checkPositive(READ_DURATION, readDuration);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getSeriesCount() {
+        return procedures * observableProperties * features;
+    }
+}
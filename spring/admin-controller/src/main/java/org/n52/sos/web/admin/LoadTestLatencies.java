@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.web.admin;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread safe recorder of the latencies of a single operation during a
+ * {@link LoadTestRunner} run.
+ *
+ * @since 5.5.0
+ */
+public class LoadTestLatencies {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final String operation;
+
+    private long[] latencies = new long[INITIAL_CAPACITY];
+
+    private int count;
+
+    private int errors;
+
+    private String firstError;
+
+    public LoadTestLatencies(String operation) {
+        this.operation = operation;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public synchronized void record(long nanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, latencies.length * 2);
+        }
+        latencies[count++] = nanos;
+    }
+
+    public synchronized void recordError(Throwable error) {
+        errors++;
+        if (firstError == null) {
+            firstError = error.getMessage() != null ? error.getMessage() : error.getClass().getName();
+        }
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized int getErrors() {
+        return errors;
+    }
+
+    public synchronized String getFirstError() {
+        return firstError;
+    }
+
+    /**
+     * @param elapsedNanos
+     *            the wall clock duration of the phase the operation was
+     *            executed in
+     *
+     * @return the successful operations per second
+     */
+    public synchronized double getThroughput(long elapsedNanos) {
+        if (elapsedNanos <= 0) {
+            return 0.0;
+        }
+        return count / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public synchronized double getMeanMillis() {
+        if (count == 0) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        for (int i = 0; i < count; i++) {
+            sum += latencies[i];
+        }
+        return toMillis(sum / count);
+    }
+
+    public synchronized double getMaxMillis() {
+        long max = 0L;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, latencies[i]);
+        }
+        return toMillis(max);
+    }
+
+    /**
+     * Nearest-rank percentile of the recorded latencies.
+     *
+     * @param percentile
+     *            the percentile in {@code (0, 100]}
+     *
+     * @return the latency in milliseconds, {@code 0} if nothing was recorded
+     */
+    public synchronized double getPercentileMillis(double percentile) {
+        if (percentile <= 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be in (0, 100]: " + percentile);
+        }
+        if (count == 0) {
+            return 0.0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile * count / 100.0);
+        return toMillis(sorted[Math.max(rank, 1) - 1]);
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
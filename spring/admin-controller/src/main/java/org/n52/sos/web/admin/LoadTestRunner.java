@@ -0,0 +1,714 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.web.admin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.locationtech.jts.geom.Coordinate;
+import org.n52.iceland.request.operator.RequestOperator;
+import org.n52.iceland.request.operator.RequestOperatorKey;
+import org.n52.iceland.request.operator.RequestOperatorRepository;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.Json;
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.features.SfConstants;
+import org.n52.shetland.ogc.om.features.samplingFeatures.InvalidSridException;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.GetCapabilitiesRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceKey;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequestContext;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sensorML.v20.PhysicalSystem;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.SosInsertionMetadata;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+import org.n52.shetland.ogc.sos.SosResultEncoding;
+import org.n52.shetland.ogc.sos.SosResultStructure;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityConstants;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityRequest;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.request.GetResultRequest;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.shetland.ogc.sos.request.InsertResultRequest;
+import org.n52.shetland.ogc.sos.request.InsertResultTemplateRequest;
+import org.n52.shetland.ogc.sos.request.InsertSensorRequest;
+import org.n52.shetland.ogc.sos.response.AbstractObservationResponse;
+import org.n52.shetland.ogc.sos.response.AbstractStreaming;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+import org.n52.shetland.util.CollectionHelper;
+import org.n52.shetland.util.JTSHelper;
+import org.n52.sos.exception.MissingServiceOperatorException;
+import org.n52.svalbard.decode.DecoderRepository;
+import org.n52.svalbard.decode.exception.DecodingException;
+import org.n52.svalbard.util.CodingHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Load test harness that pushes a synthetic sensor network through the
+ * transactional operators and concurrently replays a mixed read workload
+ * against the configured datasource.
+ * <p>
+ * After the sensors are inserted, the readers run in parallel to the writers
+ * inserting the values, so the read latencies reflect the contention with the
+ * ingestion. The readers only query series that already contain values and
+ * keep reading until the values are inserted, but at least for the configured
+ * read duration.
+ * <p>
+ * Like the {@link SampleDataInserter} the requests are passed directly to the
+ * {@link RequestOperator}s, so the measured latencies cover request checks,
+ * modifiers and the datasource, but not the binding and encoding. Values are
+ * generated from a seeded {@link Random}, so two runs with the same
+ * {@link LoadTestConfiguration} insert identical data.
+ *
+ * @since 5.5.0
+ */
+public class LoadTestRunner implements Sos2Constants {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private static final OwsServiceKey SERVICE_OPERATOR_KEY = new OwsServiceKey(SOS, SERVICEVERSION);
+
+    private static final String SENSOR_DESCRIPTION_TEMPLATE = "/load-test/sensor-description.xml";
+
+    private static final String PROCEDURE_DESCRIPTION_FORMAT = "http://www.opengis.net/sensorml/2.0";
+
+    /**
+     * The prefix of the identifiers of all entities inserted by the load test.
+     */
+    public static final String PREFIX = "http://www.52north.org/test/load/";
+
+    private static final String UNIT = "test_unit";
+
+    private static final String TOKEN_SEPARATOR = ",";
+
+    private static final String BLOCK_SEPARATOR = "#";
+
+    private static final String DECIMAL_SEPARATOR = ".";
+
+    private static final int EPSG_WGS84 = 4326;
+
+    private static final DateTime BASE_TIME = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private static final int VALUE_INTERVAL_SECONDS = 60;
+
+    private static final String GET_CAPABILITIES = SosConstants.Operations.GetCapabilities.name();
+
+    private static final String GET_OBSERVATION = SosConstants.Operations.GetObservation.name();
+
+    private static final String GET_RESULT = SosConstants.Operations.GetResult.name();
+
+    private static final String GET_DATA_AVAILABILITY = GetDataAvailabilityConstants.OPERATION_NAME;
+
+    private static final String INSERT_SENSOR = Sos2Constants.Operations.InsertSensor.name();
+
+    private static final String INSERT_OBSERVATION = SosConstants.Operations.InsertObservation.name();
+
+    private static final String INSERT_RESULT_TEMPLATE = Sos2Constants.Operations.InsertResultTemplate.name();
+
+    private static final String INSERT_RESULT = Sos2Constants.Operations.InsertResult.name();
+
+    /**
+     * Relative weights of the read operations, GetCapabilities is issued
+     * rarely compared to the data retrieval operations.
+     */
+    private static final String[] READ_MIX = new String[] { GET_CAPABILITIES, GET_OBSERVATION, GET_OBSERVATION,
+        GET_OBSERVATION, GET_OBSERVATION, GET_RESULT, GET_RESULT, GET_RESULT, GET_DATA_AVAILABILITY,
+        GET_DATA_AVAILABILITY };
+
+    private final OwsServiceRequestContext requestContext;
+
+    private final DecoderRepository decoderRepository;
+
+    private final RequestOperatorRepository requestOperatorRepository;
+
+    private final LoadTestConfiguration configuration;
+
+    private final Map<String, RequestOperator> operators = new LinkedHashMap<>();
+
+    private final Map<String, LoadTestLatencies> writeLatencies = new LinkedHashMap<>();
+
+    private final Map<String, LoadTestLatencies> readLatencies = new LinkedHashMap<>();
+
+    private final List<Series> series = new ArrayList<>();
+
+    private final List<Series> readableSeries = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong nextWriteSlot = new AtomicLong();
+
+    private volatile boolean writing;
+
+    private long writeNanos;
+
+    private long readNanos;
+
+    public LoadTestRunner(OwsServiceRequestContext requestContext, DecoderRepository decoderRepository,
+            RequestOperatorRepository requestOperatorRepository, LoadTestConfiguration configuration) {
+        this.requestContext = requestContext;
+        this.decoderRepository = decoderRepository;
+        this.requestOperatorRepository = requestOperatorRepository;
+        this.configuration = configuration;
+        for (String operation : new String[] { INSERT_SENSOR, INSERT_OBSERVATION, INSERT_RESULT_TEMPLATE,
+            INSERT_RESULT }) {
+            writeLatencies.put(operation, new LoadTestLatencies(operation));
+        }
+        for (String operation : new String[] { GET_CAPABILITIES, GET_OBSERVATION, GET_RESULT,
+            GET_DATA_AVAILABILITY }) {
+            readLatencies.put(operation, new LoadTestLatencies(operation));
+        }
+    }
+
+    /**
+     * Executes the write and the concurrent read phase and returns the
+     * report.
+     *
+     * @return the JSON report containing throughput and latency percentiles
+     *         per operation
+     *
+     * @throws MissingServiceOperatorException
+     *             if one of the required operations is not active
+     * @throws OwsExceptionReport
+     *             if the synthetic sensor description can not be created
+     * @throws InterruptedException
+     *             if the run was interrupted
+     */
+    public synchronized ObjectNode run()
+            throws MissingServiceOperatorException, OwsExceptionReport, InterruptedException {
+        checkRequestOperators();
+        createSeries();
+        LOG.info("Starting load test with {} series of {} values", series.size(),
+                configuration.getValuesPerSeries());
+        long start = System.nanoTime();
+        insertSensors();
+        this.writing = true;
+        long readStart = System.nanoTime();
+        ExecutorService readers = replayReads(readStart);
+        try {
+            insertValues();
+        } catch (InterruptedException | RuntimeException e) {
+            readers.shutdownNow();
+            throw e;
+        } finally {
+            this.writing = false;
+        }
+        this.writeNanos = System.nanoTime() - start;
+        awaitTermination(readers);
+        this.readNanos = System.nanoTime() - readStart;
+        LOG.info("Finished load test in {} s", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+        return createReport();
+    }
+
+    /**
+     * Checks that the operations used by the load test are active.
+     *
+     * @throws MissingServiceOperatorException
+     *             if one of the required operations is not active
+     */
+    public void checkRequestOperators() throws MissingServiceOperatorException {
+        for (String operation : writeLatencies.keySet()) {
+            operators.put(operation, getRequestOperator(operation));
+        }
+        for (String operation : readLatencies.keySet()) {
+            operators.put(operation, getRequestOperator(operation));
+        }
+    }
+
+    private RequestOperator getRequestOperator(String operation) throws MissingServiceOperatorException {
+        RequestOperator operator = requestOperatorRepository
+                .getRequestOperator(new RequestOperatorKey(SERVICE_OPERATOR_KEY, operation, false));
+        if (operator == null) {
+            String msg = String.format("Could not load request operator for: %s, %s, %s. Please activate the "
+                    + "according operation in the <a href=\"../admin/operations\">settings</a>.", SOS,
+                    SERVICEVERSION, operation);
+            LOG.error(msg);
+            throw new MissingServiceOperatorException(msg);
+        }
+        return operator;
+    }
+
+    private void createSeries() {
+        series.clear();
+        readableSeries.clear();
+        int index = 0;
+        for (int p = 0; p < configuration.getProcedures(); p++) {
+            for (int o = 0; o < configuration.getObservableProperties(); o++) {
+                for (int f = 0; f < configuration.getFeatures(); f++) {
+                    series.add(new Series(index++, p, o, f));
+                }
+            }
+        }
+    }
+
+    private void insertSensors() throws OwsExceptionReport, InterruptedException {
+        String template = loadSensorDescriptionTemplate();
+        List<String> observableProperties = new ArrayList<>();
+        for (int o = 0; o < configuration.getObservableProperties(); o++) {
+            observableProperties.add(observableProperty(o));
+        }
+        ExecutorService threadPool = Executors.newFixedThreadPool(configuration.getWriterThreads(),
+                new GroupedAndNamedThreadFactory("52n-load-test-insert-sensors"));
+        try {
+            for (int p = 0; p < configuration.getProcedures(); p++) {
+                InsertSensorRequest request = createInsertSensorRequest(template, p, observableProperties);
+                threadPool.submit(() -> execute(writeLatencies, INSERT_SENSOR, request));
+            }
+        } finally {
+            awaitTermination(threadPool);
+        }
+    }
+
+    private void insertValues() throws InterruptedException {
+        ExecutorService threadPool = Executors.newFixedThreadPool(configuration.getWriterThreads(),
+                new GroupedAndNamedThreadFactory("52n-load-test-insert-values"));
+        nextWriteSlot.set(System.nanoTime());
+        try {
+            for (Series s : series) {
+                threadPool.submit(() -> insertSeries(s));
+            }
+        } finally {
+            awaitTermination(threadPool);
+        }
+    }
+
+    /**
+     * Inserts the values of a series in blocks, alternating between
+     * InsertObservation and InsertResult. The first block is always inserted
+     * via InsertObservation so that the result template refers to an existing
+     * feature. Afterwards the series is released to the readers.
+     */
+    private void insertSeries(Series s) {
+        Random random = new Random(configuration.getSeed() + s.index);
+        boolean templateInserted = false;
+        boolean readable = false;
+        int block = 0;
+        for (int offset = 0; offset < configuration.getValuesPerSeries(); offset += configuration
+                .getValuesPerRequest()) {
+            int count = Math.min(configuration.getValuesPerRequest(), configuration.getValuesPerSeries() - offset);
+            List<DateTime> times = new ArrayList<>(count);
+            List<Double> values = new ArrayList<>(count);
+            for (int i = offset; i < offset + count; i++) {
+                times.add(BASE_TIME.plusSeconds(i * VALUE_INTERVAL_SECONDS));
+                values.add(generateResult(random));
+            }
+            if (!awaitWriteSlot(count)) {
+                return;
+            }
+            if (block++ % 2 == 0) {
+                if (execute(writeLatencies, INSERT_OBSERVATION, createInsertObservationRequest(s, times, values))
+                        && !readable) {
+                    readable = readableSeries.add(s);
+                }
+            } else {
+                if (!templateInserted) {
+                    templateInserted =
+                            execute(writeLatencies, INSERT_RESULT_TEMPLATE, createInsertResultTemplateRequest(s));
+                    s.resultTemplateInserted = templateInserted;
+                }
+                if (templateInserted) {
+                    execute(writeLatencies, INSERT_RESULT, createInsertResultRequest(s, times, values));
+                }
+            }
+        }
+    }
+
+    /**
+     * Throttles the writers to the configured value rate by handing out
+     * consecutive time slots.
+     */
+    private boolean awaitWriteSlot(int values) {
+        if (configuration.getValueRate() <= 0) {
+            return true;
+        }
+        long interval = TimeUnit.SECONDS.toNanos(values) / configuration.getValueRate();
+        long slot = nextWriteSlot.getAndAdd(interval);
+        long wait = slot - System.nanoTime();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts the readers, which run until the values are inserted, but at
+     * least for the configured read duration.
+     */
+    private ExecutorService replayReads(long start) {
+        ExecutorService threadPool = Executors.newFixedThreadPool(configuration.getReaderThreads(),
+                new GroupedAndNamedThreadFactory("52n-load-test-reads"));
+        long end = start + TimeUnit.SECONDS.toNanos(configuration.getReadDuration());
+        for (int i = 0; i < configuration.getReaderThreads(); i++) {
+            Random random = new Random(configuration.getSeed() * 31 + i);
+            threadPool.submit(() -> {
+                while ((writing || System.nanoTime() < end) && !Thread.currentThread().isInterrupted()) {
+                    if (!read(random)) {
+                        try {
+                            TimeUnit.MILLISECONDS.sleep(10);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            });
+        }
+        return threadPool;
+    }
+
+    private boolean read(Random random) {
+        List<Series> readable = this.readableSeries;
+        if (readable.isEmpty()) {
+            return false;
+        }
+        Series s = readable.get(random.nextInt(readable.size()));
+        String operation = READ_MIX[random.nextInt(READ_MIX.length)];
+        if (GET_RESULT.equals(operation) && !s.resultTemplateInserted) {
+            operation = GET_OBSERVATION;
+        }
+        execute(readLatencies, operation, createReadRequest(operation, s));
+        return true;
+    }
+
+    private boolean execute(Map<String, LoadTestLatencies> latencies, String operation, OwsServiceRequest request) {
+        LoadTestLatencies recorder = latencies.get(operation);
+        long start = System.nanoTime();
+        try {
+            consume(operators.get(operation).receiveRequest(request));
+            recorder.record(System.nanoTime() - start);
+            return true;
+        } catch (OwsExceptionReport | RuntimeException e) {
+            LOG.debug("Error while executing {} during load test", operation, e);
+            recorder.recordError(e);
+            return false;
+        }
+    }
+
+    /**
+     * Streaming datasources defer the database access until the response is
+     * encoded, so the observations have to be consumed to measure the read.
+     */
+    private void consume(OwsServiceResponse response) throws OwsExceptionReport {
+        if (response instanceof AbstractObservationResponse) {
+            ObservationStream observations = ((AbstractObservationResponse) response).getObservationCollection();
+            while (observations != null && observations.hasNext()) {
+                OmObservation observation = observations.next();
+                if (observation.getValue() instanceof AbstractStreaming) {
+                    ObservationStream values = ((AbstractStreaming) observation.getValue()).merge();
+                    while (values.hasNext()) {
+                        values.next();
+                    }
+                }
+            }
+        }
+    }
+
+    private void awaitTermination(ExecutorService threadPool) throws InterruptedException {
+        threadPool.shutdown();
+        try {
+            while (!threadPool.awaitTermination(1, TimeUnit.SECONDS)) {
+                LOG.trace("Waiting for load test tasks to finish");
+            }
+        } catch (InterruptedException e) {
+            threadPool.shutdownNow();
+            throw e;
+        }
+    }
+
+    private String loadSensorDescriptionTemplate() throws OwsExceptionReport {
+        try (InputStream is = getClass().getResourceAsStream(SENSOR_DESCRIPTION_TEMPLATE)) {
+            return IOUtils.toString(is, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new NoApplicableCodeException().causedBy(e).withMessage("Could not read '%s'",
+                    SENSOR_DESCRIPTION_TEMPLATE);
+        }
+    }
+
+    private InsertSensorRequest createInsertSensorRequest(String template, int p, List<String> observableProperties)
+            throws OwsExceptionReport {
+        String description = template.replace("{{procedure}}", procedure(p)).replace("{{offering}}", offering(p));
+        PhysicalSystem physicalSystem;
+        try {
+            XmlObject xml = XmlObject.Factory.parse(description);
+            physicalSystem =
+                    (PhysicalSystem) decoderRepository.getDecoder(CodingHelper.getDecoderKey(xml)).decode(xml);
+        } catch (XmlException | DecodingException e) {
+            throw new NoApplicableCodeException().causedBy(e)
+                    .withMessage("Could not create sensor description for '%s'", procedure(p));
+        }
+        InsertSensorRequest request = new InsertSensorRequest();
+        request.setProcedureDescriptionFormat(PROCEDURE_DESCRIPTION_FORMAT);
+        request.setProcedureDescription(new SosProcedureDescription<AbstractFeature>(physicalSystem));
+        request.setObservableProperty(observableProperties);
+        request.setMetadata(new SosInsertionMetadata()
+                .setObservationTypes(Collections.singleton(OmConstants.OBS_TYPE_MEASUREMENT))
+                .setFeatureOfInterestTypes(Collections.singleton(SfConstants.SAMPLING_FEAT_TYPE_SF_SAMPLING_POINT)));
+        return prepare(request);
+    }
+
+    private InsertObservationRequest createInsertObservationRequest(Series s, List<DateTime> times,
+            List<Double> values) {
+        InsertObservationRequest request = new InsertObservationRequest();
+        request.setAssignedSensorId(s.procedure);
+        request.setOfferings(CollectionHelper.list(s.offering));
+        List<OmObservation> observations = new ArrayList<>(times.size());
+        for (int i = 0; i < times.size(); i++) {
+            OmObservation observation = new OmObservation();
+            observation.setObservationConstellation(createObservationConstellation(s));
+            observation.setResultTime(new TimeInstant(times.get(i)));
+            SingleObservationValue<BigDecimal> value = new SingleObservationValue<>();
+            value.setPhenomenonTime(new TimeInstant(times.get(i)));
+            value.setValue(new QuantityValue(values.get(i), UNIT));
+            observation.setValue(value);
+            observations.add(observation);
+        }
+        request.setObservation(observations);
+        return prepare(request);
+    }
+
+    private InsertResultTemplateRequest createInsertResultTemplateRequest(Series s) {
+        SweTextEncoding encoding = new SweTextEncoding();
+        encoding.setTokenSeparator(TOKEN_SEPARATOR);
+        encoding.setBlockSeparator(BLOCK_SEPARATOR);
+        encoding.setDecimalSeparator(DECIMAL_SEPARATOR);
+        SweTime time = new SweTime();
+        time.setUom(OmConstants.PHEN_UOM_ISO8601);
+        time.setDefinition(OmConstants.PHENOMENON_TIME);
+        SweQuantity quantity = new SweQuantity();
+        quantity.setDefinition(s.observableProperty);
+        quantity.setUom(UNIT);
+        SweDataRecord record = new SweDataRecord();
+        record.addField(new SweField("phenomenonTime", time));
+        record.addField(new SweField("value", quantity));
+        InsertResultTemplateRequest request = new InsertResultTemplateRequest();
+        request.setIdentifier(s.resultTemplate);
+        request.setObservationTemplate(createObservationConstellation(s));
+        request.setResultEncoding(new SosResultEncoding(encoding, null));
+        request.setResultStructure(new SosResultStructure(record, null));
+        return prepare(request);
+    }
+
+    private InsertResultRequest createInsertResultRequest(Series s, List<DateTime> times, List<Double> values) {
+        StringBuilder resultValues = new StringBuilder();
+        for (int i = 0; i < times.size(); i++) {
+            if (i > 0) {
+                resultValues.append(BLOCK_SEPARATOR);
+            }
+            resultValues.append(times.get(i)).append(TOKEN_SEPARATOR).append(values.get(i));
+        }
+        InsertResultRequest request = new InsertResultRequest();
+        request.setTemplateIdentifier(s.resultTemplate);
+        request.setResultValues(resultValues.toString());
+        return prepare(request);
+    }
+
+    private OwsServiceRequest createReadRequest(String operation, Series s) {
+        if (GET_CAPABILITIES.equals(operation)) {
+            GetCapabilitiesRequest request = new GetCapabilitiesRequest(SOS);
+            request.setAcceptVersions(CollectionHelper.list(SERVICEVERSION));
+            return prepare(request);
+        } else if (GET_RESULT.equals(operation)) {
+            GetResultRequest request = new GetResultRequest();
+            request.setOffering(s.offering);
+            request.setObservedProperty(s.observableProperty);
+            request.setFeatureIdentifiers(CollectionHelper.list(s.feature));
+            return prepare(request);
+        } else if (GET_DATA_AVAILABILITY.equals(operation)) {
+            GetDataAvailabilityRequest request = new GetDataAvailabilityRequest();
+            request.setProcedure(CollectionHelper.list(s.procedure));
+            request.setObservedProperty(CollectionHelper.list(s.observableProperty));
+            return prepare(request);
+        }
+        GetObservationRequest request = new GetObservationRequest();
+        request.setProcedures(CollectionHelper.list(s.procedure));
+        request.setObservedProperties(CollectionHelper.list(s.observableProperty));
+        request.setFeatureIdentifiers(CollectionHelper.list(s.feature));
+        request.setResponseFormat(OmConstants.NS_OM_2);
+        return prepare(request);
+    }
+
+    private OmObservationConstellation createObservationConstellation(Series s) {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setProcedure(new SosProcedureDescriptionUnknownType(s.procedure));
+        OmObservableProperty observableProperty = new OmObservableProperty(s.observableProperty);
+        observableProperty.setUnit(UNIT);
+        constellation.setObservableProperty(observableProperty);
+        constellation.setFeatureOfInterest(createFeature(s));
+        constellation.addOffering(s.offering);
+        constellation.setObservationType(OmConstants.OBS_TYPE_MEASUREMENT);
+        return constellation;
+    }
+
+    private SamplingFeature createFeature(Series s) {
+        SamplingFeature feature = new SamplingFeature(new CodeWithAuthority(s.feature));
+        feature.setFeatureType(SfConstants.SAMPLING_FEAT_TYPE_SF_SAMPLING_POINT);
+        Random random = new Random(configuration.getSeed() + s.featureIndex);
+        Coordinate coordinate = new Coordinate(50.0 + random.nextDouble() * 4.0, 6.0 + random.nextDouble() * 4.0);
+        try {
+            feature.setGeometry(JTSHelper.getGeometryFactoryForSRID(EPSG_WGS84).createPoint(coordinate));
+        } catch (InvalidSridException e) {
+            throw new IllegalStateException(e);
+        }
+        return feature;
+    }
+
+    private <T extends OwsServiceRequest> T prepare(T request) {
+        request.setRequestContext(requestContext);
+        request.setService(SOS);
+        request.setVersion(SERVICEVERSION);
+        return request;
+    }
+
+    private ObjectNode createReport() {
+        ObjectNode report = Json.nodeFactory().objectNode();
+        ObjectNode config = report.putObject("configuration");
+        config.put(LoadTestConfiguration.PROCEDURES, configuration.getProcedures());
+        config.put(LoadTestConfiguration.OBSERVABLE_PROPERTIES, configuration.getObservableProperties());
+        config.put(LoadTestConfiguration.FEATURES, configuration.getFeatures());
+        config.put(LoadTestConfiguration.VALUES_PER_SERIES, configuration.getValuesPerSeries());
+        config.put(LoadTestConfiguration.VALUES_PER_REQUEST, configuration.getValuesPerRequest());
+        config.put(LoadTestConfiguration.VALUE_RATE, configuration.getValueRate());
+        config.put(LoadTestConfiguration.WRITER_THREADS, configuration.getWriterThreads());
+        config.put(LoadTestConfiguration.READER_THREADS, configuration.getReaderThreads());
+        config.put(LoadTestConfiguration.READ_DURATION, configuration.getReadDuration());
+        config.put(LoadTestConfiguration.SEED, configuration.getSeed());
+        config.put("series", series.size());
+        createPhaseReport(report.putObject("write"), writeLatencies, writeNanos);
+        createPhaseReport(report.putObject("read"), readLatencies, readNanos);
+        return report;
+    }
+
+    private void createPhaseReport(ObjectNode phase, Map<String, LoadTestLatencies> latencies, long nanos) {
+        phase.put("durationMillis", TimeUnit.NANOSECONDS.toMillis(nanos));
+        ObjectNode operations = phase.putObject("operations");
+        for (LoadTestLatencies l : latencies.values()) {
+            ObjectNode node = operations.putObject(l.getOperation());
+            node.put("count", l.getCount());
+            node.put("errors", l.getErrors());
+            node.put("throughput", l.getThroughput(nanos));
+            node.put("meanMillis", l.getMeanMillis());
+            node.put("p50Millis", l.getPercentileMillis(50));
+            node.put("p99Millis", l.getPercentileMillis(99));
+            node.put("p999Millis", l.getPercentileMillis(99.9));
+            node.put("maxMillis", l.getMaxMillis());
+            if (l.getFirstError() != null) {
+                node.put("firstError", l.getFirstError());
+            }
+        }
+    }
+
+    private static double generateResult(Random random) {
+        return Math.round(random.nextDouble() * 10000.0) / 100.0;
+    }
+
+    private static String procedure(int p) {
+        return PREFIX + "procedure/" + p;
+    }
+
+    private static String offering(int p) {
+        return PREFIX + "offering/" + p;
+    }
+
+    private static String observableProperty(int o) {
+        return PREFIX + "observableProperty/" + o;
+    }
+
+    private static String feature(int f) {
+        return PREFIX + "feature/" + f;
+    }
+
+    private static final class Series {
+
+        private final int index;
+
+        private final int featureIndex;
+
+        private final String procedure;
+
+        private final String offering;
+
+        private final String observableProperty;
+
+        private final String feature;
+
+        private final String resultTemplate;
+
+        private volatile boolean resultTemplateInserted;
+
+        Series(int index, int p, int o, int f) {
+            this.index = index;
+            this.featureIndex = f;
+            this.procedure = procedure(p);
+            this.offering = offering(p);
+            this.observableProperty = observableProperty(o);
+            this.feature = feature(f);
+            this.resultTemplate = PREFIX + "resultTemplate/" + p + "/" + o + "/" + f;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.web.admin;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LoadTestLatenciesTest {
+
+    private static final double DELTA = 0.000001;
+
+    @Test
+    public void shouldReturnZeroWithoutRecords() {
+        LoadTestLatencies latencies = new LoadTestLatencies("GetObservation");
+        assertThat(latencies.getCount(), is(0));
+        assertThat(latencies.getPercentileMillis(99), closeTo(0.0, DELTA));
+        assertThat(latencies.getMeanMillis(), closeTo(0.0, DELTA));
+        assertThat(latencies.getThroughput(TimeUnit.SECONDS.toNanos(1)), closeTo(0.0, DELTA));
+    }
+
+    @Test
+    public void shouldCalculateNearestRankPercentiles() {
+        LoadTestLatencies latencies = new LoadTestLatencies("GetObservation");
+        // record 1000 ms down to 1 ms to check that the order does not matter
+        for (int i = 1000; i > 0; i--) {
+            latencies.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertThat(latencies.getCount(), is(1000));
+        assertThat(latencies.getPercentileMillis(50), closeTo(500.0, DELTA));
+        assertThat(latencies.getPercentileMillis(99), closeTo(990.0, DELTA));
+        assertThat(latencies.getPercentileMillis(99.9), closeTo(999.0, DELTA));
+        assertThat(latencies.getPercentileMillis(100), closeTo(1000.0, DELTA));
+        assertThat(latencies.getMaxMillis(), closeTo(1000.0, DELTA));
+        assertThat(latencies.getMeanMillis(), closeTo(500.5, DELTA));
+        assertThat(latencies.getThroughput(TimeUnit.SECONDS.toNanos(10)), closeTo(100.0, DELTA));
+    }
+
+    @Test
+    public void shouldCountErrorsSeparately() {
+        LoadTestLatencies latencies = new LoadTestLatencies("InsertResult");
+        assertThat(latencies.getFirstError(), is(nullValue()));
+        latencies.recordError(new IllegalStateException("first"));
+        latencies.recordError(new IllegalStateException("second"));
+        latencies.record(TimeUnit.MILLISECONDS.toNanos(5));
+        assertThat(latencies.getErrors(), is(2));
+        assertThat(latencies.getCount(), is(1));
+        assertThat(latencies.getFirstError(), is("first"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidPercentile() {
+        new LoadTestLatencies("GetResult").getPercentileMillis(0);
+    }
+
+    @Test
+    public void shouldParseConfiguration() {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(LoadTestConfiguration.PROCEDURES, "3");
+        parameters.put(LoadTestConfiguration.OBSERVABLE_PROPERTIES, "4");
+        parameters.put(LoadTestConfiguration.FEATURES, "5");
+        parameters.put(LoadTestConfiguration.VALUE_RATE, "1000");
+        parameters.put(LoadTestConfiguration.SEED, "7");
+        LoadTestConfiguration configuration = LoadTestConfiguration.fromParameters(parameters);
+        assertThat(configuration.getSeriesCount(), is(60));
+        assertThat(configuration.getValueRate(), is(1000));
+        assertThat(configuration.getSeed(), is(7L));
+        assertThat(configuration.getValuesPerSeries(), is(new LoadTestConfiguration().getValuesPerSeries()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveSize() {
+        LoadTestConfiguration.fromParameters(Collections.singletonMap(LoadTestConfiguration.PROCEDURES, "0"));
+    }
+}
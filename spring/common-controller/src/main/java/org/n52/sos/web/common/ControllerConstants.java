@@ -124,6 +124,8 @@ public interface ControllerConstants {
 
         String ADMIN_CACHE = "admin/cache";
 
+        String ADMIN_METRICS = "admin/metrics";
+
         String ADMIN_SENSOR_DESCRIPTIONS = "admin/sensors";
 
         String ADMIN_CAPABILITIES_SETTINGS = "admin/capabilities";
@@ -202,6 +204,14 @@ public interface ControllerConstants {
 
         String ADMIN_CACHE_DUMP = "/admin/cache/dump";
 
+        String ADMIN_METRICS = "/admin/metrics";
+
+        String ADMIN_METRICS_JSON = "/admin/metrics/json";
+
+        String ADMIN_METRICS_PROMETHEUS = "/admin/metrics/prometheus";
+
+        String ADMIN_METRICS_RESET = "/admin/metrics/reset";
+
         String ADMIN_RELOAD_CAPABILITIES_CACHE = "/admin/cache/reload";
 
         String ADMIN_DATABASE_UPDATE_SCRIPT = "/admin/datasource/updatescript";
@@ -216,6 +226,10 @@ public interface ControllerConstants {
 
         String ADMIN_DATABASE_DELETE_DELETED_DATA = "/admin/datasource/deleteDeletedData";
 
+        String ADMIN_DATABASE_PURGE_DELETED_OBSERVATIONS = "/admin/datasource/purgeDeletedObservations";
+
+        String ADMIN_DATABASE_LOAD_TEST = "/admin/datasource/loadTest";
+
         String ADMIN_DATABASE_LOAD_PREDEFINED_UNITS = "/admin/datasource/loadPredefinedUnits";
 
         String ADMIN_DATABASE_LOAD_PREDEFINED_PHENOMENA = "/admin/datasource/loadPredefinedPhenomena";
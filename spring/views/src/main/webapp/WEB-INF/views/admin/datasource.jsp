@@ -49,9 +49,14 @@
     <div class="btn-group">
         <button data-target="#confirmDialogAddSampledata" data-toggle="modal" title="Insert sample data" class="btn ">Insert sample data</button>
         <button data-target="#confirmDialogDelete" data-toggle="modal" title="Delete deleted Data" class="btn btn-danger">Delete deleted Data</button>
+        <button data-target="#confirmDialogPurge" data-toggle="modal" title="Purge deleted observations in the background" class="btn btn-danger">Purge deleted observations</button>
         <button data-target="#confirmDialogClear" data-toggle="modal" title="Clear Datasource" class="btn btn-danger">Clear Datasource</button>
         <a href="<c:url value="/admin/reset" />" title="Reset Datasource Configuration" class="btn btn-warning">Reset Datasource Configuration</a>
     </div>
+    <div id="purge-progress" class="hide" style="margin-top: 10px;">
+        <p>Purge of deleted observations: <span id="purge-state" class="label"></span> <span id="purge-details"></span></p>
+        <button id="purge-cancel" type="button" class="btn btn-small hide">Cancel purge</button>
+    </div>
 </div>
 
 <div>
@@ -135,6 +140,21 @@
     </div>
 </div>
 
+<div class="modal hide fade in" id="confirmDialogPurge">
+    <div class="modal-header">
+        <button type="button" class="close" data-dismiss="modal" aria-hidden="true">&times;</button>
+        <h3>Are you really sure?</h3>
+    </div>
+    <div class="modal-body">
+        <p><span class="label label-important">Warning!</span> This will physically remove all observations flagged as deleted from the datasource!</p>
+        <p>The observations are deleted in the background in chunks. The purge can be cancelled and restarted later on.</p>
+    </div>
+    <div class="modal-footer">
+        <button type="button" class="btn" data-dismiss="modal" aria-hidden="true">Cancel</button>
+        <button type="button" id="purge" class="btn btn-danger">Do it!</button>
+    </div>
+</div>
+
 <div id="wait" class="hide">
     <div id="wait-loader">
         <img src="<c:url value="/static/images/loader.gif"/>">
@@ -149,6 +169,7 @@
         var $addSampledataDialog = $("#confirmDialogAddSampledata")
         var supportsClear = ${supportsClear};
         var supportsDeleteDeleted = ${supportsDeleteDeleted};
+        var supportsPurgeDeleted = ${supportsPurgeDeleted};
         /*var supportsAddSampledata = ${supportsAddSampledata};*/
 
         $('#wait').ajaxStart(function() {
@@ -224,6 +245,65 @@
         } else {
             $("button[data-target=#confirmDialogDelete]").attr("disabled", true);
         }
+
+        if (supportsPurgeDeleted) {
+            var purgeUrl = "<c:url value="/admin/datasource/purgeDeletedObservations" />";
+            var showPurgeProgress = function(progress) {
+                if (progress.state === "IDLE") {
+                    return;
+                }
+                var details = progress.deleted + " observations deleted in " + progress.chunks + " chunks";
+                if (progress.running && progress.currentId !== null && progress.maxId !== null) {
+                    details += " (id " + progress.currentId + " of " + progress.maxId + ")";
+                }
+                if (progress.message) {
+                    details += ": " + progress.message;
+                }
+                $("#purge-state").text(progress.state)
+                    .toggleClass("label-info", progress.running)
+                    .toggleClass("label-success", progress.state === "FINISHED")
+                    .toggleClass("label-important", progress.state === "FAILED");
+                $("#purge-details").text(details);
+                $("#purge-cancel").toggleClass("hide", !progress.running);
+                $("#purge-progress").removeClass("hide");
+                if (progress.running) {
+                    setTimeout(pollPurgeProgress, 2000);
+                }
+            };
+            var pollPurgeProgress = function() {
+                $.ajax({
+                    "url": purgeUrl,
+                    "type": "GET",
+                    "global": false,
+                    "dataType": "json"
+                }).done(showPurgeProgress);
+            };
+            $("#purge").click(function() {
+                $.ajax({
+                    "url": purgeUrl,
+                    "type": "POST",
+                    "global": false,
+                    "dataType": "json"
+                }).fail(function(error) {
+                    showError("Request failed: " + error.status + " " + error.statusText);
+                }).done(function(progress) {
+                    showSuccess("The purge of deleted observations was started.");
+                    showPurgeProgress(progress);
+                }).always(function() {
+                    $("#confirmDialogPurge").modal("hide");
+                });
+            });
+            $("#purge-cancel").click(function() {
+                $.ajax({
+                    "url": purgeUrl + "/cancel",
+                    "type": "POST",
+                    "global": false
+                });
+            });
+            pollPurgeProgress();
+        } else {
+            $("button[data-target=#confirmDialogPurge]").attr("disabled", true);
+        }
     });
 </script>
 
@@ -0,0 +1,123 @@
+<%--
+
+    Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License version 2 as published
+    by the Free Software Foundation.
+
+    If the program is linked with libraries which are licensed under one of
+    the following licenses, the combination of the program with the linked
+    library is not considered a "derivative work" of the program:
+
+        - Apache License, version 2.0
+        - Apache Software License, version 1.0
+        - GNU Lesser General Public License, version 3
+        - Mozilla Public License, versions 1.0, 1.1 and 2.0
+        - Common Development and Distribution License (CDDL), version 1.0
+
+    Therefore the distribution of the program linked with libraries licensed
+    under the aforementioned licenses, is permitted by the copyright holders
+    if the distribution is compliant with both the GNU General Public
+    License version 2 and the aforementioned licenses.
+
+    This program is distributed in the hope that it will be useful, but
+    WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+    Public License for more details.
+
+--%>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core"%>
+<jsp:include page="../common/header.jsp">
+    <jsp:param name="activeMenu" value="admin" />
+</jsp:include>
+<jsp:include page="../common/logotitle.jsp">
+	<jsp:param name="title" value="Request Metrics" />
+	<jsp:param name="leadParagraph" value="Latency of the request phases per operation since the start of the service or the last reset. The metrics are also available in the Prometheus text format." />
+</jsp:include>
+<p class="pull-right">
+    <a class="btn" href="<c:url value="/admin/metrics/prometheus" />">Prometheus</a>
+    <button id="reset-metrics" type="button" class="btn btn-danger">Reset</button>
+</p>
+<p id="metrics-since"></p>
+
+<script type="text/javascript">
+    var phases = ["decode", "requestModifiers", "checkParameters", "receive", "responseModifiers", "encode", "database"];
+    var format = function(value) {
+        return value.toFixed(2);
+    };
+    var loadMetrics = function() {
+        $.ajax({
+            url: "<c:url value="/admin/metrics/json"/>",
+            type: "GET",
+            dataType: "json"
+        }).done(function(data) {
+            $("#metrics-since").text("Since " + data.since);
+            var $div = $("#metrics");
+            $div.empty();
+            if (data.admission.length > 0) {
+                $("<h3 />").text("Admission Control").appendTo($div);
+                var $admission = $("<table />").addClass("table table-striped table-condensed").appendTo($div);
+                var $admissionHead = $("<tr />").appendTo($("<thead />").appendTo($admission));
+                $.each(["Operation", "Limit", "Queue", "Active", "Waiting", "Admitted", "Rejected", "Timed out"],
+                    function(j, title) {
+                        $("<th />").text(title).appendTo($admissionHead);
+                    });
+                var $admissionBody = $("<tbody />").appendTo($admission);
+                $.each(data.admission, function(j, limiter) {
+                    var $tr = $("<tr />").appendTo($admissionBody);
+                    $.each([limiter.operation, limiter.limit, limiter.queueSize, limiter.active, limiter.queueDepth,
+                        limiter.admitted, limiter.rejected, limiter.timedOut], function(k, value) {
+                        $("<td />").text(value).appendTo($tr);
+                    });
+                });
+            }
+            if (data.operations.length === 0) {
+                $("<p />").text("No requests were processed yet.").appendTo($div);
+                return;
+            }
+            $.each(data.operations, function(i, operation) {
+                $("<h3 />").text(operation.operation).appendTo($div);
+                $("<p />").text(operation.requests + " requests, " + operation.failures + " failed, "
+                    + format(operation.throughput) + " requests/s, " + operation.rows + " rows loaded").appendTo($div);
+                var $table = $("<table />").addClass("table table-striped table-condensed").appendTo($div);
+                var $head = $("<tr />").appendTo($("<thead />").appendTo($table));
+                $.each(["Phase", "Count", "Mean [ms]", "p50 [ms]", "p99 [ms]", "Max [ms]"], function(j, title) {
+                    $("<th />").text(title).appendTo($head);
+                });
+                var $body = $("<tbody />").appendTo($table);
+                $.each(phases, function(j, name) {
+                    var phase = operation.phases[name];
+                    var $tr = $("<tr />").appendTo($body);
+                    $("<td />").text(name).appendTo($tr);
+                    $("<td />").text(phase.count).appendTo($tr);
+                    $("<td />").text(format(phase.meanMillis)).appendTo($tr);
+                    $("<td />").text(format(phase.p50Millis)).appendTo($tr);
+                    $("<td />").text(format(phase.p99Millis)).appendTo($tr);
+                    $("<td />").text(format(phase.maxMillis)).appendTo($tr);
+                });
+            });
+        }).fail(function(error){
+            showError("Request metrics request failed: " + error.responseText);
+        });
+    };
+
+    $(function() {
+        loadMetrics();
+        $("#reset-metrics").click(function() {
+            $.ajax({
+                url: "<c:url value="/admin/metrics/reset"/>",
+                type: "POST"
+            }).done(function() {
+                showSuccess("The request metrics were reset.");
+                loadMetrics();
+            }).fail(function(error) {
+                showError("Request failed: " + error.status + " " + error.statusText);
+            });
+        });
+    });
+</script>
+
+<div id="metrics" class="row"></div>
+
+<jsp:include page="../common/footer.jsp" />
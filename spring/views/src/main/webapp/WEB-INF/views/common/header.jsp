@@ -196,6 +196,11 @@
                                                             <span class="menu-title">Cache Summary</span>
                                                         </a>
                                                     </li>
+                                                    <li>
+                                                        <a href="<c:url value="/admin/metrics" />">
+                                                            <span class="menu-title">Request Metrics</span>
+                                                        </a>
+                                                    </li>
                                                     <li>
                                                         <a href="<c:url value="/admin/reset" />">
                                                             <span class="menu-title">Reset</span>
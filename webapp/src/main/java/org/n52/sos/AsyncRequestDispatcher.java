@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands the handling and encoding of service requests to a separate executor
+ * using the Servlet 3.0 async API, so that long running (streaming) responses
+ * do not occupy container threads. The executor is either a bounded thread
+ * pool or, if requested and supported by the runtime, a virtual thread per
+ * task executor. Requests that can not be queued are answered with
+ * {@code 503 Service Unavailable}.
+ * <p>
+ * If the container aborts a request because of a timeout or an error, the
+ * request is completed with {@code 503 Service Unavailable} if possible and
+ * the worker is interrupted. A worker that has not yet started skips the
+ * request, the request is never completed twice.
+ *
+ * @since 5.5.0
+ */
+public class AsyncRequestDispatcher implements AutoCloseable {
+
+    public static final String ENABLED_PARAM = "asyncDispatch";
+
+    public static final String THREADS_PARAM = "asyncDispatchThreads";
+
+    public static final String QUEUE_SIZE_PARAM = "asyncDispatchQueueSize";
+
+    public static final String VIRTUAL_THREADS_PARAM = "asyncDispatchVirtualThreads";
+
+    public static final String TIMEOUT_PARAM = "asyncDispatchTimeout";
+
+    public static final String PATHS_PARAM = "asyncDispatchPaths";
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncRequestDispatcher.class);
+
+    private static final int DEFAULT_THREADS = 32;
+
+    private static final int DEFAULT_QUEUE_SIZE = 256;
+
+    private static final String DEFAULT_PATHS = "/service";
+
+    private static final String THREAD_GROUP = "52n-async-dispatch";
+
+    private final ExecutorService executor;
+
+    private final long timeout;
+
+    private final List<String> paths;
+
+    /**
+     * @param executor
+     *            the executor to handle the requests
+     * @param timeout
+     *            the async timeout in milliseconds, &lt;= 0 for none
+     * @param paths
+     *            the path prefixes of the requests to handle asynchronously
+     */
+    public AsyncRequestDispatcher(ExecutorService executor, long timeout, List<String> paths) {
+        this.executor = executor;
+        this.timeout = timeout;
+        this.paths = paths;
+    }
+
+    /**
+     * Create a dispatcher from the init parameters of the servlet.
+     *
+     * @param config
+     *            the servlet configuration
+     * @return the dispatcher or {@code null} if async dispatch is disabled
+     */
+    public static AsyncRequestDispatcher create(ServletConfig config) {
+        if (!Boolean.parseBoolean(config.getInitParameter(ENABLED_PARAM))) {
+            return null;
+        }
+        int threads = getInt(config, THREADS_PARAM, DEFAULT_THREADS);
+        int queueSize = getInt(config, QUEUE_SIZE_PARAM, DEFAULT_QUEUE_SIZE);
+        long timeout = getInt(config, TIMEOUT_PARAM, 0);
+        String paths = config.getInitParameter(PATHS_PARAM);
+        ExecutorService executor = null;
+        if (Boolean.parseBoolean(config.getInitParameter(VIRTUAL_THREADS_PARAM))) {
+            executor = createVirtualThreadExecutor();
+        }
+        if (executor == null) {
+            executor = createThreadPool(threads, queueSize);
+        }
+        LOG.info("Dispatching service requests asynchronously using {}", executor);
+        return new AsyncRequestDispatcher(executor, timeout, Arrays
+                .stream((paths == null || paths.trim().isEmpty() ? DEFAULT_PATHS : paths).split(","))
+                .map(String::trim).filter(p -> !p.isEmpty()).collect(Collectors.toList()));
+    }
+
+    /**
+     * Create a bounded thread pool.
+     *
+     * @param threads
+     *            the number of threads
+     * @param queueSize
+     *            the number of requests that may wait for a thread
+     * @return the executor
+     */
+    public static ExecutorService createThreadPool(int threads, int queueSize) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), new GroupedAndNamedThreadFactory(THREAD_GROUP));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Create a virtual thread per task executor if the runtime supports it.
+     *
+     * @return the executor or {@code null} if not supported
+     */
+    public static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            LOG.info("Virtual threads are not supported by this runtime, falling back to a thread pool");
+            return null;
+        }
+    }
+
+    /**
+     * Dispatch the request asynchronously if it is an initial request to one
+     * of the configured paths.
+     *
+     * @param request
+     *            the request
+     * @param response
+     *            the response
+     * @param handler
+     *            the handler to execute on the executor
+     * @return if the request was dispatched, otherwise the caller has to
+     *         handle it
+     * @throws IOException
+     *             if the request was rejected and the error could not be sent
+     */
+    public boolean dispatch(HttpServletRequest request, HttpServletResponse response, RequestHandler handler)
+            throws IOException {
+        if (!accepts(request)) {
+            return false;
+        }
+        AsyncContext context = request.startAsync(request, response);
+        context.setTimeout(Math.max(0, timeout));
+        AsyncTask task = new AsyncTask(context, handler);
+        context.addListener(task);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Rejecting request, all async dispatch threads are busy");
+            try {
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            } finally {
+                task.complete();
+            }
+        }
+        return true;
+    }
+
+    private boolean accepts(HttpServletRequest request) {
+        if (!request.isAsyncSupported() || request.isAsyncStarted()
+                || request.getDispatcherType() != DispatcherType.REQUEST) {
+            return false;
+        }
+        String path = request.getServletPath() + (request.getPathInfo() != null ? request.getPathInfo() : "");
+        return paths.stream().anyMatch(path::startsWith);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int getInt(ServletConfig config, String name, int defaultValue) {
+        String value = config.getInitParameter(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * The handling of an asynchronous request. Either the worker or the
+     * container, after a timeout or an error, completes the request.
+     */
+    private static final class AsyncTask implements Runnable, AsyncListener {
+
+        private final AsyncContext context;
+
+        private final RequestHandler handler;
+
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Thread worker;
+
+        AsyncTask(AsyncContext context, RequestHandler handler) {
+            this.context = context;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            if (!start()) {
+                LOG.debug("Skipping async request, it was aborted while it was queued");
+                return;
+            }
+            HttpServletResponse response = (HttpServletResponse) context.getResponse();
+            try {
+                handler.handle((HttpServletRequest) context.getRequest(), response);
+            } catch (ServletException | IOException | RuntimeException e) {
+                if (completed.get()) {
+                    LOG.debug("Error while handling aborted async request", e);
+                } else {
+                    LOG.error("Error while handling request asynchronously", e);
+                    sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+            } finally {
+                stop();
+                complete();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            completed.set(true);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            abort("timed out", event);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            abort("failed", event);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        /**
+         * Complete the request if it was neither completed by the worker nor
+         * aborted by the container.
+         */
+        void complete() {
+            if (completed.compareAndSet(false, true)) {
+                completeContext();
+            }
+        }
+
+        private void abort(String reason, AsyncEvent event) {
+            // the worker must neither write an error nor complete the request
+            if (completed.compareAndSet(false, true)) {
+                LOG.warn("Async request {}, aborting its handling", reason, event.getThrowable());
+                interrupt();
+                sendError((HttpServletResponse) context.getResponse(), HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                completeContext();
+            }
+        }
+
+        private void completeContext() {
+            try {
+                context.complete();
+            } catch (IllegalStateException e) {
+                // already completed by the container
+                LOG.debug("Async request was already completed", e);
+            }
+        }
+
+        private synchronized boolean start() {
+            if (completed.get()) {
+                return false;
+            }
+            this.worker = Thread.currentThread();
+            return true;
+        }
+
+        private synchronized void stop() {
+            this.worker = null;
+        }
+
+        private synchronized void interrupt() {
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+
+        private static void sendError(HttpServletResponse response, int status) {
+            try {
+                if (!response.isCommitted()) {
+                    response.sendError(status);
+                }
+            } catch (IOException | IllegalStateException e) {
+                LOG.debug("Error while sending error response", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response wrapper that compresses the body while it is written. The first
+ * bytes are buffered until the minimum size is reached or the body is
+ * flushed; afterwards every flush of the producer is passed on as a sync
+ * flush of the compressor, so streamed responses stay streamed. Responses
+ * that are smaller than the minimum size, that are not of a compressible
+ * content type or that are already encoded are written unchanged.
+ * <p>
+ * A {@link #reset()} of an uncommitted response discards the compressor and
+ * returns to the buffering state, so that e.g. an error report replacing the
+ * body is negotiated anew. {@link #resetBuffer()} keeps the headers and thus
+ * restarts the compression with a new compressor. The additional
+ * {@link #setCopy(OutputStream) copy} of the body is discarded by both.
+ *
+ * @since 5.5.0
+ */
+public class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    public static final String GZIP = "gzip";
+
+    public static final String DEFLATE = "deflate";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String encoding;
+
+    private final int level;
+
+    private final int minSize;
+
+    private final ResponseCompression.ContentTypeFilter contentTypes;
+
+    private OutputStream copy;
+
+    private CompressingOutputStream stream;
+
+    private PrintWriter writer;
+
+    private long contentLength = -1;
+
+    /**
+     * @param response
+     *            the response to wrap
+     * @param encoding
+     *            the negotiated content encoding, {@value #GZIP} or
+     *            {@value #DEFLATE}
+     * @param level
+     *            the compression level
+     * @param minSize
+     *            the minimum size of compressed responses
+     * @param contentTypes
+     *            the filter for compressible content types
+     */
+    public CompressingResponseWrapper(HttpServletResponse response, String encoding, int level, int minSize,
+            ResponseCompression.ContentTypeFilter contentTypes) {
+        super(response);
+        this.encoding = encoding;
+        this.level = level;
+        this.minSize = Math.max(0, minSize);
+        this.contentTypes = contentTypes;
+    }
+
+    /**
+     * Additionally copy the bytes written to the wrapped response, e.g. to
+     * store a compressed payload.
+     *
+     * @param copy
+     *            the stream receiving the written bytes
+     */
+    public void setCopy(OutputStream copy) {
+        this.copy = copy;
+    }
+
+    /**
+     * @return if the body was written compressed
+     */
+    public boolean isCompressed() {
+        return stream != null && stream.compressor != null;
+    }
+
+    /**
+     * @return if the body was written compressed and completely copied to the
+     *         {@link #setCopy(OutputStream) copy}
+     */
+    public boolean isCopied() {
+        return copy != null && isCompressed();
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        return getStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (stream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            String charset = getCharacterEncoding();
+            writer = new PrintWriter(new OutputStreamWriter(getStream(),
+                    charset != null ? charset : "ISO-8859-1"));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        this.contentLength = len;
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        this.contentLength = len;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (!isContentLength(name)) {
+            super.setHeader(name, value);
+        } else if (value != null) {
+            this.contentLength = Long.parseLong(value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (!isContentLength(name)) {
+            super.addHeader(name, value);
+        } else if (value != null) {
+            this.contentLength = Long.parseLong(value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (!isContentLength(name)) {
+            super.setIntHeader(name, value);
+        } else {
+            this.contentLength = value;
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else if (stream != null) {
+            stream.flush();
+        } else {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        // fails if the response is already committed
+        super.resetBuffer();
+        if (stream != null) {
+            stream.reset(false);
+        }
+    }
+
+    @Override
+    public void reset() {
+        // fails if the response is already committed
+        super.reset();
+        super.addHeader(ResponseCompression.VARY, ResponseCompression.ACCEPT_ENCODING);
+        if (stream != null) {
+            stream.reset(true);
+        }
+        this.contentLength = -1;
+    }
+
+    /**
+     * Write the remaining buffered or compressed bytes. Has to be called after
+     * the request was handled.
+     *
+     * @throws IOException
+     *             if the body could not be written
+     */
+    public void finish() throws IOException {
+        if (stream != null) {
+            stream.finishing = true;
+            if (writer != null) {
+                // pass the pending characters without deciding about the compression
+                writer.flush();
+            }
+            stream.finish();
+        } else if (contentLength >= 0 && !isCommitted()) {
+            super.setContentLengthLong(contentLength);
+        }
+    }
+
+    /**
+     * Release the native resources of the compressor, e.g. if the request
+     * failed before the response was finished.
+     */
+    public void release() {
+        if (stream != null) {
+            stream.end();
+        }
+    }
+
+    private CompressingOutputStream getStream() {
+        if (stream == null) {
+            stream = new CompressingOutputStream();
+        }
+        return stream;
+    }
+
+    private boolean isCompressible() {
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        return response.getStatus() != SC_NO_CONTENT && response.getStatus() != SC_NOT_MODIFIED
+                && !response.containsHeader(ResponseCompression.CONTENT_ENCODING)
+                && contentTypes.isCompressible(getContentType());
+    }
+
+    private static boolean isContentLength(String name) {
+        return name != null && name.toLowerCase(Locale.ROOT).equals("content-length");
+    }
+
+    private class CompressingOutputStream extends ServletOutputStream {
+
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.min(minSize, BUFFER_SIZE));
+
+        private OutputStream out;
+
+        private DeflaterOutputStream compressor;
+
+        private Deflater deflater;
+
+        private boolean finished;
+
+        private boolean discarding;
+
+        private boolean finishing;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (finished) {
+                throw new IOException("Response has already been finished");
+            }
+            if (discarding) {
+                return;
+            }
+            if (buffer != null) {
+                buffer.write(b, off, len);
+                if (buffer.size() >= minSize) {
+                    start(true, false);
+                }
+            } else {
+                target().write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (finished || discarding) {
+                return;
+            }
+            if (buffer != null) {
+                if (buffer.size() == 0 || finishing) {
+                    return;
+                }
+                start(true, false);
+            }
+            target().flush();
+        }
+
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            if (buffer != null) {
+                start(buffer.size() > 0 && buffer.size() >= minSize, true);
+            }
+            finished = true;
+            if (compressor != null) {
+                compressor.finish();
+                end();
+            }
+            out.flush();
+        }
+
+        /**
+         * Discard the buffered bytes after the wrapped response was reset.
+         *
+         * @param headers
+         *            if the headers, and thus the content encoding, were
+         *            reset as well
+         */
+        void reset(boolean headers) {
+            discardWriter();
+            if (buffer != null) {
+                buffer.reset();
+                return;
+            }
+            end();
+            // the copy already contains bytes of the discarded body
+            copy = null;
+            if (headers) {
+                compressor = null;
+                out = null;
+                buffer = new ByteArrayOutputStream(Math.min(minSize, BUFFER_SIZE));
+            } else if (compressor != null) {
+                // the content encoding header is kept, start a new compressed body
+                try {
+                    out = getResponse().getOutputStream();
+                    compressor = createCompressor(out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        /**
+         * Drop the characters the writer did not yet pass to this stream.
+         */
+        private void discardWriter() {
+            if (writer != null) {
+                discarding = true;
+                try {
+                    writer.flush();
+                } finally {
+                    discarding = false;
+                }
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Non-blocking writes are not supported");
+        }
+
+        private OutputStream target() {
+            return compressor != null ? compressor : out;
+        }
+
+        /**
+         * Decide about the compression and write the buffered bytes.
+         *
+         * @param compress
+         *            if the body should be compressed
+         * @param complete
+         *            if the buffer holds the complete body
+         */
+        private void start(boolean compress, boolean complete) throws IOException {
+            byte[] buffered = buffer.toByteArray();
+            buffer = null;
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            if (compress && isCompressible()) {
+                response.setHeader(ResponseCompression.CONTENT_ENCODING, encoding);
+                out = copy != null ? new TeeOutputStream(response.getOutputStream(), copy)
+                        : response.getOutputStream();
+                compressor = createCompressor(out);
+            } else {
+                if (contentLength >= 0) {
+                    response.setContentLengthLong(contentLength);
+                } else if (complete) {
+                    response.setContentLength(buffered.length);
+                }
+                out = response.getOutputStream();
+            }
+            target().write(buffered);
+        }
+
+        void end() {
+            if (deflater != null) {
+                deflater.end();
+                deflater = null;
+            }
+        }
+
+        private DeflaterOutputStream createCompressor(OutputStream stream) throws IOException {
+            if (GZIP.equals(encoding)) {
+                GzipOutputStream gzip = new GzipOutputStream(stream, level);
+                this.deflater = gzip.getDeflater();
+                return gzip;
+            }
+            this.deflater = new Deflater(level);
+            return new DeflaterOutputStream(stream, deflater, BUFFER_SIZE, true);
+        }
+    }
+
+    private static class GzipOutputStream extends GZIPOutputStream {
+
+        GzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE, true);
+            def.setLevel(level);
+        }
+
+        Deflater getDeflater() {
+            return def;
+        }
+    }
+
+    private static class TeeOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        private final OutputStream copy;
+
+        TeeOutputStream(OutputStream out, OutputStream copy) {
+            this.out = out;
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            copy.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+}
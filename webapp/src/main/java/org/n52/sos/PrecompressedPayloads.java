@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Store of compressed capabilities documents. Capabilities are the largest
+ * response most clients request repeatedly and only change with the content
+ * cache, so their compressed bytes are kept per encoding and content version
+ * and written without invoking the service again, so these requests neither
+ * pass the admission control nor emit request events, e.g. for the statistics.
+ * The store is cleared if a setting changes, entries additionally expire after
+ * the configured time.
+ *
+ * @since 5.5.0
+ */
+public class PrecompressedPayloads {
+
+    private static final String REQUEST_PARAM = "request";
+
+    private static final String GET_CAPABILITIES = "GetCapabilities";
+
+    private static final String GET = "GET";
+
+    private final Cache<String, Payload> cache;
+
+    private final Supplier<Object> version;
+
+    private final int maxEntrySize;
+
+    /**
+     * @param maxSize
+     *            the maximum number of bytes to store
+     * @param ttl
+     *            the time after which entries expire
+     * @param unit
+     *            the unit of {@code ttl}
+     * @param version
+     *            the supplier of the current content version
+     */
+    public PrecompressedPayloads(int maxSize, long ttl, TimeUnit unit, Supplier<Object> version) {
+        this.version = version;
+        this.maxEntrySize = maxSize;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((String key, Payload payload) -> payload.content.length)
+                .expireAfterWrite(ttl, unit)
+                .build();
+    }
+
+    /**
+     * Create the key of the payload for the request.
+     *
+     * @param request
+     *            the request
+     * @param encoding
+     *            the negotiated content encoding
+     * @return the key or {@code null} if the response should not be stored
+     */
+    public String getKey(HttpServletRequest request, String encoding) {
+        if (!GET.equals(request.getMethod()) || !isGetCapabilities(request)) {
+            return null;
+        }
+        Object current = version.get();
+        if (current == null) {
+            return null;
+        }
+        return String.join("|", encoding, current.toString(), String.valueOf(request.getServerName()),
+                String.valueOf(request.getHeader("Accept")), request.getRequestURI(), request.getQueryString());
+    }
+
+    private static boolean isGetCapabilities(HttpServletRequest request) {
+        for (String name : request.getParameterMap().keySet()) {
+            if (REQUEST_PARAM.equalsIgnoreCase(name)) {
+                return GET_CAPABILITIES.equalsIgnoreCase(request.getParameter(name));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write the stored payload to the response.
+     *
+     * @param key
+     *            the key of the payload
+     * @param response
+     *            the response
+     * @return if a payload was stored and written
+     * @throws IOException
+     *             if the payload could not be written
+     */
+    public boolean write(String key, HttpServletResponse response) throws IOException {
+        Payload payload = cache.getIfPresent(key);
+        if (payload == null) {
+            return false;
+        }
+        response.setContentType(payload.contentType);
+        response.setHeader(ResponseCompression.CONTENT_ENCODING, payload.encoding);
+        response.setContentLength(payload.content.length);
+        response.getOutputStream().write(payload.content);
+        response.flushBuffer();
+        return true;
+    }
+
+    /**
+     * @return a buffer for the compressed bytes of a response
+     */
+    public Buffer createBuffer() {
+        return new Buffer(maxEntrySize);
+    }
+
+    /**
+     * Store the compressed bytes of a response.
+     *
+     * @param key
+     *            the key of the payload
+     * @param contentType
+     *            the content type of the response
+     * @param encoding
+     *            the content encoding of the response
+     * @param buffer
+     *            the compressed bytes
+     */
+    public void put(String key, String contentType, String encoding, Buffer buffer) {
+        if (!buffer.isOverflown() && contentType != null) {
+            cache.put(key, new Payload(contentType, encoding, buffer.toByteArray()));
+        }
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Buffer that stops collecting bytes once the maximum size is exceeded.
+     */
+    public static final class Buffer extends ByteArrayOutputStream {
+
+        private final int maxSize;
+
+        private boolean overflown;
+
+        Buffer(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (check(1)) {
+                super.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (check(len)) {
+                super.write(b, off, len);
+            }
+        }
+
+        private boolean check(int len) {
+            if (!overflown && count + len > maxSize) {
+                overflown = true;
+                reset();
+            }
+            return !overflown;
+        }
+
+        public boolean isOverflown() {
+            return overflown;
+        }
+    }
+
+    private static final class Payload {
+
+        private final String contentType;
+
+        private final String encoding;
+
+        private final byte[] content;
+
+        Payload(String contentType, String encoding, byte[] content) {
+            this.contentType = contentType;
+            this.encoding = encoding;
+            this.content = content;
+        }
+    }
+
+}
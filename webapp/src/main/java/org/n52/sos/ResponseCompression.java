@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Negotiates a {@code gzip} or {@code deflate} content encoding for service
+ * responses and compresses the body while it is streamed to the client.
+ * Compressed capabilities documents are kept in a {@link PrecompressedPayloads
+ * store} until the content cache changes.
+ *
+ * @since 5.5.0
+ */
+public class ResponseCompression {
+
+    public static final String ENABLED_PARAM = "responseCompression";
+
+    public static final String LEVEL_PARAM = "responseCompressionLevel";
+
+    public static final String MIN_SIZE_PARAM = "responseCompressionMinSize";
+
+    public static final String PATHS_PARAM = "responseCompressionPaths";
+
+    public static final String CONTENT_TYPES_PARAM = "responseCompressionContentTypes";
+
+    public static final String CACHE_SIZE_PARAM = "responseCompressionCacheSize";
+
+    public static final String CACHE_TTL_PARAM = "responseCompressionCacheTtl";
+
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+
+    public static final String VARY = "Vary";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCompression.class);
+
+    private static final int DEFAULT_LEVEL = 6;
+
+    private static final int DEFAULT_MIN_SIZE = 1024;
+
+    private static final String DEFAULT_PATHS = "/service";
+
+    private static final String DEFAULT_CONTENT_TYPES = "text/,xml,json";
+
+    private static final int DEFAULT_CACHE_SIZE = 16 * 1024 * 1024;
+
+    private static final int DEFAULT_CACHE_TTL = 300;
+
+    private final int level;
+
+    private final int minSize;
+
+    private final List<String> paths;
+
+    private final ContentTypeFilter contentTypes;
+
+    private final PrecompressedPayloads payloads;
+
+    /**
+     * @param level
+     *            the compression level, 1 (fastest) to 9 (smallest)
+     * @param minSize
+     *            the minimum size in bytes of responses to compress
+     * @param paths
+     *            the path prefixes of the requests to compress
+     * @param contentTypes
+     *            the filter for compressible content types
+     * @param payloads
+     *            the store of pre-compressed payloads or {@code null}
+     */
+    public ResponseCompression(int level, int minSize, List<String> paths, ContentTypeFilter contentTypes,
+            PrecompressedPayloads payloads) {
+        if (level < 1 || level > 9) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.level = level;
+        this.minSize = minSize;
+        this.paths = paths;
+        this.contentTypes = contentTypes;
+        this.payloads = payloads;
+    }
+
+    /**
+     * Create the compression from the init parameters of the servlet.
+     *
+     * @param config
+     *            the servlet configuration
+     * @param version
+     *            the supplier of the current content version, used to
+     *            invalidate pre-compressed payloads
+     * @return the compression or {@code null} if response compression is
+     *         disabled
+     */
+    public static ResponseCompression create(ServletConfig config, Supplier<Object> version) {
+        if (!Boolean.parseBoolean(config.getInitParameter(ENABLED_PARAM))) {
+            return null;
+        }
+        int level = getInt(config, LEVEL_PARAM, DEFAULT_LEVEL);
+        int minSize = getInt(config, MIN_SIZE_PARAM, DEFAULT_MIN_SIZE);
+        int cacheSize = getInt(config, CACHE_SIZE_PARAM, DEFAULT_CACHE_SIZE);
+        int cacheTtl = getInt(config, CACHE_TTL_PARAM, DEFAULT_CACHE_TTL);
+        PrecompressedPayloads payloads = cacheSize > 0
+                ? new PrecompressedPayloads(cacheSize, cacheTtl, TimeUnit.SECONDS, version)
+                : null;
+        LOG.info("Compressing service responses with level {}", level);
+        return new ResponseCompression(level, minSize, split(config.getInitParameter(PATHS_PARAM), DEFAULT_PATHS),
+                new ContentTypeFilter(split(config.getInitParameter(CONTENT_TYPES_PARAM), DEFAULT_CONTENT_TYPES)),
+                payloads);
+    }
+
+    /**
+     * Select the content encoding for the {@code Accept-Encoding} header of a
+     * request. {@code gzip} is preferred over {@code deflate} if both are
+     * equally acceptable.
+     *
+     * @param acceptEncoding
+     *            the header value, may be {@code null}
+     * @return {@value CompressingResponseWrapper#GZIP},
+     *         {@value CompressingResponseWrapper#DEFLATE} or {@code null} if
+     *         the response should not be compressed
+     */
+    public static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.trim().isEmpty()) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = getQuality(parts);
+            switch (coding) {
+                case CompressingResponseWrapper.GZIP:
+                case "x-gzip":
+                    gzip = Math.max(gzip, q);
+                    break;
+                case CompressingResponseWrapper.DEFLATE:
+                    deflate = Math.max(deflate, q);
+                    break;
+                case "*":
+                    any = q;
+                    break;
+                default:
+                    break;
+            }
+        }
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? CompressingResponseWrapper.GZIP : CompressingResponseWrapper.DEFLATE;
+    }
+
+    private static double getQuality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Handle the request and compress the response if the client accepts it.
+     *
+     * @param request
+     *            the request
+     * @param response
+     *            the response
+     * @param handler
+     *            the handler producing the response
+     * @throws ServletException
+     *             if the handler fails
+     * @throws IOException
+     *             if the response could not be written
+     */
+    public void handle(HttpServletRequest request, HttpServletResponse response, RequestHandler handler)
+            throws ServletException, IOException {
+        if (!accepts(request)) {
+            handler.handle(request, response);
+            return;
+        }
+        response.addHeader(VARY, ACCEPT_ENCODING);
+        String encoding = negotiate(request.getHeader(ACCEPT_ENCODING));
+        if (encoding == null) {
+            handler.handle(request, response);
+            return;
+        }
+        String key = payloads != null ? payloads.getKey(request, encoding) : null;
+        if (key != null && payloads.write(key, response)) {
+            return;
+        }
+        CompressingResponseWrapper wrapper =
+                new CompressingResponseWrapper(response, encoding, level, minSize, contentTypes);
+        PrecompressedPayloads.Buffer copy = null;
+        if (key != null) {
+            copy = payloads.createBuffer();
+            wrapper.setCopy(copy);
+        }
+        try {
+            handler.handle(request, wrapper);
+            wrapper.finish();
+        } finally {
+            wrapper.release();
+        }
+        if (copy != null && wrapper.isCopied() && response.getStatus() == HttpServletResponse.SC_OK) {
+            payloads.put(key, response.getContentType(), encoding, copy);
+        }
+    }
+
+    /**
+     * Discard all pre-compressed payloads.
+     */
+    public void clear() {
+        if (payloads != null) {
+            payloads.clear();
+        }
+    }
+
+    private boolean accepts(HttpServletRequest request) {
+        String path = request.getServletPath() + (request.getPathInfo() != null ? request.getPathInfo() : "");
+        return paths.stream().anyMatch(path::startsWith);
+    }
+
+    private static List<String> split(String value, String defaultValue) {
+        return Arrays.stream((value == null || value.trim().isEmpty() ? defaultValue : value).split(","))
+                .map(String::trim).filter(p -> !p.isEmpty()).collect(Collectors.toList());
+    }
+
+    private static int getInt(ServletConfig config, String name, int defaultValue) {
+        String value = config.getInitParameter(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Matches the content types worth compressing. A content type matches if
+     * it contains one of the configured tokens, e.g. {@code text/} or
+     * {@code xml}.
+     */
+    public static class ContentTypeFilter {
+
+        private final List<String> tokens;
+
+        public ContentTypeFilter(List<String> tokens) {
+            this.tokens = tokens.stream().map(t -> t.toLowerCase(Locale.ROOT)).collect(Collectors.toList());
+        }
+
+        public boolean isCompressible(String contentType) {
+            if (contentType == null) {
+                return false;
+            }
+            String type = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+            return tokens.stream().anyMatch(type::contains);
+        }
+    }
+
+}
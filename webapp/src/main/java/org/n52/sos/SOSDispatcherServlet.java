@@ -27,10 +27,24 @@
  */
 package org.n52.sos;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
 import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
+import org.n52.faroe.SettingsChangeEvent;
+import org.n52.iceland.cache.ContentCacheController;
 import org.n52.iceland.service.DatabaseSettingsHandler;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventBus;
+import org.n52.janmayen.event.EventListener;
+import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.context.ContextSwitcher;
+import org.n52.sos.request.operator.AdmissionControl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.target.HotSwappableTargetSource;
@@ -58,6 +72,10 @@ public class SOSDispatcherServlet
     private static final String CONTEXT_SWITCHER_BEAN_NAME = "contextSwitcherSwapper";
     private boolean configured;
     private boolean loadSettings;
+    private transient AsyncRequestDispatcher asyncDispatcher;
+    private transient ResponseCompression compression;
+    private transient volatile ContentCacheController contentCacheController;
+    private final transient EventListener settingsChangeListener = new SettingsChangeListener();
 
     @Override
     public String getContextConfigLocation() {
@@ -127,6 +145,52 @@ public class SOSDispatcherServlet
         }
     }
 
+    @Override
+    protected void initFrameworkServlet() throws ServletException {
+        super.initFrameworkServlet();
+        this.asyncDispatcher = AsyncRequestDispatcher.create(getServletConfig());
+        this.compression = ResponseCompression.create(getServletConfig(), this::getContentVersion);
+    }
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        AsyncRequestDispatcher dispatcher = this.asyncDispatcher;
+        if (dispatcher == null || !dispatcher.dispatch(request, response, this::handle)) {
+            handle(request, response);
+        }
+    }
+
+    private void handle(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        // admission permits are held until the response was written
+        try (AdmissionControl.Scope scope = AdmissionControl.Scope.open()) {
+            ResponseCompression responseCompression = this.compression;
+            if (responseCompression == null) {
+                super.service(request, response);
+            } else {
+                responseCompression.handle(request, response, super::service);
+            }
+        }
+    }
+
+    private Object getContentVersion() {
+        ContentCacheController controller = this.contentCacheController;
+        if (controller != null && controller.getCache() instanceof SosContentCache) {
+            return ((SosContentCache) controller.getCache()).getLastUpdateTime();
+        }
+        return null;
+    }
+
+    @Override
+    public void destroy() {
+        if (asyncDispatcher != null) {
+            asyncDispatcher.close();
+            asyncDispatcher = null;
+        }
+        super.destroy();
+    }
+
     @Override
     protected void onRefresh(ApplicationContext context) {
         super.onRefresh(context);
@@ -138,6 +202,25 @@ public class SOSDispatcherServlet
         } catch (NoSuchBeanDefinitionException e) {
             //ignore
         }
+        try {
+            this.contentCacheController = context.getBean(ContentCacheController.class);
+        } catch (NoSuchBeanDefinitionException e) {
+            this.contentCacheController = null;
+        }
+        try {
+            // changed settings may change the capabilities
+            context.getBean(EventBus.class).register(settingsChangeListener);
+        } catch (NoSuchBeanDefinitionException e) {
+            //ignore
+        }
+        clearPrecompressedPayloads();
+    }
+
+    private void clearPrecompressedPayloads() {
+        ResponseCompression responseCompression = this.compression;
+        if (responseCompression != null) {
+            responseCompression.clear();
+        }
     }
 
     @Override
@@ -160,4 +243,20 @@ public class SOSDispatcherServlet
     public void reset() {
        this.configured = false;
     }
+
+    /**
+     * Discards the pre-compressed payloads if a setting changed.
+     */
+    private class SettingsChangeListener implements EventListener {
+
+        @Override
+        public Set<Class<? extends Event>> getTypes() {
+            return Collections.singleton(SettingsChangeEvent.class);
+        }
+
+        @Override
+        public void handle(Event event) {
+            clearPrecompressedPayloads();
+        }
+    }
 }
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * @since 5.5.0
+ */
+public class AsyncRequestDispatcherTest {
+
+    private static final int REQUESTS = 200;
+
+    private static final int CONTAINER_THREADS = 4;
+
+    private static final String RESPONSE = "ok";
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private AsyncRequestDispatcher dispatcher;
+
+    @After
+    public void close() {
+        release.countDown();
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+    }
+
+    @Test
+    public void slowResponsesDoNotBlockContainerThreads() throws Exception {
+        dispatcher = new AsyncRequestDispatcher(AsyncRequestDispatcher.createThreadPool(64, REQUESTS), 0,
+                Collections.singletonList("/service"));
+        ExecutorService container = Executors.newFixedThreadPool(CONTAINER_THREADS);
+        List<MockHttpServletRequest> requests = new ArrayList<>(REQUESTS);
+        List<MockHttpServletResponse> responses = new ArrayList<>(REQUESTS);
+        try {
+            for (int i = 0; i < REQUESTS; i++) {
+                MockHttpServletRequest request = createRequest("/service");
+                MockHttpServletResponse response = new MockHttpServletResponse();
+                requests.add(request);
+                responses.add(response);
+                container.execute(() -> {
+                    try {
+                        assertThat(dispatcher.dispatch(request, response, (req, res) -> {
+                            active.incrementAndGet();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            res.getWriter().write(RESPONSE);
+                        }), is(true));
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                });
+            }
+            container.shutdown();
+            // all requests were accepted although none of the responses completed
+            assertThat(container.awaitTermination(10, TimeUnit.SECONDS), is(true));
+        } finally {
+            container.shutdownNow();
+        }
+        for (MockHttpServletRequest request : requests) {
+            assertThat(request.isAsyncStarted(), is(true));
+        }
+
+        release.countDown();
+        dispatcher.close();
+        for (int i = 0; i < REQUESTS; i++) {
+            assertThat(requests.get(i).isAsyncStarted(), is(false));
+            assertThat(responses.get(i).getContentAsString(), is(RESPONSE));
+        }
+        assertThat(active.get(), is(REQUESTS));
+    }
+
+    @Test
+    public void rejectsRequestsIfQueueIsFull() throws Exception {
+        dispatcher = new AsyncRequestDispatcher(AsyncRequestDispatcher.createThreadPool(1, 1), 0,
+                Collections.singletonList("/service"));
+        List<MockHttpServletResponse> responses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            responses.add(response);
+            assertThat(dispatcher.dispatch(createRequest("/service"), response, (req, res) -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }), is(true));
+        }
+        assertThat(responses.get(2).getStatus(), is(HttpServletResponse.SC_SERVICE_UNAVAILABLE));
+    }
+
+    @Test
+    public void stopsWorkerOfTimedOutRequests() throws Exception {
+        dispatcher = new AsyncRequestDispatcher(AsyncRequestDispatcher.createThreadPool(1, 1), 1000,
+                Collections.singletonList("/service"));
+        MockHttpServletRequest request = createRequest("/service");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        assertThat(dispatcher.dispatch(request, response, (req, res) -> {
+            started.countDown();
+            try {
+                release.await();
+                res.getWriter().write(RESPONSE);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }), is(true));
+        AtomicInteger completions = countCompletions(request);
+        assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+
+        timeout(request, response);
+        assertThat(interrupted.await(10, TimeUnit.SECONDS), is(true));
+        dispatcher.close();
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_SERVICE_UNAVAILABLE));
+        assertThat(request.isAsyncStarted(), is(false));
+        // the worker did not complete the request a second time
+        assertThat(completions.get(), is(1));
+    }
+
+    @Test
+    public void skipsQueuedRequestsThatTimedOut() throws Exception {
+        dispatcher = new AsyncRequestDispatcher(AsyncRequestDispatcher.createThreadPool(1, 1), 1000,
+                Collections.singletonList("/service"));
+        RequestHandler handler = (req, res) -> {
+            active.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        assertThat(dispatcher.dispatch(createRequest("/service"), new MockHttpServletResponse(), handler), is(true));
+        MockHttpServletRequest queued = createRequest("/service");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(dispatcher.dispatch(queued, response, handler), is(true));
+        AtomicInteger completions = countCompletions(queued);
+
+        timeout(queued, response);
+        release.countDown();
+        dispatcher.close();
+        assertThat(active.get(), is(1));
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_SERVICE_UNAVAILABLE));
+        assertThat(completions.get(), is(1));
+    }
+
+    @Test
+    public void ignoresOtherPaths() throws Exception {
+        dispatcher = new AsyncRequestDispatcher(AsyncRequestDispatcher.createThreadPool(1, 1), 0,
+                Collections.singletonList("/service"));
+        MockHttpServletRequest request = createRequest("/admin/index");
+        assertThat(dispatcher.dispatch(request, new MockHttpServletResponse(), (req, res) -> {
+        }), is(false));
+        assertThat(request.isAsyncStarted(), is(false));
+    }
+
+    private static AtomicInteger countCompletions(MockHttpServletRequest request) {
+        AtomicInteger completions = new AtomicInteger();
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                completions.incrementAndGet();
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        return completions;
+    }
+
+    /**
+     * Notify the listeners about a timeout like the container does.
+     */
+    private static void timeout(MockHttpServletRequest request, MockHttpServletResponse response)
+            throws IOException {
+        MockAsyncContext context = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : new ArrayList<>(context.getListeners())) {
+            listener.onTimeout(new AsyncEvent(context, request, response));
+        }
+    }
+
+    private static MockHttpServletRequest createRequest(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+}
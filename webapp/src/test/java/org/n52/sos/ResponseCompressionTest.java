@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2012-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * @since 5.5.0
+ */
+public class ResponseCompressionTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCompressionTest.class);
+
+    private static final String GZIP = CompressingResponseWrapper.GZIP;
+
+    private static final String DEFLATE = CompressingResponseWrapper.DEFLATE;
+
+    private static final String XML = "application/xml";
+
+    private static final int[] LEVELS = { 1, 6, 9 };
+
+    private static final int PAYLOAD_SIZE = 4 * 1024 * 1024;
+
+    @Test
+    public void negotiatesEncoding() {
+        assertThat(ResponseCompression.negotiate(null), is(nullValue()));
+        assertThat(ResponseCompression.negotiate(""), is(nullValue()));
+        assertThat(ResponseCompression.negotiate("identity"), is(nullValue()));
+        assertThat(ResponseCompression.negotiate("br"), is(nullValue()));
+        assertThat(ResponseCompression.negotiate("gzip, deflate, br"), is(GZIP));
+        assertThat(ResponseCompression.negotiate("deflate, gzip"), is(GZIP));
+        assertThat(ResponseCompression.negotiate("x-gzip"), is(GZIP));
+        assertThat(ResponseCompression.negotiate("DEFLATE"), is(DEFLATE));
+        assertThat(ResponseCompression.negotiate("deflate, gzip;q=0.5"), is(DEFLATE));
+        assertThat(ResponseCompression.negotiate("gzip;q=0, deflate"), is(DEFLATE));
+        assertThat(ResponseCompression.negotiate("gzip;q=0, deflate;q=0"), is(nullValue()));
+        assertThat(ResponseCompression.negotiate("*"), is(GZIP));
+        assertThat(ResponseCompression.negotiate("*;q=0"), is(nullValue()));
+        assertThat(ResponseCompression.negotiate("gzip;q=0, *;q=0.3"), is(DEFLATE));
+        assertThat(ResponseCompression.negotiate("gzip;q=invalid, deflate"), is(DEFLATE));
+    }
+
+    @Test
+    public void streamsDecodableGzipChunks() throws Exception {
+        streamsDecodableChunks(GZIP);
+    }
+
+    @Test
+    public void streamsDecodableDeflateChunks() throws Exception {
+        streamsDecodableChunks(DEFLATE);
+    }
+
+    private void streamsDecodableChunks(String encoding) throws Exception {
+        ResponseCompression compression = create(6, 16, null);
+        MockHttpServletRequest request = request("POST", encoding);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        compression.handle(request, response, (req, res) -> {
+            res.setContentType(XML);
+            OutputStream out = res.getOutputStream();
+            for (int i = 0; i < 10; i++) {
+                byte[] chunk = chunk(i);
+                out.write(chunk);
+                written.write(chunk);
+                out.flush();
+                // everything written so far has to be decodable from the bytes sent so far
+                assertThat(decode(encoding, response.getContentAsByteArray(), written.size()),
+                        is(written.toByteArray()));
+            }
+        });
+        assertThat(response.getHeader(ResponseCompression.CONTENT_ENCODING), is(encoding));
+        assertThat(response.getHeader(ResponseCompression.VARY), is(ResponseCompression.ACCEPT_ENCODING));
+        assertThat(response.getHeader("Content-Length"), is(nullValue()));
+        assertThat(decodeAll(encoding, response.getContentAsByteArray()), is(written.toByteArray()));
+    }
+
+    @Test
+    public void compressesWriterOutput() throws Exception {
+        ResponseCompression compression = create(6, 16, null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String content = new String(chunk(0), StandardCharsets.UTF_8) + "äöü";
+        compression.handle(request("POST", GZIP), response, (req, res) -> {
+            res.setContentType(XML);
+            res.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            res.getWriter().write(content);
+        });
+        assertThat(response.getHeader(ResponseCompression.CONTENT_ENCODING), is(GZIP));
+        assertThat(new String(decodeAll(GZIP, response.getContentAsByteArray()), StandardCharsets.UTF_8),
+                is(content));
+    }
+
+    @Test
+    public void doesNotCompressSmallResponses() throws Exception {
+        ResponseCompression compression = create(6, 1024, null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] content = "<small/>".getBytes(StandardCharsets.UTF_8);
+        compression.handle(request("POST", GZIP), response, (req, res) -> {
+            res.setContentType(XML);
+            res.getOutputStream().write(content);
+        });
+        assertThat(response.getHeader(ResponseCompression.CONTENT_ENCODING), is(nullValue()));
+        assertThat(response.getContentLength(), is(content.length));
+        assertThat(response.getContentAsByteArray(), is(content));
+    }
+
+    @Test
+    public void doesNotCompressOtherContentTypes() throws Exception {
+        ResponseCompression compression = create(6, 16, null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] content = chunk(0);
+        compression.handle(request("POST", GZIP), response, (req, res) -> {
+            res.setContentType("application/exi");
+            res.getOutputStream().write(content);
+        });
+        assertThat(response.getHeader(ResponseCompression.CONTENT_ENCODING), is(nullValue()));
+        assertThat(response.getContentAsByteArray(), is(content));
+    }
+
+    @Test
+    public void doesNotCompressWithoutAcceptEncoding() throws Exception {
+        ResponseCompression compression = create(6, 16, null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] content = chunk(0);
+        compression.handle(request("POST", null), response, (req, res) -> {
+            res.setContentType(XML);
+            res.getOutputStream().write(content);
+        });
+        assertThat(response.getHeader(ResponseCompression.CONTENT_ENCODING), is(nullValue()));
+        assertThat(response.getHeader(ResponseCompression.VARY), is(ResponseCompression.ACCEPT_ENCODING));
+        assertThat(response.getContentAsByteArray(), is(content));
+    }
+
+    @Test
+    public void restartsCompressionAfterResetBuffer() throws Exception {
+        ResponseCompression compression = create(6, 16, null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] content = chunk(2);
+        compression.handle(request("POST", GZIP), response, (req, res) -> {
+            res.setContentType(XML);
+            OutputStream out = res.getOutputStream();
+            out.write(chunk(1));
+            // discard the partially compressed body
+            res.resetBuffer();
+            out.write(content);
+        });
+        assertThat(response.getHeader(ResponseCompression.CONTENT_ENCODING), is(GZIP));
+        assertThat(decodeAll(GZIP, response.getContentAsByteArray()), is(content));
+    }
+
+    @Test
+    public void negotiatesAgainAfterReset() throws Exception {
+        ResponseCompression compression = create(6, 16, null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String content = "<error/>";
+        compression.handle(request("POST", GZIP), response, (req, res) -> {
+            res.setContentType(XML);
+            PrintWriter writer = res.getWriter();
+            for (int i = 0; i < 10; i++) {
+                // exceeds the buffer of the writer, so that the compression starts
+                writer.write(new String(chunk(i), StandardCharsets.UTF_8));
+            }
+            writer.write("<pending/>");
+            // replace the partially compressed body, e.g. by an exception report
+            res.reset();
+            res.setContentType(XML);
+            writer.write(content);
+        });
+        assertThat(response.getHeader(ResponseCompression.CONTENT_ENCODING), is(nullValue()));
+        assertThat(response.getHeader(ResponseCompression.VARY), is(ResponseCompression.ACCEPT_ENCODING));
+        assertThat(response.getContentLength(), is(content.length()));
+        assertThat(response.getContentAsString(), is(content));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void doesNotResetCommittedResponses() throws Exception {
+        ResponseCompression compression = create(6, 16, null);
+        compression.handle(request("POST", GZIP), new MockHttpServletResponse(), (req, res) -> {
+            res.setContentType(XML);
+            res.getOutputStream().write(chunk(1));
+            res.flushBuffer();
+            res.reset();
+        });
+    }
+
+    @Test
+    public void servesPrecompressedCapabilities() throws Exception {
+        AtomicReference<Object> version = new AtomicReference<>("1");
+        PrecompressedPayloads payloads = new PrecompressedPayloads(1024 * 1024, 1, TimeUnit.HOURS, version::get);
+        ResponseCompression compression = create(6, 16, payloads);
+        AtomicInteger invocations = new AtomicInteger();
+        byte[] content = chunk(1);
+        RequestHandler handler = (req, res) -> {
+            invocations.incrementAndGet();
+            res.setContentType(XML);
+            res.getOutputStream().write(content);
+        };
+
+        MockHttpServletResponse first = capabilities(compression, handler, GZIP);
+        MockHttpServletResponse second = capabilities(compression, handler, GZIP);
+        assertThat(invocations.get(), is(1));
+        assertThat(payloads.size(), is(1L));
+        assertThat(second.getHeader(ResponseCompression.CONTENT_ENCODING), is(GZIP));
+        assertThat(second.getContentType(), is(XML));
+        assertThat(second.getContentLength(), is(first.getContentAsByteArray().length));
+        assertThat(second.getContentAsByteArray(), is(first.getContentAsByteArray()));
+        assertThat(decodeAll(GZIP, second.getContentAsByteArray()), is(content));
+
+        // every encoding is stored separately
+        MockHttpServletResponse deflated = capabilities(compression, handler, DEFLATE);
+        assertThat(invocations.get(), is(2));
+        assertThat(decodeAll(DEFLATE, deflated.getContentAsByteArray()), is(content));
+
+        // a new content version invalidates the payloads
+        version.set("2");
+        capabilities(compression, handler, GZIP);
+        assertThat(invocations.get(), is(3));
+
+        compression.clear();
+        assertThat(payloads.size(), is(0L));
+    }
+
+    @Test
+    public void doesNotStoreOtherRequests() throws Exception {
+        PrecompressedPayloads payloads = new PrecompressedPayloads(1024 * 1024, 1, TimeUnit.HOURS, () -> "1");
+        ResponseCompression compression = create(6, 16, payloads);
+        MockHttpServletRequest request = request("GET", GZIP);
+        request.setParameter("request", "GetObservation");
+        compression.handle(request, new MockHttpServletResponse(), (req, res) -> {
+            res.setContentType(XML);
+            res.getOutputStream().write(chunk(0));
+        });
+        assertThat(payloads.size(), is(0L));
+    }
+
+    @Test
+    public void compressesAtConfigurableLevels() throws Exception {
+        byte[] content = payload();
+        int previousSize = Integer.MAX_VALUE;
+        for (int level : LEVELS) {
+            ResponseCompression compression = create(level, 1024, null);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            long start = System.nanoTime();
+            compression.handle(request("POST", GZIP), response, (req, res) -> {
+                res.setContentType(XML);
+                OutputStream out = res.getOutputStream();
+                for (int off = 0; off < content.length; off += 8192) {
+                    out.write(content, off, Math.min(8192, content.length - off));
+                }
+            });
+            long nanos = Math.max(1, System.nanoTime() - start);
+            byte[] compressed = response.getContentAsByteArray();
+            LOG.info("Level {}: {} -> {} bytes, {} MB/s", level, content.length, compressed.length,
+                    content.length * 1000L / nanos);
+            assertThat(decodeAll(GZIP, compressed), is(content));
+            assertThat(compressed.length, is(lessThan(content.length / 4)));
+            assertThat(compressed.length, is(lessThanOrEqualTo(previousSize)));
+            assertThat(compressed.length, is(greaterThan(0)));
+            previousSize = compressed.length;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidLevel() {
+        create(10, 0, null);
+    }
+
+    private static ResponseCompression create(int level, int minSize, PrecompressedPayloads payloads) {
+        return new ResponseCompression(level, minSize, Collections.singletonList("/service"),
+                new ResponseCompression.ContentTypeFilter(Arrays.asList("text/", "xml", "json")), payloads);
+    }
+
+    private static MockHttpServletResponse capabilities(ResponseCompression compression, RequestHandler handler,
+            String encoding) throws Exception {
+        MockHttpServletRequest request = request("GET", encoding);
+        request.setParameter("service", "SOS");
+        request.setParameter("request", "GetCapabilities");
+        request.setQueryString("service=SOS&request=GetCapabilities");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        compression.handle(request, response, handler);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/service");
+        request.setServletPath("/service");
+        if (acceptEncoding != null) {
+            request.addHeader(ResponseCompression.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return request;
+    }
+
+    private static byte[] chunk(int i) {
+        StringBuilder builder = new StringBuilder();
+        for (int j = 0; j < 20; j++) {
+            builder.append("<om:result uom=\"degC\" chunk=\"").append(i).append("\">").append(i * 100 + j)
+                    .append("</om:result>\n");
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] payload() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(PAYLOAD_SIZE);
+        for (int i = 0; out.size() < PAYLOAD_SIZE; i++) {
+            byte[] chunk = chunk(i);
+            out.write(chunk, 0, chunk.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static InputStream decoder(String encoding, byte[] compressed) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(compressed);
+        return GZIP.equals(encoding) ? new GZIPInputStream(in) : new InflaterInputStream(in);
+    }
+
+    private static byte[] decode(String encoding, byte[] compressed, int length) throws IOException {
+        byte[] decoded = new byte[length];
+        try (DataInputStream in = new DataInputStream(decoder(encoding, compressed))) {
+            in.readFully(decoded);
+        }
+        return decoded;
+    }
+
+    private static byte[] decodeAll(String encoding, byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = decoder(encoding, compressed)) {
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+}